@@ -0,0 +1,97 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractWeightsBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import weka.core.Instances;
+
+/**
+ * Ancestor for the JMH benchmarks of the weights filters, generating the
+ * data and weight files once per trial.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractWeightsBenchmark {
+
+  /** the number of rows. */
+  @Param({"10000", "100000"})
+  public int rows;
+
+  /** the total number of attributes. */
+  @Param({"10", "100"})
+  public int attributes;
+
+  /** whether to use sparse rows. */
+  @Param({"false", "true"})
+  public boolean sparse;
+
+  /** the number of labels of the nominal attribute. */
+  @Param({"2", "1000"})
+  public int cardinality;
+
+  /** the generator. */
+  protected SyntheticData m_Generator;
+
+  /** the data to process. */
+  protected Instances m_Data;
+
+  /** the weight files and modifier setups. */
+  protected BenchmarkSetup m_Setup;
+
+  /**
+   * Generates data and weight files.
+   *
+   * @throws Exception	if generation fails
+   */
+  @Setup
+  public void setUp() throws Exception {
+    m_Generator = new SyntheticData()
+      .numRows(rows)
+      .numAttributes(attributes)
+      .sparse(sparse)
+      .nominalCardinality(cardinality);
+    m_Data  = m_Generator.generate();
+    m_Setup = new BenchmarkSetup(m_Generator);
+    m_Setup.writeFiles();
+
+    configure();
+  }
+
+  /**
+   * Configures the filter and modifier to benchmark.
+   *
+   * @throws Exception	if configuration fails
+   */
+  protected abstract void configure() throws Exception;
+
+  /**
+   * Removes the weight files.
+   */
+  @TearDown
+  public void tearDown() {
+    m_Setup.cleanUp();
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BenchmarkSetup.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights.benchmark;
+
+import weka.core.Utils;
+import weka.filters.unsupervised.attribute.attributeweightsmodifiers.AttributeWeightsModifier;
+import weka.filters.unsupervised.instance.instanceweightsmodifiers.InstanceWeightsModifier;
+
+import java.io.File;
+
+/**
+ * Writes the weight files for generated data into a temporary directory and
+ * configures the modifiers to benchmark against them.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BenchmarkSetup {
+
+  /** the instance weights modifiers to benchmark. */
+  public static final String[] INSTANCE_MODIFIERS = {
+    "PassThrough",
+    "BalanceClasses",
+    "Bootstrap",
+    "BootstrapReplicates",
+    "CollapseDuplicates",
+    "DownweightDenseRegions",
+    "DownweightMissingValues",
+    "DownweightNearDuplicates",
+    "DownweightOutliers",
+    "EqualizeClusters",
+    "EqualizeGroups",
+    "FixedValue",
+    "FixedValueByBitmap",
+    "FixedValueByRegExp",
+    "FromAttribute",
+    "FromExpression",
+    "FromFile",
+    "Normalize",
+    "ReservoirSample",
+    "TimeDecay",
+  };
+
+  /** the attribute weights modifiers to benchmark. */
+  public static final String[] ATTRIBUTE_MODIFIERS = {
+    "PassThrough",
+    "FixedValue",
+    "FixedValueByName",
+    "FromAttributeEvaluator",
+    "FromColumnStatistics",
+    "FromFile",
+    "FromSparsityProfile",
+  };
+
+  /** the fraction of rows selected by the bitmap. */
+  public static final double BITMAP_FRACTION = 0.1;
+
+  /** the generator. */
+  protected SyntheticData m_Generator;
+
+  /** the directory for the weight files. */
+  protected File m_TmpDir;
+
+  /**
+   * Initializes the setup.
+   *
+   * @param generator	the generator of the data
+   */
+  public BenchmarkSetup(SyntheticData generator) {
+    m_Generator = generator;
+  }
+
+  /**
+   * Writes the weight files in all supported formats: text files with one
+   * weight per line (instances and attributes) and a bitmap file.
+   *
+   * @throws Exception	if writing fails
+   */
+  public void writeFiles() throws Exception {
+    m_TmpDir = File.createTempFile("weights-benchmark", "");
+    m_TmpDir.delete();
+    m_TmpDir.mkdirs();
+    m_Generator.writeWeights(getInstanceWeightsFile(), m_Generator.getNumRows());
+    m_Generator.writeWeights(getAttributeWeightsFile(), m_Generator.getNumAttributes());
+    m_Generator.writeBitmap(getBitmapFile(), BITMAP_FRACTION);
+  }
+
+  /**
+   * Removes the weight files.
+   */
+  public void cleanUp() {
+    File[]	files;
+
+    if (m_TmpDir == null)
+      return;
+    files = m_TmpDir.listFiles();
+    if (files != null) {
+      for (File file: files)
+	file.delete();
+    }
+    m_TmpDir.delete();
+    m_TmpDir = null;
+  }
+
+  /**
+   * Returns the file with the instance weights (one per row).
+   *
+   * @return		the file
+   */
+  public File getInstanceWeightsFile() {
+    return new File(m_TmpDir, "instances.txt");
+  }
+
+  /**
+   * Returns the file with the attribute weights (one per attribute).
+   *
+   * @return		the file
+   */
+  public File getAttributeWeightsFile() {
+    return new File(m_TmpDir, "attributes.txt");
+  }
+
+  /**
+   * Returns the bitmap file with the row selection.
+   *
+   * @return		the file
+   */
+  public File getBitmapFile() {
+    return new File(m_TmpDir, "rows.bitmap");
+  }
+
+  /**
+   * Instantiates and configures the instance weights modifier.
+   *
+   * @param name	the name of the modifier, without package
+   * @return		the modifier
+   * @throws Exception	if instantiation fails
+   */
+  public InstanceWeightsModifier instanceModifier(String name) throws Exception {
+    String	options;
+
+    if (name.equals("DownweightDenseRegions"))
+      options = "-R " + (m_Generator.firstNumeric() + 1) + "-last";
+    else if (name.equals("DownweightOutliers"))
+      options = "-C last";
+    else if (name.equals("EqualizeClusters"))
+      options = "-R " + (m_Generator.firstNumeric() + 1) + "-last";
+    else if (name.equals("EqualizeGroups"))
+      options = "-R first";
+    else if (name.equals("FixedValue"))
+      options = "-weight 2.0 -R first-" + Math.max(1, m_Generator.getNumRows() / 2);
+    else if (name.equals("FixedValueByBitmap"))
+      options = "-weight 2.0 -bitmap " + Utils.quote(getBitmapFile().getAbsolutePath());
+    else if (name.equals("FixedValueByRegExp"))
+      options = "-weight 2.0 -A first -E v1.*";
+    else if (name.equals("FromAttribute"))
+      options = "-C last";
+    else if (name.equals("FromExpression"))
+      options = "-expression " + Utils.quote("log1p(abs(ATT" + m_Generator.getNumAttributes() + ")) * (ATT1 > 0 ? 2 : 1)");
+    else if (name.equals("FromFile"))
+      options = "-weights " + Utils.quote(getInstanceWeightsFile().getAbsolutePath());
+    else if (name.equals("Normalize"))
+      options = "-modifier " + Utils.quote(InstanceWeightsModifier.class.getPackage().getName() + ".FromAttribute -C last");
+    else if (name.equals("TimeDecay"))
+      options = "-C " + (m_Generator.dateIndex() + 1) + " -decay exponential -period 30 -reference max";
+    else
+      options = "";
+
+    return (InstanceWeightsModifier) Utils.forName(
+      InstanceWeightsModifier.class,
+      InstanceWeightsModifier.class.getPackage().getName() + "." + name,
+      Utils.splitOptions(options));
+  }
+
+  /**
+   * Instantiates and configures the attribute weights modifier.
+   *
+   * @param name	the name of the modifier, without package
+   * @return		the modifier
+   * @throws Exception	if instantiation fails
+   */
+  public AttributeWeightsModifier attributeModifier(String name) throws Exception {
+    String	options;
+
+    if (name.equals("FixedValue"))
+      options = "-weight 2.0 -R first-" + Math.max(1, m_Generator.getNumAttributes() / 2);
+    else if (name.equals("FixedValueByName"))
+      options = "-weight 2.0 -E num1.*";
+    else if (name.equals("FromAttributeEvaluator"))
+      options = "-normalize -R " + (m_Generator.firstNumeric() + 1) + "-last";
+    else if (name.equals("FromColumnStatistics"))
+      options = "-statistic inverse-variance -normalize -R " + (m_Generator.firstNumeric() + 1) + "-last";
+    else if (name.equals("FromFile"))
+      options = "-weights " + Utils.quote(getAttributeWeightsFile().getAbsolutePath());
+    else if (name.equals("FromSparsityProfile"))
+      options = "-rate present -curve power -exponent 0.5";
+    else
+      options = "";
+
+    return (AttributeWeightsModifier) Utils.forName(
+      AttributeWeightsModifier.class,
+      AttributeWeightsModifier.class.getPackage().getName() + "." + name,
+      Utils.splitOptions(options));
+  }
+}
@@ -0,0 +1,522 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ScalingBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights.benchmark;
+
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.filters.unsupervised.attribute.attributeweightsmodifiers.AbstractDataBasedAttributeWeightsModifier;
+import weka.filters.unsupervised.attribute.attributeweightsmodifiers.AttributeWeightsModifier;
+import weka.filters.unsupervised.instance.instanceweightsmodifiers.AbstractParallelInstanceWeightsModifier;
+import weka.filters.unsupervised.instance.instanceweightsmodifiers.InstanceWeightsModifier;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the modifiers across a grid of dataset sizes and thread counts and
+ * reports wall-clock time, peak heap and allocated bytes per row as CSV
+ * and/or markdown, to make the scaling behavior visible.
+ * <br><br>
+ * With N threads, N invocations of the same modifier instance process the
+ * full dataset concurrently (modifiers are thread-safe), i.e., N times the
+ * number of rows get processed per repetition. Independently of that,
+ * modifiers that can process the data with multiple threads themselves
+ * (-num-threads option) get measured with each of the specified numbers of
+ * threads, to make their intra-modifier parallelism visible.
+ * <br><br>
+ * Options:
+ * <pre>
+ * -rows &lt;list&gt;                comma-separated number of rows (default: 100000,1000000)
+ * -attributes &lt;list&gt;          comma-separated number of attributes (default: 10,1000)
+ * -layouts &lt;list&gt;             dense and/or sparse (default: dense,sparse)
+ * -max-dense-values &lt;num&gt;     skips dense datasets with more rows x attributes (default: 100000000)
+ * -density &lt;num&gt;              fraction of non-zero values in sparse rows (default: 0.01)
+ * -cardinality &lt;num&gt;          number of labels of the nominal attribute (default: 1000)
+ * -string-cardinality &lt;num&gt;   number of distinct strings, 0 for none (default: 10000)
+ * -threads &lt;list&gt;             comma-separated thread counts (default: 1,2,4)
+ * -num-threads &lt;list&gt;         comma-separated values for the -num-threads option of the modifiers that support it (default: 1,4)
+ * -modifiers &lt;list&gt;           comma-separated modifiers, prefixed with "instance." or "attribute." (default: all)
+ * -repeats &lt;num&gt;              number of measured repetitions (default: 3)
+ * -seed &lt;num&gt;                 seed for the data generation (default: 42)
+ * -csv &lt;file&gt;                 the CSV file to write the report to
+ * -markdown &lt;file&gt;            the markdown file to write the report to (default: stdout)
+ * </pre>
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ScalingBenchmark {
+
+  /** the columns of the report. */
+  public static final String[] COLUMNS = {
+    "type",
+    "modifier",
+    "rows",
+    "attributes",
+    "layout",
+    "threads",
+    "num_threads",
+    "mean_ms",
+    "best_ms",
+    "rows_per_sec",
+    "peak_heap_mb",
+    "alloc_bytes_per_row",
+  };
+
+  /** the thread bean for the allocation counters. */
+  protected com.sun.management.ThreadMXBean m_ThreadBean;
+
+  /** the number of measured repetitions. */
+  protected int m_Repeats = 3;
+
+  /** the report rows. */
+  protected List<String[]> m_Report = new ArrayList<String[]>();
+
+  /**
+   * Initializes the benchmark.
+   */
+  public ScalingBenchmark() {
+    ThreadMXBean	bean;
+
+    bean = ManagementFactory.getThreadMXBean();
+    if ((bean instanceof com.sun.management.ThreadMXBean) && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      m_ThreadBean = (com.sun.management.ThreadMXBean) bean;
+      m_ThreadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+    else {
+      System.err.println("Allocated bytes per thread not supported by JVM!");
+    }
+  }
+
+  /**
+   * Sets the number of measured repetitions.
+   *
+   * @param value	the repetitions
+   */
+  public void setRepeats(int value) {
+    m_Repeats = value;
+  }
+
+  /**
+   * Returns the bytes allocated by the current thread so far.
+   *
+   * @return		the bytes, 0 if not supported
+   */
+  protected long allocatedBytes() {
+    if (m_ThreadBean == null)
+      return 0;
+    return m_ThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Resets the peak usage of all heap memory pools.
+   */
+  protected void resetPeakHeap() {
+    for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP)
+	pool.resetPeakUsage();
+    }
+  }
+
+  /**
+   * Returns the sum of the peak usage of all heap memory pools.
+   *
+   * @return		the peak usage in bytes
+   */
+  protected long peakHeap() {
+    long	result;
+
+    result = 0;
+    for (MemoryPoolMXBean pool: ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP)
+	result += pool.getPeakUsage().getUsed();
+    }
+
+    return result;
+  }
+
+  /**
+   * Invokes the modifier once on the data.
+   *
+   * @param modifier	the modifier to invoke
+   * @param data	the data to process
+   * @throws Exception	if modifying fails
+   */
+  protected void invoke(Object modifier, Instances data) throws Exception {
+    if (modifier instanceof InstanceWeightsModifier)
+      ((InstanceWeightsModifier) modifier).modifyInstanceWeights(data);
+    else
+      ((AttributeWeightsModifier) modifier).modifyAttributeWeights(data);
+  }
+
+  /**
+   * Checks whether the modifier can process the data with multiple threads
+   * itself (-num-threads option).
+   *
+   * @param modifier	the modifier to check
+   * @return		true if supported
+   */
+  protected static boolean supportsNumThreads(Object modifier) {
+    return (modifier instanceof AbstractParallelInstanceWeightsModifier)
+      || (modifier instanceof AbstractDataBasedAttributeWeightsModifier);
+  }
+
+  /**
+   * Sets the number of threads the modifier uses itself.
+   *
+   * @param modifier	the modifier to update
+   * @param numThreads	the number of threads
+   * @see		#supportsNumThreads(Object)
+   */
+  protected static void setNumThreads(Object modifier, int numThreads) {
+    if (modifier instanceof AbstractParallelInstanceWeightsModifier)
+      ((AbstractParallelInstanceWeightsModifier) modifier).setNumThreads(numThreads);
+    else if (modifier instanceof AbstractDataBasedAttributeWeightsModifier)
+      ((AbstractDataBasedAttributeWeightsModifier) modifier).setNumThreads(numThreads);
+  }
+
+  /**
+   * Measures the modifier and adds a row to the report.
+   *
+   * @param type	the type of modifier (instance/attribute)
+   * @param name	the name of the modifier
+   * @param modifier	the configured modifier
+   * @param data	the data to process
+   * @param layout	the layout of the data (dense/sparse)
+   * @param threads	the number of concurrent invocations
+   * @param numThreads	the number of threads used by the modifier itself, "-" if not supported
+   * @throws Exception	if modifying fails
+   */
+  public void measure(String type, String name, final Object modifier, final Instances data, String layout, int threads, String numThreads) throws Exception {
+    ExecutorService		executor;
+    List<Future<Object>>	futures;
+    final AtomicLong		allocated;
+    long			start;
+    long			duration;
+    long			total;
+    long			best;
+    long			peak;
+    int				i;
+    int				n;
+
+    executor  = Executors.newFixedThreadPool(threads);
+    allocated = new AtomicLong();
+    total     = 0;
+    best      = Long.MAX_VALUE;
+    peak      = 0;
+    try {
+      // warm up, also compiles the plan
+      invoke(modifier, data);
+
+      for (i = 0; i < m_Repeats; i++) {
+	System.gc();
+	resetPeakHeap();
+	futures = new ArrayList<Future<Object>>();
+	start   = System.nanoTime();
+	for (n = 0; n < threads; n++) {
+	  futures.add(executor.submit(new Callable<Object>() {
+	    public Object call() throws Exception {
+	      long before = allocatedBytes();
+	      invoke(modifier, data);
+	      allocated.addAndGet(allocatedBytes() - before);
+	      return null;
+	    }
+	  }));
+	}
+	for (Future<Object> future: futures)
+	  future.get();
+	duration = System.nanoTime() - start;
+	total   += duration;
+	best     = Math.min(best, duration);
+	peak     = Math.max(peak, peakHeap());
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    m_Report.add(new String[]{
+      type,
+      name,
+      "" + data.numInstances(),
+      "" + data.numAttributes(),
+      layout,
+      "" + threads,
+      numThreads,
+      format(total / m_Repeats / 1e6),
+      format(best / 1e6),
+      format((double) threads * data.numInstances() / (best / 1e9)),
+      format(peak / 1024.0 / 1024.0),
+      format((double) allocated.get() / m_Repeats / threads / Math.max(1, data.numInstances())),
+    });
+    System.err.println(join(m_Report.get(m_Report.size() - 1), ", "));
+  }
+
+  /**
+   * Formats the number with two decimals.
+   *
+   * @param value	the number to format
+   * @return		the formatted number
+   */
+  protected static String format(double value) {
+    return String.format(Locale.ENGLISH, "%.2f", value);
+  }
+
+  /**
+   * Returns the report as CSV.
+   *
+   * @return		the CSV
+   */
+  public String toCSV() {
+    StringBuilder	result;
+
+    result = new StringBuilder();
+    result.append(join(COLUMNS, ",")).append("\n");
+    for (String[] row: m_Report)
+      result.append(join(row, ",")).append("\n");
+
+    return result.toString();
+  }
+
+  /**
+   * Returns the report as markdown table.
+   *
+   * @return		the markdown
+   */
+  public String toMarkdown() {
+    StringBuilder	result;
+    int			i;
+
+    result = new StringBuilder();
+    result.append("| ").append(join(COLUMNS, " | ")).append(" |\n");
+    result.append("|");
+    for (i = 0; i < COLUMNS.length; i++)
+      result.append(i < 2 || i == 4 ? " --- |" : " ---: |");
+    result.append("\n");
+    for (String[] row: m_Report)
+      result.append("| ").append(join(row, " | ")).append(" |\n");
+
+    return result.toString();
+  }
+
+  /**
+   * Joins the values with the separator.
+   *
+   * @param values	the values to join
+   * @param separator	the separator to use
+   * @return		the joined values
+   */
+  protected static String join(String[] values, String separator) {
+    StringBuilder	result;
+    int			i;
+
+    result = new StringBuilder();
+    for (i = 0; i < values.length; i++) {
+      if (i > 0)
+	result.append(separator);
+      result.append(values[i]);
+    }
+
+    return result.toString();
+  }
+
+  /**
+   * Parses a comma-separated list of integers.
+   *
+   * @param list	the list to parse
+   * @return		the integers
+   */
+  protected static int[] parseInts(String list) {
+    String[]	parts;
+    int[]	result;
+    int		i;
+
+    parts  = list.split(",");
+    result = new int[parts.length];
+    for (i = 0; i < parts.length; i++)
+      result[i] = Integer.parseInt(parts[i].trim());
+
+    return result;
+  }
+
+  /**
+   * Returns the option value or the default value if not present.
+   *
+   * @param name	the name of the option
+   * @param defValue	the default value
+   * @param options	the options to parse
+   * @return		the value
+   * @throws Exception	if parsing fails
+   */
+  protected static String getOption(String name, String defValue, String[] options) throws Exception {
+    String	result;
+
+    result = Utils.getOption(name, options);
+    if (result.isEmpty())
+      result = defValue;
+
+    return result;
+  }
+
+  /**
+   * Writes the content to the file.
+   *
+   * @param content	the content to write
+   * @param file	the file to write to
+   * @throws Exception	if writing fails
+   */
+  protected static void write(String content, File file) throws Exception {
+    BufferedWriter	writer;
+
+    writer = new BufferedWriter(new FileWriter(file));
+    try {
+      writer.write(content);
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Runs the benchmark from the command-line.
+   *
+   * @param args	the options, see class description
+   * @throws Exception	if benchmark fails
+   */
+  public static void main(String[] args) throws Exception {
+    ScalingBenchmark	benchmark;
+    List<String>	modifiers;
+    SyntheticData	generator;
+    BenchmarkSetup	setup;
+    Instances		data;
+    int[]		rows;
+    int[]		attributes;
+    String[]		layouts;
+    int[]		threads;
+    int[]		numThreads;
+    double		density;
+    long		maxDense;
+    int			cardinality;
+    int			stringCardinality;
+    long		seed;
+    String		csv;
+    String		markdown;
+    String		type;
+    String		name;
+    Object		modifier;
+
+    rows              = parseInts(getOption("rows", "100000,1000000", args));
+    attributes        = parseInts(getOption("attributes", "10,1000", args));
+    layouts           = getOption("layouts", "dense,sparse", args).split(",");
+    maxDense          = Long.parseLong(getOption("max-dense-values", "100000000", args));
+    density           = Double.parseDouble(getOption("density", "0.01", args));
+    cardinality       = Integer.parseInt(getOption("cardinality", "1000", args));
+    stringCardinality = Integer.parseInt(getOption("string-cardinality", "10000", args));
+    threads           = parseInts(getOption("threads", "1,2,4", args));
+    numThreads        = parseInts(getOption("num-threads", "1,4", args));
+    seed              = Long.parseLong(getOption("seed", "42", args));
+    csv               = Utils.getOption("csv", args);
+    markdown          = Utils.getOption("markdown", args);
+    modifiers         = new ArrayList<String>();
+    for (String mod: getOption("modifiers", "", args).split(",")) {
+      if (!mod.trim().isEmpty())
+	modifiers.add(mod.trim());
+    }
+    if (modifiers.isEmpty()) {
+      for (String mod: BenchmarkSetup.INSTANCE_MODIFIERS)
+	modifiers.add("instance." + mod);
+      for (String mod: BenchmarkSetup.ATTRIBUTE_MODIFIERS)
+	modifiers.add("attribute." + mod);
+    }
+
+    benchmark = new ScalingBenchmark();
+    benchmark.setRepeats(Integer.parseInt(getOption("repeats", "3", args)));
+    Utils.checkForRemainingOptions(args);
+
+    for (String layout: layouts) {
+      for (int numRows: rows) {
+	for (int numAtts: attributes) {
+	  if (layout.trim().equals("dense") && ((long) numRows * numAtts > maxDense)) {
+	    System.err.println("Skipping dense dataset with " + numRows + " x " + numAtts + " values (> " + maxDense + ")");
+	    continue;
+	  }
+	  generator = new SyntheticData()
+	    .numRows(numRows)
+	    .numAttributes(numAtts)
+	    .sparse(layout.trim().equals("sparse"))
+	    .density(density)
+	    .nominalCardinality(cardinality)
+	    .stringCardinality(stringCardinality)
+	    .seed(seed);
+	  data  = generator.generate();
+	  setup = new BenchmarkSetup(generator);
+	  setup.writeFiles();
+	  try {
+	    for (String mod: modifiers) {
+	      type = mod.substring(0, mod.indexOf('.'));
+	      name = mod.substring(mod.indexOf('.') + 1);
+	      if (type.equals("instance"))
+		modifier = setup.instanceModifier(name);
+	      else if (type.equals("attribute"))
+		modifier = setup.attributeModifier(name);
+	      else
+		throw new IllegalArgumentException("Unknown type of modifier: " + mod);
+	      for (int concurrent: threads) {
+		if (supportsNumThreads(modifier)) {
+		  for (int intra: numThreads) {
+		    setNumThreads(modifier, intra);
+		    benchmark.measure(type, name, modifier, data, layout.trim(), concurrent, "" + intra);
+		  }
+		}
+		else {
+		  benchmark.measure(type, name, modifier, data, layout.trim(), concurrent, "-");
+		}
+	      }
+	    }
+	  }
+	  finally {
+	    setup.cleanUp();
+	  }
+	}
+      }
+    }
+
+    if (!csv.isEmpty())
+      write(benchmark.toCSV(), new File(csv));
+    if (!markdown.isEmpty())
+      write(benchmark.toMarkdown(), new File(markdown));
+    else if (csv.isEmpty())
+      System.out.println(benchmark.toMarkdown());
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SparseAccessBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.weights.SparseAccess;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading a single attribute of every sparse row via
+ * {@link Instance#value(int)} (binary search over the stored indices) and
+ * via {@link SparseAccess#value(Instance, int)}, which locates the first and
+ * last stored attribute (class, weight attribute) in constant time. The
+ * attribute in the middle shows the cost of the extra checks when the fast
+ * path does not apply.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SparseAccessBenchmark {
+
+  /** the number of rows. */
+  @Param({"10000"})
+  public int rows;
+
+  /** the total number of attributes. */
+  @Param({"100", "10000"})
+  public int attributes;
+
+  /** the fraction of non-zero values. */
+  @Param({"0.05"})
+  public double density;
+
+  /** the attribute to read: first (class), middle or last (weight). */
+  @Param({"first", "middle", "last"})
+  public String position;
+
+  /** the data to read. */
+  protected Instances m_Data;
+
+  /** the 0-based index of the attribute to read. */
+  protected int m_Index;
+
+  /**
+   * Generates the sparse data.
+   *
+   * @throws Exception	if generation fails
+   */
+  @Setup
+  public void setUp() throws Exception {
+    m_Data = new SyntheticData()
+      .numRows(rows)
+      .numAttributes(attributes)
+      .sparse(true)
+      .density(density)
+      .generate();
+    if (position.equals("first"))
+      m_Index = 0;
+    else if (position.equals("last"))
+      m_Index = m_Data.numAttributes() - 1;
+    else
+      m_Index = m_Data.numAttributes() / 2;
+  }
+
+  /**
+   * Sums the values using the generic lookup of the rows.
+   *
+   * @return		the sum
+   */
+  @Benchmark
+  public double instanceValue() {
+    double	result;
+    int		i;
+
+    result = 0;
+    for (i = 0; i < m_Data.numInstances(); i++)
+      result += m_Data.instance(i).value(m_Index);
+
+    return result;
+  }
+
+  /**
+   * Sums the values using the index-aware lookup.
+   *
+   * @return		the sum
+   */
+  @Benchmark
+  public double sparseAccess() {
+    double	result;
+    int		i;
+
+    result = 0;
+    for (i = 0; i < m_Data.numInstances(); i++)
+      result += SparseAccess.value(m_Data.instance(i), m_Index);
+
+    return result;
+  }
+}
@@ -0,0 +1,483 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SyntheticData.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights.benchmark;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+import weka.core.weights.CompressedBitmap;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic datasets and matching weight files for
+ * benchmarking the weights modifiers.
+ * <br><br>
+ * Layout of the data: first attribute is a nominal one (class attribute)
+ * with the specified number of labels, followed by an optional string
+ * attribute, a "date" attribute (spread over the year before
+ * {@link #DATE_END}), numeric attributes and a numeric "weight" attribute as
+ * last attribute (always positive, always stored in sparse rows).
+ * <br><br>
+ * Sparse rows are generated by skipping ahead geometrically distributed
+ * distances, i.e., the time per row is proportional to the number of
+ * non-zero values and not the number of attributes (up to millions of
+ * attributes are feasible).
+ * <br><br>
+ * From the command-line, the data gets written as "data.arff" together
+ * with matching weight files in all supported formats ("instances.txt",
+ * "attributes.txt", "rows.bitmap") to the output directory. Options:
+ * <pre>
+ * -rows &lt;num&gt;                 the number of rows (default: 10000)
+ * -attributes &lt;num&gt;           the total number of attributes (default: 10)
+ * -sparse                      generates sparse rows
+ * -density &lt;num&gt;              fraction of non-zero values in sparse rows (default: 0.05)
+ * -cardinality &lt;num&gt;          number of labels of the nominal attribute (default: 10)
+ * -string-cardinality &lt;num&gt;   number of distinct strings, 0 for none (default: 0)
+ * -seed &lt;num&gt;                 the seed (default: 42)
+ * -output-dir &lt;dir&gt;           the directory to write the files to (default: .)
+ * </pre>
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SyntheticData {
+
+  /** the prefix for the labels of the nominal attribute. */
+  public static final String LABEL_PREFIX = "v";
+
+  /** the format of the date attribute. */
+  public static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
+
+  /** the latest date (msec, 2019-01-01 00:00:00 UTC). */
+  public static final long DATE_END = 1546300800000L;
+
+  /** the time span covered by the dates (msec, 365 days). */
+  public static final long DATE_SPAN = 365L * 24 * 60 * 60 * 1000;
+
+  /** the number of rows. */
+  protected int m_NumRows = 10000;
+
+  /** the total number of attributes (at least 3). */
+  protected int m_NumAttributes = 10;
+
+  /** whether to generate sparse rows. */
+  protected boolean m_Sparse = false;
+
+  /** the fraction of non-zero numeric values in sparse rows. */
+  protected double m_Density = 0.05;
+
+  /** the number of labels of the nominal attribute. */
+  protected int m_NominalCardinality = 10;
+
+  /** the number of distinct values of the string attribute (0 = no string attribute). */
+  protected int m_StringCardinality = 0;
+
+  /** the seed for the random numbers. */
+  protected long m_Seed = 42;
+
+  /**
+   * Sets the number of rows.
+   *
+   * @param value	the number of rows
+   * @return		itself
+   */
+  public SyntheticData numRows(int value) {
+    m_NumRows = value;
+    return this;
+  }
+
+  /**
+   * Sets the total number of attributes.
+   *
+   * @param value	the number of attributes (at least 3)
+   * @return		itself
+   */
+  public SyntheticData numAttributes(int value) {
+    if (value < 3)
+      throw new IllegalArgumentException("At least 3 attributes required: " + value);
+    m_NumAttributes = value;
+    return this;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return		the number of rows
+   */
+  public int getNumRows() {
+    return m_NumRows;
+  }
+
+  /**
+   * Returns the total number of attributes.
+   *
+   * @return		the number of attributes
+   */
+  public int getNumAttributes() {
+    return m_NumAttributes;
+  }
+
+  /**
+   * Sets whether to generate sparse rows.
+   *
+   * @param value	true if sparse
+   * @return		itself
+   */
+  public SyntheticData sparse(boolean value) {
+    m_Sparse = value;
+    return this;
+  }
+
+  /**
+   * Sets the fraction of non-zero numeric values in sparse rows.
+   *
+   * @param value	the density (0-1)
+   * @return		itself
+   */
+  public SyntheticData density(double value) {
+    m_Density = value;
+    return this;
+  }
+
+  /**
+   * Sets the number of labels of the nominal attribute.
+   *
+   * @param value	the number of labels
+   * @return		itself
+   */
+  public SyntheticData nominalCardinality(int value) {
+    m_NominalCardinality = value;
+    return this;
+  }
+
+  /**
+   * Sets the number of distinct values of the string attribute.
+   *
+   * @param value	the number of values, 0 for no string attribute
+   * @return		itself
+   */
+  public SyntheticData stringCardinality(int value) {
+    m_StringCardinality = value;
+    return this;
+  }
+
+  /**
+   * Returns the index of the date attribute.
+   *
+   * @return		the index
+   */
+  protected int dateIndex() {
+    return (m_StringCardinality > 0) ? 2 : 1;
+  }
+
+  /**
+   * Returns the index of the first numeric attribute.
+   *
+   * @return		the index
+   */
+  protected int firstNumeric() {
+    return dateIndex() + 1;
+  }
+
+  /**
+   * Sets the seed.
+   *
+   * @param value	the seed
+   * @return		itself
+   */
+  public SyntheticData seed(long value) {
+    m_Seed = value;
+    return this;
+  }
+
+  /**
+   * Generates the header.
+   *
+   * @return		the header
+   */
+  public Instances header() {
+    ArrayList<Attribute>	atts;
+    List<String>		labels;
+    int				i;
+    Instances			result;
+
+    atts   = new ArrayList<Attribute>(m_NumAttributes);
+    labels = new ArrayList<String>(m_NominalCardinality);
+    for (i = 0; i < m_NominalCardinality; i++)
+      labels.add(LABEL_PREFIX + i);
+    atts.add(new Attribute("nominal", labels));
+    if (m_StringCardinality > 0)
+      atts.add(new Attribute("string", (List<String>) null));
+    atts.add(new Attribute("date", DATE_FORMAT));
+    for (i = firstNumeric(); i < m_NumAttributes - 1; i++)
+      atts.add(new Attribute("num" + i));
+    atts.add(new Attribute("weight"));
+
+    result = new Instances("synthetic-" + m_NumRows + "x" + m_NumAttributes + (m_Sparse ? "-sparse" : ""), atts, 0);
+    result.setClassIndex(0);
+
+    return result;
+  }
+
+  /**
+   * Generates the data.
+   *
+   * @return		the data
+   */
+  public Instances generate() {
+    Instances	result;
+    Random	rnd;
+    double[]	values;
+    int[]	indices;
+    int		count;
+    int		first;
+    int		i;
+    int		n;
+    double	label;
+    double	str;
+    double	date;
+    double	logSkip;
+
+    if (m_NumAttributes <= firstNumeric())
+      throw new IllegalArgumentException("At least " + (firstNumeric() + 1) + " attributes required: " + m_NumAttributes);
+
+    result  = new Instances(header(), m_NumRows);
+    rnd     = new Random(m_Seed);
+    first   = firstNumeric();
+    values  = new double[16];
+    indices = new int[16];
+    logSkip = Math.log(1.0 - Math.min(m_Density, 0.999999));
+    for (i = 0; i < m_NumRows; i++) {
+      label = rnd.nextInt(m_NominalCardinality);
+      str   = Double.NaN;
+      if (m_StringCardinality > 0)
+	str = result.attribute(1).addStringValue("s" + rnd.nextInt(m_StringCardinality));
+      date  = DATE_END - Math.floor(rnd.nextDouble() * DATE_SPAN / 1000) * 1000;
+      if (m_Sparse) {
+	count = 0;
+	if (label != 0) {
+	  indices[count] = 0;
+	  values[count]  = label;
+	  count++;
+	}
+	if (m_StringCardinality > 0) {
+	  indices[count] = 1;
+	  values[count]  = str;
+	  count++;
+	}
+	indices[count] = first - 1;
+	values[count]  = date;
+	count++;
+	n = first - 1;
+	while (true) {
+	  n += 1 + (int) Math.min(Integer.MAX_VALUE / 2, Math.floor(Math.log(1.0 - rnd.nextDouble()) / logSkip));
+	  if (n >= m_NumAttributes - 1)
+	    break;
+	  if (count + 1 >= indices.length) {
+	    indices = Arrays.copyOf(indices, indices.length * 2);
+	    values  = Arrays.copyOf(values, values.length * 2);
+	  }
+	  indices[count] = n;
+	  values[count]  = rnd.nextGaussian();
+	  count++;
+	}
+	indices[count] = m_NumAttributes - 1;
+	values[count]  = 0.01 + 2 * rnd.nextDouble();
+	count++;
+	result.add(new SparseInstance(1.0, trim(values, count), trim(indices, count), m_NumAttributes));
+      }
+      else {
+	values    = new double[m_NumAttributes];
+	values[0] = label;
+	if (m_StringCardinality > 0)
+	  values[1] = str;
+	values[first - 1] = date;
+	for (n = first; n < m_NumAttributes - 1; n++)
+	  values[n] = rnd.nextGaussian();
+	values[m_NumAttributes - 1] = 0.01 + 2 * rnd.nextDouble();
+	result.add(new DenseInstance(1.0, values));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the first n values of the array.
+   *
+   * @param values	the values
+   * @param n		the number of values
+   * @return		the trimmed array
+   */
+  protected static double[] trim(double[] values, int n) {
+    double[]	result;
+
+    result = new double[n];
+    System.arraycopy(values, 0, result, 0, n);
+    return result;
+  }
+
+  /**
+   * Returns the first n indices of the array.
+   *
+   * @param indices	the indices
+   * @param n		the number of indices
+   * @return		the trimmed array
+   */
+  protected static int[] trim(int[] indices, int n) {
+    int[]	result;
+
+    result = new int[n];
+    System.arraycopy(indices, 0, result, 0, n);
+    return result;
+  }
+
+  /**
+   * Writes the specified number of random weights to the file, one per line
+   * (format of the FromFile modifiers).
+   *
+   * @param file	the file to write to
+   * @param count	the number of weights
+   * @throws Exception	if writing fails
+   */
+  public void writeWeights(File file, int count) throws Exception {
+    BufferedWriter	writer;
+    Random		rnd;
+    int			i;
+
+    rnd    = new Random(m_Seed + 1);
+    writer = new BufferedWriter(new FileWriter(file));
+    try {
+      for (i = 0; i < count; i++) {
+	writer.write(Double.toString(0.01 + 2 * rnd.nextDouble()));
+	writer.newLine();
+      }
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Writes a bitmap file that selects the specified fraction of the rows,
+   * mixing single rows and blocks of consecutive rows.
+   *
+   * @param file	the file to write to
+   * @param fraction	the fraction of rows to select (0-1)
+   * @throws Exception	if writing fails
+   */
+  public void writeBitmap(File file, double fraction) throws Exception {
+    CompressedBitmap.Builder	builder;
+    Random			rnd;
+    int				i;
+    int				n;
+    int				block;
+
+    rnd     = new Random(m_Seed + 2);
+    builder = new CompressedBitmap.Builder();
+    i       = 0;
+    while (i < m_NumRows) {
+      // every tenth selection is a block of consecutive rows
+      block = (rnd.nextInt(10) == 0) ? 1 + rnd.nextInt(1000) : 1;
+      if (rnd.nextDouble() < fraction) {
+	for (n = i; (n < i + block) && (n < m_NumRows); n++)
+	  builder.add(n);
+      }
+      i += block;
+    }
+    builder.build().write(file);
+  }
+
+  /**
+   * Writes the data as ARFF file, row by row.
+   *
+   * @param data	the data to write
+   * @param file	the file to write to
+   * @throws Exception	if writing fails
+   */
+  public static void writeArff(Instances data, File file) throws Exception {
+    BufferedWriter	writer;
+    int			i;
+
+    writer = new BufferedWriter(new FileWriter(file));
+    try {
+      writer.write(new Instances(data, 0).toString());
+      writer.newLine();
+      for (i = 0; i < data.numInstances(); i++) {
+	writer.write(data.instance(i).toString());
+	writer.newLine();
+      }
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Generates the data and weight files from the command-line.
+   *
+   * @param args	the options, see class description
+   * @throws Exception	if generation fails
+   */
+  public static void main(String[] args) throws Exception {
+    SyntheticData	generator;
+    String		tmpStr;
+    File		dir;
+
+    generator = new SyntheticData();
+    tmpStr = Utils.getOption("rows", args);
+    if (!tmpStr.isEmpty())
+      generator.numRows(Integer.parseInt(tmpStr));
+    tmpStr = Utils.getOption("attributes", args);
+    if (!tmpStr.isEmpty())
+      generator.numAttributes(Integer.parseInt(tmpStr));
+    generator.sparse(Utils.getFlag("sparse", args));
+    tmpStr = Utils.getOption("density", args);
+    if (!tmpStr.isEmpty())
+      generator.density(Double.parseDouble(tmpStr));
+    tmpStr = Utils.getOption("cardinality", args);
+    if (!tmpStr.isEmpty())
+      generator.nominalCardinality(Integer.parseInt(tmpStr));
+    tmpStr = Utils.getOption("string-cardinality", args);
+    if (!tmpStr.isEmpty())
+      generator.stringCardinality(Integer.parseInt(tmpStr));
+    tmpStr = Utils.getOption("seed", args);
+    if (!tmpStr.isEmpty())
+      generator.seed(Long.parseLong(tmpStr));
+    tmpStr = Utils.getOption("output-dir", args);
+    dir = new File(tmpStr.isEmpty() ? "." : tmpStr);
+    Utils.checkForRemainingOptions(args);
+
+    dir.mkdirs();
+    writeArff(generator.generate(), new File(dir, "data.arff"));
+    generator.writeWeights(new File(dir, "instances.txt"), generator.getNumRows());
+    generator.writeWeights(new File(dir, "attributes.txt"), generator.getNumAttributes());
+    generator.writeBitmap(new File(dir, "rows.bitmap"), BenchmarkSetup.BITMAP_FRACTION);
+  }
+}
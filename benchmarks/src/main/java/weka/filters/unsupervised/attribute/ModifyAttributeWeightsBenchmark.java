@@ -0,0 +1,97 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ModifyAttributeWeightsBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.attribute;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instances;
+import weka.core.weights.benchmark.AbstractWeightsBenchmark;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.attributeweightsmodifiers.AttributeWeightsModifier;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the {@link ModifyAttributeWeights} filter and the attribute
+ * weights modifiers, with {@code PassThrough} as baseline. Use "-prof gc"
+ * for allocation rates.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModifyAttributeWeightsBenchmark
+  extends AbstractWeightsBenchmark {
+
+  /** the modifier to benchmark. */
+  @Param({"PassThrough", "FixedValue", "FixedValueByName", "FromAttributeEvaluator", "FromColumnStatistics", "FromFile", "FromSparsityProfile"})
+  public String modifier;
+
+  /** the configured modifier. */
+  protected AttributeWeightsModifier m_Modifier;
+
+  /** the configured filter. */
+  protected ModifyAttributeWeights m_Filter;
+
+  /**
+   * Configures the filter and modifier to benchmark.
+   *
+   * @throws Exception	if configuration fails
+   */
+  @Override
+  protected void configure() throws Exception {
+    m_Modifier = m_Setup.attributeModifier(modifier);
+    m_Filter   = new ModifyAttributeWeights();
+    m_Filter.setModifier(m_Modifier);
+  }
+
+  /**
+   * Pushes the data through the filter.
+   *
+   * @return		the filtered data
+   * @throws Exception	if filtering fails
+   */
+  @Benchmark
+  public Instances filter() throws Exception {
+    m_Filter.setInputFormat(m_Data);
+    return Filter.useFilter(m_Data, m_Filter);
+  }
+
+  /**
+   * Applies the modifier directly.
+   *
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  @Benchmark
+  public Instances modifier() throws Exception {
+    return m_Modifier.modifyAttributeWeights(m_Data);
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PlanKeyBenchmark.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import weka.core.Instances;
+import weka.core.weights.RowHash;
+import weka.core.weights.benchmark.SyntheticData;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of the plan key of the modifiers that derive the
+ * attribute weights from the data (fingerprint of all rows, computed on
+ * every lookup) with the cost of compiling their plans, i.e., what a cache
+ * hit saves and what a miss adds.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlanKeyBenchmark {
+
+  /** the number of rows. */
+  @Param({"10000", "100000"})
+  public int rows;
+
+  /** the total number of attributes. */
+  @Param({"10", "100"})
+  public int attributes;
+
+  /** whether to use sparse rows. */
+  @Param({"false", "true"})
+  public boolean sparse;
+
+  /** the data to process. */
+  protected Instances m_Data;
+
+  /** the column statistics modifier. */
+  protected FromColumnStatistics m_ColumnStatistics;
+
+  /** the sparsity profile modifier. */
+  protected FromSparsityProfile m_SparsityProfile;
+
+  /** the attribute evaluator modifier. */
+  protected FromAttributeEvaluator m_AttributeEvaluator;
+
+  /**
+   * Generates the data and configures the modifiers (single thread).
+   *
+   * @throws Exception	if generation fails
+   */
+  @Setup
+  public void setUp() throws Exception {
+    m_Data = new SyntheticData()
+      .numRows(rows)
+      .numAttributes(attributes)
+      .sparse(sparse)
+      .generate();
+    m_ColumnStatistics = new FromColumnStatistics();
+    m_ColumnStatistics.setNumThreads(1);
+    m_SparsityProfile = new FromSparsityProfile();
+    m_SparsityProfile.setNumThreads(1);
+    m_AttributeEvaluator = new FromAttributeEvaluator();
+    m_AttributeEvaluator.setNumThreads(1);
+  }
+
+  /**
+   * Computes the fingerprint of the data.
+   *
+   * @return		the fingerprint
+   * @throws Exception	if hashing fails
+   */
+  @Benchmark
+  public long fingerprint() throws Exception {
+    return RowHash.fingerprint(m_Data, 1);
+  }
+
+  /**
+   * Compiles the plan of the column statistics.
+   *
+   * @return		the plan
+   * @throws Exception	if compiling fails
+   */
+  @Benchmark
+  public AttributeWeightsPlan columnStatistics() throws Exception {
+    return m_ColumnStatistics.compilePlan(m_Data);
+  }
+
+  /**
+   * Compiles the plan of the sparsity profile.
+   *
+   * @return		the plan
+   * @throws Exception	if compiling fails
+   */
+  @Benchmark
+  public AttributeWeightsPlan sparsityProfile() throws Exception {
+    return m_SparsityProfile.compilePlan(m_Data);
+  }
+
+  /**
+   * Compiles the plan of the (default) attribute evaluator.
+   *
+   * @return		the plan
+   * @throws Exception	if compiling fails
+   */
+  @Benchmark
+  public AttributeWeightsPlan attributeEvaluator() throws Exception {
+    return m_AttributeEvaluator.compilePlan(m_Data);
+  }
+}
@@ -0,0 +1,345 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ColumnStatistics.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Accumulates per-attribute statistics in a single pass over the rows:
+ * number of missing and non-zero values, mean and variance of numeric
+ * attributes and label counts of nominal attributes. Only the stored values
+ * of sparse rows get visited, the zeros are accounted for when querying the
+ * statistics (they get merged in as a block). Instance weights are ignored.
+ * <br><br>
+ * Means and variances use Welford's update and get merged with the pairwise
+ * formula of Chan et al., i.e., the accumulators of chunks of rows can be
+ * combined (in chunk order) without loss of accuracy; the number of chunks
+ * only affects the rounding of means and variances, the counts are exact.
+ * Memory is proportional to the number of attributes (plus labels of
+ * nominal attributes).
+ * <br><br>
+ * If only the numbers of missing and non-zero values are required (eg for
+ * sparsity profiles), the statistics can be restricted to these counts,
+ * which skips the means, variances and label counts.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ColumnStatistics
+  implements Serializable {
+
+  private static final long serialVersionUID = -2036404786311573085L;
+
+  /** the number of rows. */
+  protected int m_NumRows;
+
+  /** the number of missing values per attribute. */
+  protected int[] m_Missing;
+
+  /** the number of non-zero (and non-missing) values per attribute. */
+  protected int[] m_NonZero;
+
+  /** whether an attribute is numeric (always false if only counting). */
+  protected boolean[] m_Numeric;
+
+  /** the mean of the non-zero values of numeric attributes. */
+  protected double[] m_Mean;
+
+  /** the sum of squared deviations of the non-zero values of numeric attributes. */
+  protected double[] m_M2;
+
+  /** the counts of the labels of nominal attributes (label 0 is implicit, null for other attributes). */
+  protected int[][] m_Counts;
+
+  /** whether only the missing and non-zero values get counted. */
+  protected boolean m_CountsOnly;
+
+  /**
+   * Initializes the (empty) statistics for the structure of the data.
+   *
+   * @param header	the structure
+   */
+  public ColumnStatistics(Instances header) {
+    this(header, false);
+  }
+
+  /**
+   * Initializes the (empty) statistics for the structure of the data.
+   *
+   * @param header	the structure
+   * @param countsOnly	whether to only count the missing and non-zero values
+   */
+  public ColumnStatistics(Instances header, boolean countsOnly) {
+    Attribute	att;
+    int		numAtts;
+    int		i;
+
+    numAtts      = header.numAttributes();
+    m_CountsOnly = countsOnly;
+    m_Missing    = new int[numAtts];
+    m_NonZero    = new int[numAtts];
+    m_Numeric    = new boolean[numAtts];
+    m_Mean       = new double[countsOnly ? 0 : numAtts];
+    m_M2         = new double[countsOnly ? 0 : numAtts];
+    m_Counts     = new int[numAtts][];
+    for (i = 0; i < numAtts; i++) {
+      att = header.attribute(i);
+      m_Numeric[i] = att.isNumeric() && !countsOnly;
+      if (att.isNominal() && !countsOnly)
+	m_Counts[i] = new int[att.numValues()];
+    }
+  }
+
+  /**
+   * Returns whether only the missing and non-zero values get counted.
+   *
+   * @return		true if only counts
+   */
+  public boolean isCountsOnly() {
+    return m_CountsOnly;
+  }
+
+  /**
+   * Adds the values of the row.
+   *
+   * @param inst	the row to add
+   */
+  public void add(Instance inst) {
+    int		numValues;
+    int		index;
+    int		count;
+    double	value;
+    double	delta;
+    int		i;
+
+    m_NumRows++;
+    numValues = inst.numValues();
+    for (i = 0; i < numValues; i++) {
+      value = inst.valueSparse(i);
+      if (value == 0)
+	continue;
+      index = inst.index(i);
+      if (Double.isNaN(value)) {
+	m_Missing[index]++;
+	continue;
+      }
+      count = ++m_NonZero[index];
+      if (m_Numeric[index]) {
+	delta          = value - m_Mean[index];
+	m_Mean[index] += delta / count;
+	m_M2[index]   += delta * (value - m_Mean[index]);
+      }
+      else if (m_Counts[index] != null) {
+	m_Counts[index][(int) value]++;
+      }
+    }
+  }
+
+  /**
+   * Merges the other statistics into these ones.
+   *
+   * @param other	the statistics to merge
+   */
+  public void merge(ColumnStatistics other) {
+    int		i;
+    int		n;
+    double	na;
+    double	nb;
+    double	delta;
+
+    m_NumRows += other.m_NumRows;
+    for (i = 0; i < m_Missing.length; i++) {
+      m_Missing[i] += other.m_Missing[i];
+      if (other.m_NonZero[i] == 0)
+	continue;
+      if (m_Numeric[i]) {
+	na        = m_NonZero[i];
+	nb        = other.m_NonZero[i];
+	delta     = other.m_Mean[i] - m_Mean[i];
+	m_Mean[i] += delta * nb / (na + nb);
+	m_M2[i]   += other.m_M2[i] + delta * delta * na * nb / (na + nb);
+      }
+      else if (m_Counts[i] != null) {
+	for (n = 1; n < m_Counts[i].length; n++)
+	  m_Counts[i][n] += other.m_Counts[i][n];
+      }
+      m_NonZero[i] += other.m_NonZero[i];
+    }
+  }
+
+  /**
+   * Returns the number of attributes.
+   *
+   * @return		the number of attributes
+   */
+  public int numAttributes() {
+    return m_Missing.length;
+  }
+
+  /**
+   * Returns the number of rows.
+   *
+   * @return		the number of rows
+   */
+  public int getNumRows() {
+    return m_NumRows;
+  }
+
+  /**
+   * Returns the number of missing values of the attribute.
+   *
+   * @param index	the 0-based attribute index
+   * @return		the number of missing values
+   */
+  public int getMissingCount(int index) {
+    return m_Missing[index];
+  }
+
+  /**
+   * Returns the number of non-zero (and non-missing) values of the attribute.
+   *
+   * @param index	the 0-based attribute index
+   * @return		the number of non-zero values
+   */
+  public int getNonZeroCount(int index) {
+    return m_NonZero[index];
+  }
+
+  /**
+   * Returns the number of non-missing values of the attribute.
+   *
+   * @param index	the 0-based attribute index
+   * @return		the number of values
+   */
+  public int getCount(int index) {
+    return m_NumRows - m_Missing[index];
+  }
+
+  /**
+   * Returns the mean of the non-missing values of the numeric attribute.
+   *
+   * @param index	the 0-based attribute index
+   * @return		the mean, NaN if not numeric, no values or only counts
+   */
+  public double getMean(int index) {
+    int		count;
+
+    count = getCount(index);
+    if (!m_Numeric[index] || (count == 0))
+      return Double.NaN;
+
+    return m_Mean[index] * ((double) m_NonZero[index] / count);
+  }
+
+  /**
+   * Returns the (sample) variance of the non-missing values of the numeric
+   * attribute.
+   *
+   * @param index	the 0-based attribute index
+   * @return		the variance, NaN if not numeric, less than two values or only counts
+   */
+  public double getVariance(int index) {
+    int		count;
+    double	zeros;
+    double	m2;
+
+    count = getCount(index);
+    if (!m_Numeric[index] || (count < 2))
+      return Double.NaN;
+
+    // merge the block of zeros
+    zeros = count - m_NonZero[index];
+    m2    = m_M2[index] + m_Mean[index] * m_Mean[index] * m_NonZero[index] * zeros / count;
+
+    return m2 / (count - 1);
+  }
+
+  /**
+   * Returns the counts of the labels of the nominal attribute.
+   *
+   * @param index	the 0-based attribute index
+   * @return		the counts, null if not nominal or only counts
+   */
+  public int[] getValueCounts(int index) {
+    int[]	result;
+
+    if (m_Counts[index] == null)
+      return null;
+
+    result    = Arrays.copyOf(m_Counts[index], m_Counts[index].length);
+    result[0] = getCount(index) - m_NonZero[index];
+
+    return result;
+  }
+
+  /**
+   * Computes the statistics of the data in a single parallel pass: each
+   * chunk of rows gets its own accumulator, which get merged in chunk order.
+   *
+   * @param data	the data to compute the statistics for
+   * @param rows	the indices of the rows to use (duplicates allowed), null for all
+   * @param numThreads	the number of threads (less than 1 for all processors)
+   * @return		the statistics
+   * @throws Exception	if computation fails
+   */
+  public static ColumnStatistics compute(Instances data, int[] rows, int numThreads) throws Exception {
+    return compute(data, rows, numThreads, false);
+  }
+
+  /**
+   * Computes the statistics of the data in a single parallel pass: each
+   * chunk of rows gets its own accumulator, which get merged in chunk order.
+   *
+   * @param data	the data to compute the statistics for
+   * @param rows	the indices of the rows to use (duplicates allowed), null for all
+   * @param numThreads	the number of threads (less than 1 for all processors)
+   * @param countsOnly	whether to only count the missing and non-zero values
+   * @return		the statistics
+   * @throws Exception	if computation fails
+   */
+  public static ColumnStatistics compute(final Instances data, final int[] rows, int numThreads, final boolean countsOnly) throws Exception {
+    List<ColumnStatistics>	chunks;
+    ColumnStatistics		result;
+    int				numRows;
+    int				i;
+
+    numRows = (rows == null) ? data.numInstances() : rows.length;
+    chunks  = Parallel.forEachChunk(numRows, numThreads, new Parallel.ChunkTask<ColumnStatistics>() {
+      public ColumnStatistics process(int chunk, int from, int to) {
+	ColumnStatistics result = new ColumnStatistics(data, countsOnly);
+	for (int i = from; i < to; i++)
+	  result.add(data.instance((rows == null) ? i : rows[i]));
+	return result;
+      }
+    });
+
+    result = chunks.get(0);
+    for (i = 1; i < chunks.size(); i++)
+      result.merge(chunks.get(i));
+
+    return result;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CompensatedSum.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.io.Serializable;
+
+/**
+ * Compensated (Kahan-Babuska/Neumaier) summation: keeps track of the low
+ * order bits lost when adding, i.e., the error stays bounded independent of
+ * the number of values added (also when a value is larger than the running
+ * sum). Partial sums can be combined. Not thread-safe.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CompensatedSum
+  implements Serializable {
+
+  private static final long serialVersionUID = -4483318419659870313L;
+
+  /** the running sum. */
+  protected double m_Sum;
+
+  /** the compensation (lost low order bits). */
+  protected double m_Compensation;
+
+  /**
+   * Adds the value.
+   *
+   * @param value	the value to add
+   */
+  public void add(double value) {
+    double	sum;
+
+    sum = m_Sum + value;
+    if (Math.abs(m_Sum) >= Math.abs(value))
+      m_Compensation += (m_Sum - sum) + value;
+    else
+      m_Compensation += (value - sum) + m_Sum;
+    m_Sum = sum;
+  }
+
+  /**
+   * Adds the other (partial) sum.
+   *
+   * @param other	the sum to add
+   */
+  public void add(CompensatedSum other) {
+    add(other.m_Sum);
+    add(other.m_Compensation);
+  }
+
+  /**
+   * Returns the sum.
+   *
+   * @return		the sum
+   */
+  public double value() {
+    return m_Sum + m_Compensation;
+  }
+}
@@ -0,0 +1,840 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CompressedBitmap.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable, compressed bitmap of non-negative integers (e.g., row indices),
+ * using Roaring-style containers: the integers are partitioned by their upper
+ * 16 bits and each partition is stored either as sorted array, as plain
+ * bitmap or as list of runs, whichever is the smallest.
+ * <br><br>
+ * Reading and writing uses the portable Roaring serialization format, i.e.,
+ * files generated by other Roaring implementations can be used as well.
+ * <br><br>
+ * Set bits are iterated in ascending order via {@link Cursor}, which works
+ * on whole words (bitmap containers) or whole runs (run containers).
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CompressedBitmap
+  implements Serializable {
+
+  private static final long serialVersionUID = 2283185834815926487L;
+
+  /** the cookie for files that contain run containers. */
+  public static final int SERIAL_COOKIE = 12347;
+
+  /** the cookie for files that contain no run containers. */
+  public static final int SERIAL_COOKIE_NO_RUNCONTAINER = 12346;
+
+  /** the number of containers from which offsets get stored in run files. */
+  public static final int NO_OFFSET_THRESHOLD = 4;
+
+  /** the maximum cardinality of array containers. */
+  public static final int MAX_ARRAY_CARDINALITY = 4096;
+
+  /** the number of words in a bitmap container. */
+  public static final int BITMAP_WORDS = 1024;
+
+  /** container type: sorted array. */
+  public static final byte TYPE_ARRAY = 0;
+
+  /** container type: bitmap. */
+  public static final byte TYPE_BITMAP = 1;
+
+  /** container type: runs. */
+  public static final byte TYPE_RUN = 2;
+
+  /** the keys (upper 16 bits) of the containers. */
+  protected char[] m_Keys;
+
+  /** the types of the containers. */
+  protected byte[] m_Types;
+
+  /** the cardinalities of the containers. */
+  protected int[] m_Cardinalities;
+
+  /** the sorted values (lower 16 bits) of array containers. */
+  protected char[][] m_Arrays;
+
+  /** the words of bitmap containers. */
+  protected long[][] m_Bitmaps;
+
+  /** the runs of run containers (pairs of start and length-1). */
+  protected char[][] m_Runs;
+
+  /**
+   * Initializes the bitmap with the given containers.
+   *
+   * @param keys		the keys
+   * @param types		the container types
+   * @param cards		the cardinalities
+   * @param arrays		the array containers
+   * @param bitmaps		the bitmap containers
+   * @param runs		the run containers
+   */
+  protected CompressedBitmap(char[] keys, byte[] types, int[] cards, char[][] arrays, long[][] bitmaps, char[][] runs) {
+    m_Keys          = keys;
+    m_Types         = types;
+    m_Cardinalities = cards;
+    m_Arrays        = arrays;
+    m_Bitmaps       = bitmaps;
+    m_Runs          = runs;
+  }
+
+  /**
+   * Returns the number of containers.
+   *
+   * @return		the number of containers
+   */
+  public int numContainers() {
+    return m_Keys.length;
+  }
+
+  /**
+   * Returns the number of set bits.
+   *
+   * @return		the number of set bits
+   */
+  public long cardinality() {
+    long	result;
+    int		i;
+
+    result = 0;
+    for (i = 0; i < m_Cardinalities.length; i++)
+      result += m_Cardinalities[i];
+
+    return result;
+  }
+
+  /**
+   * Returns whether no bit is set.
+   *
+   * @return		true if empty
+   */
+  public boolean isEmpty() {
+    return (m_Keys.length == 0);
+  }
+
+  /**
+   * Returns the largest set bit (interpreted as unsigned integer).
+   *
+   * @return		the largest set bit, -1 if empty
+   */
+  public long last() {
+    int		i;
+    long	high;
+    long[]	words;
+    int		w;
+    char[]	runs;
+
+    if (m_Keys.length == 0)
+      return -1;
+
+    i    = m_Keys.length - 1;
+    high = ((long) m_Keys[i]) << 16;
+    switch (m_Types[i]) {
+      case TYPE_ARRAY:
+	return high | m_Arrays[i][m_Cardinalities[i] - 1];
+      case TYPE_RUN:
+	runs = m_Runs[i];
+	return high | (runs[runs.length - 2] + runs[runs.length - 1]);
+      default:
+	words = m_Bitmaps[i];
+	for (w = words.length - 1; w >= 0; w--) {
+	  if (words[w] != 0)
+	    return high | (w * 64 + 63 - Long.numberOfLeadingZeros(words[w]));
+	}
+	return -1;
+    }
+  }
+
+  /**
+   * Locates the container for the specified key.
+   *
+   * @param key		the key to look for
+   * @return		the index, otherwise -(insertion point)-1
+   */
+  protected int locate(char key) {
+    int		low;
+    int		high;
+    int		mid;
+
+    low  = 0;
+    high = m_Keys.length - 1;
+    while (low <= high) {
+      mid = (low + high) >>> 1;
+      if (m_Keys[mid] < key)
+	low = mid + 1;
+      else if (m_Keys[mid] > key)
+	high = mid - 1;
+      else
+	return mid;
+    }
+
+    return -(low + 1);
+  }
+
+  /**
+   * Checks whether the specified bit is set.
+   *
+   * @param value	the bit to check
+   * @return		true if set
+   */
+  public boolean contains(int value) {
+    int		index;
+    char	low;
+    char[]	values;
+    char[]	runs;
+    int		l;
+    int		h;
+    int		m;
+
+    index = locate((char) (value >>> 16));
+    if (index < 0)
+      return false;
+
+    low = (char) value;
+    switch (m_Types[index]) {
+      case TYPE_ARRAY:
+	values = m_Arrays[index];
+	l      = 0;
+	h      = m_Cardinalities[index] - 1;
+	while (l <= h) {
+	  m = (l + h) >>> 1;
+	  if (values[m] < low)
+	    l = m + 1;
+	  else if (values[m] > low)
+	    h = m - 1;
+	  else
+	    return true;
+	}
+	return false;
+      case TYPE_RUN:
+	runs = m_Runs[index];
+	l    = 0;
+	h    = runs.length / 2 - 1;
+	while (l <= h) {
+	  m = (l + h) >>> 1;
+	  if (runs[m * 2] > low)
+	    h = m - 1;
+	  else if (runs[m * 2] + runs[m * 2 + 1] < low)
+	    l = m + 1;
+	  else
+	    return true;
+	}
+	return false;
+      default:
+	return (m_Bitmaps[index][low >>> 6] & (1L << low)) != 0;
+    }
+  }
+
+  /**
+   * Returns a new cursor for iterating the set bits in ascending order.
+   *
+   * @return		the cursor
+   */
+  public Cursor cursor() {
+    return new Cursor(this);
+  }
+
+  /**
+   * Writes the bitmap to the specified file.
+   *
+   * @param file	the file to write to
+   * @throws Exception	if writing fails
+   */
+  public void write(File file) throws Exception {
+    OutputStream	out;
+
+    out = null;
+    try {
+      out = new BufferedOutputStream(new FileOutputStream(file));
+      write(out);
+      out.flush();
+    }
+    finally {
+      if (out != null) {
+	try {
+	  out.close();
+	}
+	catch (Exception e) {
+	  // ignored
+	}
+      }
+    }
+  }
+
+  /**
+   * Writes the bitmap to the stream, using the portable Roaring format.
+   * The stream is not closed.
+   *
+   * @param out		the stream to write to
+   * @throws Exception	if writing fails
+   */
+  public void write(OutputStream out) throws Exception {
+    ByteBuffer	buffer;
+    boolean	hasRun;
+    int		size;
+    int		headerSize;
+    int		offset;
+    int		i;
+    int		n;
+    byte[]	runMarkers;
+
+    size   = m_Keys.length;
+    hasRun = false;
+    for (i = 0; i < size; i++) {
+      if (m_Types[i] == TYPE_RUN) {
+	hasRun = true;
+	break;
+      }
+    }
+
+    if (hasRun) {
+      headerSize = 4 + (size + 7) / 8 + 4 * size;
+      if (size >= NO_OFFSET_THRESHOLD)
+	headerSize += 4 * size;
+    }
+    else {
+      headerSize = 8 + 8 * size;
+    }
+    buffer = ByteBuffer.allocate(headerSize + serializedContainersSize());
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+    // header
+    if (hasRun) {
+      buffer.putInt(SERIAL_COOKIE | ((size - 1) << 16));
+      runMarkers = new byte[(size + 7) / 8];
+      for (i = 0; i < size; i++) {
+	if (m_Types[i] == TYPE_RUN)
+	  runMarkers[i / 8] |= (byte) (1 << (i % 8));
+      }
+      buffer.put(runMarkers);
+    }
+    else {
+      buffer.putInt(SERIAL_COOKIE_NO_RUNCONTAINER);
+      buffer.putInt(size);
+    }
+    for (i = 0; i < size; i++) {
+      buffer.putChar(m_Keys[i]);
+      buffer.putChar((char) (m_Cardinalities[i] - 1));
+    }
+    if (!hasRun || (size >= NO_OFFSET_THRESHOLD)) {
+      offset = headerSize;
+      for (i = 0; i < size; i++) {
+	buffer.putInt(offset);
+	offset += serializedContainerSize(i);
+      }
+    }
+
+    // containers
+    for (i = 0; i < size; i++) {
+      switch (m_Types[i]) {
+	case TYPE_ARRAY:
+	  for (n = 0; n < m_Cardinalities[i]; n++)
+	    buffer.putChar(m_Arrays[i][n]);
+	  break;
+	case TYPE_RUN:
+	  buffer.putChar((char) (m_Runs[i].length / 2));
+	  for (n = 0; n < m_Runs[i].length; n++)
+	    buffer.putChar(m_Runs[i][n]);
+	  break;
+	default:
+	  for (n = 0; n < BITMAP_WORDS; n++)
+	    buffer.putLong(m_Bitmaps[i][n]);
+      }
+    }
+
+    out.write(buffer.array(), 0, buffer.position());
+  }
+
+  /**
+   * Returns the number of bytes the specified container requires when
+   * serialized.
+   *
+   * @param index	the index of the container
+   * @return		the number of bytes
+   */
+  protected int serializedContainerSize(int index) {
+    switch (m_Types[index]) {
+      case TYPE_ARRAY:
+	return 2 * m_Cardinalities[index];
+      case TYPE_RUN:
+	return 2 + 2 * m_Runs[index].length;
+      default:
+	return 8 * BITMAP_WORDS;
+    }
+  }
+
+  /**
+   * Returns the number of bytes all the containers require when serialized.
+   *
+   * @return		the number of bytes
+   */
+  protected int serializedContainersSize() {
+    int		result;
+    int		i;
+
+    result = 0;
+    for (i = 0; i < m_Keys.length; i++)
+      result += serializedContainerSize(i);
+
+    return result;
+  }
+
+  /**
+   * Reads a bitmap from the specified file.
+   *
+   * @param file	the file to read
+   * @return		the bitmap
+   * @throws Exception	if reading fails or format invalid
+   */
+  public static CompressedBitmap read(File file) throws Exception {
+    InputStream		in;
+
+    in = null;
+    try {
+      in = new BufferedInputStream(new FileInputStream(file));
+      return read(in);
+    }
+    finally {
+      if (in != null) {
+	try {
+	  in.close();
+	}
+	catch (Exception e) {
+	  // ignored
+	}
+      }
+    }
+  }
+
+  /**
+   * Reads a bitmap in portable Roaring format from the stream. The stream
+   * is not closed.
+   *
+   * @param in		the stream to read from
+   * @return		the bitmap
+   * @throws Exception	if reading fails or format invalid
+   */
+  public static CompressedBitmap read(InputStream in) throws Exception {
+    ByteArrayOutputStream	bytes;
+    byte[]			buffer;
+    int				read;
+
+    bytes  = new ByteArrayOutputStream();
+    buffer = new byte[8192];
+    while ((read = in.read(buffer)) != -1)
+      bytes.write(buffer, 0, read);
+
+    return read(ByteBuffer.wrap(bytes.toByteArray()));
+  }
+
+  /**
+   * Reads a bitmap in portable Roaring format from the buffer.
+   *
+   * @param buffer	the buffer to read from
+   * @return		the bitmap
+   * @throws Exception	if format invalid
+   */
+  public static CompressedBitmap read(ByteBuffer buffer) throws Exception {
+    int		cookie;
+    int		size;
+    boolean	hasRun;
+    byte[]	runMarkers;
+    char[]	keys;
+    byte[]	types;
+    int[]	cards;
+    char[][]	arrays;
+    long[][]	bitmaps;
+    char[][]	runs;
+    int		i;
+    int		n;
+
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    cookie     = buffer.getInt();
+    runMarkers = null;
+    if ((cookie & 0xFFFF) == SERIAL_COOKIE) {
+      hasRun     = true;
+      size       = (cookie >>> 16) + 1;
+      runMarkers = new byte[(size + 7) / 8];
+      buffer.get(runMarkers);
+    }
+    else if (cookie == SERIAL_COOKIE_NO_RUNCONTAINER) {
+      hasRun = false;
+      size   = buffer.getInt();
+    }
+    else {
+      throw new IllegalStateException("Not a compressed bitmap, unknown cookie: " + cookie);
+    }
+    if ((size < 0) || (size > 65536))
+      throw new IllegalStateException("Invalid number of containers: " + size);
+
+    keys    = new char[size];
+    types   = new byte[size];
+    cards   = new int[size];
+    arrays  = new char[size][];
+    bitmaps = new long[size][];
+    runs    = new char[size][];
+    for (i = 0; i < size; i++) {
+      keys[i]  = buffer.getChar();
+      cards[i] = buffer.getChar() + 1;
+      if (hasRun && ((runMarkers[i / 8] & (1 << (i % 8))) != 0))
+	types[i] = TYPE_RUN;
+      else if (cards[i] <= MAX_ARRAY_CARDINALITY)
+	types[i] = TYPE_ARRAY;
+      else
+	types[i] = TYPE_BITMAP;
+      if ((i > 0) && (keys[i] <= keys[i - 1]))
+	throw new IllegalStateException("Container keys not in ascending order: " + (int) keys[i - 1] + " >= " + (int) keys[i]);
+    }
+    // skip offsets, containers are stored consecutively
+    if (!hasRun || (size >= NO_OFFSET_THRESHOLD))
+      buffer.position(buffer.position() + 4 * size);
+
+    for (i = 0; i < size; i++) {
+      switch (types[i]) {
+	case TYPE_ARRAY:
+	  arrays[i] = new char[cards[i]];
+	  buffer.asCharBuffer().get(arrays[i]);
+	  buffer.position(buffer.position() + 2 * cards[i]);
+	  break;
+	case TYPE_RUN:
+	  n       = buffer.getChar();
+	  runs[i] = new char[n * 2];
+	  buffer.asCharBuffer().get(runs[i]);
+	  buffer.position(buffer.position() + 4 * n);
+	  break;
+	default:
+	  bitmaps[i] = new long[BITMAP_WORDS];
+	  buffer.asLongBuffer().get(bitmaps[i]);
+	  buffer.position(buffer.position() + 8 * BITMAP_WORDS);
+      }
+    }
+
+    return new CompressedBitmap(keys, types, cards, arrays, bitmaps, runs);
+  }
+
+  /**
+   * For iterating the set bits of a bitmap in ascending order. Only values
+   * that fit into a non-negative int are returned.
+   */
+  public static class Cursor {
+
+    /** the bitmap to iterate. */
+    protected CompressedBitmap m_Bitmap;
+
+    /** the current container. */
+    protected int m_Container;
+
+    /** the upper 16 bits of the current container. */
+    protected int m_High;
+
+    /** the position in the current container (value, word or run). */
+    protected int m_Position;
+
+    /** the remaining bits of the current word (bitmap containers). */
+    protected long m_Word;
+
+    /** the next value in the current run (run containers). */
+    protected int m_RunNext;
+
+    /** the last value of the current run (run containers). */
+    protected int m_RunEnd;
+
+    /**
+     * Initializes the cursor.
+     *
+     * @param bitmap	the bitmap to iterate
+     */
+    protected Cursor(CompressedBitmap bitmap) {
+      m_Bitmap    = bitmap;
+      m_Container = -1;
+      nextContainer();
+    }
+
+    /**
+     * Moves on to the next container.
+     */
+    protected void nextContainer() {
+      m_Container++;
+      if (m_Container >= m_Bitmap.m_Keys.length)
+	return;
+      m_High     = m_Bitmap.m_Keys[m_Container] << 16;
+      m_Position = 0;
+      switch (m_Bitmap.m_Types[m_Container]) {
+	case TYPE_BITMAP:
+	  m_Word = m_Bitmap.m_Bitmaps[m_Container][0];
+	  break;
+	case TYPE_RUN:
+	  m_RunNext = m_Bitmap.m_Runs[m_Container][0];
+	  m_RunEnd  = m_RunNext + m_Bitmap.m_Runs[m_Container][1];
+	  break;
+      }
+    }
+
+    /**
+     * Returns the next set bit.
+     *
+     * @return		the next set bit, -1 if no more bits set
+     */
+    public int next() {
+      long[]	words;
+      char[]	runs;
+      int	bit;
+
+      while (m_Container < m_Bitmap.m_Keys.length) {
+	// values beyond Integer.MAX_VALUE are not supported
+	if (m_High < 0)
+	  return -1;
+
+	switch (m_Bitmap.m_Types[m_Container]) {
+	  case TYPE_ARRAY:
+	    if (m_Position < m_Bitmap.m_Cardinalities[m_Container])
+	      return m_High | m_Bitmap.m_Arrays[m_Container][m_Position++];
+	    break;
+
+	  case TYPE_RUN:
+	    if (m_RunNext <= m_RunEnd)
+	      return m_High | m_RunNext++;
+	    runs = m_Bitmap.m_Runs[m_Container];
+	    m_Position += 2;
+	    if (m_Position < runs.length) {
+	      m_RunNext = runs[m_Position];
+	      m_RunEnd  = m_RunNext + runs[m_Position + 1];
+	      continue;
+	    }
+	    break;
+
+	  default:
+	    words = m_Bitmap.m_Bitmaps[m_Container];
+	    while ((m_Word == 0) && (m_Position < BITMAP_WORDS - 1))
+	      m_Word = words[++m_Position];
+	    if (m_Word != 0) {
+	      bit     = Long.numberOfTrailingZeros(m_Word);
+	      m_Word &= m_Word - 1;
+	      return m_High | (m_Position * 64 + bit);
+	    }
+	    break;
+	}
+
+	nextContainer();
+      }
+
+      return -1;
+    }
+  }
+
+  /**
+   * Builds a bitmap from values that are added in ascending order, choosing
+   * the smallest container type for each partition.
+   */
+  public static class Builder {
+
+    /** the current key. */
+    protected int m_Key;
+
+    /** the buffered values of the current key. */
+    protected char[] m_Buffer;
+
+    /** the number of buffered values. */
+    protected int m_Count;
+
+    /** the last value added. */
+    protected long m_Last;
+
+    /** the keys. */
+    protected List<Character> m_Keys;
+
+    /** the types. */
+    protected List<Byte> m_Types;
+
+    /** the cardinalities. */
+    protected List<Integer> m_Cardinalities;
+
+    /** the containers (char[] or long[]). */
+    protected List<Object> m_Containers;
+
+    /**
+     * Initializes the builder.
+     */
+    public Builder() {
+      m_Key           = -1;
+      m_Buffer        = new char[65536];
+      m_Count         = 0;
+      m_Last          = -1;
+      m_Keys          = new ArrayList<Character>();
+      m_Types         = new ArrayList<Byte>();
+      m_Cardinalities = new ArrayList<Integer>();
+      m_Containers    = new ArrayList<Object>();
+    }
+
+    /**
+     * Adds the value, which must be larger than the previously added one.
+     *
+     * @param value	the value to add
+     * @return		itself
+     */
+    public Builder add(int value) {
+      if (value < 0)
+	throw new IllegalArgumentException("Only non-negative values supported: " + value);
+      if (value <= m_Last)
+	throw new IllegalArgumentException("Values must be added in ascending order: " + value + " <= " + m_Last);
+      if ((value >>> 16) != m_Key) {
+	flush();
+	m_Key = value >>> 16;
+      }
+      m_Buffer[m_Count++] = (char) value;
+      m_Last = value;
+      return this;
+    }
+
+    /**
+     * Adds the range of values.
+     *
+     * @param from	the first value (incl)
+     * @param to	the last value (incl)
+     * @return		itself
+     */
+    public Builder addRange(int from, int to) {
+      int	i;
+
+      for (i = from; i <= to; i++)
+	add(i);
+      return this;
+    }
+
+    /**
+     * Turns the buffered values into a container.
+     */
+    protected void flush() {
+      int	runs;
+      int	i;
+      int	n;
+      char[]	array;
+      char[]	runArray;
+      long[]	words;
+      int	arraySize;
+      int	runSize;
+
+      if (m_Count == 0)
+	return;
+
+      runs = 1;
+      for (i = 1; i < m_Count; i++) {
+	if (m_Buffer[i] != m_Buffer[i - 1] + 1)
+	  runs++;
+      }
+      arraySize = (m_Count <= MAX_ARRAY_CARDINALITY) ? 2 * m_Count : Integer.MAX_VALUE;
+      runSize   = 2 + 4 * runs;
+
+      m_Keys.add((char) m_Key);
+      m_Cardinalities.add(m_Count);
+      if ((runSize < arraySize) && (runSize < 8 * BITMAP_WORDS)) {
+	runArray = new char[runs * 2];
+	n        = 0;
+	runArray[0] = m_Buffer[0];
+	for (i = 1; i <= m_Count; i++) {
+	  if ((i == m_Count) || (m_Buffer[i] != m_Buffer[i - 1] + 1)) {
+	    runArray[n * 2 + 1] = (char) (m_Buffer[i - 1] - runArray[n * 2]);
+	    n++;
+	    if (i < m_Count)
+	      runArray[n * 2] = m_Buffer[i];
+	  }
+	}
+	m_Types.add(TYPE_RUN);
+	m_Containers.add(runArray);
+      }
+      else if (m_Count <= MAX_ARRAY_CARDINALITY) {
+	array = new char[m_Count];
+	System.arraycopy(m_Buffer, 0, array, 0, m_Count);
+	m_Types.add(TYPE_ARRAY);
+	m_Containers.add(array);
+      }
+      else {
+	words = new long[BITMAP_WORDS];
+	for (i = 0; i < m_Count; i++)
+	  words[m_Buffer[i] >>> 6] |= 1L << m_Buffer[i];
+	m_Types.add(TYPE_BITMAP);
+	m_Containers.add(words);
+      }
+
+      m_Count = 0;
+    }
+
+    /**
+     * Builds the bitmap.
+     *
+     * @return		the bitmap
+     */
+    public CompressedBitmap build() {
+      char[]	keys;
+      byte[]	types;
+      int[]	cards;
+      char[][]	arrays;
+      long[][]	bitmaps;
+      char[][]	runs;
+      int	i;
+      int	size;
+
+      flush();
+      size    = m_Keys.size();
+      keys    = new char[size];
+      types   = new byte[size];
+      cards   = new int[size];
+      arrays  = new char[size][];
+      bitmaps = new long[size][];
+      runs    = new char[size][];
+      for (i = 0; i < size; i++) {
+	keys[i]  = m_Keys.get(i);
+	types[i] = m_Types.get(i);
+	cards[i] = m_Cardinalities.get(i);
+	switch (types[i]) {
+	  case TYPE_ARRAY:
+	    arrays[i] = (char[]) m_Containers.get(i);
+	    break;
+	  case TYPE_RUN:
+	    runs[i] = (char[]) m_Containers.get(i);
+	    break;
+	  default:
+	    bitmaps[i] = (long[]) m_Containers.get(i);
+	}
+      }
+
+      return new CompressedBitmap(keys, types, cards, arrays, bitmaps, runs);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CounterRandom.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.io.Serializable;
+
+/**
+ * Counter-based random numbers: the n-th number is a pure function of the
+ * key (derived from the seed) and n, computed by a strong 64-bit mixing
+ * function (SplitMix64/Stafford variant 13). There is no state that gets
+ * advanced, hence numbers can be generated in any order and by any number
+ * of threads with identical results. Independent streams (eg one per
+ * replicate) are obtained via {@link #split(long)}.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CounterRandom
+  implements Serializable {
+
+  private static final long serialVersionUID = 7410372934915036612L;
+
+  /** the increment of the Weyl sequence (golden ratio). */
+  protected static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /** the cumulative probabilities of Poisson(1), beyond 20 they are below double precision. */
+  protected static final double[] POISSON_CDF = new double[21];
+  static {
+    double	p;
+    int		i;
+
+    p              = StrictMath.exp(-1.0);
+    POISSON_CDF[0] = p;
+    for (i = 1; i < POISSON_CDF.length; i++) {
+      p             /= i;
+      POISSON_CDF[i] = POISSON_CDF[i - 1] + p;
+    }
+  }
+
+  /** the key. */
+  protected final long m_Key;
+
+  /**
+   * Initializes the generator.
+   *
+   * @param seed	the seed
+   */
+  public CounterRandom(long seed) {
+    this(seed, true);
+  }
+
+  /**
+   * Initializes the generator.
+   *
+   * @param key		the seed or key
+   * @param mixSeed	whether key is a seed that still needs mixing
+   */
+  protected CounterRandom(long key, boolean mixSeed) {
+    m_Key = mixSeed ? mix(key ^ GOLDEN_GAMMA) : key;
+  }
+
+  /**
+   * Returns the key, for use with the static methods.
+   *
+   * @return		the key
+   */
+  public long getKey() {
+    return m_Key;
+  }
+
+  /**
+   * Returns a generator for an independent stream.
+   *
+   * @param stream	the stream, eg the replicate
+   * @return		the generator
+   */
+  public CounterRandom split(long stream) {
+    return new CounterRandom(mix(m_Key + mix(stream + GOLDEN_GAMMA)), false);
+  }
+
+  /**
+   * Returns the random bits for the counter.
+   *
+   * @param counter	the counter, eg the row index
+   * @return		the bits
+   */
+  public long nextLong(long counter) {
+    return nextLong(m_Key, counter);
+  }
+
+  /**
+   * Returns a uniformly distributed number in [0,1) for the counter.
+   *
+   * @param counter	the counter, eg the row index
+   * @return		the number
+   */
+  public double nextDouble(long counter) {
+    return nextDouble(m_Key, counter);
+  }
+
+  /**
+   * Returns a Poisson(1) distributed number for the counter (via inversion).
+   *
+   * @param counter	the counter, eg the row index
+   * @return		the number
+   */
+  public int nextPoisson(long counter) {
+    return poisson(nextDouble(counter));
+  }
+
+  /**
+   * Returns an Exp(1) distributed number for the counter (via inversion).
+   *
+   * @param counter	the counter, eg the row index
+   * @return		the number
+   */
+  public double nextExponential(long counter) {
+    return exponential(nextDouble(counter));
+  }
+
+  /**
+   * Returns the random bits for key and counter.
+   *
+   * @param key		the key of the generator
+   * @param counter	the counter, eg the row index
+   * @return		the bits
+   */
+  public static long nextLong(long key, long counter) {
+    return mix(key + (counter + 1) * GOLDEN_GAMMA);
+  }
+
+  /**
+   * Returns a uniformly distributed number in [0,1) for key and counter.
+   *
+   * @param key		the key of the generator
+   * @param counter	the counter, eg the row index
+   * @return		the number
+   */
+  public static double nextDouble(long key, long counter) {
+    return (nextLong(key, counter) >>> 11) * 0x1.0p-53;
+  }
+
+  /**
+   * Turns a uniform number in [0,1) into a Poisson(1) distributed one.
+   *
+   * @param u		the uniform number
+   * @return		the Poisson distributed number
+   */
+  public static int poisson(double u) {
+    int		result;
+
+    result = 0;
+    while ((u >= POISSON_CDF[result]) && (result < POISSON_CDF.length - 1))
+      result++;
+
+    return result;
+  }
+
+  /**
+   * Turns a uniform number in [0,1) into an Exp(1) distributed one. Uses
+   * StrictMath, i.e., results are identical across JVMs and platforms.
+   *
+   * @param u		the uniform number
+   * @return		the exponentially distributed number
+   */
+  public static double exponential(double u) {
+    return -StrictMath.log1p(-u);
+  }
+
+  /**
+   * Mixes the bits (Stafford variant 13 of the MurmurHash3 finalizer).
+   *
+   * @param z		the value to mix
+   * @return		the mixed value
+   */
+  public static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Intervals.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Immutable, sorted list of non-overlapping, inclusive intervals of 0-based
+ * indices, resolved from a {@link weka.core.Range} string for a specific
+ * upper limit. Unlike {@link weka.core.Range}, memory is proportional to the
+ * number of intervals rather than the upper limit.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Intervals
+  implements Serializable {
+
+  private static final long serialVersionUID = 4905946373223209839L;
+
+  /** the start indices (incl). */
+  protected int[] m_Starts;
+
+  /** the end indices (incl). */
+  protected int[] m_Ends;
+
+  /**
+   * Initializes the intervals.
+   *
+   * @param starts	the sorted start indices
+   * @param ends	the corresponding end indices
+   */
+  protected Intervals(int[] starts, int[] ends) {
+    m_Starts = starts;
+    m_Ends   = ends;
+  }
+
+  /**
+   * Returns the number of intervals.
+   *
+   * @return		the number of intervals
+   */
+  public int size() {
+    return m_Starts.length;
+  }
+
+  /**
+   * Returns the start of the specified interval.
+   *
+   * @param index	the interval
+   * @return		the start (incl)
+   */
+  public int start(int index) {
+    return m_Starts[index];
+  }
+
+  /**
+   * Returns the end of the specified interval.
+   *
+   * @param index	the interval
+   * @return		the end (incl)
+   */
+  public int end(int index) {
+    return m_Ends[index];
+  }
+
+  /**
+   * Checks whether the index is contained in one of the intervals.
+   *
+   * @param index	the index to check
+   * @return		true if contained
+   */
+  public boolean contains(int index) {
+    int		pos;
+
+    pos = Arrays.binarySearch(m_Starts, index);
+    if (pos >= 0)
+      return true;
+    pos = -pos - 2;
+    return (pos >= 0) && (index <= m_Ends[pos]);
+  }
+
+  /**
+   * Parses a single index, "first" and "last" are supported.
+   *
+   * @param index	the 1-based index
+   * @param upper	the largest 0-based index
+   * @param range	the range string, for error messages
+   * @return		the 0-based index
+   */
+  protected static int parseIndex(String index, int upper, String range) {
+    int		result;
+
+    if (index.equalsIgnoreCase("first"))
+      return 0;
+    if (index.equalsIgnoreCase("last"))
+      return upper;
+
+    try {
+      result = Integer.parseInt(index) - 1;
+    }
+    catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid range list at " + range);
+    }
+    if ((result < 0) || (result > upper))
+      throw new IllegalArgumentException("Invalid range list at " + range);
+
+    return result;
+  }
+
+  /**
+   * Resolves the range string (same syntax as {@link weka.core.Range}, eg
+   * "first-3,5,6-last") against the upper limit.
+   *
+   * @param ranges	the range string
+   * @param upper	the largest 0-based index
+   * @return		the intervals
+   * @throws IllegalArgumentException	if the range string is invalid
+   */
+  public static Intervals parse(String ranges, int upper) {
+    String[]	parts;
+    long[]	intervals;
+    int		count;
+    int		pos;
+    int		start;
+    int		end;
+    int		tmp;
+    int[]	starts;
+    int[]	ends;
+    int		i;
+
+    ranges = ranges.replace(" ", "");
+    if (ranges.isEmpty() || (upper < 0))
+      return new Intervals(new int[0], new int[0]);
+
+    parts     = ranges.split(",");
+    intervals = new long[parts.length];
+    count     = 0;
+    for (String part: parts) {
+      if (part.isEmpty())
+	continue;
+      pos = part.indexOf('-');
+      if (pos == -1) {
+	start = parseIndex(part, upper, part);
+	end   = start;
+      }
+      else {
+	start = parseIndex(part.substring(0, pos), upper, part);
+	end   = parseIndex(part.substring(pos + 1), upper, part);
+	if (start > end) {
+	  tmp   = start;
+	  start = end;
+	  end   = tmp;
+	}
+      }
+      intervals[count++] = ((long) start << 32) | end;
+    }
+
+    // sort and merge
+    Arrays.sort(intervals, 0, count);
+    starts = new int[count];
+    ends   = new int[count];
+    pos    = -1;
+    for (i = 0; i < count; i++) {
+      start = (int) (intervals[i] >>> 32);
+      end   = (int) intervals[i];
+      if ((pos >= 0) && (start <= ends[pos] + 1)) {
+	if (end > ends[pos])
+	  ends[pos] = end;
+      }
+      else {
+	pos++;
+	starts[pos] = start;
+	ends[pos]   = end;
+      }
+    }
+
+    return new Intervals(Arrays.copyOf(starts, pos + 1), Arrays.copyOf(ends, pos + 1));
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LatencyHistogram.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies, with buckets that double in width: the
+ * first bucket counts latencies below 1ms, bucket i (i &gt; 0) the ones in
+ * [2^(i-1), 2^i) ms, the last bucket everything above.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class LatencyHistogram
+  implements Serializable {
+
+  private static final long serialVersionUID = -1387606002412566718L;
+
+  /** the number of buckets. */
+  public static final int NUM_BUCKETS = 24;
+
+  /** the counts per bucket. */
+  protected final AtomicLongArray m_Counts;
+
+  /**
+   * Initializes the histogram.
+   */
+  public LatencyHistogram() {
+    m_Counts = new AtomicLongArray(NUM_BUCKETS);
+  }
+
+  /**
+   * Returns the bucket for the latency.
+   *
+   * @param nanos	the latency in nano seconds
+   * @return		the bucket
+   */
+  public static int bucket(long nanos) {
+    long	millis;
+
+    millis = nanos / 1000000L;
+    if (millis <= 0)
+      return 0;
+    return Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(millis));
+  }
+
+  /**
+   * Returns the exclusive upper bound of the bucket in milli seconds.
+   *
+   * @param bucket	the bucket
+   * @return		the upper bound, Long.MAX_VALUE for the last bucket
+   */
+  public static long upperBound(int bucket) {
+    if (bucket >= NUM_BUCKETS - 1)
+      return Long.MAX_VALUE;
+    return 1L << bucket;
+  }
+
+  /**
+   * Records the latency.
+   *
+   * @param nanos	the latency in nano seconds
+   */
+  public void record(long nanos) {
+    m_Counts.incrementAndGet(bucket(nanos));
+  }
+
+  /**
+   * Returns a snapshot of the counts.
+   *
+   * @return		the counts per bucket
+   */
+  public long[] getCounts() {
+    long[]	result;
+    int		i;
+
+    result = new long[NUM_BUCKETS];
+    for (i = 0; i < NUM_BUCKETS; i++)
+      result[i] = m_Counts.get(i);
+
+    return result;
+  }
+
+  /**
+   * Returns the upper bound of the bucket that contains the specified
+   * percentile, i.e., at most twice the actual percentile (for latencies of
+   * at least 1ms).
+   *
+   * @param percentile	the percentile (0-1)
+   * @return		the upper bound in milli seconds, 0 if no latencies recorded
+   */
+  public long getPercentile(double percentile) {
+    long[]	counts;
+    long	total;
+    long	sum;
+    int		i;
+
+    counts = getCounts();
+    total  = 0;
+    for (long count: counts)
+      total += count;
+    if (total == 0)
+      return 0;
+
+    sum = 0;
+    for (i = 0; i < counts.length; i++) {
+      sum += counts[i];
+      if ((counts[i] > 0) && (sum >= percentile * total))
+	return upperBound(i);
+    }
+
+    return upperBound(NUM_BUCKETS - 1);
+  }
+
+  /**
+   * Resets the histogram.
+   */
+  public void reset() {
+    int		i;
+
+    for (i = 0; i < NUM_BUCKETS; i++)
+      m_Counts.set(i, 0);
+  }
+
+  /**
+   * Returns the non-empty buckets as string, e.g., "&lt;1ms: 10, &lt;2ms: 3".
+   *
+   * @return		the histogram
+   */
+  @Override
+  public String toString() {
+    StringBuilder	result;
+    long[]		counts;
+    int			i;
+
+    result = new StringBuilder();
+    counts = getCounts();
+    for (i = 0; i < counts.length; i++) {
+      if (counts[i] == 0)
+	continue;
+      if (result.length() > 0)
+	result.append(", ");
+      if (i == NUM_BUCKETS - 1)
+	result.append(">=").append(1L << (i - 1)).append("ms");
+      else
+	result.append("<").append(upperBound(i)).append("ms");
+      result.append(": ").append(counts[i]);
+    }
+
+    return result.toString();
+  }
+}
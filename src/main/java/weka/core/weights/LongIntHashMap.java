@@ -0,0 +1,197 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LongIntHashMap.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Hash map from non-negative long keys to int values, using open addressing
+ * with linear probing on primitive arrays, i.e., no boxing and no entry
+ * objects. Not thread-safe; use one map per thread and merge them.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class LongIntHashMap
+  implements Serializable {
+
+  private static final long serialVersionUID = -2190364866254946610L;
+
+  /** the marker for empty slots. */
+  protected static final long EMPTY = -1L;
+
+  /** the maximum fill ratio before growing. */
+  protected static final double LOAD_FACTOR = 0.5;
+
+  /** the keys. */
+  protected long[] m_Keys;
+
+  /** the values. */
+  protected int[] m_Values;
+
+  /** the number of keys. */
+  protected int m_Size;
+
+  /** the number of keys at which to grow. */
+  protected int m_Threshold;
+
+  /**
+   * Initializes the map with room for 16 keys.
+   */
+  public LongIntHashMap() {
+    this(16);
+  }
+
+  /**
+   * Initializes the map.
+   *
+   * @param expected	the expected number of keys
+   */
+  public LongIntHashMap(int expected) {
+    int		capacity;
+
+    capacity = 16;
+    while (capacity * LOAD_FACTOR < expected)
+      capacity <<= 1;
+    allocate(capacity);
+  }
+
+  /**
+   * Allocates the arrays.
+   *
+   * @param capacity	the number of slots, a power of 2
+   */
+  protected void allocate(int capacity) {
+    m_Keys      = new long[capacity];
+    m_Values    = new int[capacity];
+    m_Threshold = (int) (capacity * LOAD_FACTOR);
+    Arrays.fill(m_Keys, EMPTY);
+  }
+
+  /**
+   * Returns the slot to start probing at for the key.
+   *
+   * @param key		the key
+   * @return		the slot
+   */
+  protected int slot(long key) {
+    // finalizer of MurmurHash3
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return (int) key & (m_Keys.length - 1);
+  }
+
+  /**
+   * Returns the value for the key.
+   *
+   * @param key		the key
+   * @return		the value, 0 if not present
+   */
+  public int get(long key) {
+    int		i;
+    int		mask;
+
+    mask = m_Keys.length - 1;
+    i    = slot(key);
+    while (m_Keys[i] != EMPTY) {
+      if (m_Keys[i] == key)
+	return m_Values[i];
+      i = (i + 1) & mask;
+    }
+
+    return 0;
+  }
+
+  /**
+   * Adds the delta to the value of the key, the key gets added if not
+   * present.
+   *
+   * @param key		the key, not negative
+   * @param delta	the delta to add
+   */
+  public void add(long key, int delta) {
+    int		i;
+    int		mask;
+
+    if (key < 0)
+      throw new IllegalArgumentException("Keys cannot be negative: " + key);
+
+    mask = m_Keys.length - 1;
+    i    = slot(key);
+    while (m_Keys[i] != EMPTY) {
+      if (m_Keys[i] == key) {
+	m_Values[i] += delta;
+	return;
+      }
+      i = (i + 1) & mask;
+    }
+
+    m_Keys[i]   = key;
+    m_Values[i] = delta;
+    m_Size++;
+    if (m_Size > m_Threshold)
+      grow();
+  }
+
+  /**
+   * Adds all keys/values of the other map to this one.
+   *
+   * @param other	the map to add
+   */
+  public void addAll(LongIntHashMap other) {
+    int		i;
+
+    for (i = 0; i < other.m_Keys.length; i++) {
+      if (other.m_Keys[i] != EMPTY)
+	add(other.m_Keys[i], other.m_Values[i]);
+    }
+  }
+
+  /**
+   * Doubles the capacity and re-inserts the keys.
+   */
+  protected void grow() {
+    long[]	keys;
+    int[]	values;
+    int		i;
+
+    keys   = m_Keys;
+    values = m_Values;
+    allocate(keys.length << 1);
+    m_Size = 0;
+    for (i = 0; i < keys.length; i++) {
+      if (keys[i] != EMPTY)
+	add(keys[i], values[i]);
+    }
+  }
+
+  /**
+   * Returns the number of keys.
+   *
+   * @return		the number of keys
+   */
+  public int size() {
+    return m_Size;
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * MiniBatchKMeans.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.io.Serializable;
+
+/**
+ * Mini-batch k-means (Sculley, 2010) on a row-major float matrix. Centroids
+ * get initialized with k-means++ on a sample of the points; each iteration
+ * draws a batch of points, assigns them to their nearest centroid (multiple
+ * threads) and moves the centroids towards them with per-centroid learning
+ * rates (in batch order). Centroids, counts and the batch buffers are
+ * primitive arrays, allocated once and re-used across iterations. As the
+ * random numbers only depend on seed and counter and the updates happen in
+ * batch order, the result is identical for any number of threads.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class MiniBatchKMeans
+  implements Serializable {
+
+  private static final long serialVersionUID = -1021735598437812683L;
+
+  /** the number of clusters. */
+  protected final int m_NumClusters;
+
+  /** the batch size. */
+  protected final int m_BatchSize;
+
+  /** the number of iterations. */
+  protected final int m_NumIterations;
+
+  /** the generator. */
+  protected final CounterRandom m_Random;
+
+  /** the number of threads. */
+  protected final int m_NumThreads;
+
+  /** the number of dimensions. */
+  protected int m_NumDimensions;
+
+  /** the centroids (row-major). */
+  protected double[] m_Centroids;
+
+  /**
+   * Initializes the clusterer.
+   *
+   * @param numClusters		the number of clusters
+   * @param batchSize		the number of points per batch
+   * @param numIterations	the number of iterations
+   * @param seed		the seed
+   * @param numThreads		the number of threads, 0 for number of cores
+   */
+  public MiniBatchKMeans(int numClusters, int batchSize, int numIterations, long seed, int numThreads) {
+    if (numClusters < 1)
+      throw new IllegalArgumentException("Number of clusters must be at least 1: " + numClusters);
+    if (batchSize < 1)
+      throw new IllegalArgumentException("Batch size must be at least 1: " + batchSize);
+    m_NumClusters   = numClusters;
+    m_BatchSize     = batchSize;
+    m_NumIterations = numIterations;
+    m_Random        = new CounterRandom(seed);
+    m_NumThreads    = numThreads;
+  }
+
+  /**
+   * Returns the centroids.
+   *
+   * @return		the centroids (row-major, clusters x dimensions), null if not built
+   */
+  public double[] getCentroids() {
+    return m_Centroids;
+  }
+
+  /**
+   * Returns the squared distance between point and centroid.
+   *
+   * @param points	the points
+   * @param point	the index of the point
+   * @param centroid	the index of the centroid
+   * @return		the squared distance
+   */
+  protected double squaredDistance(float[] points, int point, int centroid) {
+    double	result;
+    double	diff;
+    int		offsetP;
+    int		offsetC;
+    int		n;
+
+    result  = 0;
+    offsetP = point * m_NumDimensions;
+    offsetC = centroid * m_NumDimensions;
+    for (n = 0; n < m_NumDimensions; n++) {
+      diff    = points[offsetP + n] - m_Centroids[offsetC + n];
+      result += diff * diff;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the nearest centroid (the first one in case of ties).
+   *
+   * @param points	the points
+   * @param point	the index of the point
+   * @return		the index of the centroid
+   */
+  public int nearest(float[] points, int point) {
+    int		result;
+    double	best;
+    double	dist;
+    int		c;
+
+    result = 0;
+    best   = Double.POSITIVE_INFINITY;
+    for (c = 0; c < m_NumClusters; c++) {
+      dist = squaredDistance(points, point, c);
+      if (dist < best) {
+	best   = dist;
+	result = c;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Draws a random point.
+   *
+   * @param counter	the counter
+   * @param numPoints	the number of points
+   * @return		the index of the point
+   */
+  protected int draw(long counter, int numPoints) {
+    return Math.min(numPoints - 1, (int) (m_Random.nextDouble(counter) * numPoints));
+  }
+
+  /**
+   * Initializes the centroids with k-means++ on a sample of the points.
+   *
+   * @param points	the points
+   * @param numPoints	the number of points
+   * @param counter	the counter for the generator
+   * @return		the updated counter
+   */
+  protected long initialize(float[] points, int numPoints, long counter) {
+    int[]	sample;
+    double[]	minDist;
+    double	total;
+    double	target;
+    double	dist;
+    int		chosen;
+    int		c;
+    int		i;
+    int		n;
+
+    sample = new int[Math.min(numPoints, Math.max(m_BatchSize, 10 * m_NumClusters))];
+    for (i = 0; i < sample.length; i++)
+      sample[i] = (sample.length == numPoints) ? i : draw(counter++, numPoints);
+
+    minDist = new double[sample.length];
+    chosen  = sample[0];
+    for (c = 0; c < m_NumClusters; c++) {
+      for (n = 0; n < m_NumDimensions; n++)
+	m_Centroids[c * m_NumDimensions + n] = points[chosen * m_NumDimensions + n];
+      if (c == m_NumClusters - 1)
+	break;
+
+      // squared distance to nearest chosen centroid
+      total = 0;
+      for (i = 0; i < sample.length; i++) {
+	dist = squaredDistance(points, sample[i], c);
+	if ((c == 0) || (dist < minDist[i]))
+	  minDist[i] = dist;
+	total += minDist[i];
+      }
+
+      // next centroid proportional to squared distance
+      if (total > 0) {
+	target = m_Random.nextDouble(counter++) * total;
+	chosen = sample[sample.length - 1];
+	for (i = 0; i < sample.length; i++) {
+	  target -= minDist[i];
+	  if (target < 0) {
+	    chosen = sample[i];
+	    break;
+	  }
+	}
+      }
+      else {
+	chosen = sample[(c + 1) % sample.length];
+      }
+    }
+
+    return counter;
+  }
+
+  /**
+   * Clusters the points.
+   *
+   * @param points		the points (row-major)
+   * @param numDimensions	the number of dimensions
+   * @throws Exception		if clustering fails
+   */
+  public void build(final float[] points, int numDimensions) throws Exception {
+    final int[]		batch;
+    final int[]		assignments;
+    long[]		counts;
+    long		counter;
+    int			numPoints;
+    int			iter;
+    int			offsetP;
+    int			offsetC;
+    double		eta;
+    int			c;
+    int			i;
+    int			n;
+
+    m_NumDimensions = numDimensions;
+    numPoints       = points.length / numDimensions;
+    m_Centroids     = new double[m_NumClusters * numDimensions];
+    if (numPoints == 0)
+      return;
+
+    counter     = initialize(points, numPoints, 0);
+    counts      = new long[m_NumClusters];
+    batch       = new int[m_BatchSize];
+    assignments = new int[m_BatchSize];
+    for (iter = 0; iter < m_NumIterations; iter++) {
+      for (i = 0; i < batch.length; i++)
+	batch[i] = draw(counter++, numPoints);
+
+      Parallel.forEachChunk(batch.length, m_NumThreads, 256, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++)
+	    assignments[i] = nearest(points, batch[i]);
+	  return null;
+	}
+      });
+
+      // gradient step with per-centroid learning rate, in batch order
+      for (i = 0; i < batch.length; i++) {
+	c = assignments[i];
+	counts[c]++;
+	eta     = 1.0 / counts[c];
+	offsetP = batch[i] * numDimensions;
+	offsetC = c * numDimensions;
+	for (n = 0; n < numDimensions; n++)
+	  m_Centroids[offsetC + n] += eta * (points[offsetP + n] - m_Centroids[offsetC + n]);
+      }
+    }
+  }
+
+  /**
+   * Assigns all points to their nearest centroid.
+   *
+   * @param points	the points (row-major)
+   * @return		the cluster indices
+   * @throws Exception	if assignment fails
+   */
+  public int[] assign(final float[] points) throws Exception {
+    final int[]		result;
+
+    if (m_Centroids == null)
+      throw new IllegalStateException("Clusterer not built yet!");
+
+    result = new int[points.length / m_NumDimensions];
+    Parallel.forEachChunk(result.length, m_NumThreads, new Parallel.ChunkTask<Object>() {
+      public Object process(int chunk, int from, int to) {
+	for (int i = from; i < to; i++)
+	  result[i] = nearest(points, i);
+	return null;
+      }
+    });
+
+    return result;
+  }
+}
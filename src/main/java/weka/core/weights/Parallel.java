@@ -0,0 +1,198 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Parallel.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes ranges of rows in parallel. The rows get split into contiguous
+ * chunks that only depend on the number of rows and chunks, and the results
+ * are returned in chunk order, i.e., merging them is deterministic. The
+ * calling thread processes the first chunk itself, the others are processed
+ * by a shared pool of daemon threads.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Parallel {
+
+  /** the default minimum number of rows per chunk. */
+  public static final int DEFAULT_MIN_CHUNK_SIZE = 4096;
+
+  /**
+   * Processes a chunk of rows.
+   *
+   * @param <T> the type of result
+   */
+  public interface ChunkTask<T> {
+
+    /**
+     * Processes the rows.
+     *
+     * @param chunk	the 0-based index of the chunk
+     * @param from	the first row (incl)
+     * @param to	the last row (excl)
+     * @return		the result for this chunk
+     * @throws Exception	if processing fails
+     */
+    public T process(int chunk, int from, int to) throws Exception;
+  }
+
+  /** the shared executor. */
+  protected static ExecutorService m_Executor;
+
+  /**
+   * Returns the shared executor, initializes it if necessary.
+   *
+   * @return		the executor
+   */
+  protected static synchronized ExecutorService getExecutor() {
+    if (m_Executor == null) {
+      m_Executor = Executors.newCachedThreadPool(new ThreadFactory() {
+	protected AtomicInteger m_Count = new AtomicInteger();
+	public Thread newThread(Runnable r) {
+	  Thread result = new Thread(r, "weights-parallel-" + m_Count.incrementAndGet());
+	  result.setDaemon(true);
+	  return result;
+	}
+      });
+    }
+    return m_Executor;
+  }
+
+  /**
+   * Resolves the number of threads: values less than 1 mean the number of
+   * available processors.
+   *
+   * @param numThreads	the number of threads
+   * @return		the actual number of threads
+   */
+  public static int resolveNumThreads(int numThreads) {
+    if (numThreads < 1)
+      return Runtime.getRuntime().availableProcessors();
+    return numThreads;
+  }
+
+  /**
+   * Returns the number of chunks to split the rows into.
+   *
+   * @param numRows	the number of rows
+   * @param numThreads	the number of threads (less than 1 for all processors)
+   * @param minChunkSize	the minimum number of rows per chunk
+   * @return		the number of chunks (at least 1)
+   */
+  public static int numChunks(int numRows, int numThreads, int minChunkSize) {
+    long	chunks;
+
+    chunks = ((long) numRows + minChunkSize - 1) / Math.max(1, minChunkSize);
+    return (int) Math.max(1, Math.min(resolveNumThreads(numThreads), chunks));
+  }
+
+  /**
+   * Returns the first row of the chunk.
+   *
+   * @param chunk	the chunk
+   * @param numChunks	the number of chunks
+   * @param numRows	the number of rows
+   * @return		the first row (incl)
+   */
+  public static int chunkStart(int chunk, int numChunks, int numRows) {
+    return (int) ((long) chunk * numRows / numChunks);
+  }
+
+  /**
+   * Processes all rows in chunks, using the default minimum chunk size.
+   *
+   * @param numRows	the number of rows
+   * @param numThreads	the number of threads (less than 1 for all processors)
+   * @param task	the task to apply to each chunk
+   * @param <T>		the type of result
+   * @return		the results, in chunk order
+   * @throws Exception	if processing of a chunk fails
+   */
+  public static <T> List<T> forEachChunk(int numRows, int numThreads, ChunkTask<T> task) throws Exception {
+    return forEachChunk(numRows, numThreads, DEFAULT_MIN_CHUNK_SIZE, task);
+  }
+
+  /**
+   * Processes all rows in chunks.
+   *
+   * @param numRows	the number of rows
+   * @param numThreads	the number of threads (less than 1 for all processors)
+   * @param minChunkSize	the minimum number of rows per chunk
+   * @param task	the task to apply to each chunk
+   * @param <T>		the type of result
+   * @return		the results, in chunk order
+   * @throws Exception	if processing of a chunk fails
+   */
+  public static <T> List<T> forEachChunk(int numRows, int numThreads, int minChunkSize, final ChunkTask<T> task) throws Exception {
+    List<T>		result;
+    List<Future<T>>	futures;
+    int			numChunks;
+    int			i;
+    T			first;
+
+    numChunks = numChunks(numRows, numThreads, minChunkSize);
+    result    = new ArrayList<T>(numChunks);
+    if (numChunks == 1) {
+      result.add(task.process(0, 0, numRows));
+      return result;
+    }
+
+    futures = new ArrayList<Future<T>>(numChunks - 1);
+    for (i = 1; i < numChunks; i++) {
+      final int chunk = i;
+      final int from  = chunkStart(i, numChunks, numRows);
+      final int to    = chunkStart(i + 1, numChunks, numRows);
+      futures.add(getExecutor().submit(new Callable<T>() {
+	public T call() throws Exception {
+	  return task.process(chunk, from, to);
+	}
+      }));
+    }
+
+    try {
+      first = task.process(0, 0, chunkStart(1, numChunks, numRows));
+      result.add(first);
+      for (Future<T> future: futures)
+	result.add(future.get());
+    }
+    catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception)
+	throw (Exception) e.getCause();
+      throw e;
+    }
+    finally {
+      for (Future<T> future: futures)
+	future.cancel(true);
+    }
+
+    return result;
+  }
+}
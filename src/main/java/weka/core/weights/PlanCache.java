@@ -0,0 +1,206 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PlanCache.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.io.Serializable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Caches compiled plans by dataset structure and a key that describes
+ * everything else a plan depends on (options, number of rows, file
+ * timestamps, etc.). Lookups do not lock, the cache is bounded and evicts
+ * the oldest plan first. The cache itself is not serialized.
+ * <br><br>
+ * Two datasets have the same structure if they have the same attribute names
+ * and types, the same labels for nominal attributes and the same class index.
+ * The values of string attributes are ignored, as they vary from batch to
+ * batch.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ * @param <P> the type of plan
+ */
+public class PlanCache<P>
+  implements Serializable {
+
+  private static final long serialVersionUID = -3120768735263785424L;
+
+  /** the default maximum number of plans to cache. */
+  public static final int DEFAULT_MAX_SIZE = 8;
+
+  /**
+   * Container for a cached plan.
+   *
+   * @param <P> the type of plan
+   */
+  protected static class Entry<P> {
+
+    /** the header the plan was compiled for. */
+    protected final Instances header;
+
+    /** the key. */
+    protected final String key;
+
+    /** the plan. */
+    protected final P plan;
+
+    /**
+     * Initializes the entry.
+     *
+     * @param header	the header
+     * @param key	the key
+     * @param plan	the plan
+     */
+    protected Entry(Instances header, String key, P plan) {
+      this.header = header;
+      this.key    = key;
+      this.plan   = plan;
+    }
+  }
+
+  /** the maximum number of plans. */
+  protected int m_MaxSize;
+
+  /** the cached plans. */
+  protected transient volatile CopyOnWriteArrayList<Entry<P>> m_Entries;
+
+  /**
+   * Initializes the cache with the default size.
+   */
+  public PlanCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Initializes the cache.
+   *
+   * @param maxSize	the maximum number of plans to cache
+   */
+  public PlanCache(int maxSize) {
+    m_MaxSize = maxSize;
+  }
+
+  /**
+   * Returns the entries, initializes them if necessary.
+   *
+   * @return		the entries
+   */
+  protected CopyOnWriteArrayList<Entry<P>> entries() {
+    CopyOnWriteArrayList<Entry<P>>	result;
+
+    result = m_Entries;
+    if (result == null) {
+      result    = new CopyOnWriteArrayList<Entry<P>>();
+      m_Entries = result;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the plan for the dataset structure and key.
+   *
+   * @param data	the data to get the plan for
+   * @param key		the key of the plan
+   * @return		the plan, null if none cached
+   */
+  public P get(Instances data, String key) {
+    for (Entry<P> entry: entries()) {
+      if (entry.key.equals(key) && sameStructure(entry.header, data))
+	return entry.plan;
+    }
+    return null;
+  }
+
+  /**
+   * Caches the plan.
+   *
+   * @param data	the data the plan was compiled for
+   * @param key		the key of the plan
+   * @param plan	the plan
+   */
+  public void put(Instances data, String key, P plan) {
+    CopyOnWriteArrayList<Entry<P>>	entries;
+
+    entries = entries();
+    entries.add(new Entry<P>(new Instances(data, 0), key, plan));
+    while (entries.size() > m_MaxSize)
+      entries.remove(0);
+  }
+
+  /**
+   * Removes all cached plans.
+   */
+  public void clear() {
+    m_Entries = null;
+  }
+
+  /**
+   * Returns the number of cached plans.
+   *
+   * @return		the number of plans
+   */
+  public int size() {
+    return entries().size();
+  }
+
+  /**
+   * Checks whether the two datasets have the same structure.
+   *
+   * @param first	the first dataset
+   * @param second	the second dataset
+   * @return		true if the same structure
+   */
+  public static boolean sameStructure(Instances first, Instances second) {
+    Attribute	att1;
+    Attribute	att2;
+    int		i;
+    int		n;
+
+    if (first.numAttributes() != second.numAttributes())
+      return false;
+    if (first.classIndex() != second.classIndex())
+      return false;
+
+    for (i = 0; i < first.numAttributes(); i++) {
+      att1 = first.attribute(i);
+      att2 = second.attribute(i);
+      if (att1 == att2)
+	continue;
+      if (att1.type() != att2.type())
+	return false;
+      if (!att1.name().equals(att2.name()))
+	return false;
+      if (att1.isNominal()) {
+	if (att1.numValues() != att2.numValues())
+	  return false;
+	for (n = 0; n < att1.numValues(); n++) {
+	  if (!att1.value(n).equals(att2.value(n)))
+	    return false;
+	}
+      }
+    }
+
+    return true;
+  }
+}
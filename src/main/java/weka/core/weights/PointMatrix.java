@@ -0,0 +1,111 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PointMatrix.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import weka.core.Instances;
+
+/**
+ * Helper for turning numeric attributes into a compact, row-major float
+ * matrix of standardized values, as used by distance-based modifiers.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class PointMatrix {
+
+  /**
+   * Extracts the standardized values of the numeric attributes (missing
+   * values become 0, ie the mean; constant attributes become 0 as well).
+   * Mean and standard deviation of each attribute are summed up in row
+   * order, ie the matrix does not depend on the number of threads.
+   *
+   * @param data	the data to extract the values from
+   * @param indices	the 0-based indices of the numeric attributes
+   * @param numThreads	the number of threads, 0 for number of cores
+   * @return		the points (row-major, rows x indices)
+   * @throws Exception	if extraction fails
+   */
+  public static float[] standardized(final Instances data, final int[] indices, int numThreads) throws Exception {
+    final float[]	result;
+    final double[]	means;
+    final double[]	stdevs;
+    final int		numRows;
+    final int		numDims;
+
+    numRows = data.numInstances();
+    numDims = indices.length;
+    result  = new float[numRows * numDims];
+    means   = new double[numDims];
+    stdevs  = new double[numDims];
+
+    // raw values
+    Parallel.forEachChunk(numRows, numThreads, new Parallel.ChunkTask<Object>() {
+      public Object process(int chunk, int from, int to) {
+	for (int i = from; i < to; i++) {
+	  for (int n = 0; n < numDims; n++)
+	    result[i * numDims + n] = (float) SparseAccess.value(data.instance(i), indices[n]);
+	}
+	return null;
+      }
+    });
+
+    // statistics per attribute, summed up in row order
+    Parallel.forEachChunk(numDims, numThreads, 1, new Parallel.ChunkTask<Object>() {
+      public Object process(int chunk, int from, int to) {
+	for (int n = from; n < to; n++) {
+	  CompensatedSum sum = new CompensatedSum();
+	  CompensatedSum sumSq = new CompensatedSum();
+	  long count = 0;
+	  for (int i = 0; i < numRows; i++) {
+	    float value = result[i * numDims + n];
+	    if (Float.isNaN(value))
+	      continue;
+	    sum.add(value);
+	    sumSq.add((double) value * value);
+	    count++;
+	  }
+	  if (count > 0) {
+	    means[n]  = sum.value() / count;
+	    stdevs[n] = Math.sqrt(Math.max(0.0, sumSq.value() / count - means[n] * means[n]));
+	  }
+	}
+	return null;
+      }
+    });
+
+    // standardize
+    Parallel.forEachChunk(numRows, numThreads, new Parallel.ChunkTask<Object>() {
+      public Object process(int chunk, int from, int to) {
+	for (int i = from; i < to; i++) {
+	  for (int n = 0; n < numDims; n++) {
+	    float value = result[i * numDims + n];
+	    if (Float.isNaN(value) || (stdevs[n] == 0))
+	      result[i * numDims + n] = 0;
+	    else
+	      result[i * numDims + n] = (float) ((value - means[n]) / stdevs[n]);
+	  }
+	}
+	return null;
+      }
+    });
+
+    return result;
+  }
+}
@@ -0,0 +1,337 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * QuantileSketch.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Mergeable streaming quantile sketch (KLL): a hierarchy of compactors,
+ * where the compactor at level h holds values with a weight of 2^h. When a
+ * compactor is full, it gets sorted and every other value is promoted to the
+ * next level. Memory is O(k) (plus a logarithmic term), the rank error is
+ * roughly O(1/k). Compaction is deterministic (alternating offsets per
+ * level), i.e., the same input in the same order (and the same merges)
+ * always gives the same sketch. Missing values (NaN) are ignored. Not
+ * thread-safe, use one sketch per thread/block and merge them.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class QuantileSketch
+  implements Serializable {
+
+  private static final long serialVersionUID = 6209458834619432790L;
+
+  /** the default size parameter. */
+  public static final int DEFAULT_K = 200;
+
+  /** the minimum capacity of a compactor. */
+  public static final int MIN_CAPACITY = 8;
+
+  /** the size parameter. */
+  protected final int m_K;
+
+  /** the compactors. */
+  protected double[][] m_Levels;
+
+  /** the number of values per compactor. */
+  protected int[] m_Sizes;
+
+  /** the offsets to use for the next compaction per level. */
+  protected boolean[] m_Offsets;
+
+  /** the capacities per level. */
+  protected int[] m_Capacities;
+
+  /** the number of levels in use. */
+  protected int m_NumLevels;
+
+  /** the number of values retained over all levels. */
+  protected int m_Retained;
+
+  /** the capacity over all levels. */
+  protected int m_TotalCapacity;
+
+  /** the number of values seen. */
+  protected long m_Count;
+
+  /** the smallest value seen. */
+  protected double m_Min;
+
+  /** the largest value seen. */
+  protected double m_Max;
+
+  /**
+   * Initializes the sketch with the default size.
+   */
+  public QuantileSketch() {
+    this(DEFAULT_K);
+  }
+
+  /**
+   * Initializes the sketch.
+   *
+   * @param k		the size parameter (larger is more accurate)
+   */
+  public QuantileSketch(int k) {
+    if (k < MIN_CAPACITY)
+      throw new IllegalArgumentException("Size parameter must be at least " + MIN_CAPACITY + ": " + k);
+    m_K          = k;
+    m_Levels     = new double[0][];
+    m_Sizes      = new int[0];
+    m_Offsets    = new boolean[0];
+    m_Capacities = new int[0];
+    m_NumLevels  = 0;
+    m_Retained   = 0;
+    m_Count      = 0;
+    m_Min        = Double.NaN;
+    m_Max        = Double.NaN;
+    addLevel();
+  }
+
+  /**
+   * Returns the size parameter.
+   *
+   * @return		the size parameter
+   */
+  public int getK() {
+    return m_K;
+  }
+
+  /**
+   * Returns the number of values seen.
+   *
+   * @return		the number of values
+   */
+  public long getCount() {
+    return m_Count;
+  }
+
+  /**
+   * Returns whether no values have been seen.
+   *
+   * @return		true if empty
+   */
+  public boolean isEmpty() {
+    return (m_Count == 0);
+  }
+
+  /**
+   * Returns the smallest value seen.
+   *
+   * @return		the minimum, NaN if empty
+   */
+  public double getMin() {
+    return m_Min;
+  }
+
+  /**
+   * Returns the largest value seen.
+   *
+   * @return		the maximum, NaN if empty
+   */
+  public double getMax() {
+    return m_Max;
+  }
+
+  /**
+   * Returns the number of values retained by the sketch.
+   *
+   * @return		the number of values
+   */
+  public int getNumRetained() {
+    return m_Retained;
+  }
+
+  /**
+   * Adds another (empty) level at the top and updates the capacities: the
+   * top level holds k values, the levels below decrease geometrically
+   * (factor 2/3).
+   */
+  protected void addLevel() {
+    int		i;
+
+    m_Levels     = Arrays.copyOf(m_Levels, m_NumLevels + 1);
+    m_Sizes      = Arrays.copyOf(m_Sizes, m_NumLevels + 1);
+    m_Offsets    = Arrays.copyOf(m_Offsets, m_NumLevels + 1);
+    m_Capacities = new int[m_NumLevels + 1];
+    m_Levels[m_NumLevels] = new double[MIN_CAPACITY];
+    m_NumLevels++;
+
+    m_TotalCapacity = 0;
+    for (i = 0; i < m_NumLevels; i++) {
+      m_Capacities[i] = Math.max(MIN_CAPACITY, (int) Math.ceil(m_K * StrictMath.pow(2.0 / 3.0, m_NumLevels - 1 - i)));
+      m_TotalCapacity += m_Capacities[i];
+    }
+  }
+
+  /**
+   * Appends the value to the level.
+   *
+   * @param level	the level
+   * @param value	the value
+   */
+  protected void append(int level, double value) {
+    if (m_Sizes[level] == m_Levels[level].length)
+      m_Levels[level] = Arrays.copyOf(m_Levels[level], m_Levels[level].length * 2);
+    m_Levels[level][m_Sizes[level]++] = value;
+    m_Retained++;
+  }
+
+  /**
+   * Adds the value.
+   *
+   * @param value	the value, NaN is ignored
+   */
+  public void add(double value) {
+    if (Double.isNaN(value))
+      return;
+
+    if ((m_Count == 0) || (value < m_Min))
+      m_Min = value;
+    if ((m_Count == 0) || (value > m_Max))
+      m_Max = value;
+    m_Count++;
+
+    append(0, value);
+    if (m_Retained >= m_TotalCapacity)
+      compress();
+  }
+
+  /**
+   * Merges the other sketch into this one.
+   *
+   * @param other	the sketch to merge
+   */
+  public void merge(QuantileSketch other) {
+    int		i;
+    int		n;
+
+    if (other.isEmpty())
+      return;
+
+    while (m_NumLevels < other.m_NumLevels)
+      addLevel();
+    for (i = 0; i < other.m_NumLevels; i++) {
+      for (n = 0; n < other.m_Sizes[i]; n++)
+	append(i, other.m_Levels[i][n]);
+    }
+
+    if (isEmpty() || (other.m_Min < m_Min))
+      m_Min = other.m_Min;
+    if (isEmpty() || (other.m_Max > m_Max))
+      m_Max = other.m_Max;
+    m_Count += other.m_Count;
+
+    compress();
+  }
+
+  /**
+   * Compacts the lowest full levels until the sketch fits its capacity.
+   */
+  protected void compress() {
+    int		level;
+    int		size;
+    int		pairs;
+    int		offset;
+    double[]	values;
+    int		i;
+
+    while (m_Retained >= m_TotalCapacity) {
+      for (level = 0; level < m_NumLevels; level++) {
+	if (m_Sizes[level] >= m_Capacities[level])
+	  break;
+      }
+      if (level == m_NumLevels)
+	break;
+      if (level + 1 == m_NumLevels)
+	addLevel();
+
+      values = m_Levels[level];
+      size   = m_Sizes[level];
+      Arrays.sort(values, 0, size);
+      // odd number of values: the largest one stays behind
+      pairs  = size / 2;
+      offset = m_Offsets[level] ? 1 : 0;
+      m_Offsets[level] = !m_Offsets[level];
+      for (i = 0; i < pairs; i++)
+	append(level + 1, values[2 * i + offset]);
+      m_Retained -= size;
+      if ((size % 2) == 1) {
+	values[0]      = values[size - 1];
+	m_Sizes[level] = 1;
+	m_Retained++;
+      }
+      else {
+	m_Sizes[level] = 0;
+      }
+    }
+  }
+
+  /**
+   * Returns the approximate quantile.
+   *
+   * @param q		the quantile (0-1)
+   * @return		the value, NaN if empty
+   */
+  public double quantile(double q) {
+    double[][]	sorted;
+    int[]	pos;
+    long	total;
+    long	target;
+    long	cumulative;
+    int		best;
+    int		i;
+
+    if (isEmpty())
+      return Double.NaN;
+    if (q <= 0)
+      return m_Min;
+    if (q >= 1)
+      return m_Max;
+
+    sorted = new double[m_NumLevels][];
+    pos    = new int[m_NumLevels];
+    total  = 0;
+    for (i = 0; i < m_NumLevels; i++) {
+      sorted[i] = Arrays.copyOf(m_Levels[i], m_Sizes[i]);
+      Arrays.sort(sorted[i]);
+      total += (long) m_Sizes[i] << i;
+    }
+
+    // merge the sorted levels, accumulating the weights (2^level)
+    target     = (long) Math.ceil(q * total);
+    cumulative = 0;
+    while (true) {
+      best = -1;
+      for (i = 0; i < m_NumLevels; i++) {
+	if ((pos[i] < sorted[i].length) && ((best == -1) || (sorted[i][pos[i]] < sorted[best][pos[best]])))
+	  best = i;
+      }
+      if (best == -1)
+	return m_Max;
+      cumulative += 1L << best;
+      if (cumulative >= target)
+	return sorted[best][pos[best]];
+      pos[best]++;
+    }
+  }
+}
@@ -0,0 +1,458 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * RandomProjectionForest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Index for approximate nearest neighbour search: a forest of random
+ * projection trees over a fixed set of points. Each tree recursively splits
+ * the points at the median of their projections onto a random (Gaussian)
+ * direction, until at most leaf-size points are left. Points that share a
+ * leaf in any of the trees are the neighbour candidates of a point. The trees
+ * are built in parallel; as the random directions only depend on seed and
+ * tree, the forest is identical for any number of threads. Once built,
+ * queries are thread-safe.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class RandomProjectionForest
+  implements Serializable {
+
+  private static final long serialVersionUID = -4512393925037416021L;
+
+  /**
+   * A single tree, represented by the order of the points after splitting:
+   * the points of a leaf are contiguous.
+   */
+  protected static class Tree
+    implements Serializable {
+
+    private static final long serialVersionUID = 8043712238914401287L;
+
+    /** the points, in leaf order. */
+    protected int[] order;
+
+    /** the position of each point in the order. */
+    protected int[] positions;
+
+    /** the start positions of the leaves (ascending). */
+    protected int[] leafStarts;
+  }
+
+  /** the points (row-major). */
+  protected final float[] m_Points;
+
+  /** the number of dimensions. */
+  protected final int m_NumDimensions;
+
+  /** the number of points. */
+  protected final int m_NumPoints;
+
+  /** the maximum number of points per leaf. */
+  protected final int m_LeafSize;
+
+  /** the trees. */
+  protected final Tree[] m_Trees;
+
+  /**
+   * Builds the forest.
+   *
+   * @param points		the points (row-major, numPoints x numDimensions), not copied
+   * @param numDimensions	the number of dimensions
+   * @param numTrees		the number of trees
+   * @param leafSize		the maximum number of points per leaf (at least 2)
+   * @param seed		the seed for the random directions
+   * @param numThreads		the number of threads, 0 for number of cores
+   * @throws Exception		if building fails
+   */
+  public RandomProjectionForest(float[] points, int numDimensions, int numTrees, int leafSize, long seed, int numThreads) throws Exception {
+    final CounterRandom	random;
+
+    if (numDimensions < 1)
+      throw new IllegalArgumentException("At least one dimension required: " + numDimensions);
+    if (numTrees < 1)
+      throw new IllegalArgumentException("At least one tree required: " + numTrees);
+    if (leafSize < 2)
+      throw new IllegalArgumentException("Leaf size must be at least 2: " + leafSize);
+
+    m_Points        = points;
+    m_NumDimensions = numDimensions;
+    m_NumPoints     = points.length / numDimensions;
+    m_LeafSize      = leafSize;
+    m_Trees         = new Tree[numTrees];
+
+    random = new CounterRandom(seed);
+    Parallel.forEachChunk(numTrees, numThreads, 1, new Parallel.ChunkTask<Object>() {
+      public Object process(int chunk, int from, int to) {
+	// the trees of a chunk get built one after the other, share the buffers
+	double[] proj    = new double[m_NumPoints];
+	double[] select  = new double[m_NumPoints];
+	int[]    scratch = new int[m_NumPoints];
+	for (int t = from; t < to; t++)
+	  m_Trees[t] = buildTree(random.split(t), proj, select, scratch);
+	return null;
+      }
+    });
+  }
+
+  /**
+   * Returns the number of points.
+   *
+   * @return		the number of points
+   */
+  public int getNumPoints() {
+    return m_NumPoints;
+  }
+
+  /**
+   * Returns the number of trees.
+   *
+   * @return		the number of trees
+   */
+  public int getNumTrees() {
+    return m_Trees.length;
+  }
+
+  /**
+   * Returns the maximum number of candidates a query can return, ie the
+   * size of the buffer to supply.
+   *
+   * @return		the maximum
+   */
+  public int getMaxCandidates() {
+    return m_Trees.length * m_LeafSize;
+  }
+
+  /**
+   * Builds a single tree.
+   *
+   * @param random	the generator for the directions
+   * @param proj	the buffer for the projections (number of points)
+   * @param select	the buffer for selecting the medians (number of points)
+   * @param scratch	the buffer for partitioning (number of points)
+   * @return		the tree
+   */
+  protected Tree buildTree(CounterRandom random, double[] proj, double[] select, int[] scratch) {
+    Tree	result;
+    int[]	leaves;
+    int[]	numLeaves;
+    int		i;
+
+    result       = new Tree();
+    result.order = new int[m_NumPoints];
+    for (i = 0; i < m_NumPoints; i++)
+      result.order[i] = i;
+
+    leaves    = new int[Math.max(1, 2 * m_NumPoints / m_LeafSize + 1)];
+    numLeaves = new int[1];
+    leaves    = split(result.order, 0, m_NumPoints, random, new long[1], proj, select, scratch, leaves, numLeaves);
+
+    result.leafStarts = Arrays.copyOf(leaves, numLeaves[0]);
+    result.positions  = new int[m_NumPoints];
+    for (i = 0; i < m_NumPoints; i++)
+      result.positions[result.order[i]] = i;
+
+    return result;
+  }
+
+  /**
+   * Returns the value that would be at the specified position if the range
+   * were sorted (same order as {@link Arrays#sort(double[], int, int)}).
+   * Partially reorders the range in place, i.e., unlike sorting (which
+   * allocates a merge buffer on newer JVMs), it does not allocate anything.
+   *
+   * @param values	the values to select from, get reordered
+   * @param from	the start of the range (incl)
+   * @param to		the end of the range (excl)
+   * @param k		the position to select
+   * @return		the value
+   */
+  protected static double select(double[] values, int from, int to, int k) {
+    double	pivot;
+    double	a;
+    double	b;
+    double	c;
+    double	tmp;
+    int		left;
+    int		right;
+    int		i;
+    int		j;
+
+    left  = from;
+    right = to - 1;
+    while (left < right) {
+      // median of three as pivot
+      a = values[left];
+      b = values[(left + right) >>> 1];
+      c = values[right];
+      if (Double.compare(a, b) > 0) {
+	tmp = a;
+	a   = b;
+	b   = tmp;
+      }
+      if (Double.compare(b, c) > 0)
+	b = (Double.compare(a, c) > 0) ? a : c;
+      pivot = b;
+
+      i = left;
+      j = right;
+      do {
+	while (Double.compare(values[i], pivot) < 0)
+	  i++;
+	while (Double.compare(pivot, values[j]) < 0)
+	  j--;
+	if (i <= j) {
+	  tmp       = values[i];
+	  values[i] = values[j];
+	  values[j] = tmp;
+	  i++;
+	  j--;
+	}
+      }
+      while (i <= j);
+      if (j < k)
+	left = i;
+      if (k < i)
+	right = j;
+    }
+
+    return values[k];
+  }
+
+  /**
+   * Sorts the range in place (heapsort). Unlike {@link Arrays#sort(int[], int, int)},
+   * which allocates a buffer for merging runs on newer JVMs, it does not
+   * allocate anything.
+   *
+   * @param values	the values to sort
+   * @param from	the start of the range (incl)
+   * @param to		the end of the range (excl)
+   */
+  protected static void sort(int[] values, int from, int to) {
+    int		size;
+    int		tmp;
+    int		i;
+
+    size = to - from;
+    for (i = size / 2 - 1; i >= 0; i--)
+      siftDown(values, from, i, size);
+    for (i = size - 1; i > 0; i--) {
+      tmp              = values[from];
+      values[from]     = values[from + i];
+      values[from + i] = tmp;
+      siftDown(values, from, 0, i);
+    }
+  }
+
+  /**
+   * Restores the (max) heap property below the node.
+   *
+   * @param values	the heap
+   * @param offset	the start of the heap
+   * @param node	the node to sift down, relative to the start
+   * @param size	the size of the heap
+   */
+  protected static void siftDown(int[] values, int offset, int node, int size) {
+    int		child;
+    int		tmp;
+
+    while ((child = 2 * node + 1) < size) {
+      if ((child + 1 < size) && (values[offset + child + 1] > values[offset + child]))
+	child++;
+      if (values[offset + node] >= values[offset + child])
+	return;
+      tmp                    = values[offset + node];
+      values[offset + node]  = values[offset + child];
+      values[offset + child] = tmp;
+      node                   = child;
+    }
+  }
+
+  /**
+   * Recursively splits the points in the range of the order.
+   *
+   * @param order	the order of the points
+   * @param from	the start of the range (incl)
+   * @param to		the end of the range (excl)
+   * @param random	the generator for the directions
+   * @param counter	the counter for the generator
+   * @param proj	the buffer for the projections
+   * @param select	the buffer for selecting the median of the projections
+   * @param scratch	the buffer for partitioning
+   * @param leaves	the leaf starts so far
+   * @param numLeaves	the number of leaves so far
+   * @return		the (possibly enlarged) leaf starts
+   */
+  protected int[] split(int[] order, int from, int to, CounterRandom random, long[] counter,
+			double[] proj, double[] select, int[] scratch, int[] leaves, int[] numLeaves) {
+    double[]	direction;
+    double	median;
+    double	u;
+    int		half;
+    int		left;
+    int		right;
+    int		below;
+    int		offset;
+    int		i;
+    int		n;
+
+    if (to - from <= m_LeafSize) {
+      if (numLeaves[0] == leaves.length)
+	leaves = Arrays.copyOf(leaves, leaves.length * 2);
+      leaves[numLeaves[0]++] = from;
+      return leaves;
+    }
+
+    // random Gaussian direction (Box-Muller)
+    direction = new double[m_NumDimensions];
+    for (n = 0; n < m_NumDimensions; n++) {
+      u            = random.nextDouble(counter[0]++);
+      direction[n] = StrictMath.sqrt(-2.0 * StrictMath.log1p(-u)) * StrictMath.cos(2.0 * Math.PI * random.nextDouble(counter[0]++));
+    }
+
+    // project
+    for (i = from; i < to; i++) {
+      offset  = order[i] * m_NumDimensions;
+      proj[i] = 0;
+      for (n = 0; n < m_NumDimensions; n++)
+	proj[i] += direction[n] * m_Points[offset + n];
+    }
+
+    // split at the median, ties get distributed to balance the halves
+    half   = (to - from) / 2;
+    System.arraycopy(proj, from, select, from, to - from);
+    median = select(select, from, to, from + half);
+    below  = 0;
+    for (i = from; i < to; i++) {
+      if (proj[i] < median)
+	below++;
+    }
+    left  = from;
+    right = from + half;
+    for (i = from; i < to; i++) {
+      if ((proj[i] < median) || ((proj[i] == median) && (below < half))) {
+	if (proj[i] == median)
+	  below++;
+	scratch[left++] = order[i];
+      }
+      else {
+	scratch[right++] = order[i];
+      }
+    }
+    System.arraycopy(scratch, from, order, from, to - from);
+
+    leaves = split(order, from, from + half, random, counter, proj, select, scratch, leaves, numLeaves);
+    leaves = split(order, from + half, to, random, counter, proj, select, scratch, leaves, numLeaves);
+
+    return leaves;
+  }
+
+  /**
+   * Collects the neighbour candidates of the point: all points sharing a
+   * leaf with it, without duplicates and without the point itself.
+   *
+   * @param point	the index of the point
+   * @param buffer	the buffer for the candidates, see {@link #getMaxCandidates()}
+   * @return		the number of candidates in the buffer (sorted)
+   */
+  public int candidates(int point, int[] buffer) {
+    int		count;
+    int		leaf;
+    int		start;
+    int		end;
+    int		result;
+    int		i;
+
+    count = 0;
+    for (Tree tree: m_Trees) {
+      leaf = Arrays.binarySearch(tree.leafStarts, tree.positions[point]);
+      if (leaf < 0)
+	leaf = -leaf - 2;
+      start = tree.leafStarts[leaf];
+      end   = (leaf + 1 < tree.leafStarts.length) ? tree.leafStarts[leaf + 1] : m_NumPoints;
+      for (i = start; i < end; i++) {
+	if (tree.order[i] != point)
+	  buffer[count++] = tree.order[i];
+      }
+    }
+
+    // remove duplicates
+    sort(buffer, 0, count);
+    result = 0;
+    for (i = 0; i < count; i++) {
+      if ((result == 0) || (buffer[i] != buffer[result - 1]))
+	buffer[result++] = buffer[i];
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the squared Euclidean distance between the two points.
+   *
+   * @param first	the index of the first point
+   * @param second	the index of the second point
+   * @return		the squared distance
+   */
+  public double squaredDistance(int first, int second) {
+    double	result;
+    double	diff;
+    int		offset1;
+    int		offset2;
+    int		n;
+
+    result  = 0;
+    offset1 = first * m_NumDimensions;
+    offset2 = second * m_NumDimensions;
+    for (n = 0; n < m_NumDimensions; n++) {
+      diff    = m_Points[offset1 + n] - m_Points[offset2 + n];
+      result += diff * diff;
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the approximate distance to the k-th nearest neighbour, among
+   * the candidates of the point.
+   *
+   * @param point	the index of the point
+   * @param k		the number of neighbours
+   * @param buffer	the buffer for the candidates, see {@link #getMaxCandidates()}
+   * @param distances	the buffer for the distances, see {@link #getMaxCandidates()}
+   * @return		the distance, the distance to the farthest candidate if
+   * 			fewer than k candidates, NaN if none
+   */
+  public double kthNeighborDistance(int point, int k, int[] buffer, double[] distances) {
+    int		count;
+    int		i;
+
+    count = candidates(point, buffer);
+    if (count == 0)
+      return Double.NaN;
+    for (i = 0; i < count; i++)
+      distances[i] = squaredDistance(point, buffer[i]);
+
+    return Math.sqrt(select(distances, 0, count, Math.min(k, count) - 1));
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * RowHash.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.List;
+
+/**
+ * Hashing and comparison of the values of rows. Only non-zero values
+ * (including missing ones) are considered, in order of their attribute
+ * index, i.e., a dense and a sparse row with the same values have the same
+ * hash and are equal. The weight is ignored, apart from the fingerprint of
+ * the data.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class RowHash {
+
+  /** the increment for the attribute indices (golden ratio). */
+  protected static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+  /** the first prime of xxHash64. */
+  protected static final long PRIME1 = 0x9e3779b185ebca87L;
+
+  /** the second prime of xxHash64. */
+  protected static final long PRIME2 = 0xc2b2ae3d27d4eb4fL;
+
+  /**
+   * Computes the 64-bit hash of the values of the row: one multiply-rotate
+   * round per value, mixed once at the end.
+   *
+   * @param inst	the row to hash
+   * @return		the hash
+   */
+  public static long hash(Instance inst) {
+    long	result;
+    double	value;
+    int		numValues;
+    int		i;
+
+    result    = GOLDEN_GAMMA;
+    numValues = inst.numValues();
+    for (i = 0; i < numValues; i++) {
+      value = inst.valueSparse(i);
+      if (value == 0)
+	continue;
+      // round of xxHash64; doubleToLongBits uses the same bits for all NaNs, ie missing values
+      result = Long.rotateLeft(result + (Double.doubleToLongBits(value) ^ (inst.index(i) * GOLDEN_GAMMA)) * PRIME2, 31) * PRIME1;
+    }
+
+    return CounterRandom.mix(result);
+  }
+
+  /**
+   * Computes a fingerprint of the data from all the rows, i.e., their values
+   * and weights, in a single read-only pass. The hashes of the rows get
+   * combined with their position by addition, i.e., the fingerprint is the
+   * same for any number of threads.
+   *
+   * @param data	the data to fingerprint
+   * @param numThreads	the number of threads (less than 1 for all processors)
+   * @return		the fingerprint
+   * @throws Exception	if hashing fails
+   */
+  public static long fingerprint(final Instances data, int numThreads) throws Exception {
+    List<Long>	sums;
+    long	result;
+
+    result = data.numInstances() * GOLDEN_GAMMA;
+    sums   = Parallel.forEachChunk(data.numInstances(), numThreads, new Parallel.ChunkTask<Long>() {
+      public Long process(int chunk, int from, int to) {
+	long sum = 0;
+	for (int i = from; i < to; i++) {
+	  Instance inst = data.instance(i);
+	  sum += CounterRandom.mix(hash(inst) + Double.doubleToLongBits(inst.weight()) * PRIME2 + i * GOLDEN_GAMMA);
+	}
+	return sum;
+      }
+    });
+    for (Long sum: sums)
+      result += sum;
+
+    return CounterRandom.mix(result);
+  }
+
+  /**
+   * Checks whether the two rows have the same values (missing values are
+   * equal to each other).
+   *
+   * @param first	the first row
+   * @param second	the second row
+   * @return		true if the same values
+   */
+  public static boolean equal(Instance first, Instance second) {
+    int		numFirst;
+    int		numSecond;
+    int		i;
+    int		n;
+    double	value1;
+    double	value2;
+
+    numFirst  = first.numValues();
+    numSecond = second.numValues();
+    i         = 0;
+    n         = 0;
+    while (true) {
+      while ((i < numFirst) && (first.valueSparse(i) == 0))
+	i++;
+      while ((n < numSecond) && (second.valueSparse(n) == 0))
+	n++;
+      if ((i == numFirst) || (n == numSecond))
+	return (i == numFirst) && (n == numSecond);
+      if (first.index(i) != second.index(n))
+	return false;
+      value1 = first.valueSparse(i);
+      value2 = second.valueSparse(n);
+      if ((value1 != value2) && !(Double.isNaN(value1) && Double.isNaN(value2)))
+	return false;
+      i++;
+      n++;
+    }
+  }
+}
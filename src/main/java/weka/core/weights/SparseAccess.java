@@ -0,0 +1,113 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SparseAccess.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import weka.core.Instance;
+import weka.core.SparseInstance;
+
+/**
+ * Index-aware access to attribute values of rows that avoids the generic
+ * lookups of {@link Instance#value(int)}/{@link Instance#isMissing(int)}
+ * on sparse rows (a binary search each). Attributes at the start or end of
+ * the stored indices, like class or weight attributes, are located in
+ * constant time.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SparseAccess {
+
+  /**
+   * Checks whether the row is sparse.
+   *
+   * @param inst	the row to check
+   * @return		true if sparse
+   */
+  public static boolean isSparse(Instance inst) {
+    return (inst instanceof SparseInstance);
+  }
+
+  /**
+   * Returns the position of the attribute among the stored values of the row.
+   *
+   * @param inst	the row to search
+   * @param attIndex	the 0-based attribute index
+   * @return		the position, -1 if not stored (ie 0 for sparse rows)
+   */
+  public static int locate(Instance inst, int attIndex) {
+    int		numValues;
+    int		index;
+    int		min;
+    int		max;
+    int		mid;
+
+    if (!isSparse(inst))
+      return attIndex;
+
+    numValues = inst.numValues();
+    if (numValues == 0)
+      return -1;
+
+    // last
+    index = inst.index(numValues - 1);
+    if (attIndex >= index)
+      return (attIndex == index) ? numValues - 1 : -1;
+
+    // first
+    index = inst.index(0);
+    if (attIndex <= index)
+      return (attIndex == index) ? 0 : -1;
+
+    min = 1;
+    max = numValues - 2;
+    while (min <= max) {
+      mid   = (min + max) >>> 1;
+      index = inst.index(mid);
+      if (index < attIndex)
+	min = mid + 1;
+      else if (index > attIndex)
+	max = mid - 1;
+      else
+	return mid;
+    }
+
+    return -1;
+  }
+
+  /**
+   * Returns the value of the attribute (missing values are NaN).
+   *
+   * @param inst	the row to get the value from
+   * @param attIndex	the 0-based attribute index
+   * @return		the value
+   */
+  public static double value(Instance inst, int attIndex) {
+    int		pos;
+
+    if (!isSparse(inst))
+      return inst.value(attIndex);
+
+    pos = locate(inst, attIndex);
+    if (pos == -1)
+      return 0.0;
+    return inst.valueSparse(pos);
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StripedCounter.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter that spreads the updates of concurrent threads across
+ * padded cells (one per cache line), in the spirit of LongAdder. Updates
+ * are cheap and do not contend, reading the value sums up all cells.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class StripedCounter
+  implements Serializable {
+
+  private static final long serialVersionUID = 2465717408718231950L;
+
+  /** the distance between cells (in longs), to avoid false sharing. */
+  protected static final int PADDING = 16;
+
+  /** the mask for the cell index. */
+  protected final int m_Mask;
+
+  /** the cells. */
+  protected final AtomicLongArray m_Cells;
+
+  /**
+   * Initializes the counter with a number of cells suitable for the number
+   * of available processors.
+   */
+  public StripedCounter() {
+    int		cells;
+
+    cells = 1;
+    while (cells < 2 * Runtime.getRuntime().availableProcessors())
+      cells *= 2;
+    m_Mask  = cells - 1;
+    m_Cells = new AtomicLongArray(cells * PADDING);
+  }
+
+  /**
+   * Returns the cell for the current thread.
+   *
+   * @return		the index of the cell
+   */
+  protected int cell() {
+    long	id;
+
+    id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+    return ((int) (id >>> 32) & m_Mask) * PADDING;
+  }
+
+  /**
+   * Adds the value.
+   *
+   * @param value	the value to add
+   */
+  public void add(long value) {
+    m_Cells.getAndAdd(cell(), value);
+  }
+
+  /**
+   * Increments the counter by one.
+   */
+  public void increment() {
+    add(1);
+  }
+
+  /**
+   * Returns the current sum.
+   *
+   * @return		the sum
+   */
+  public long sum() {
+    long	result;
+    int		i;
+
+    result = 0;
+    for (i = 0; i <= m_Mask; i++)
+      result += m_Cells.get(i * PADDING);
+
+    return result;
+  }
+
+  /**
+   * Resets the counter to zero. Not atomic with respect to concurrent
+   * updates.
+   */
+  public void reset() {
+    int		i;
+
+    for (i = 0; i <= m_Mask; i++)
+      m_Cells.set(i * PADDING, 0);
+  }
+
+  /**
+   * Returns the sum as string.
+   *
+   * @return		the sum
+   */
+  @Override
+  public String toString() {
+    return "" + sum();
+  }
+}
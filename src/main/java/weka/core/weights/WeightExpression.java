@@ -0,0 +1,903 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WeightExpression.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mathematical expression over the attribute values and the current weight
+ * of a row, compiled against a dataset structure into a tree of specialized
+ * nodes (attribute indices resolved, constant sub-expressions folded), i.e.,
+ * the expression string is not interpreted per row. Evaluation is
+ * thread-safe.
+ * <br><br>
+ * Grammar (usual precedence, boolean results are 1/0, anything non-zero is
+ * true):
+ * <pre>
+ *   cond ? a : b,  a || b,  a &amp;&amp; b,  !a
+ *   a &lt; b,  a &lt;= b,  a &gt; b,  a &gt;= b,  a == b,  a != b
+ *   a + b,  a - b,  a * b,  a / b,  a % b,  a ^ b,  -a
+ *   abs, sqrt, log, log1p, exp, floor, ceil, round, ismissing (one argument)
+ *   min, max, pow (two arguments)
+ * </pre>
+ * Variables are attribute names (names that are not plain identifiers
+ * can be enclosed in single quotes), ATTn for the n-th (1-based) attribute
+ * and WEIGHT for the current weight of the row. Attribute names take
+ * precedence. Nominal attributes evaluate to the 0-based label index,
+ * missing values to NaN.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class WeightExpression
+  implements Serializable {
+
+  private static final long serialVersionUID = -6188546785549785232L;
+
+  /**
+   * Node of the compiled expression.
+   */
+  public static abstract class Node
+    implements Serializable {
+
+    private static final long serialVersionUID = 2949203938813385262L;
+
+    /**
+     * Evaluates the node for the row.
+     *
+     * @param inst	the row
+     * @return		the value
+     */
+    public abstract double evaluate(Instance inst);
+
+    /**
+     * Returns whether the node evaluates to a constant.
+     *
+     * @return		true if constant
+     */
+    public boolean isConstant() {
+      return false;
+    }
+  }
+
+  /**
+   * A constant.
+   */
+  public static class Constant
+    extends Node {
+
+    private static final long serialVersionUID = -2417925870658924416L;
+
+    /** the value. */
+    protected final double m_Value;
+
+    /**
+     * Initializes the constant.
+     *
+     * @param value	the value
+     */
+    public Constant(double value) {
+      m_Value = value;
+    }
+
+    @Override
+    public double evaluate(Instance inst) {
+      return m_Value;
+    }
+
+    @Override
+    public boolean isConstant() {
+      return true;
+    }
+  }
+
+  /**
+   * The value of an attribute (dense or sparse row).
+   */
+  public static class Value
+    extends Node {
+
+    private static final long serialVersionUID = 2183093717870958437L;
+
+    /** the 0-based attribute index. */
+    protected final int m_Index;
+
+    /**
+     * Initializes the node.
+     *
+     * @param index	the 0-based attribute index
+     */
+    public Value(int index) {
+      m_Index = index;
+    }
+
+    @Override
+    public double evaluate(Instance inst) {
+      if (SparseAccess.isSparse(inst))
+	return SparseAccess.value(inst, m_Index);
+      return inst.value(m_Index);
+    }
+  }
+
+  /**
+   * The current weight of the row.
+   */
+  public static class Weight
+    extends Node {
+
+    private static final long serialVersionUID = 8440929440963442497L;
+
+    @Override
+    public double evaluate(Instance inst) {
+      return inst.weight();
+    }
+  }
+
+  /** the unary functions. */
+  protected static final String[] FUNCTIONS_1 = {"abs", "sqrt", "log", "log1p", "exp", "floor", "ceil", "round", "ismissing"};
+
+  /** the binary functions. */
+  protected static final String[] FUNCTIONS_2 = {"min", "max", "pow"};
+
+  /** the expression. */
+  protected final String m_Expression;
+
+  /** the root node. */
+  protected final Node m_Root;
+
+  /** the expression being parsed. */
+  protected transient String m_Input;
+
+  /** the current position in the expression. */
+  protected transient int m_Pos;
+
+  /** the dataset structure. */
+  protected transient Instances m_Header;
+
+  /**
+   * Compiles the expression for the dataset structure.
+   *
+   * @param expression	the expression
+   * @param header	the dataset structure
+   * @throws IllegalArgumentException	if the expression is invalid
+   */
+  protected WeightExpression(String expression, Instances header) {
+    m_Expression = expression;
+    m_Input      = expression;
+    m_Pos        = 0;
+    m_Header     = header;
+    m_Root       = parseConditional();
+    skipWhitespace();
+    if (m_Pos < m_Input.length())
+      throw error("Unexpected input");
+    m_Input      = null;
+    m_Header     = null;
+  }
+
+  /**
+   * Evaluates the expression for the row.
+   *
+   * @param inst	the row
+   * @return		the value
+   */
+  public double evaluate(Instance inst) {
+    return m_Root.evaluate(inst);
+  }
+
+  /**
+   * Returns the root node of the compiled expression.
+   *
+   * @return		the root
+   */
+  public Node getRoot() {
+    return m_Root;
+  }
+
+  /**
+   * Returns the expression.
+   *
+   * @return		the expression
+   */
+  @Override
+  public String toString() {
+    return m_Expression;
+  }
+
+  /**
+   * Generates an exception with the current position.
+   *
+   * @param msg		the error message
+   * @return		the exception
+   */
+  protected IllegalArgumentException error(String msg) {
+    return new IllegalArgumentException(msg + " at position " + (m_Pos + 1) + ": " + m_Input);
+  }
+
+  /**
+   * Skips any whitespace.
+   */
+  protected void skipWhitespace() {
+    while ((m_Pos < m_Input.length()) && Character.isWhitespace(m_Input.charAt(m_Pos)))
+      m_Pos++;
+  }
+
+  /**
+   * Consumes the token if present at the current position.
+   *
+   * @param token	the token to look for
+   * @return		true if consumed
+   */
+  protected boolean consume(String token) {
+    skipWhitespace();
+    if (!m_Input.startsWith(token, m_Pos))
+      return false;
+    // don't mistake "<=" for "<" etc
+    if ((token.length() == 1) && ("<>=!".indexOf(token.charAt(0)) > -1)
+      && (m_Pos + 1 < m_Input.length()) && (m_Input.charAt(m_Pos + 1) == '='))
+      return false;
+    m_Pos += token.length();
+    return true;
+  }
+
+  /**
+   * Expects the token at the current position.
+   *
+   * @param token	the token
+   */
+  protected void expect(String token) {
+    if (!consume(token))
+      throw error("Expected '" + token + "'");
+  }
+
+  /**
+   * Parses: or ('?' conditional ':' conditional)?
+   *
+   * @return		the node
+   */
+  protected Node parseConditional() {
+    Node	cond;
+    Node	first;
+    Node	second;
+
+    cond = parseOr();
+    if (!consume("?"))
+      return cond;
+    first = parseConditional();
+    expect(":");
+    second = parseConditional();
+
+    return conditional(cond, first, second);
+  }
+
+  /**
+   * Parses: and ('||' and)*
+   *
+   * @return		the node
+   */
+  protected Node parseOr() {
+    Node	result;
+
+    result = parseAnd();
+    while (consume("||"))
+      result = binary("||", result, parseAnd());
+
+    return result;
+  }
+
+  /**
+   * Parses: comparison ('&amp;&amp;' comparison)*
+   *
+   * @return		the node
+   */
+  protected Node parseAnd() {
+    Node	result;
+
+    result = parseComparison();
+    while (consume("&&"))
+      result = binary("&&", result, parseComparison());
+
+    return result;
+  }
+
+  /**
+   * Parses: additive (op additive)?
+   *
+   * @return		the node
+   */
+  protected Node parseComparison() {
+    Node	result;
+
+    result = parseAdditive();
+    for (String op: new String[]{"<=", ">=", "==", "!=", "<", ">", "="}) {
+      if (consume(op))
+	return binary(op.equals("=") ? "==" : op, result, parseAdditive());
+    }
+
+    return result;
+  }
+
+  /**
+   * Parses: multiplicative (('+'|'-') multiplicative)*
+   *
+   * @return		the node
+   */
+  protected Node parseAdditive() {
+    Node	result;
+
+    result = parseMultiplicative();
+    while (true) {
+      if (consume("+"))
+	result = binary("+", result, parseMultiplicative());
+      else if (consume("-"))
+	result = binary("-", result, parseMultiplicative());
+      else
+	return result;
+    }
+  }
+
+  /**
+   * Parses: unary (('*'|'/'|'%') unary)*
+   *
+   * @return		the node
+   */
+  protected Node parseMultiplicative() {
+    Node	result;
+
+    result = parseUnary();
+    while (true) {
+      if (consume("*"))
+	result = binary("*", result, parseUnary());
+      else if (consume("/"))
+	result = binary("/", result, parseUnary());
+      else if (consume("%"))
+	result = binary("%", result, parseUnary());
+      else
+	return result;
+    }
+  }
+
+  /**
+   * Parses: ('-'|'+'|'!') unary | power
+   *
+   * @return		the node
+   */
+  protected Node parseUnary() {
+    if (consume("-"))
+      return unary("-", parseUnary());
+    if (consume("+"))
+      return parseUnary();
+    if (consume("!"))
+      return unary("!", parseUnary());
+    return parsePower();
+  }
+
+  /**
+   * Parses: primary ('^' unary)?, right-associative
+   *
+   * @return		the node
+   */
+  protected Node parsePower() {
+    Node	result;
+
+    result = parsePrimary();
+    if (consume("^"))
+      result = binary("^", result, parseUnary());
+
+    return result;
+  }
+
+  /**
+   * Parses numbers, variables, function calls and parentheses.
+   *
+   * @return		the node
+   */
+  protected Node parsePrimary() {
+    Node	result;
+    String	name;
+    int		start;
+    char	c;
+    List<Node>	args;
+
+    skipWhitespace();
+    if (m_Pos >= m_Input.length())
+      throw error("Unexpected end of expression");
+
+    c = m_Input.charAt(m_Pos);
+
+    // parentheses
+    if (c == '(') {
+      m_Pos++;
+      result = parseConditional();
+      expect(")");
+      return result;
+    }
+
+    // number
+    if (Character.isDigit(c) || (c == '.')) {
+      start = m_Pos;
+      while ((m_Pos < m_Input.length()) && (Character.isDigit(m_Input.charAt(m_Pos)) || (m_Input.charAt(m_Pos) == '.')))
+	m_Pos++;
+      if ((m_Pos < m_Input.length()) && ((m_Input.charAt(m_Pos) == 'e') || (m_Input.charAt(m_Pos) == 'E'))) {
+	m_Pos++;
+	if ((m_Pos < m_Input.length()) && ((m_Input.charAt(m_Pos) == '+') || (m_Input.charAt(m_Pos) == '-')))
+	  m_Pos++;
+	while ((m_Pos < m_Input.length()) && Character.isDigit(m_Input.charAt(m_Pos)))
+	  m_Pos++;
+      }
+      try {
+	return new Constant(Double.parseDouble(m_Input.substring(start, m_Pos)));
+      }
+      catch (NumberFormatException e) {
+	m_Pos = start;
+	throw error("Invalid number");
+      }
+    }
+
+    // quoted attribute name
+    if (c == '\'') {
+      start = ++m_Pos;
+      while ((m_Pos < m_Input.length()) && (m_Input.charAt(m_Pos) != '\''))
+	m_Pos++;
+      if (m_Pos >= m_Input.length())
+	throw error("Unterminated attribute name");
+      name = m_Input.substring(start, m_Pos);
+      m_Pos++;
+      if (m_Header.attribute(name) == null)
+	throw error("Unknown attribute '" + name + "'");
+      return attribute(m_Header.attribute(name).index());
+    }
+
+    // identifier
+    if (!Character.isLetter(c) && (c != '_'))
+      throw error("Unexpected character '" + c + "'");
+    start = m_Pos;
+    while ((m_Pos < m_Input.length()) && (Character.isLetterOrDigit(m_Input.charAt(m_Pos)) || (m_Input.charAt(m_Pos) == '_')))
+      m_Pos++;
+    name = m_Input.substring(start, m_Pos);
+
+    // function
+    if (consume("(")) {
+      args = new ArrayList<Node>();
+      if (!consume(")")) {
+	do {
+	  args.add(parseConditional());
+	}
+	while (consume(","));
+	expect(")");
+      }
+      return function(name.toLowerCase(), args);
+    }
+
+    // variable
+    if (m_Header.attribute(name) != null)
+      return attribute(m_Header.attribute(name).index());
+    if (name.toUpperCase().startsWith("ATT") && (name.length() > 3) && name.substring(3).matches("[0-9]+")) {
+      start = Integer.parseInt(name.substring(3)) - 1;
+      if ((start < 0) || (start >= m_Header.numAttributes()))
+	throw error("Attribute index out of range: " + name);
+      return attribute(start);
+    }
+    if (name.equalsIgnoreCase("weight"))
+      return new Weight();
+
+    throw error("Unknown variable '" + name + "'");
+  }
+
+  /**
+   * Returns the node for the attribute value.
+   *
+   * @param index	the 0-based attribute index
+   * @return		the node
+   */
+  protected Node attribute(int index) {
+    Attribute	att;
+
+    att = m_Header.attribute(index);
+    if (!att.isNumeric() && !att.isNominal())
+      throw error("Only numeric, date and nominal attributes are supported: " + att.name());
+
+    return new Value(index);
+  }
+
+  /**
+   * Replaces the node with a constant if it only depends on constants.
+   *
+   * @param node	the node
+   * @param children	the children of the node
+   * @return		the (folded) node
+   */
+  protected static Node fold(Node node, Node... children) {
+    for (Node child: children) {
+      if (!child.isConstant())
+	return node;
+    }
+    return new Constant(node.evaluate(null));
+  }
+
+  /**
+   * Returns whether the value represents true.
+   *
+   * @param value	the value
+   * @return		true if non-zero and not missing
+   */
+  protected static boolean isTrue(double value) {
+    return (value != 0) && !Double.isNaN(value);
+  }
+
+  /**
+   * Creates the conditional node.
+   *
+   * @param cond	the condition
+   * @param first	the node if true
+   * @param second	the node if false
+   * @return		the node
+   */
+  protected static Node conditional(final Node cond, final Node first, final Node second) {
+    if (cond.isConstant())
+      return isTrue(cond.evaluate(null)) ? first : second;
+
+    return new Node() {
+      private static final long serialVersionUID = 4478342302457932911L;
+      @Override
+      public double evaluate(Instance inst) {
+	return isTrue(cond.evaluate(inst)) ? first.evaluate(inst) : second.evaluate(inst);
+      }
+    };
+  }
+
+  /**
+   * Creates the node for the unary operator.
+   *
+   * @param op		the operator
+   * @param arg		the operand
+   * @return		the node
+   */
+  protected static Node unary(String op, final Node arg) {
+    Node	result;
+
+    if (op.equals("-")) {
+      result = new Node() {
+	private static final long serialVersionUID = -1398316946433473413L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return -arg.evaluate(inst);
+	}
+      };
+    }
+    else {
+      result = new Node() {
+	private static final long serialVersionUID = -5429848939005391593L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return isTrue(arg.evaluate(inst)) ? 0 : 1;
+	}
+      };
+    }
+
+    return fold(result, arg);
+  }
+
+  /**
+   * Creates the node for the binary operator.
+   *
+   * @param op		the operator
+   * @param left	the left operand
+   * @param right	the right operand
+   * @return		the node
+   */
+  protected static Node binary(String op, final Node left, final Node right) {
+    Node	result;
+
+    if (op.equals("+")) {
+      result = new Node() {
+	private static final long serialVersionUID = 3556426584436009848L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return left.evaluate(inst) + right.evaluate(inst);
+	}
+      };
+    }
+    else if (op.equals("-")) {
+      result = new Node() {
+	private static final long serialVersionUID = 1146426520879016542L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return left.evaluate(inst) - right.evaluate(inst);
+	}
+      };
+    }
+    else if (op.equals("*")) {
+      result = new Node() {
+	private static final long serialVersionUID = -2968893014393433282L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return left.evaluate(inst) * right.evaluate(inst);
+	}
+      };
+    }
+    else if (op.equals("/")) {
+      result = new Node() {
+	private static final long serialVersionUID = 8002813786370563064L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return left.evaluate(inst) / right.evaluate(inst);
+	}
+      };
+    }
+    else if (op.equals("%")) {
+      result = new Node() {
+	private static final long serialVersionUID = 2707185327006346637L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return left.evaluate(inst) % right.evaluate(inst);
+	}
+      };
+    }
+    else if (op.equals("^")) {
+      result = new Node() {
+	private static final long serialVersionUID = -7771574693018451006L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return StrictMath.pow(left.evaluate(inst), right.evaluate(inst));
+	}
+      };
+    }
+    else if (op.equals("<")) {
+      result = new Node() {
+	private static final long serialVersionUID = 5186924213926316779L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return (left.evaluate(inst) < right.evaluate(inst)) ? 1 : 0;
+	}
+      };
+    }
+    else if (op.equals("<=")) {
+      result = new Node() {
+	private static final long serialVersionUID = -4402937484908786151L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return (left.evaluate(inst) <= right.evaluate(inst)) ? 1 : 0;
+	}
+      };
+    }
+    else if (op.equals(">")) {
+      result = new Node() {
+	private static final long serialVersionUID = 6044219466339432196L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return (left.evaluate(inst) > right.evaluate(inst)) ? 1 : 0;
+	}
+      };
+    }
+    else if (op.equals(">=")) {
+      result = new Node() {
+	private static final long serialVersionUID = 2212706437640226458L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return (left.evaluate(inst) >= right.evaluate(inst)) ? 1 : 0;
+	}
+      };
+    }
+    else if (op.equals("==")) {
+      result = new Node() {
+	private static final long serialVersionUID = -8932102447385367024L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return (left.evaluate(inst) == right.evaluate(inst)) ? 1 : 0;
+	}
+      };
+    }
+    else if (op.equals("!=")) {
+      result = new Node() {
+	private static final long serialVersionUID = 7394830475934589281L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return (left.evaluate(inst) != right.evaluate(inst)) ? 1 : 0;
+	}
+      };
+    }
+    else if (op.equals("&&")) {
+      result = new Node() {
+	private static final long serialVersionUID = 1493852937460928571L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return (isTrue(left.evaluate(inst)) && isTrue(right.evaluate(inst))) ? 1 : 0;
+	}
+      };
+    }
+    else if (op.equals("||")) {
+      result = new Node() {
+	private static final long serialVersionUID = -3318420958162838461L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return (isTrue(left.evaluate(inst)) || isTrue(right.evaluate(inst))) ? 1 : 0;
+	}
+      };
+    }
+    else {
+      throw new IllegalArgumentException("Unknown operator: " + op);
+    }
+
+    return fold(result, left, right);
+  }
+
+  /**
+   * Creates the node for the function.
+   *
+   * @param name	the lower case name of the function
+   * @param args	the arguments
+   * @return		the node
+   */
+  protected Node function(String name, List<Node> args) {
+    final Node	arg;
+    final Node	arg2;
+    Node	result;
+    int		numArgs;
+
+    numArgs = -1;
+    for (String f: FUNCTIONS_1) {
+      if (f.equals(name))
+	numArgs = 1;
+    }
+    for (String f: FUNCTIONS_2) {
+      if (f.equals(name))
+	numArgs = 2;
+    }
+    if (numArgs == -1)
+      throw error("Unknown function '" + name + "'");
+    if (args.size() != numArgs)
+      throw error("Function '" + name + "' expects " + numArgs + " argument(s), got " + args.size());
+
+    arg  = args.get(0);
+    arg2 = (numArgs == 2) ? args.get(1) : null;
+
+    if (name.equals("abs")) {
+      result = new Node() {
+	private static final long serialVersionUID = 4203883219734011468L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return Math.abs(arg.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("sqrt")) {
+      result = new Node() {
+	private static final long serialVersionUID = -1934487261620284474L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return Math.sqrt(arg.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("log")) {
+      result = new Node() {
+	private static final long serialVersionUID = 6290440587838469152L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return StrictMath.log(arg.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("log1p")) {
+      result = new Node() {
+	private static final long serialVersionUID = 2780196939612983407L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return StrictMath.log1p(arg.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("exp")) {
+      result = new Node() {
+	private static final long serialVersionUID = 2451399582349812837L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return StrictMath.exp(arg.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("floor")) {
+      result = new Node() {
+	private static final long serialVersionUID = -8419836740092453398L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return Math.floor(arg.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("ceil")) {
+      result = new Node() {
+	private static final long serialVersionUID = 2982047019375021850L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return Math.ceil(arg.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("round")) {
+      result = new Node() {
+	private static final long serialVersionUID = -6064096627413823519L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return Math.rint(arg.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("ismissing")) {
+      result = new Node() {
+	private static final long serialVersionUID = 5283490132865471902L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return Double.isNaN(arg.evaluate(inst)) ? 1 : 0;
+	}
+      };
+    }
+    else if (name.equals("min")) {
+      result = new Node() {
+	private static final long serialVersionUID = 3409587283029438117L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return Math.min(arg.evaluate(inst), arg2.evaluate(inst));
+	}
+      };
+    }
+    else if (name.equals("max")) {
+      result = new Node() {
+	private static final long serialVersionUID = -3902938487569202837L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return Math.max(arg.evaluate(inst), arg2.evaluate(inst));
+	}
+      };
+    }
+    else {
+      result = new Node() {
+	private static final long serialVersionUID = 8329478501234981723L;
+	@Override
+	public double evaluate(Instance inst) {
+	  return StrictMath.pow(arg.evaluate(inst), arg2.evaluate(inst));
+	}
+      };
+    }
+
+    if (numArgs == 2)
+      return fold(result, arg, arg2);
+    else
+      return fold(result, arg);
+  }
+
+  /**
+   * Compiles the expression for the dataset structure.
+   *
+   * @param expression	the expression
+   * @param header	the dataset structure
+   * @return		the compiled expression
+   * @throws IllegalArgumentException	if the expression is invalid
+   */
+  public static WeightExpression compile(String expression, Instances header) {
+    return new WeightExpression(expression, header);
+  }
+}
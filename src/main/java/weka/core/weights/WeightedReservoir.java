@@ -0,0 +1,280 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WeightedReservoir.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.core.weights;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Weighted reservoir sampling without replacement (Efraimidis/Spirakis,
+ * A-ExpJ): keeps k items with probability proportional to their weight in
+ * a single pass and O(k) memory. Instead of drawing a random key for every
+ * item (A-Res), exponential jumps skip over items that cannot enter the
+ * reservoir. Items are offered one at a time, i.e., it works on streams.
+ * Items with a weight of zero or less are never kept. Keys are handled as
+ * logarithms for numeric stability. Not thread-safe.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ * @param <T> the type of item
+ */
+public class WeightedReservoir<T> {
+
+  /** the capacity. */
+  protected final int m_Capacity;
+
+  /** the random numbers. */
+  protected final CounterRandom m_Random;
+
+  /** the number of random numbers drawn. */
+  protected long m_Draws;
+
+  /** the items (min-heap by key). */
+  protected final Object[] m_Items;
+
+  /** the log keys (min-heap). */
+  protected final double[] m_Keys;
+
+  /** the arrival positions of the items. */
+  protected final long[] m_Positions;
+
+  /** the number of items in the reservoir. */
+  protected int m_Size;
+
+  /** the number of items offered. */
+  protected long m_Offered;
+
+  /** the number of items offered with a positive weight. */
+  protected long m_Candidates;
+
+  /** the total weight of the items offered. */
+  protected double m_TotalWeight;
+
+  /** the weight still to skip before the next item enters. */
+  protected double m_Skip;
+
+  /**
+   * Initializes the reservoir.
+   *
+   * @param capacity	the number of items to keep
+   * @param seed	the seed for the random numbers
+   */
+  public WeightedReservoir(int capacity, long seed) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+    m_Capacity  = capacity;
+    m_Random    = new CounterRandom(seed);
+    m_Items     = new Object[capacity];
+    m_Keys      = new double[capacity];
+    m_Positions = new long[capacity];
+  }
+
+  /**
+   * Returns the next uniform random number in (0,1).
+   *
+   * @return		the number
+   */
+  protected double nextUniform() {
+    double	result;
+
+    do {
+      result = m_Random.nextDouble(m_Draws++);
+    }
+    while (result == 0);
+
+    return result;
+  }
+
+  /**
+   * Offers the item to the reservoir.
+   *
+   * @param item	the item
+   * @param weight	the weight of the item
+   */
+  public void offer(T item, double weight) {
+    double	minWeight;
+    double	u;
+
+    m_Offered++;
+    if (!(weight > 0))
+      return;
+    m_Candidates++;
+    m_TotalWeight += weight;
+
+    // fill reservoir (A-Res keys)
+    if (m_Size < m_Capacity) {
+      push(item, Math.log(nextUniform()) / weight, m_Offered - 1);
+      if (m_Size == m_Capacity)
+	m_Skip = Math.log(nextUniform()) / m_Keys[0];
+      return;
+    }
+
+    // exponential jump
+    m_Skip -= weight;
+    if (m_Skip > 0)
+      return;
+
+    // key conditioned on exceeding the current minimum: t = T^w, r ~ U(t,1)
+    minWeight = Math.exp(weight * m_Keys[0]);
+    u         = minWeight + (1.0 - minWeight) * nextUniform();
+    replaceMin(item, Math.log(u) / weight, m_Offered - 1);
+    m_Skip = Math.log(nextUniform()) / m_Keys[0];
+  }
+
+  /**
+   * Adds the item to the heap.
+   *
+   * @param item	the item
+   * @param key		the log key
+   * @param position	the arrival position
+   */
+  protected void push(Object item, double key, long position) {
+    int		i;
+    int		parent;
+
+    i = m_Size++;
+    while (i > 0) {
+      parent = (i - 1) >>> 1;
+      if (m_Keys[parent] <= key)
+	break;
+      set(i, m_Items[parent], m_Keys[parent], m_Positions[parent]);
+      i = parent;
+    }
+    set(i, item, key, position);
+  }
+
+  /**
+   * Replaces the item with the smallest key.
+   *
+   * @param item	the item
+   * @param key		the log key
+   * @param position	the arrival position
+   */
+  protected void replaceMin(Object item, double key, long position) {
+    int		i;
+    int		child;
+
+    i = 0;
+    while (true) {
+      child = 2 * i + 1;
+      if (child >= m_Size)
+	break;
+      if ((child + 1 < m_Size) && (m_Keys[child + 1] < m_Keys[child]))
+	child++;
+      if (key <= m_Keys[child])
+	break;
+      set(i, m_Items[child], m_Keys[child], m_Positions[child]);
+      i = child;
+    }
+    set(i, item, key, position);
+  }
+
+  /**
+   * Stores the item in the slot of the heap.
+   *
+   * @param i		the slot
+   * @param item	the item
+   * @param key		the log key
+   * @param position	the arrival position
+   */
+  protected void set(int i, Object item, double key, long position) {
+    m_Items[i]     = item;
+    m_Keys[i]      = key;
+    m_Positions[i] = position;
+  }
+
+  /**
+   * Returns the number of items in the reservoir.
+   *
+   * @return		the number of items
+   */
+  public int size() {
+    return m_Size;
+  }
+
+  /**
+   * Returns the number of items offered so far.
+   *
+   * @return		the number of items
+   */
+  public long getOffered() {
+    return m_Offered;
+  }
+
+  /**
+   * Returns the number of items offered so far that had a positive weight.
+   *
+   * @return		the number of items
+   */
+  public long getCandidates() {
+    return m_Candidates;
+  }
+
+  /**
+   * Returns the total weight of the items offered so far.
+   *
+   * @return		the total weight
+   */
+  public double getTotalWeight() {
+    return m_TotalWeight;
+  }
+
+  /**
+   * Returns the arrival positions (0-based) of the kept items, sorted.
+   *
+   * @return		the positions
+   */
+  public long[] getPositions() {
+    long[]	result;
+
+    result = Arrays.copyOf(m_Positions, m_Size);
+    Arrays.sort(result);
+
+    return result;
+  }
+
+  /**
+   * Returns the kept items, in order of arrival.
+   *
+   * @return		the items
+   */
+  @SuppressWarnings("unchecked")
+  public List<T> getItems() {
+    List<T>		result;
+    Integer[]		order;
+    int			i;
+
+    order = new Integer[m_Size];
+    for (i = 0; i < m_Size; i++)
+      order[i] = i;
+    Arrays.sort(order, new Comparator<Integer>() {
+      public int compare(Integer o1, Integer o2) {
+	return Long.valueOf(m_Positions[o1]).compareTo(m_Positions[o2]);
+      }
+    });
+    result = new ArrayList<T>(m_Size);
+    for (i = 0; i < m_Size; i++)
+      result.add((T) m_Items[order[i]]);
+
+    return result;
+  }
+}
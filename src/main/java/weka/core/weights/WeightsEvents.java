@@ -0,0 +1,137 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WeightsEvents.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import weka.core.Instances;
+import weka.core.weights.WeightsMetrics.Phase;
+
+/**
+ * Facade for emitting JDK Flight Recorder events for the phases of the
+ * weights modifiers (checking, loading, output format, modifying). If the
+ * JVM does not offer the jdk.jfr API or the package was built without the
+ * JFR implementation (see the jfr profile), this no-op implementation is
+ * used.
+ * When no recording is active, {@link #begin(Phase)} returns null and
+ * nothing else happens.
+ * <br><br>
+ * Usage:
+ * <pre>
+ * Object event = WeightsEvents.begin(Phase.CHECK);
+ * ...
+ * WeightsEvents.end(event, this, data, 0);
+ * </pre>
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class WeightsEvents {
+
+  /** the classname of the JFR implementation. */
+  public static final String JFR_IMPLEMENTATION = "weka.core.weights.jfr.JfrWeightsEvents";
+
+  /** the implementation in use. */
+  protected static final WeightsEvents INSTANCE = newInstance();
+
+  /**
+   * Instantiates the JFR implementation if the API is available, otherwise
+   * the no-op one.
+   *
+   * @return		the implementation
+   */
+  protected static WeightsEvents newInstance() {
+    return newInstance(JFR_IMPLEMENTATION);
+  }
+
+  /**
+   * Instantiates the specified implementation if the JFR API is available,
+   * otherwise (or if the implementation cannot be instantiated, e.g., when
+   * it was not compiled) the no-op one.
+   *
+   * @param classname	the classname of the implementation
+   * @return		the implementation
+   */
+  protected static WeightsEvents newInstance(String classname) {
+    try {
+      Class.forName("jdk.jfr.Event");
+      return (WeightsEvents) Class.forName(classname).getDeclaredConstructor().newInstance();
+    }
+    catch (Throwable t) {
+      return new WeightsEvents();
+    }
+  }
+
+  /**
+   * Returns whether events can get emitted, i.e., the JFR API is available.
+   *
+   * @return		true if available
+   */
+  public static boolean isAvailable() {
+    return !INSTANCE.getClass().equals(WeightsEvents.class);
+  }
+
+  /**
+   * Starts the event for the phase.
+   *
+   * @param phase	the phase
+   * @return		the event, null if not recorded
+   */
+  public static Object begin(Phase phase) {
+    return INSTANCE.doBegin(phase);
+  }
+
+  /**
+   * Ends and commits the event.
+   *
+   * @param event	the event, obtained from {@link #begin(Phase)}, can be null
+   * @param source	the modifier that performed the work
+   * @param data	the data that was processed
+   * @param bytesRead	the number of bytes read from files
+   */
+  public static void end(Object event, Object source, Instances data, long bytesRead) {
+    if (event != null)
+      INSTANCE.doEnd(event, source, data, bytesRead);
+  }
+
+  /**
+   * Starts the event for the phase.
+   * <br><br>
+   * Default implementation does nothing.
+   *
+   * @param phase	the phase
+   * @return		the event, null if not recorded
+   */
+  protected Object doBegin(Phase phase) {
+    return null;
+  }
+
+  /**
+   * Ends and commits the event.
+   * <br><br>
+   * Default implementation does nothing.
+   *
+   * @param event	the event, not null
+   * @param source	the modifier that performed the work
+   * @param data	the data that was processed
+   * @param bytesRead	the number of bytes read from files
+   */
+  protected void doEnd(Object event, Object source, Instances data, long bytesRead) {
+  }
+}
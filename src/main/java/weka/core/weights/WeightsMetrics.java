@@ -0,0 +1,386 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WeightsMetrics.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Metrics of the weights filters and modifiers, registered as MBean with the
+ * platform MBean server. Metrics are obtained from a shared registry by type
+ * and name, i.e., all filters using the same name share their metrics.
+ * All counters are lock-free.
+ * <br><br>
+ * Object name: weka.core.weights:type=&lt;type&gt;,name=&lt;name&gt;
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class WeightsMetrics
+  implements WeightsMetricsMBean {
+
+  /** the JMX domain. */
+  public static final String DOMAIN = "weka.core.weights";
+
+  /** the phases that get timed. */
+  public enum Phase {
+    /** checking the data. */
+    CHECK,
+    /** compiling plans, incl loading of weight files. */
+    LOAD,
+    /** determining the output format. */
+    FORMAT,
+    /** modifying the rows. */
+    MODIFY
+  }
+
+  /** the registered metrics. */
+  protected static final Map<String,WeightsMetrics> REGISTRY = new HashMap<String,WeightsMetrics>();
+
+  /** the object name. */
+  protected final String m_Name;
+
+  /** the rows. */
+  protected final StripedCounter m_Rows;
+
+  /** the batches. */
+  protected final StripedCounter m_Batches;
+
+  /** the time per phase (nano seconds). */
+  protected final StripedCounter[] m_Times;
+
+  /** the bytes read. */
+  protected final StripedCounter m_BytesRead;
+
+  /** the cache hits. */
+  protected final StripedCounter m_CacheHits;
+
+  /** the cache misses. */
+  protected final StripedCounter m_CacheMisses;
+
+  /** the per-batch latencies. */
+  protected final LatencyHistogram m_BatchLatency;
+
+  /**
+   * Initializes the metrics.
+   *
+   * @param name	the object name
+   */
+  protected WeightsMetrics(String name) {
+    int		i;
+
+    m_Name         = name;
+    m_Rows         = new StripedCounter();
+    m_Batches      = new StripedCounter();
+    m_BytesRead    = new StripedCounter();
+    m_CacheHits    = new StripedCounter();
+    m_CacheMisses  = new StripedCounter();
+    m_BatchLatency = new LatencyHistogram();
+    m_Times        = new StripedCounter[Phase.values().length];
+    for (i = 0; i < m_Times.length; i++)
+      m_Times[i] = new StripedCounter();
+  }
+
+  /**
+   * Returns the object name.
+   *
+   * @return		the name
+   */
+  public String getName() {
+    return m_Name;
+  }
+
+  /**
+   * Generates the object name.
+   *
+   * @param type	the type, e.g., the class of the filter
+   * @param name	the name of the metrics
+   * @return		the object name
+   */
+  public static String objectName(String type, String name) {
+    return DOMAIN + ":type=" + ObjectName.quote(type) + ",name=" + ObjectName.quote(name);
+  }
+
+  /**
+   * Returns the metrics for type and name, registers them with the platform
+   * MBean server if necessary.
+   *
+   * @param type	the type, e.g., the class of the filter
+   * @param name	the name of the metrics
+   * @return		the metrics
+   */
+  public static synchronized WeightsMetrics get(String type, String name) {
+    WeightsMetrics	result;
+    String		objName;
+    MBeanServer		server;
+
+    objName = objectName(type, name);
+    result  = REGISTRY.get(objName);
+    if (result == null) {
+      result = new WeightsMetrics(objName);
+      REGISTRY.put(objName, result);
+      try {
+	server = ManagementFactory.getPlatformMBeanServer();
+	if (!server.isRegistered(new ObjectName(objName)))
+	  server.registerMBean(result, new ObjectName(objName));
+      }
+      catch (Exception e) {
+	System.err.println("Failed to register metrics: " + objName);
+	e.printStackTrace();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Removes the metrics from the registry and the MBean server.
+   *
+   * @param type	the type, e.g., the class of the filter
+   * @param name	the name of the metrics
+   */
+  public static synchronized void unregister(String type, String name) {
+    String	objName;
+    MBeanServer	server;
+
+    objName = objectName(type, name);
+    if (REGISTRY.remove(objName) == null)
+      return;
+    try {
+      server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(new ObjectName(objName)))
+	server.unregisterMBean(new ObjectName(objName));
+    }
+    catch (Exception e) {
+      System.err.println("Failed to unregister metrics: " + objName);
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Records a processed batch.
+   *
+   * @param rows	the number of rows in the batch
+   * @param nanos	the time it took in nano seconds
+   */
+  public void recordBatch(int rows, long nanos) {
+    m_Batches.increment();
+    m_Rows.add(rows);
+    m_BatchLatency.record(nanos);
+  }
+
+  /**
+   * Records the time spent in a phase.
+   *
+   * @param phase	the phase
+   * @param nanos	the time in nano seconds
+   */
+  public void recordTime(Phase phase, long nanos) {
+    m_Times[phase.ordinal()].add(nanos);
+  }
+
+  /**
+   * Records bytes read from weight files.
+   *
+   * @param bytes	the number of bytes
+   */
+  public void recordBytesRead(long bytes) {
+    m_BytesRead.add(bytes);
+  }
+
+  /**
+   * Records a plan cache lookup.
+   *
+   * @param hit		whether the plan was cached
+   */
+  public void recordCacheLookup(boolean hit) {
+    if (hit)
+      m_CacheHits.increment();
+    else
+      m_CacheMisses.increment();
+  }
+
+  /**
+   * Returns the number of rows processed.
+   *
+   * @return		the rows
+   */
+  public long getRows() {
+    return m_Rows.sum();
+  }
+
+  /**
+   * Returns the number of batches processed.
+   *
+   * @return		the batches
+   */
+  public long getBatches() {
+    return m_Batches.sum();
+  }
+
+  /**
+   * Returns the time spent in the phase.
+   *
+   * @param phase	the phase
+   * @return		the time in milli seconds
+   */
+  public double getTimeMillis(Phase phase) {
+    return m_Times[phase.ordinal()].sum() / 1000000.0;
+  }
+
+  /**
+   * Returns the time spent checking the data (capabilities etc).
+   *
+   * @return		the time in milli seconds
+   */
+  public double getCheckTimeMillis() {
+    return getTimeMillis(Phase.CHECK);
+  }
+
+  /**
+   * Returns the time spent compiling plans, which includes loading weight files.
+   *
+   * @return		the time in milli seconds
+   */
+  public double getLoadTimeMillis() {
+    return getTimeMillis(Phase.LOAD);
+  }
+
+  /**
+   * Returns the time spent determining output formats.
+   *
+   * @return		the time in milli seconds
+   */
+  public double getFormatTimeMillis() {
+    return getTimeMillis(Phase.FORMAT);
+  }
+
+  /**
+   * Returns the time spent modifying the rows, including the compilation of
+   * plans for new data structures (see load time).
+   *
+   * @return		the time in milli seconds
+   */
+  public double getModifyTimeMillis() {
+    return getTimeMillis(Phase.MODIFY);
+  }
+
+  /**
+   * Returns the number of bytes read from weight files.
+   *
+   * @return		the bytes
+   */
+  public long getBytesRead() {
+    return m_BytesRead.sum();
+  }
+
+  /**
+   * Returns the number of plans that were retrieved from the cache.
+   *
+   * @return		the hits
+   */
+  public long getCacheHits() {
+    return m_CacheHits.sum();
+  }
+
+  /**
+   * Returns the number of plans that had to be compiled.
+   *
+   * @return		the misses
+   */
+  public long getCacheMisses() {
+    return m_CacheMisses.sum();
+  }
+
+  /**
+   * Returns the counts of the per-batch latency histogram (bucket i covers
+   * latencies below 2^i ms).
+   *
+   * @return		the counts
+   */
+  public long[] getBatchLatencyCounts() {
+    return m_BatchLatency.getCounts();
+  }
+
+  /**
+   * Returns the per-batch latency histogram as text.
+   *
+   * @return		the histogram
+   */
+  public String getBatchLatencyHistogram() {
+    return m_BatchLatency.toString();
+  }
+
+  /**
+   * Returns the (bucket-based) median of the per-batch latency.
+   *
+   * @return		the upper bound in milli seconds
+   */
+  public long getBatchLatencyMedianMillis() {
+    return m_BatchLatency.getPercentile(0.5);
+  }
+
+  /**
+   * Returns the (bucket-based) 99th percentile of the per-batch latency.
+   *
+   * @return		the upper bound in milli seconds
+   */
+  public long getBatchLatency99thPercentileMillis() {
+    return m_BatchLatency.getPercentile(0.99);
+  }
+
+  /**
+   * Resets all metrics.
+   */
+  public void reset() {
+    m_Rows.reset();
+    m_Batches.reset();
+    m_BytesRead.reset();
+    m_CacheHits.reset();
+    m_CacheMisses.reset();
+    m_BatchLatency.reset();
+    for (StripedCounter time: m_Times)
+      time.reset();
+  }
+
+  /**
+   * Returns a short summary of the metrics.
+   *
+   * @return		the summary
+   */
+  @Override
+  public String toString() {
+    return m_Name
+      + ": rows=" + getRows()
+      + ", batches=" + getBatches()
+      + ", check=" + getCheckTimeMillis() + "ms"
+      + ", load=" + getLoadTimeMillis() + "ms"
+      + ", format=" + getFormatTimeMillis() + "ms"
+      + ", modify=" + getModifyTimeMillis() + "ms"
+      + ", bytesRead=" + getBytesRead()
+      + ", cacheHits=" + getCacheHits()
+      + ", cacheMisses=" + getCacheMisses()
+      + ", latency=[" + getBatchLatencyHistogram() + "]";
+  }
+}
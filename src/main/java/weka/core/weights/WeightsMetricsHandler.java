@@ -0,0 +1,44 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WeightsMetricsHandler.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+/**
+ * Interface for classes that can record their work in weights metrics.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public interface WeightsMetricsHandler {
+
+  /**
+   * Sets the metrics to record to.
+   *
+   * @param value	the metrics, null to turn off
+   */
+  public void setWeightsMetrics(WeightsMetrics value);
+
+  /**
+   * Returns the metrics currently recorded to.
+   *
+   * @return		the metrics, null if off
+   */
+  public WeightsMetrics getWeightsMetrics();
+}
@@ -0,0 +1,128 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WeightsMetricsMBean.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+/**
+ * Management interface of the weights metrics, as exposed via JMX.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public interface WeightsMetricsMBean {
+
+  /**
+   * Returns the number of rows processed.
+   *
+   * @return		the rows
+   */
+  public long getRows();
+
+  /**
+   * Returns the number of batches processed.
+   *
+   * @return		the batches
+   */
+  public long getBatches();
+
+  /**
+   * Returns the time spent checking the data (capabilities etc).
+   *
+   * @return		the time in milli seconds
+   */
+  public double getCheckTimeMillis();
+
+  /**
+   * Returns the time spent compiling plans, which includes loading weight files.
+   *
+   * @return		the time in milli seconds
+   */
+  public double getLoadTimeMillis();
+
+  /**
+   * Returns the time spent determining output formats.
+   *
+   * @return		the time in milli seconds
+   */
+  public double getFormatTimeMillis();
+
+  /**
+   * Returns the time spent modifying the rows, including the compilation of
+   * plans for new data structures (see load time).
+   *
+   * @return		the time in milli seconds
+   */
+  public double getModifyTimeMillis();
+
+  /**
+   * Returns the number of bytes read from weight files.
+   *
+   * @return		the bytes
+   */
+  public long getBytesRead();
+
+  /**
+   * Returns the number of plans that were retrieved from the cache.
+   *
+   * @return		the hits
+   */
+  public long getCacheHits();
+
+  /**
+   * Returns the number of plans that had to be compiled.
+   *
+   * @return		the misses
+   */
+  public long getCacheMisses();
+
+  /**
+   * Returns the counts of the per-batch latency histogram (bucket i covers
+   * latencies below 2^i ms).
+   *
+   * @return		the counts
+   */
+  public long[] getBatchLatencyCounts();
+
+  /**
+   * Returns the per-batch latency histogram as text.
+   *
+   * @return		the histogram
+   */
+  public String getBatchLatencyHistogram();
+
+  /**
+   * Returns the (bucket-based) median of the per-batch latency.
+   *
+   * @return		the upper bound in milli seconds
+   */
+  public long getBatchLatencyMedianMillis();
+
+  /**
+   * Returns the (bucket-based) 99th percentile of the per-batch latency.
+   *
+   * @return		the upper bound in milli seconds
+   */
+  public long getBatchLatency99thPercentileMillis();
+
+  /**
+   * Resets all metrics.
+   */
+  public void reset();
+}
@@ -0,0 +1,164 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * JfrWeightsEvents.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import weka.core.Instances;
+import weka.core.weights.WeightsEvents;
+import weka.core.weights.WeightsMetrics.Phase;
+
+/**
+ * Emits JDK Flight Recorder events for the phases of the weights modifiers.
+ * Only gets instantiated by {@link WeightsEvents} if the jdk.jfr API is
+ * available.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class JfrWeightsEvents
+  extends WeightsEvents {
+
+  /**
+   * Ancestor for the events.
+   */
+  @Category({"Weka", "Weights"})
+  public static abstract class WeightsEvent
+    extends Event {
+
+    /** the modifier. */
+    @Label("Modifier")
+    @Description("The class of the modifier")
+    public String modifier;
+
+    /** the number of rows. */
+    @Label("Rows")
+    public int rows;
+
+    /** the number of attributes. */
+    @Label("Attributes")
+    public int attributes;
+
+    /** the bytes read. */
+    @Label("Bytes Read")
+    @Description("The number of bytes read from weight files")
+    @DataAmount(DataAmount.BYTES)
+    public long bytesRead;
+  }
+
+  /**
+   * Checking the data (capabilities etc).
+   */
+  @Name("weka.weights.Check")
+  @Label("Weights Check")
+  @Description("Checking the data before modifying the weights")
+  public static class CheckEvent
+    extends WeightsEvent {
+  }
+
+  /**
+   * Compiling the plan, incl loading of weight files.
+   */
+  @Name("weka.weights.Load")
+  @Label("Weights Load")
+  @Description("Compiling the plan of the modifier, including loading of weight files")
+  public static class LoadEvent
+    extends WeightsEvent {
+  }
+
+  /**
+   * Determining the output format.
+   */
+  @Name("weka.weights.Format")
+  @Label("Weights Format")
+  @Description("Determining the output format")
+  public static class FormatEvent
+    extends WeightsEvent {
+  }
+
+  /**
+   * Modifying the rows.
+   */
+  @Name("weka.weights.Modify")
+  @Label("Weights Modify")
+  @Description("Modifying the weights of the rows")
+  public static class ModifyEvent
+    extends WeightsEvent {
+  }
+
+  /**
+   * Starts the event for the phase.
+   *
+   * @param phase	the phase
+   * @return		the event, null if not recorded
+   */
+  @Override
+  protected Object doBegin(Phase phase) {
+    WeightsEvent	result;
+
+    switch (phase) {
+      case CHECK:
+	result = new CheckEvent();
+	break;
+      case LOAD:
+	result = new LoadEvent();
+	break;
+      case FORMAT:
+	result = new FormatEvent();
+	break;
+      default:
+	result = new ModifyEvent();
+	break;
+    }
+    if (!result.isEnabled())
+      return null;
+    result.begin();
+
+    return result;
+  }
+
+  /**
+   * Ends and commits the event.
+   *
+   * @param event	the event, not null
+   * @param source	the modifier that performed the work
+   * @param data	the data that was processed
+   * @param bytesRead	the number of bytes read from files
+   */
+  @Override
+  protected void doEnd(Object event, Object source, Instances data, long bytesRead) {
+    WeightsEvent	evt;
+
+    evt = (WeightsEvent) event;
+    evt.end();
+    if (evt.shouldCommit()) {
+      evt.modifier   = source.getClass().getName();
+      evt.rows       = (data == null) ? 0 : data.numInstances();
+      evt.attributes = (data == null) ? 0 : data.numAttributes();
+      evt.bytesRead  = bytesRead;
+      evt.commit();
+    }
+  }
+}
@@ -27,6 +27,11 @@ import weka.core.Instances;
 import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.Utils;
+import weka.core.weights.PlanCache;
+import weka.core.weights.WeightsEvents;
+import weka.core.weights.WeightsMetrics;
+import weka.core.weights.WeightsMetrics.Phase;
+import weka.core.weights.WeightsMetricsHandler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -37,17 +42,34 @@ import java.util.Vector;
 
 /**
  * Ancestor for attribute weights modifiers.
+ * <br><br>
+ * The configuration gets compiled into an immutable {@link AttributeWeightsPlan}
+ * for each dataset structure, which is cached. Loading or matching is
+ * therefore only performed once and the same modifier can be used by
+ * multiple threads concurrently within one filter run.
+ * <br><br>
+ * This only covers the plans: the metrics set via
+ * {@link #setWeightsMetrics(WeightsMetrics)} belong to a single filter run.
+ * Filters that run concurrently must therefore each use their own copy of
+ * the modifier.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
 public abstract class AbstractAttributeWeightsModifier
-  implements Serializable, OptionHandler, AttributeWeightsModifier, CapabilitiesHandler {
+  implements Serializable, OptionHandler, AttributeWeightsModifier, CapabilitiesHandler,
+             WeightsMetricsHandler {
 
   private static final long serialVersionUID = -1763024301128527729L;
 
   /** Whether capabilities should not be checked before classifier is built. */
   protected boolean m_DoNotCheckCapabilities = false;
 
+  /** the compiled plans. */
+  protected transient PlanCache<AttributeWeightsPlan> m_Plans;
+
+  /** the metrics to record to (null if off). */
+  protected transient volatile WeightsMetrics m_Metrics;
+
   /**
    * Returns a string describing this scheme.
    *
@@ -129,6 +151,24 @@ public abstract class AbstractAttributeWeightsModifier
     return "If set, modifier capabilities are not checked (use with caution to reduce runtime).";
   }
 
+  /**
+   * Sets the metrics to record to.
+   *
+   * @param value	the metrics, null to turn off
+   */
+  public void setWeightsMetrics(WeightsMetrics value) {
+    m_Metrics = value;
+  }
+
+  /**
+   * Returns the metrics currently recorded to.
+   *
+   * @return		the metrics, null if off
+   */
+  public WeightsMetrics getWeightsMetrics() {
+    return m_Metrics;
+  }
+
   /**
    * Returns the Capabilities of this filter. Derived filters have to override
    * this method to enable capabilities.
@@ -203,24 +243,139 @@ public abstract class AbstractAttributeWeightsModifier
       getCapabilities(data).testWithFail(data);
   }
 
+  /**
+   * Returns the key that identifies the plan, in addition to the structure of
+   * the data. Must cover everything the plan depends on.
+   * <br><br>
+   * Default implementation returns the options.
+   *
+   * @param data	the data to generate the key for
+   * @return		the key
+   * @throws Exception	if generating the key fails
+   */
+  protected String getPlanKey(Instances data) throws Exception {
+    return Utils.joinOptions(getOptions());
+  }
+
+  /**
+   * Returns the size in bytes of the external source that the plan gets
+   * loaded from, e.g., a weights file.
+   * <br><br>
+   * Default implementation returns 0.
+   *
+   * @return		the size, 0 if none
+   */
+  protected long getSourceSize() {
+    return 0;
+  }
+
+  /**
+   * Compiles the plan for the data, resolving indices, patterns, etc.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if compilation fails, e.g., invalid configuration
+   */
+  protected abstract AttributeWeightsPlan compilePlan(Instances data) throws Exception;
+
+  /**
+   * Returns the plan for the data, compiles it if not yet cached.
+   *
+   * @param data	the data to get the plan for
+   * @return		the plan
+   * @throws Exception	if compilation fails
+   */
+  public AttributeWeightsPlan getPlan(Instances data) throws Exception {
+    AttributeWeightsPlan		result;
+    PlanCache<AttributeWeightsPlan>	plans;
+    WeightsMetrics			metrics;
+    long				start;
+    Object				event;
+    long				bytes;
+    String				key;
+
+    plans = m_Plans;
+    if (plans == null) {
+      plans   = new PlanCache<AttributeWeightsPlan>();
+      m_Plans = plans;
+    }
+    key     = getPlanKey(data);
+    result  = plans.get(data, key);
+    metrics = m_Metrics;
+    if (metrics != null)
+      metrics.recordCacheLookup(result != null);
+    if (result == null) {
+      start  = System.nanoTime();
+      event  = WeightsEvents.begin(Phase.LOAD);
+      result = compilePlan(data);
+      plans.put(data, key, result);
+      bytes  = getSourceSize();
+      WeightsEvents.end(event, this, data, bytes);
+      if (metrics != null) {
+	metrics.recordTime(Phase.LOAD, System.nanoTime() - start);
+	metrics.recordBytesRead(bytes);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the new output format.
+   * <br><br>
+   * Default implementation uses the plan.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return getPlan(inputFormat).determineOutputFormat(inputFormat);
+  }
+
   /**
    * Performs the actual modification of the attribute weights.
+   * <br><br>
+   * Default implementation applies the plan.
    *
    * @param data        the data to process
    * @return		the modified data
    * @throws Exception	if modifying fails
    */
-  protected abstract Instances doModify(Instances data) throws Exception;
+  protected Instances doModify(Instances data) throws Exception {
+    return getPlan(data).apply(data);
+  }
 
   /**
-   * Modifies the attribute weights.
+   * Modifies the attribute weights. Records the time spent checking and
+   * modifying (including compiling of plans) if metrics are set and emits
+   * the corresponding events.
    *
    * @param data        the data to process
    * @return		the modified data
    * @throws Exception	if modifying fails
    */
   public Instances modifyAttributeWeights(Instances data) throws Exception {
+    WeightsMetrics	metrics;
+    Instances		result;
+    Object		event;
+    long		start;
+
+    metrics = m_Metrics;
+    start   = System.nanoTime();
+    event   = WeightsEvents.begin(Phase.CHECK);
     check(data);
-    return doModify(data);
+    WeightsEvents.end(event, this, data, 0);
+    if (metrics != null)
+      metrics.recordTime(Phase.CHECK, System.nanoTime() - start);
+
+    start  = System.nanoTime();
+    event  = WeightsEvents.begin(Phase.MODIFY);
+    result = doModify(data);
+    WeightsEvents.end(event, this, data, 0);
+    if (metrics != null)
+      metrics.recordTime(Phase.MODIFY, System.nanoTime() - start);
+
+    return result;
   }
 }
@@ -0,0 +1,86 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractAttributeWeightsPlan.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+
+/**
+ * Ancestor for plans that determine the new weight of each attribute
+ * independently. Only the header changes, the rows get copied as is.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractAttributeWeightsPlan
+  implements AttributeWeightsPlan {
+
+  /**
+   * Returns the new weight for the attribute.
+   *
+   * @param att		the attribute
+   * @param index	the 0-based index of the attribute
+   * @return		the new weight
+   */
+  protected abstract double weight(Attribute att, int index);
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   */
+  public Instances determineOutputFormat(Instances inputFormat) {
+    ArrayList<Attribute> 	atts;
+    Attribute			oldAtt;
+    Attribute			newAtt;
+    int				i;
+
+    atts = new ArrayList<Attribute>(inputFormat.numAttributes());
+    for (i = 0; i < inputFormat.numAttributes(); i++) {
+      oldAtt = inputFormat.attribute(i);
+      newAtt = (Attribute) oldAtt.copy();
+      newAtt.setWeight(weight(oldAtt, i));
+      atts.add(newAtt);
+    }
+
+    return new Instances(inputFormat.relationName(), atts, 0);
+  }
+
+  /**
+   * Applies the plan to the data.
+   *
+   * @param data        the data to process
+   * @return		the modified data
+   */
+  public Instances apply(Instances data) {
+    Instances	result;
+    int		i;
+
+    result = new Instances(determineOutputFormat(data), data.numInstances());
+    // add() already copies the row (shallow: sparse rows stay sparse, sharing index/value arrays)
+    for (i = 0; i < data.numInstances(); i++)
+      result.add(data.instance(i));
+
+    return result;
+  }
+}
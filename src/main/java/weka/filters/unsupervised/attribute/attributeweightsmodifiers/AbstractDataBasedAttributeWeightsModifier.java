@@ -0,0 +1,203 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractDataBasedAttributeWeightsModifier.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+import weka.core.weights.Intervals;
+import weka.core.weights.Parallel;
+import weka.core.weights.RowHash;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Ancestor for modifiers that derive the attribute weights from the values
+ * of the data, using multiple threads. Attributes outside the range and the
+ * class attribute keep their weight.
+ * <br><br>
+ * As the weights depend on the rows, the plans get cached by structure and a
+ * fingerprint of the data (hashes of the values and weights of all rows,
+ * a single read-only pass that does not allocate per row). The fingerprint
+ * gets computed on every lookup and costs about as much as a single pass of
+ * a cheap modifier (40-100% of compiling column statistics or the sparsity
+ * profile, see PlanKeyBenchmark in the benchmarks module), i.e., a cache
+ * hit mainly pays off for expensive modifiers like attribute evaluators
+ * (where the fingerprint costs about 1% of compiling).
+ * When used via the filter, the weights get derived from the first batch
+ * only, i.e., the fingerprint is computed once per filter run.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ * @see Parallel
+ */
+public abstract class AbstractDataBasedAttributeWeightsModifier
+  extends AbstractRangeBasedAttributeWeightsModifier {
+
+  private static final long serialVersionUID = 2975011532069816735L;
+
+  /** the number of threads to use. */
+  protected int m_NumThreads = 1;
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe number of threads to use.\n"
+	  + "\t(default: 1 - i.e. no parallelism)\n"
+	  + "\t(use 0 to auto-detect number of cores)",
+	"num-threads", 1, "-num-threads <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String	tmpStr;
+
+    tmpStr = Utils.getOption("num-threads", options);
+    if (tmpStr.length() != 0)
+      setNumThreads(Integer.parseInt(tmpStr));
+    else
+      setNumThreads(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-num-threads");
+    result.add("" + getNumThreads());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the number of threads to use.
+   *
+   * @param value the number of threads, 0 for number of cores
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Gets the number of threads to use.
+   *
+   * @return the number of threads, 0 for number of cores
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use; 1 means no parallelism, 0 to auto-detect the number of cores.";
+  }
+
+  /**
+   * Returns the key that identifies the plan, in addition to the structure of
+   * the data. Adds the fingerprint of the data, which reads all rows once
+   * (using the configured number of threads).
+   *
+   * @param data	the data to generate the key for
+   * @return		the key
+   * @throws Exception	if hashing the rows fails
+   */
+  @Override
+  protected String getPlanKey(Instances data) throws Exception {
+    return super.getPlanKey(data) + " #rows=" + data.numInstances() + " #fingerprint=" + RowHash.fingerprint(data, m_NumThreads);
+  }
+
+  /**
+   * Computes the weights of the selected attributes.
+   *
+   * @param data	the data to compute the weights from
+   * @param selected	whether an attribute is selected (the class never is)
+   * @param weights	the current weights, to be updated for the selected attributes
+   * @throws Exception	if computation fails
+   */
+  protected abstract void computeWeights(Instances data, boolean[] selected, double[] weights) throws Exception;
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if computation of the weights fails
+   */
+  @Override
+  protected AttributeWeightsPlan compilePlan(Instances data) throws Exception {
+    Intervals	intervals;
+    boolean[]	selected;
+    double[]	weights;
+    int		i;
+    int		n;
+
+    intervals = resolveAttributeIndices(data);
+    selected  = new boolean[data.numAttributes()];
+    for (i = 0; i < intervals.size(); i++) {
+      for (n = intervals.start(i); n <= intervals.end(i); n++)
+	selected[n] = true;
+    }
+    if (data.classIndex() > -1)
+      selected[data.classIndex()] = false;
+
+    weights = new double[data.numAttributes()];
+    for (i = 0; i < weights.length; i++)
+      weights[i] = data.attribute(i).weight();
+    computeWeights(data, selected, weights);
+
+    return new FromFile.Plan(weights);
+  }
+}
@@ -48,9 +48,6 @@ public abstract class AbstractNameBasedAttributeWeightsModifier
   /** whether to invert the matching sense. */
   protected boolean m_Invert = false;
 
-  /** the compiled pattern to use. */
-  protected transient Pattern m_Pattern;
-
   /**
    * Returns an enumeration describing the available options.
    *
@@ -122,8 +119,7 @@ public abstract class AbstractNameBasedAttributeWeightsModifier
    * @param value a regular expression
    */
   public void setRegExp(String value) {
-    m_RegExp  = value;
-    m_Pattern = null;
+    m_RegExp = value;
   }
 
   /**
@@ -181,37 +177,25 @@ public abstract class AbstractNameBasedAttributeWeightsModifier
    * @throws Exception	if pattern compilation fails
    */
   protected Pattern getPattern() throws Exception {
-    if (m_Pattern == null)
-      m_Pattern = Pattern.compile(m_RegExp);
-    return m_Pattern;
+    return Pattern.compile(m_RegExp);
   }
 
   /**
-   * Hook method for performing checks before modifying the weights.
+   * Determines which attributes match (takes invert into account).
    *
-   * @param data	the data to check
-   * @throws Exception	if regexp compilation fails
-   */
-  @Override
-  protected void check(Instances data) throws Exception {
-    super.check(data);
-
-    getPattern();
-  }
-
-  /**
-   * Checks whether the name is a match (takes invert into account).
-   *
-   * @param name	the name to check
-   * @return		true if match
+   * @param data	the data to match the attribute names of
+   * @return		the matches per attribute
    * @throws Exception	if pattern compilation fails
    */
-  protected boolean isMatch(String name) throws Exception {
-    boolean	result;
-
-    result = getPattern().matcher(name).matches();
-    if (m_Invert)
-      result = !result;
+  protected boolean[] matchNames(Instances data) throws Exception {
+    boolean[]	result;
+    Pattern	pattern;
+    int		i;
+
+    pattern = getPattern();
+    result  = new boolean[data.numAttributes()];
+    for (i = 0; i < data.numAttributes(); i++)
+      result[i] = pattern.matcher(data.attribute(i).name()).matches() != m_Invert;
 
     return result;
   }
@@ -24,6 +24,7 @@ import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Range;
 import weka.core.Utils;
+import weka.core.weights.Intervals;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -135,15 +136,12 @@ public abstract class AbstractRangeBasedAttributeWeightsModifier
   }
 
   /**
-   * Hook method for performing checks before modifying the weights.
+   * Resolves the attribute range against the data.
    *
-   * @param data	the data to check
-   * @throws Exception	if modifying fails
+   * @param data	the data to resolve the range for
+   * @return		the intervals of 0-based attribute indices
    */
-  @Override
-  protected void check(Instances data) throws Exception {
-    super.check(data);
-
-    m_AttributeIndices.setUpper(data.numAttributes() - 1);
+  protected Intervals resolveAttributeIndices(Instances data) {
+    return Intervals.parse(getAttributeIndices(), data.numAttributes() - 1);
   }
 }
@@ -0,0 +1,50 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AttributeWeightsPlan.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, New Zealand
+ */
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import weka.core.Instances;
+
+/**
+ * Interface for the compiled form of an attribute weights modifier, i.e.,
+ * its configuration resolved against a specific dataset structure. Plans
+ * are immutable and can be applied by multiple threads concurrently.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public interface AttributeWeightsPlan {
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception;
+
+  /**
+   * Applies the plan to the data.
+   *
+   * @param data        the data to process
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  public Instances apply(Instances data) throws Exception;
+}
@@ -21,7 +21,6 @@
 package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
 
 import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Utils;
@@ -167,45 +166,52 @@ public class FixedValueByName
   }
 
   /**
-   * Returns the new output format.
+   * Compiles the plan for the data.
    *
-   * @param inputFormat the input format, before applying the weights
-   * @return		the output format, after applying the weights
-   * @throws Exception	if determination fails
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if compilation fails
    */
-  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
-    ArrayList<Attribute> 	atts;
-    Attribute			oldAtt;
-    Attribute			newAtt;
-    int				i;
-
-    atts = new ArrayList<Attribute>();
-    for (i = 0; i < inputFormat.numAttributes(); i++) {
-      oldAtt = inputFormat.attribute(i);
-      newAtt = (Attribute) oldAtt.copy();
-      if (isMatch(oldAtt.name()))
-	newAtt.setWeight(m_Weight);
-      atts.add(newAtt);
-    }
-
-    return new Instances(inputFormat.relationName(), atts, 0);
+  @Override
+  protected AttributeWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(matchNames(data), m_Weight);
   }
 
   /**
-   * Performs the actual modification of the attribute weights.
-   *
-   * @param data        the data to process
-   * @return		the modified data
-   * @throws Exception	if modifying fails
+   * Applies the weight to the matching attributes.
    */
-  @Override
-  protected Instances doModify(Instances data) throws Exception {
-    Instances	result;
-
-    result = new Instances(determineOutputFormat(data), data.numInstances());
-    for (Instance inst: data)
-      result.add((Instance) inst.copy());
+  public static class Plan
+    extends AbstractAttributeWeightsPlan {
+
+    /** the matches per attribute. */
+    protected final boolean[] m_Matches;
+
+    /** the weight to apply. */
+    protected final double m_Weight;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param matches	the matches per attribute
+     * @param weight	the weight to apply
+     */
+    public Plan(boolean[] matches, double weight) {
+      m_Matches = matches;
+      m_Weight  = weight;
+    }
 
-    return result;
+    /**
+     * Returns the new weight for the attribute.
+     *
+     * @param att	the attribute
+     * @param index	the 0-based index of the attribute
+     * @return		the new weight
+     */
+    @Override
+    protected double weight(Attribute att, int index) {
+      if (m_Matches[index])
+	return m_Weight;
+      return att.weight();
+    }
   }
 }
@@ -0,0 +1,366 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromAttributeEvaluator.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import weka.attributeSelection.ASEvaluation;
+import weka.attributeSelection.AttributeEvaluator;
+import weka.attributeSelection.CorrelationAttributeEval;
+import weka.attributeSelection.GainRatioAttributeEval;
+import weka.attributeSelection.InfoGainAttributeEval;
+import weka.attributeSelection.OneRAttributeEval;
+import weka.attributeSelection.SymmetricalUncertAttributeEval;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+import weka.core.weights.Parallel;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Remove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Uses the scores of a single-attribute evaluator (eg InfoGain, GainRatio, ReliefF) as attribute weights, optionally rescaled to average 1. Negative scores result in weight 0, attributes with undefined scores keep their weight. The evaluator only sees the attributes in the range (plus the class attribute).<br>
+ * Evaluators that score each attribute independently of the others (InfoGain, GainRatio, SymmetricalUncert, Correlation, OneR) get applied to chunks of attributes by multiple threads: each chunk gets projected to its attributes (plus the class) and a separate copy of the evaluator gets built on it, i.e., the scores are the same for any number of threads. Any other evaluator (eg ReliefF) gets built once on all the attributes in the range, using a single thread.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -evaluator &lt;classname + options&gt;
+ *  The single-attribute evaluator to use.
+ *  (default: weka.attributeSelection.InfoGainAttributeEval)</pre>
+ *
+ * <pre> -normalize
+ *  If set, the scores get rescaled to average 1.</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -R &lt;range&gt;
+ *  The attribute range to work on.
+ * This is a comma separated list of attribute indices, with "first" and "last" valid values.
+ *  Specify an inclusive range with "-".
+ *  E.g: "first-3,5,6-10,last".
+ *  (default: first-last)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromAttributeEvaluator
+  extends AbstractDataBasedAttributeWeightsModifier {
+
+  private static final long serialVersionUID = 3263843413651405307L;
+
+  /** the minimum number of attributes per chunk (each chunk builds its own evaluator). */
+  public static final int MIN_CHUNK_SIZE = 16;
+
+  /** the evaluator to use. */
+  protected ASEvaluation m_Evaluator = new InfoGainAttributeEval();
+
+  /** whether to normalize the weights. */
+  protected boolean m_Normalize = false;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Uses the scores of a single-attribute evaluator (eg InfoGain, "
+      + "GainRatio, ReliefF) as attribute weights, optionally rescaled to "
+      + "average 1. Negative scores result in weight 0, attributes with "
+      + "undefined scores keep their weight. The evaluator only sees the "
+      + "attributes in the range (plus the class attribute).\n"
+      + "Evaluators that score each attribute independently of the others "
+      + "(InfoGain, GainRatio, SymmetricalUncert, Correlation, OneR) get applied "
+      + "to chunks of attributes by multiple threads: each chunk gets projected "
+      + "to its attributes (plus the class) and a separate copy of the evaluator "
+      + "gets built on it, i.e., the scores are the same for any number of "
+      + "threads. Any other evaluator (eg ReliefF) gets built once on all the "
+      + "attributes in the range, using a single thread.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe single-attribute evaluator to use.\n"
+	  + "\t(default: " + InfoGainAttributeEval.class.getName() + ")",
+	"evaluator", 1, "-evaluator <classname + options>"));
+
+    result.addElement(
+      new Option(
+	"\tIf set, the scores get rescaled to average 1.",
+	"normalize", 0, "-normalize"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+    String 	className;
+    String[] 	classOptions;
+
+    tmpStr = Utils.getOption("evaluator", options);
+    if (tmpStr.length() != 0) {
+      classOptions    = Utils.splitOptions(tmpStr);
+      className       = classOptions[0];
+      classOptions[0] = "";
+      setEvaluator((ASEvaluation) Utils.forName(ASEvaluation.class, className, classOptions));
+    }
+    else {
+      setEvaluator(new InfoGainAttributeEval());
+    }
+
+    setNormalize(Utils.getFlag("normalize", options));
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-evaluator");
+    result.add(Utils.toCommandLine(getEvaluator()));
+
+    if (getNormalize())
+      result.add("-normalize");
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the evaluator to use.
+   *
+   * @param value the evaluator, must implement {@link AttributeEvaluator}
+   */
+  public void setEvaluator(ASEvaluation value) {
+    if (!(value instanceof AttributeEvaluator))
+      throw new IllegalArgumentException("Evaluator does not implement " + AttributeEvaluator.class.getName() + ": " + value.getClass().getName());
+    m_Evaluator = value;
+  }
+
+  /**
+   * Gets the evaluator to use.
+   *
+   * @return the evaluator
+   */
+  public ASEvaluation getEvaluator() {
+    return m_Evaluator;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String evaluatorTipText() {
+    return "The single-attribute evaluator which scores to use as weights.";
+  }
+
+  /**
+   * Sets whether to rescale the weights to average 1.
+   *
+   * @param value true if to normalize
+   */
+  public void setNormalize(boolean value) {
+    m_Normalize = value;
+  }
+
+  /**
+   * Gets whether to rescale the weights to average 1.
+   *
+   * @return true if to normalize
+   */
+  public boolean getNormalize() {
+    return m_Normalize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String normalizeTipText() {
+    return "If enabled, the scores get rescaled to average 1.";
+  }
+
+  /**
+   * Returns whether the evaluator scores each attribute independently of the
+   * other attributes, i.e., whether separate copies can get built on chunks
+   * of the attributes.
+   *
+   * @param evaluator	the evaluator to check
+   * @return		true if separable per attribute
+   */
+  protected boolean isSeparable(ASEvaluation evaluator) {
+    return (evaluator instanceof InfoGainAttributeEval)
+      || (evaluator instanceof GainRatioAttributeEval)
+      || (evaluator instanceof SymmetricalUncertAttributeEval)
+      || (evaluator instanceof CorrelationAttributeEval)
+      || (evaluator instanceof OneRAttributeEval);
+  }
+
+  /**
+   * Projects the data to the specified attributes.
+   *
+   * @param data	the data to project
+   * @param indices	the 0-based indices of the attributes to keep (sorted)
+   * @return		the projected data
+   * @throws Exception	if filtering fails
+   */
+  protected Instances project(Instances data, int[] indices) throws Exception {
+    Remove	remove;
+
+    if (indices.length == data.numAttributes())
+      return data;
+    remove = new Remove();
+    remove.setAttributeIndicesArray(indices);
+    remove.setInvertSelection(true);
+    remove.setInputFormat(data);
+
+    return Filter.useFilter(data, remove);
+  }
+
+  /**
+   * Computes the weights of the selected attributes.
+   *
+   * @param data	the data to compute the weights from
+   * @param selected	whether an attribute is selected (the class never is)
+   * @param weights	the current weights, to be updated for the selected attributes
+   * @throws Exception	if computation fails
+   */
+  @Override
+  protected void computeWeights(final Instances data, final boolean[] selected, final double[] weights) throws Exception {
+    final ASEvaluation[]	evaluators;
+    final double[]		scores;
+    final int[]			attributes;
+    final int			classIndex;
+    int				numThreads;
+    int				numChunks;
+    double			sum;
+    int				count;
+    int				i;
+
+    if (data.numInstances() == 0)
+      return;
+
+    count = 0;
+    for (i = 0; i < selected.length; i++) {
+      if (selected[i])
+	count++;
+    }
+    attributes = new int[count];
+    count      = 0;
+    for (i = 0; i < selected.length; i++) {
+      if (selected[i])
+	attributes[count++] = i;
+    }
+
+    // one evaluator per chunk, each one only sees its attributes and the class
+    classIndex = data.classIndex();
+    numThreads = isSeparable(m_Evaluator) ? m_NumThreads : 1;
+    numChunks  = Parallel.numChunks(attributes.length, numThreads, MIN_CHUNK_SIZE);
+    evaluators = ASEvaluation.makeCopies(m_Evaluator, numChunks);
+    scores     = new double[weights.length];
+    Arrays.fill(scores, Double.NaN);
+    Parallel.forEachChunk(attributes.length, numThreads, MIN_CHUNK_SIZE, new Parallel.ChunkTask<Object>() {
+      public Object process(int chunk, int from, int to) throws Exception {
+	int[] indices = Arrays.copyOfRange(attributes, from, to + ((classIndex > -1) ? 1 : 0));
+	if (classIndex > -1) {
+	  indices[indices.length - 1] = classIndex;
+	  Arrays.sort(indices);
+	}
+	evaluators[chunk].buildEvaluator(project(data, indices));
+	AttributeEvaluator attEval = (AttributeEvaluator) evaluators[chunk];
+	for (int i = 0; i < indices.length; i++) {
+	  if (indices[i] != classIndex)
+	    scores[indices[i]] = attEval.evaluateAttribute(i);
+	}
+	return null;
+      }
+    });
+
+    sum   = 0;
+    count = 0;
+    for (i = 0; i < weights.length; i++) {
+      if (Double.isNaN(scores[i]) || Double.isInfinite(scores[i])) {
+	scores[i] = Double.NaN;
+	continue;
+      }
+      if (scores[i] < 0)
+	scores[i] = 0;
+      sum += scores[i];
+      count++;
+    }
+
+    for (i = 0; i < weights.length; i++) {
+      if (Double.isNaN(scores[i]))
+	continue;
+      if (m_Normalize && (sum > 0))
+	weights[i] = scores[i] * count / sum;
+      else
+	weights[i] = scores[i];
+    }
+  }
+}
@@ -0,0 +1,467 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromColumnStatistics.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.weights.ColumnStatistics;
+import weka.core.weights.CounterRandom;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Derives the attribute weights from per-attribute statistics of the data: the inverse variance (numeric attributes), the entropy in bits of the label distribution (nominal attributes) or the coefficient of variation (numeric attributes). Attributes that the statistic does not apply to, or that it is undefined for, keep their weight; constant attributes get weight 0 with the inverse variance. Missing values are ignored.<br>
+ * The statistics are computed in a single parallel pass over the rows (only the stored values of sparse rows get visited), with one accumulator per chunk of rows, merged at the end. On very large data, a sample of rows (drawn uniformly with replacement) can be used instead.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -statistic &lt;inverse-variance|entropy|coefficient-of-variation&gt;
+ *  The statistic to use as weight.
+ *  (default: inverse-variance)</pre>
+ *
+ * <pre> -normalize
+ *  If set, the computed weights get rescaled to average 1.</pre>
+ *
+ * <pre> -sample-size &lt;num&gt;
+ *  The number of rows to sample, 0 to use all rows.
+ *  (default: 0)</pre>
+ *
+ * <pre> -seed &lt;num&gt;
+ *  The seed for sampling the rows.
+ *  (default: 1)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -R &lt;range&gt;
+ *  The attribute range to work on.
+ * This is a comma separated list of attribute indices, with "first" and "last" valid values.
+ *  Specify an inclusive range with "-".
+ *  E.g: "first-3,5,6-10,last".
+ *  (default: first-last)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromColumnStatistics
+  extends AbstractDataBasedAttributeWeightsModifier {
+
+  private static final long serialVersionUID = -4461781052926620146L;
+
+  /** the inverse of the variance. */
+  public static final int STATISTIC_INVERSE_VARIANCE = 0;
+
+  /** the entropy of the label distribution. */
+  public static final int STATISTIC_ENTROPY = 1;
+
+  /** the coefficient of variation. */
+  public static final int STATISTIC_COEFFICIENT_OF_VARIATION = 2;
+
+  /** the statistics. */
+  public static final Tag[] TAGS_STATISTIC = {
+    new Tag(STATISTIC_INVERSE_VARIANCE, "inverse-variance", "Inverse variance", false),
+    new Tag(STATISTIC_ENTROPY, "entropy", "Entropy", false),
+    new Tag(STATISTIC_COEFFICIENT_OF_VARIATION, "coefficient-of-variation", "Coefficient of variation", false),
+  };
+
+  /** the statistic. */
+  protected int m_Statistic = STATISTIC_INVERSE_VARIANCE;
+
+  /** whether to normalize the weights. */
+  protected boolean m_Normalize = false;
+
+  /** the number of rows to sample (0 = all). */
+  protected int m_SampleSize = 0;
+
+  /** the seed for sampling. */
+  protected long m_Seed = 1;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Derives the attribute weights from per-attribute statistics of the "
+      + "data: the inverse variance (numeric attributes), the entropy in bits of "
+      + "the label distribution (nominal attributes) or the coefficient of "
+      + "variation (numeric attributes). Attributes that the statistic does not "
+      + "apply to, or that it is undefined for, keep their weight; constant "
+      + "attributes get weight 0 with the inverse variance. Missing values are "
+      + "ignored.\n"
+      + "The statistics are computed in a single parallel pass over the rows "
+      + "(only the stored values of sparse rows get visited), with one "
+      + "accumulator per chunk of rows, merged at the end. On very large data, "
+      + "a sample of rows (drawn uniformly with replacement) can be used instead.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe statistic to use as weight.\n"
+	  + "\t(default: inverse-variance)",
+	"statistic", 1, "-statistic <inverse-variance|entropy|coefficient-of-variation>"));
+
+    result.addElement(
+      new Option(
+	"\tIf set, the computed weights get rescaled to average 1.",
+	"normalize", 0, "-normalize"));
+
+    result.addElement(
+      new Option(
+	"\tThe number of rows to sample, 0 to use all rows.\n"
+	  + "\t(default: 0)",
+	"sample-size", 1, "-sample-size <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe seed for sampling the rows.\n"
+	  + "\t(default: 1)",
+	"seed", 1, "-seed <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("statistic", options);
+    if (tmpStr.length() != 0)
+      setStatistic(new SelectedTag(tmpStr, TAGS_STATISTIC));
+    else
+      setStatistic(new SelectedTag(STATISTIC_INVERSE_VARIANCE, TAGS_STATISTIC));
+
+    setNormalize(Utils.getFlag("normalize", options));
+
+    tmpStr = Utils.getOption("sample-size", options);
+    if (tmpStr.length() != 0)
+      setSampleSize(Integer.parseInt(tmpStr));
+    else
+      setSampleSize(0);
+
+    tmpStr = Utils.getOption("seed", options);
+    if (tmpStr.length() != 0)
+      setSeed(Long.parseLong(tmpStr));
+    else
+      setSeed(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-statistic");
+    result.add(getStatistic().getSelectedTag().getIDStr());
+
+    if (getNormalize())
+      result.add("-normalize");
+
+    result.add("-sample-size");
+    result.add("" + getSampleSize());
+
+    result.add("-seed");
+    result.add("" + getSeed());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the statistic.
+   *
+   * @param value the statistic
+   */
+  public void setStatistic(SelectedTag value) {
+    if (value.getTags() == TAGS_STATISTIC)
+      m_Statistic = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the statistic.
+   *
+   * @return the statistic
+   */
+  public SelectedTag getStatistic() {
+    return new SelectedTag(m_Statistic, TAGS_STATISTIC);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String statisticTipText() {
+    return "The statistic to use as weight: inverse variance, entropy (nominal attributes) or coefficient of variation.";
+  }
+
+  /**
+   * Sets whether to rescale the weights to average 1.
+   *
+   * @param value true if to normalize
+   */
+  public void setNormalize(boolean value) {
+    m_Normalize = value;
+  }
+
+  /**
+   * Gets whether to rescale the weights to average 1.
+   *
+   * @return true if to normalize
+   */
+  public boolean getNormalize() {
+    return m_Normalize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String normalizeTipText() {
+    return "If enabled, the computed weights get rescaled to average 1.";
+  }
+
+  /**
+   * Sets the number of rows to sample.
+   *
+   * @param value the number of rows, 0 for all
+   */
+  public void setSampleSize(int value) {
+    if (value < 0)
+      throw new IllegalArgumentException("Sample size must be at least 0: " + value);
+    m_SampleSize = value;
+  }
+
+  /**
+   * Gets the number of rows to sample.
+   *
+   * @return the number of rows, 0 for all
+   */
+  public int getSampleSize() {
+    return m_SampleSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String sampleSizeTipText() {
+    return "The number of rows to sample (uniformly, with replacement) for computing the statistics; 0 to use all rows.";
+  }
+
+  /**
+   * Sets the seed for sampling.
+   *
+   * @param value the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Gets the seed for sampling.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for sampling the rows.";
+  }
+
+  /**
+   * Draws the sample of rows, sorted to keep the accesses local.
+   *
+   * @param numRows	the number of rows in the data
+   * @return		the row indices, null if all rows get used
+   */
+  protected int[] sampleRows(int numRows) {
+    int[]		result;
+    CounterRandom	random;
+    int			i;
+
+    if ((m_SampleSize == 0) || (m_SampleSize >= numRows))
+      return null;
+
+    random = new CounterRandom(m_Seed);
+    result = new int[m_SampleSize];
+    for (i = 0; i < result.length; i++)
+      result[i] = (int) (random.nextDouble(i) * numRows);
+    Arrays.sort(result);
+
+    return result;
+  }
+
+  /**
+   * Computes the entropy (in bits) of the label counts.
+   *
+   * @param counts	the counts
+   * @return		the entropy, NaN if no values
+   */
+  protected static double entropy(int[] counts) {
+    double	result;
+    double	total;
+    double	p;
+
+    total = 0;
+    for (int count: counts)
+      total += count;
+    if (total == 0)
+      return Double.NaN;
+
+    result = 0;
+    for (int count: counts) {
+      if (count == 0)
+	continue;
+      p       = count / total;
+      result -= p * StrictMath.log(p);
+    }
+
+    return result / StrictMath.log(2);
+  }
+
+  /**
+   * Computes the weights of the selected attributes.
+   *
+   * @param data	the data to compute the weights from
+   * @param selected	whether an attribute is selected (the class never is)
+   * @param weights	the current weights, to be updated for the selected attributes
+   * @throws Exception	if computation fails
+   */
+  @Override
+  protected void computeWeights(Instances data, boolean[] selected, double[] weights) throws Exception {
+    ColumnStatistics	stats;
+    boolean[]		computed;
+    double		weight;
+    double		variance;
+    double		mean;
+    double		sum;
+    int			count;
+    int[]		counts;
+    int			i;
+
+    if (data.numInstances() == 0)
+      return;
+
+    stats    = ColumnStatistics.compute(data, sampleRows(data.numInstances()), m_NumThreads);
+    computed = new boolean[weights.length];
+    sum      = 0;
+    count    = 0;
+    for (i = 0; i < weights.length; i++) {
+      if (!selected[i])
+	continue;
+      weight = Double.NaN;
+      switch (m_Statistic) {
+	case STATISTIC_INVERSE_VARIANCE:
+	  variance = stats.getVariance(i);
+	  if (variance == 0)
+	    weight = 0;
+	  else
+	    weight = 1.0 / variance;
+	  break;
+	case STATISTIC_ENTROPY:
+	  counts = stats.getValueCounts(i);
+	  if (counts != null)
+	    weight = entropy(counts);
+	  break;
+	case STATISTIC_COEFFICIENT_OF_VARIATION:
+	  variance = stats.getVariance(i);
+	  mean     = stats.getMean(i);
+	  if (mean != 0)
+	    weight = StrictMath.sqrt(variance) / Math.abs(mean);
+	  break;
+	default:
+	  throw new IllegalStateException("Unhandled statistic: " + m_Statistic);
+      }
+      if (Double.isNaN(weight) || Double.isInfinite(weight))
+	continue;
+      weights[i]  = weight;
+      computed[i] = true;
+      sum        += weight;
+      count++;
+    }
+
+    if (m_Normalize && (sum > 0)) {
+      for (i = 0; i < weights.length; i++) {
+	if (computed[i])
+	  weights[i] *= count / sum;
+      }
+    }
+  }
+}
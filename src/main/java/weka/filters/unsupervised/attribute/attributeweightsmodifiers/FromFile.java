@@ -21,7 +21,6 @@
 package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
 
 import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Utils;
@@ -30,6 +29,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
@@ -184,17 +184,22 @@ public class FromFile
    * @return		the weights
    * @throws Exception	if reading of weights fails
    */
-  protected List<Double> loadWeights() throws Exception {
-    List<Double>	result;
+  protected double[] loadWeights() throws Exception {
+    double[]		result;
+    int			count;
     BufferedReader	reader;
     String		line;
 
-    result = new ArrayList<Double>();
+    result = new double[1024];
+    count  = 0;
     reader = null;
     try {
       reader = new BufferedReader(new FileReader(m_WeightsFile));
-      while ((line = reader.readLine()) != null)
-        result.add(Double.parseDouble(line));
+      while ((line = reader.readLine()) != null) {
+        if (count == result.length)
+          result = Arrays.copyOf(result, result.length * 2);
+        result[count++] = Double.parseDouble(line);
+      }
     }
     catch (Exception e) {
       throw e;
@@ -210,55 +215,80 @@ public class FromFile
       }
     }
 
-    return result;
+    return Arrays.copyOf(result, count);
   }
 
   /**
-   * Returns the new output format.
+   * Returns the key that identifies the plan, in addition to the structure of
+   * the data. Adds size and timestamp of the weights file.
    *
-   * @param inputFormat the input format, before applying the weights
-   * @return		the output format, after applying the weights
-   * @throws Exception	if determination fails
+   * @param data	the data to generate the key for
+   * @return		the key
+   * @throws Exception	if generating the key fails
    */
-  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
-    ArrayList<Attribute> 	atts;
-    Attribute			oldAtt;
-    Attribute			newAtt;
-    int				i;
-    List<Double>	  	weights;
-
-    weights = loadWeights();
-    if (weights.size() < inputFormat.numAttributes())
-      throw new IllegalStateException("Not enough weights: " + weights.size() + " < " + inputFormat.numAttributes());
-    if (weights.size() > inputFormat.numAttributes())
-      System.err.println("More weights than rows: " + weights.size() + " > " + inputFormat.numAttributes());
-
-    atts = new ArrayList<Attribute>();
-    for (i = 0; i < inputFormat.numAttributes(); i++) {
-      oldAtt = inputFormat.attribute(i);
-      newAtt = (Attribute) oldAtt.copy();
-      newAtt.setWeight(weights.get(i));
-      atts.add(newAtt);
-    }
+  @Override
+  protected String getPlanKey(Instances data) throws Exception {
+    return super.getPlanKey(data) + " #file=" + m_WeightsFile.length() + "/" + m_WeightsFile.lastModified();
+  }
 
-    return new Instances(inputFormat.relationName(), atts, 0);
+  /**
+   * Returns the size in bytes of the weights file.
+   *
+   * @return		the size
+   */
+  @Override
+  protected long getSourceSize() {
+    return m_WeightsFile.length();
   }
 
   /**
-   * Performs the actual modification of the instance weights.
+   * Compiles the plan for the data.
    *
-   * @param data        the data to process
-   * @return		the modified data
-   * @throws Exception	if modifying fails
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if loading of the weights fails or not enough weights
    */
   @Override
-  protected Instances doModify(Instances data) throws Exception {
-    Instances	result;
+  protected AttributeWeightsPlan compilePlan(Instances data) throws Exception {
+    double[]	weights;
 
-    result = new Instances(determineOutputFormat(data), data.numInstances());
-    for (Instance inst: data)
-      result.add((Instance) inst.copy());
+    weights = loadWeights();
+    if (weights.length < data.numAttributes())
+      throw new IllegalStateException("Not enough weights: " + weights.length + " < " + data.numAttributes());
+    if (weights.length > data.numAttributes())
+      System.err.println("More weights than rows: " + weights.length + " > " + data.numAttributes());
 
-    return result;
+    return new Plan(weights);
+  }
+
+  /**
+   * Applies the loaded weights.
+   */
+  public static class Plan
+    extends AbstractAttributeWeightsPlan {
+
+    /** the weights. */
+    protected final double[] m_Weights;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param weights	the weights to apply
+     */
+    public Plan(double[] weights) {
+      m_Weights = weights;
+    }
+
+    /**
+     * Returns the new weight for the attribute.
+     *
+     * @param att	the attribute
+     * @param index	the 0-based index of the attribute
+     * @return		the new weight
+     */
+    @Override
+    protected double weight(Attribute att, int index) {
+      return m_Weights[index];
+    }
   }
 }
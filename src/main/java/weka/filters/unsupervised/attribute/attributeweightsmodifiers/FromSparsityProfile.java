@@ -0,0 +1,475 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromSparsityProfile.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.weights.ColumnStatistics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Down-weights attributes that are almost always zero or missing (eg on wide sparse data). The rate of each attribute is either the fraction of rows with a non-zero, non-missing value ('present') or the fraction of rows with a non-missing value ('non-missing'). Rates below the minimum rate result in weight 0, otherwise the curve maps the rate to the weight: 'power' uses rate^exponent, 'log' uses log(1 + steepness * rate) / log(1 + steepness). I.e., attributes that are always present get weight 1.<br>
+ * The rates are counted in a single parallel pass that only visits the stored values of sparse rows, with a pair of counters per attribute and chunk of rows (memory proportional to the number of attributes, counts are exact for any number of threads).
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -rate &lt;present|non-missing&gt;
+ *  The rate to derive the weights from.
+ *  (default: present)</pre>
+ *
+ * <pre> -curve &lt;power|log&gt;
+ *  The curve for mapping the rates to weights.
+ *  (default: power)</pre>
+ *
+ * <pre> -exponent &lt;num&gt;
+ *  The exponent of the power curve.
+ *  (default: 0.5)</pre>
+ *
+ * <pre> -steepness &lt;num&gt;
+ *  The steepness of the log curve.
+ *  (default: 100.0)</pre>
+ *
+ * <pre> -min-rate &lt;num&gt;
+ *  The minimum rate, attributes below get weight 0.
+ *  (default: 0.0)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -R &lt;range&gt;
+ *  The attribute range to work on.
+ * This is a comma separated list of attribute indices, with "first" and "last" valid values.
+ *  Specify an inclusive range with "-".
+ *  E.g: "first-3,5,6-10,last".
+ *  (default: first-last)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromSparsityProfile
+  extends AbstractDataBasedAttributeWeightsModifier {
+
+  private static final long serialVersionUID = -1419373834618204338L;
+
+  /** the fraction of rows with a non-zero, non-missing value. */
+  public static final int RATE_PRESENT = 0;
+
+  /** the fraction of rows with a non-missing value. */
+  public static final int RATE_NON_MISSING = 1;
+
+  /** the rates. */
+  public static final Tag[] TAGS_RATE = {
+    new Tag(RATE_PRESENT, "present", "Present (non-zero, non-missing)", false),
+    new Tag(RATE_NON_MISSING, "non-missing", "Non-missing", false),
+  };
+
+  /** rate^exponent. */
+  public static final int CURVE_POWER = 0;
+
+  /** log(1 + steepness * rate) / log(1 + steepness). */
+  public static final int CURVE_LOG = 1;
+
+  /** the curves. */
+  public static final Tag[] TAGS_CURVE = {
+    new Tag(CURVE_POWER, "power", "Power", false),
+    new Tag(CURVE_LOG, "log", "Logarithmic", false),
+  };
+
+  /** the rate. */
+  protected int m_Rate = RATE_PRESENT;
+
+  /** the curve. */
+  protected int m_Curve = CURVE_POWER;
+
+  /** the exponent of the power curve. */
+  protected double m_Exponent = 0.5;
+
+  /** the steepness of the log curve. */
+  protected double m_Steepness = 100.0;
+
+  /** the minimum rate. */
+  protected double m_MinRate = 0.0;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Down-weights attributes that are almost always zero or missing (eg "
+      + "on wide sparse data). The rate of each attribute is either the fraction "
+      + "of rows with a non-zero, non-missing value ('present') or the fraction "
+      + "of rows with a non-missing value ('non-missing'). Rates below the "
+      + "minimum rate result in weight 0, otherwise the curve maps the rate to "
+      + "the weight: 'power' uses rate^exponent, 'log' uses "
+      + "log(1 + steepness * rate) / log(1 + steepness). I.e., attributes that "
+      + "are always present get weight 1.\n"
+      + "The rates are counted in a single parallel pass that only visits the "
+      + "stored values of sparse rows, with a pair of counters per attribute and "
+      + "chunk of rows (memory proportional to the number of attributes, counts "
+      + "are exact for any number of threads).";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe rate to derive the weights from.\n"
+	  + "\t(default: present)",
+	"rate", 1, "-rate <present|non-missing>"));
+
+    result.addElement(
+      new Option(
+	"\tThe curve for mapping the rates to weights.\n"
+	  + "\t(default: power)",
+	"curve", 1, "-curve <power|log>"));
+
+    result.addElement(
+      new Option(
+	"\tThe exponent of the power curve.\n"
+	  + "\t(default: 0.5)",
+	"exponent", 1, "-exponent <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe steepness of the log curve.\n"
+	  + "\t(default: 100.0)",
+	"steepness", 1, "-steepness <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe minimum rate, attributes below get weight 0.\n"
+	  + "\t(default: 0.0)",
+	"min-rate", 1, "-min-rate <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("rate", options);
+    if (tmpStr.length() != 0)
+      setRate(new SelectedTag(tmpStr, TAGS_RATE));
+    else
+      setRate(new SelectedTag(RATE_PRESENT, TAGS_RATE));
+
+    tmpStr = Utils.getOption("curve", options);
+    if (tmpStr.length() != 0)
+      setCurve(new SelectedTag(tmpStr, TAGS_CURVE));
+    else
+      setCurve(new SelectedTag(CURVE_POWER, TAGS_CURVE));
+
+    tmpStr = Utils.getOption("exponent", options);
+    if (tmpStr.length() != 0)
+      setExponent(Double.parseDouble(tmpStr));
+    else
+      setExponent(0.5);
+
+    tmpStr = Utils.getOption("steepness", options);
+    if (tmpStr.length() != 0)
+      setSteepness(Double.parseDouble(tmpStr));
+    else
+      setSteepness(100.0);
+
+    tmpStr = Utils.getOption("min-rate", options);
+    if (tmpStr.length() != 0)
+      setMinRate(Double.parseDouble(tmpStr));
+    else
+      setMinRate(0.0);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-rate");
+    result.add(getRate().getSelectedTag().getIDStr());
+
+    result.add("-curve");
+    result.add(getCurve().getSelectedTag().getIDStr());
+
+    result.add("-exponent");
+    result.add("" + getExponent());
+
+    result.add("-steepness");
+    result.add("" + getSteepness());
+
+    result.add("-min-rate");
+    result.add("" + getMinRate());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the rate to derive the weights from.
+   *
+   * @param value the rate
+   */
+  public void setRate(SelectedTag value) {
+    if (value.getTags() == TAGS_RATE)
+      m_Rate = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the rate to derive the weights from.
+   *
+   * @return the rate
+   */
+  public SelectedTag getRate() {
+    return new SelectedTag(m_Rate, TAGS_RATE);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String rateTipText() {
+    return "The rate to derive the weights from: fraction of rows with a non-zero, non-missing value or with a non-missing value.";
+  }
+
+  /**
+   * Sets the curve.
+   *
+   * @param value the curve
+   */
+  public void setCurve(SelectedTag value) {
+    if (value.getTags() == TAGS_CURVE)
+      m_Curve = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the curve.
+   *
+   * @return the curve
+   */
+  public SelectedTag getCurve() {
+    return new SelectedTag(m_Curve, TAGS_CURVE);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String curveTipText() {
+    return "The curve for mapping the rates to weights: rate^exponent or log(1 + steepness * rate) / log(1 + steepness).";
+  }
+
+  /**
+   * Sets the exponent of the power curve.
+   *
+   * @param value the exponent (greater than 0)
+   */
+  public void setExponent(double value) {
+    if (value <= 0)
+      throw new IllegalArgumentException("Exponent must be greater than 0: " + value);
+    m_Exponent = value;
+  }
+
+  /**
+   * Gets the exponent of the power curve.
+   *
+   * @return the exponent
+   */
+  public double getExponent() {
+    return m_Exponent;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String exponentTipText() {
+    return "The exponent of the power curve; less than 1 for a gentle, greater than 1 for a strong down-weighting.";
+  }
+
+  /**
+   * Sets the steepness of the log curve.
+   *
+   * @param value the steepness (greater than 0)
+   */
+  public void setSteepness(double value) {
+    if (value <= 0)
+      throw new IllegalArgumentException("Steepness must be greater than 0: " + value);
+    m_Steepness = value;
+  }
+
+  /**
+   * Gets the steepness of the log curve.
+   *
+   * @return the steepness
+   */
+  public double getSteepness() {
+    return m_Steepness;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String steepnessTipText() {
+    return "The steepness of the log curve; the larger, the less rare attributes get down-weighted.";
+  }
+
+  /**
+   * Sets the minimum rate.
+   *
+   * @param value the minimum rate (0-1)
+   */
+  public void setMinRate(double value) {
+    if ((value < 0) || (value > 1))
+      throw new IllegalArgumentException("Minimum rate must be between 0 and 1: " + value);
+    m_MinRate = value;
+  }
+
+  /**
+   * Gets the minimum rate.
+   *
+   * @return the minimum rate
+   */
+  public double getMinRate() {
+    return m_MinRate;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String minRateTipText() {
+    return "The minimum rate (0-1), attributes with a lower rate get weight 0.";
+  }
+
+  /**
+   * Maps the rate to the weight.
+   *
+   * @param rate	the rate (0-1)
+   * @return		the weight
+   */
+  protected double curve(double rate) {
+    if (rate < m_MinRate)
+      return 0;
+
+    switch (m_Curve) {
+      case CURVE_POWER:
+	return StrictMath.pow(rate, m_Exponent);
+      case CURVE_LOG:
+	return StrictMath.log1p(m_Steepness * rate) / StrictMath.log1p(m_Steepness);
+      default:
+	throw new IllegalStateException("Unhandled curve: " + m_Curve);
+    }
+  }
+
+  /**
+   * Computes the weights of the selected attributes.
+   *
+   * @param data	the data to compute the weights from
+   * @param selected	whether an attribute is selected (the class never is)
+   * @param weights	the current weights, to be updated for the selected attributes
+   * @throws Exception	if computation fails
+   */
+  @Override
+  protected void computeWeights(Instances data, boolean[] selected, double[] weights) throws Exception {
+    ColumnStatistics	stats;
+    int			numAtts;
+    int			numRows;
+    double		rate;
+    int			i;
+
+    numRows = data.numInstances();
+    if (numRows == 0)
+      return;
+
+    // number of non-zero (non-missing) and of missing values
+    stats   = ColumnStatistics.compute(data, null, m_NumThreads, true);
+    numAtts = data.numAttributes();
+    for (i = 0; i < numAtts; i++) {
+      if (!selected[i])
+	continue;
+      switch (m_Rate) {
+	case RATE_PRESENT:
+	  rate = (double) stats.getNonZeroCount(i) / numRows;
+	  break;
+	case RATE_NON_MISSING:
+	  rate = (double) stats.getCount(i) / numRows;
+	  break;
+	default:
+	  throw new IllegalStateException("Unhandled rate: " + m_Rate);
+      }
+      weights[i] = curve(rate);
+    }
+  }
+}
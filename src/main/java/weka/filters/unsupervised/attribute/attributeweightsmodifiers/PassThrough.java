@@ -56,25 +56,40 @@ public class PassThrough
   }
 
   /**
-   * Returns the new output format.
+   * Compiles the plan for the data.
    *
-   * @param inputFormat the input format, before applying the weights
-   * @return		the output format, after applying the weights
-   * @throws Exception	if determination fails
+   * @param data	the data to compile the plan for
+   * @return		the plan
    */
-  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
-    return new Instances(inputFormat, 0);
+  @Override
+  protected AttributeWeightsPlan compilePlan(Instances data) {
+    return new Plan();
   }
 
   /**
-   * Performs the actual modification of the attribute weights.
-   *
-   * @param data        the data to process
-   * @return		the modified data
-   * @throws Exception	if modifying fails
+   * Returns the data as is.
    */
-  @Override
-  protected Instances doModify(Instances data) throws Exception {
-    return data;
+  public static class Plan
+    implements AttributeWeightsPlan {
+
+    /**
+     * Returns the new output format.
+     *
+     * @param inputFormat the input format, before applying the weights
+     * @return		the output format, after applying the weights
+     */
+    public Instances determineOutputFormat(Instances inputFormat) {
+      return new Instances(inputFormat, 0);
+    }
+
+    /**
+     * Returns the data as is.
+     *
+     * @param data        the data to process
+     * @return		the data
+     */
+    public Instances apply(Instances data) {
+      return data;
+    }
   }
 }
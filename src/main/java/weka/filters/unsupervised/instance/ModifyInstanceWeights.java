@@ -24,6 +24,10 @@ import weka.core.Instances;
 import weka.core.Option;
 import weka.core.RevisionUtils;
 import weka.core.Utils;
+import weka.core.weights.WeightsEvents;
+import weka.core.weights.WeightsMetrics;
+import weka.core.weights.WeightsMetrics.Phase;
+import weka.core.weights.WeightsMetricsHandler;
 import weka.filters.SimpleBatchFilter;
 import weka.filters.unsupervised.instance.instanceweightsmodifiers.InstanceWeightsModifier;
 import weka.filters.unsupervised.instance.instanceweightsmodifiers.PassThrough;
@@ -45,6 +49,10 @@ import java.util.Vector;
  *  The attribute weights modifier to use.
  *  (default: weka.filters.unsupervised.instance.instanceweightsmodifiers.PassThrough)</pre>
  * 
+ * <pre> -metrics &lt;name&gt;
+ *  The name under which to publish metrics via JMX, empty for none.
+ *  (default: none)</pre>
+ * 
  * <pre> -output-debug-info
  *  If set, filter is run in debug mode and
  *  may output additional info to the console</pre>
@@ -65,6 +73,9 @@ public class ModifyInstanceWeights
   /** the scheme to use for modifying the weights. */
   protected InstanceWeightsModifier m_Modifier = new PassThrough();
 
+  /** the name of the metrics (empty for none). */
+  protected String m_MetricsName = "";
+
   /**
    * Returns a string describing this filter.
    *
@@ -91,6 +102,12 @@ public class ModifyInstanceWeights
 	  + "\t(default: " + PassThrough.class.getName() + ")",
 	"modifier", 1, "-modifier <classname + options>"));
 
+    result.addElement(
+      new Option(
+	"\tThe name under which to publish metrics via JMX, empty for none.\n"
+	  + "\t(default: none)",
+	"metrics", 1, "-metrics <name>"));
+
     result.addAll(Collections.list(super.listOptions()));
 
     return result.elements();
@@ -119,6 +136,8 @@ public class ModifyInstanceWeights
       setModifier(new PassThrough());
     }
 
+    setMetricsName(Utils.getOption("metrics", options));
+
     super.setOptions(options);
   }
 
@@ -134,6 +153,11 @@ public class ModifyInstanceWeights
     result.add("-modifier");
     result.add(Utils.toCommandLine(getModifier()));
 
+    if (!getMetricsName().isEmpty()) {
+      result.add("-metrics");
+      result.add(getMetricsName());
+    }
+
     Collections.addAll(result, super.getOptions());
 
     return result.toArray(new String[0]);
@@ -167,6 +191,52 @@ public class ModifyInstanceWeights
     return "The weights modifier to apply to the data.";
   }
 
+  /**
+   * Sets the name under which to publish metrics via JMX.
+   *
+   * @param value the name, empty for none
+   */
+  public void setMetricsName(String value) {
+    m_MetricsName = value;
+  }
+
+  /**
+   * Gets the name under which to publish metrics via JMX.
+   *
+   * @return the name, empty for none
+   */
+  public String getMetricsName() {
+    return m_MetricsName;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String metricsNameTipText() {
+    return "The name under which to publish metrics (rows, batches, timings, etc) "
+      + "via JMX, empty for none; filters with the same name share their metrics.";
+  }
+
+  /**
+   * Returns the metrics to record to and passes them on to the modifier.
+   *
+   * @return the metrics, null if none to record
+   */
+  protected WeightsMetrics initMetrics() {
+    WeightsMetrics	result;
+
+    result = null;
+    if (!m_MetricsName.isEmpty())
+      result = WeightsMetrics.get(getClass().getSimpleName(), m_MetricsName);
+    if (m_Modifier instanceof WeightsMetricsHandler)
+      ((WeightsMetricsHandler) m_Modifier).setWeightsMetrics(result);
+
+    return result;
+  }
+
   /**
    * Determines the output format based on the input format and returns this. In
    * case the output format cannot be returned immediately, i.e.,
@@ -179,7 +249,20 @@ public class ModifyInstanceWeights
    */
   @Override
   protected Instances determineOutputFormat(Instances inputFormat) throws Exception {
-    return m_Modifier.determineOutputFormat(inputFormat);
+    WeightsMetrics	metrics;
+    Instances		result;
+    Object		event;
+    long		start;
+
+    metrics = initMetrics();
+    start   = System.nanoTime();
+    event   = WeightsEvents.begin(Phase.FORMAT);
+    result  = m_Modifier.determineOutputFormat(inputFormat);
+    WeightsEvents.end(event, m_Modifier, inputFormat, 0);
+    if (metrics != null)
+      metrics.recordTime(Phase.FORMAT, System.nanoTime() - start);
+
+    return result;
   }
 
   /**
@@ -192,7 +275,19 @@ public class ModifyInstanceWeights
    */
   @Override
   protected Instances process(Instances instances) throws Exception {
-    return m_Modifier.modifyInstanceWeights(instances);
+    WeightsMetrics	metrics;
+    Instances		result;
+    long		start;
+
+    metrics = initMetrics();
+    if (metrics == null)
+      return m_Modifier.modifyInstanceWeights(instances);
+
+    start  = System.nanoTime();
+    result = m_Modifier.modifyInstanceWeights(instances);
+    metrics.recordBatch(instances.numInstances(), System.nanoTime() - start);
+
+    return result;
   }
 
   /**
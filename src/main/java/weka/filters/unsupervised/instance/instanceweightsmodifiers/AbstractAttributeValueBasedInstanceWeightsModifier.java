@@ -20,10 +20,13 @@
 
 package weka.filters.unsupervised.instance.instanceweightsmodifiers;
 
+import weka.core.Attribute;
+import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.SingleIndex;
 import weka.core.Utils;
+import weka.core.weights.SparseAccess;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -50,9 +53,6 @@ public abstract class AbstractAttributeValueBasedInstanceWeightsModifier
   /** whether to invert the matching sense. */
   protected boolean m_Invert = false;
 
-  /** the compiled pattern to use. */
-  protected transient Pattern m_Pattern;
-
   /**
    * Returns an enumeration describing the available options.
    *
@@ -166,8 +166,7 @@ public abstract class AbstractAttributeValueBasedInstanceWeightsModifier
    * @param value a regular expression
    */
   public void setRegExp(String value) {
-    m_RegExp  = value;
-    m_Pattern = null;
+    m_RegExp = value;
   }
 
   /**
@@ -225,43 +224,124 @@ public abstract class AbstractAttributeValueBasedInstanceWeightsModifier
    * @throws Exception	if pattern compilation fails
    */
   protected Pattern getPattern() throws Exception {
-    if (m_Pattern == null)
-      m_Pattern = Pattern.compile(m_RegExp);
-    return m_Pattern;
+    return Pattern.compile(m_RegExp);
   }
 
   /**
-   * Hook method for performing checks before modifying the weights.
+   * Resolves the attribute index against the data and checks the type of
+   * the attribute.
    *
-   * @param data	the data to check
-   * @throws Exception	if check fails
+   * @param data	the data to resolve the index for
+   * @return		the 0-based index
+   * @throws Exception	if index invalid or attribute neither nominal nor string
    */
-  @Override
-  protected void check(Instances data) throws Exception {
-    super.check(data);
-
-    getPattern();
-    m_AttributeIndex.setUpper(data.numAttributes() - 1);
-    if (m_AttributeIndex.getIndex() == -1)
-      throw new IllegalArgumentException("Attribute index not valid: " + m_AttributeIndex.getSingleIndex());
-    if (!(data.attribute(m_AttributeIndex.getIndex()).isNominal() || data.attribute(m_AttributeIndex.getIndex()).isString()))
-      throw new IllegalArgumentException("Attribute is neither nominal nor string: " + m_AttributeIndex.getSingleIndex());
+  protected int resolveAttributeIndex(Instances data) throws Exception {
+    SingleIndex		index;
+
+    index = new SingleIndex(getAttributeIndex());
+    index.setUpper(data.numAttributes() - 1);
+    if (index.getIndex() == -1)
+      throw new IllegalArgumentException("Attribute index not valid: " + index.getSingleIndex());
+    if (!(data.attribute(index.getIndex()).isNominal() || data.attribute(index.getIndex()).isString()))
+      throw new IllegalArgumentException("Attribute is neither nominal nor string: " + index.getSingleIndex());
+
+    return index.getIndex();
   }
 
   /**
-   * Checks whether the value is a match (takes invert into account).
+   * Compiles the matcher for the data.
    *
-   * @param value	the value to check
-   * @return		true if match
-   * @throws Exception	if pattern compilation fails
+   * @param data	the data to compile the matcher for
+   * @return		the matcher
+   * @throws Exception	if index invalid or pattern compilation fails
    */
-  protected boolean isMatch(String value) throws Exception {
-    boolean	result;
-
-    result = getPattern().matcher(value).matches();
-    if (m_Invert)
-      result = !result;
+  protected ValueMatcher compileMatcher(Instances data) throws Exception {
+    return new ValueMatcher(data.attribute(resolveAttributeIndex(data)), getPattern(), m_Invert);
+  }
 
-    return result;
+  /**
+   * Matches the values of an attribute against a regular expression (takes
+   * invert into account). For nominal attributes, the labels are matched
+   * only once.
+   */
+  public static class ValueMatcher {
+
+    /** the 0-based attribute index. */
+    protected final int m_Index;
+
+    /** the pattern. */
+    protected final Pattern m_Pattern;
+
+    /** whether to invert the matching sense. */
+    protected final boolean m_Invert;
+
+    /** the matches per label (nominal attributes only). */
+    protected final boolean[] m_Labels;
+
+    /**
+     * Initializes the matcher.
+     *
+     * @param att	the attribute which values to match
+     * @param pattern	the pattern to use
+     * @param invert	whether to invert the matching sense
+     */
+    public ValueMatcher(Attribute att, Pattern pattern, boolean invert) {
+      int	i;
+
+      m_Index   = att.index();
+      m_Pattern = pattern;
+      m_Invert  = invert;
+      if (att.isNominal()) {
+	m_Labels = new boolean[att.numValues()];
+	for (i = 0; i < att.numValues(); i++)
+	  m_Labels[i] = isMatch(att.value(i));
+      }
+      else {
+	m_Labels = null;
+      }
+    }
+
+    /**
+     * Returns the 0-based index of the attribute.
+     *
+     * @return		the index
+     */
+    public int getIndex() {
+      return m_Index;
+    }
+
+    /**
+     * Checks whether the value is a match (takes invert into account).
+     *
+     * @param value	the value to check
+     * @return		true if match
+     */
+    public boolean isMatch(String value) {
+      boolean	result;
+
+      result = m_Pattern.matcher(value).matches();
+      if (m_Invert)
+	result = !result;
+
+      return result;
+    }
+
+    /**
+     * Checks whether the attribute value of the row is a match. Looks up the
+     * value only once (index-aware for sparse rows).
+     *
+     * @param inst	the row to check
+     * @return		true if match
+     */
+    public boolean isMatch(Instance inst) {
+      double	value;
+
+      value = SparseAccess.value(inst, m_Index);
+      if (Utils.isMissingValue(value))
+	return isMatch(inst.stringValue(m_Index));
+      if (m_Labels != null)
+	return m_Labels[(int) value];
+      return isMatch(inst.attribute(m_Index).value((int) value));
+    }
   }
 }
@@ -27,6 +27,11 @@ import weka.core.Instances;
 import weka.core.Option;
 import weka.core.OptionHandler;
 import weka.core.Utils;
+import weka.core.weights.PlanCache;
+import weka.core.weights.WeightsEvents;
+import weka.core.weights.WeightsMetrics;
+import weka.core.weights.WeightsMetrics.Phase;
+import weka.core.weights.WeightsMetricsHandler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
@@ -37,17 +42,36 @@ import java.util.Vector;
 
 /**
  * Ancestor for instance weights modifiers.
+ * <br><br>
+ * The configuration gets compiled into an immutable {@link InstanceWeightsPlan}
+ * for each dataset structure, which is cached. The setup of the plan is
+ * therefore only performed once and the same modifier can be used by
+ * multiple threads concurrently within one filter run.
+ * <br><br>
+ * This only covers the plans: state that carries over from one batch to the
+ * next (the row offset of {@link Bootstrap} and {@link BootstrapReplicates},
+ * the first batch of {@link BalanceClasses}) and the metrics set via
+ * {@link #setWeightsMetrics(WeightsMetrics)} belong to a single filter run.
+ * Filters that run concurrently must therefore each use their own copy of
+ * the modifier.
  *
  * @author FracPete (fracpete at waikato dot ac dot nz)
  */
 public abstract class AbstractInstanceWeightsModifier
-  implements Serializable, OptionHandler, InstanceWeightsModifier, CapabilitiesHandler {
+  implements Serializable, OptionHandler, InstanceWeightsModifier, CapabilitiesHandler,
+             WeightsMetricsHandler {
 
   private static final long serialVersionUID = -7927301115335139138L;
 
   /** Whether capabilities should not be checked before classifier is built. */
   protected boolean m_DoNotCheckCapabilities = false;
 
+  /** the compiled plans. */
+  protected transient PlanCache<InstanceWeightsPlan> m_Plans;
+
+  /** the metrics to record to (null if off). */
+  protected transient volatile WeightsMetrics m_Metrics;
+
   /**
    * Returns a string describing this scheme.
    *
@@ -129,6 +153,24 @@ public abstract class AbstractInstanceWeightsModifier
     return "If set, modifier capabilities are not checked (use with caution to reduce runtime).";
   }
 
+  /**
+   * Sets the metrics to record to.
+   *
+   * @param value	the metrics, null to turn off
+   */
+  public void setWeightsMetrics(WeightsMetrics value) {
+    m_Metrics = value;
+  }
+
+  /**
+   * Returns the metrics currently recorded to.
+   *
+   * @return		the metrics, null if off
+   */
+  public WeightsMetrics getWeightsMetrics() {
+    return m_Metrics;
+  }
+
   /**
    * Returns the Capabilities of this filter. Derived filters have to override
    * this method to enable capabilities.
@@ -209,24 +251,125 @@ public abstract class AbstractInstanceWeightsModifier
     }
   }
 
+  /**
+   * Returns the key that identifies the plan, in addition to the structure of
+   * the data. Must cover everything the plan depends on.
+   * <br><br>
+   * Default implementation returns the options.
+   *
+   * @param data	the data to generate the key for
+   * @return		the key
+   */
+  protected String getPlanKey(Instances data) {
+    return Utils.joinOptions(getOptions());
+  }
+
+  /**
+   * Returns the size in bytes of the external source that the plan gets
+   * loaded from, e.g., a weights file.
+   * <br><br>
+   * Default implementation returns 0.
+   *
+   * @return		the size, 0 if none
+   */
+  protected long getSourceSize() {
+    return 0;
+  }
+
+  /**
+   * Compiles the plan for the data, resolving indices, patterns, etc.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if compilation fails, e.g., invalid configuration
+   */
+  protected abstract InstanceWeightsPlan compilePlan(Instances data) throws Exception;
+
+  /**
+   * Returns the plan for the data, compiles it if not yet cached.
+   *
+   * @param data	the data to get the plan for
+   * @return		the plan
+   * @throws Exception	if compilation fails
+   */
+  public InstanceWeightsPlan getPlan(Instances data) throws Exception {
+    InstanceWeightsPlan		result;
+    PlanCache<InstanceWeightsPlan>	plans;
+    WeightsMetrics			metrics;
+    long				start;
+    Object				event;
+    long				bytes;
+    String			key;
+
+    plans = m_Plans;
+    if (plans == null) {
+      plans   = new PlanCache<InstanceWeightsPlan>();
+      m_Plans = plans;
+    }
+    key     = getPlanKey(data);
+    result  = plans.get(data, key);
+    metrics = m_Metrics;
+    if (metrics != null)
+      metrics.recordCacheLookup(result != null);
+    if (result == null) {
+      start  = System.nanoTime();
+      event  = WeightsEvents.begin(Phase.LOAD);
+      result = compilePlan(data);
+      plans.put(data, key, result);
+      bytes  = getSourceSize();
+      WeightsEvents.end(event, this, data, bytes);
+      if (metrics != null) {
+	metrics.recordTime(Phase.LOAD, System.nanoTime() - start);
+	metrics.recordBytesRead(bytes);
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Performs the actual modification of the instance weights.
+   * <br><br>
+   * Default implementation applies the plan.
    *
    * @param data        the data to process
    * @return		the modified data
    * @throws Exception	if modifying fails
    */
-  protected abstract Instances doModify(Instances data) throws Exception;
+  protected Instances doModify(Instances data) throws Exception {
+    return getPlan(data).apply(data);
+  }
 
   /**
-   * Modifies the instance weights.
+   * Modifies the instance weights. Records the time spent checking and
+   * modifying (including compiling of plans) if metrics are set and emits
+   * the corresponding events.
    *
    * @param data        the data to process
    * @return		the modified data
    * @throws Exception	if modifying fails
    */
   public Instances modifyInstanceWeights(Instances data) throws Exception {
+    WeightsMetrics	metrics;
+    Instances		result;
+    Object		event;
+    long		start;
+
+    metrics = m_Metrics;
+    start   = System.nanoTime();
+    event   = WeightsEvents.begin(Phase.CHECK);
     check(data);
-    return doModify(data);
+    WeightsEvents.end(event, this, data, 0);
+    if (metrics != null)
+      metrics.recordTime(Phase.CHECK, System.nanoTime() - start);
+
+    start  = System.nanoTime();
+    event  = WeightsEvents.begin(Phase.MODIFY);
+    result = doModify(data);
+    WeightsEvents.end(event, this, data, 0);
+    if (metrics != null)
+      metrics.recordTime(Phase.MODIFY, System.nanoTime() - start);
+
+    return result;
   }
 }
@@ -0,0 +1,67 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractInstanceWeightsPlan.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Ancestor for plans that determine the new weight of each row
+ * independently, keeping the structure of the data.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractInstanceWeightsPlan
+  implements InstanceWeightsPlan {
+
+  /**
+   * Returns the new weight for the row.
+   *
+   * @param inst	the row
+   * @param index	the 0-based index of the row
+   * @return		the new weight
+   * @throws Exception	if determining the weight fails
+   */
+  protected abstract double weight(Instance inst, int index) throws Exception;
+
+  /**
+   * Applies the plan to the data.
+   *
+   * @param data        the data to process
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  public Instances apply(Instances data) throws Exception {
+    Instances	result;
+    int		i;
+    double	weight;
+
+    result = new Instances(data, data.numInstances());
+    for (i = 0; i < data.numInstances(); i++) {
+      weight = weight(data.instance(i), i);
+      // add() already copies the row (shallow: sparse rows stay sparse, sharing index/value arrays)
+      result.add(data.instance(i));
+      result.instance(i).setWeight(weight);
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractParallelInstanceWeightsModifier.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+import weka.core.weights.Parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ * Ancestor for modifiers that can process the rows with multiple threads.
+ * The results must not depend on the number of threads.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ * @see Parallel
+ */
+public abstract class AbstractParallelInstanceWeightsModifier
+  extends AbstractInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 1848520316720462553L;
+
+  /** the number of threads to use. */
+  protected int m_NumThreads = 1;
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe number of threads to use.\n"
+	  + "\t(default: 1 - i.e. no parallelism)\n"
+	  + "\t(use 0 to auto-detect number of cores)",
+	"num-threads", 1, "-num-threads <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String	tmpStr;
+
+    tmpStr = Utils.getOption("num-threads", options);
+    if (tmpStr.length() != 0)
+      setNumThreads(Integer.parseInt(tmpStr));
+    else
+      setNumThreads(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-num-threads");
+    result.add("" + getNumThreads());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the number of threads to use.
+   *
+   * @param value the number of threads, 0 for number of cores
+   */
+  public void setNumThreads(int value) {
+    m_NumThreads = value;
+  }
+
+  /**
+   * Gets the number of threads to use.
+   *
+   * @return the number of threads, 0 for number of cores
+   */
+  public int getNumThreads() {
+    return m_NumThreads;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numThreadsTipText() {
+    return "The number of threads to use; 1 means no parallelism, 0 to auto-detect the number of cores.";
+  }
+
+  /**
+   * Copies the rows of the data and applies the weights (shallow copies,
+   * sparse rows stay sparse). Instances.add() is not thread-safe, hence the
+   * weights should be computed in parallel beforehand.
+   *
+   * @param data	the data to copy
+   * @param weights	the new weight per row
+   * @return		the copy with the new weights
+   */
+  public static Instances applyWeights(Instances data, double[] weights) {
+    Instances	result;
+    int		i;
+
+    result = new Instances(data, data.numInstances());
+    for (i = 0; i < data.numInstances(); i++) {
+      result.add(data.instance(i));
+      result.instance(i).setWeight(weights[i]);
+    }
+
+    return result;
+  }
+}
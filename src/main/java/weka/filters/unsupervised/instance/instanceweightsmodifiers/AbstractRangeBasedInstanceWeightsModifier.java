@@ -24,6 +24,7 @@ import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Range;
 import weka.core.Utils;
+import weka.core.weights.Intervals;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -133,15 +134,24 @@ public abstract class AbstractRangeBasedInstanceWeightsModifier
   }
 
   /**
-   * Hook method for performing checks before modifying the weights.
+   * Returns the key that identifies the plan, in addition to the structure of
+   * the data. Adds the number of rows, as the range gets resolved against it.
    *
-   * @param data	the data to check
-   * @throws Exception	if check fails
+   * @param data	the data to generate the key for
+   * @return		the key
    */
   @Override
-  protected void check(Instances data) throws Exception {
-    super.check(data);
+  protected String getPlanKey(Instances data) {
+    return super.getPlanKey(data) + " #rows=" + data.numInstances();
+  }
 
-    m_RowIndices.setUpper(data.numInstances() - 1);
+  /**
+   * Resolves the row range against the data.
+   *
+   * @param data	the data to resolve the range for
+   * @return		the intervals of 0-based row indices
+   */
+  protected Intervals resolveRowIndices(Instances data) {
+    return Intervals.parse(getRowIndices(), data.numInstances() - 1);
   }
 }
@@ -0,0 +1,525 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BalanceClasses.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Capabilities;
+import weka.core.Capabilities.Capability;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.weights.Parallel;
+import weka.core.weights.SparseAccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Balances the classes of a nominal class attribute by assigning each row a weight based on the frequency of its class label, either inverse frequency or the inverse of the effective number of samples ((1-beta^n)/(1-beta)). The weights are scaled to sum up to the number of rows with a class label. Rows with a missing class keep their weight.<br>
+ * The frequencies are determined in a single counting pass, optionally only on the first batch and re-used for subsequent ones; rows with a class label that did not occur in the first batch keep their weight.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -scheme &lt;inverse-frequency|effective-number&gt;
+ *  The weighting scheme to use.
+ *  (default: inverse-frequency)</pre>
+ *
+ * <pre> -beta &lt;num&gt;
+ *  The beta for the effective number of samples (0-1, excl).
+ *  (default: 0.999)</pre>
+ *
+ * <pre> -use-first-batch
+ *  If set, the class frequencies of the first batch are re-used
+ *  for subsequent batches.</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BalanceClasses
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 2217396040911707462L;
+
+  /** inverse frequency. */
+  public static final int SCHEME_INVERSE_FREQUENCY = 0;
+
+  /** effective number of samples. */
+  public static final int SCHEME_EFFECTIVE_NUMBER = 1;
+
+  /** the weighting schemes. */
+  public static final Tag[] TAGS_SCHEME = {
+    new Tag(SCHEME_INVERSE_FREQUENCY, "inverse-frequency", "Inverse frequency", false),
+    new Tag(SCHEME_EFFECTIVE_NUMBER, "effective-number", "Effective number of samples", false),
+  };
+
+  /** the weighting scheme. */
+  protected int m_Scheme = SCHEME_INVERSE_FREQUENCY;
+
+  /** the beta for the effective number of samples. */
+  protected double m_Beta = 0.999;
+
+  /** whether to re-use the frequencies of the first batch. */
+  protected boolean m_UseFirstBatch = false;
+
+  /** the class weights determined on the first batch (state of the current filter run). */
+  protected transient volatile double[] m_FirstBatchWeights;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Balances the classes of a nominal class attribute by assigning "
+      + "each row a weight based on the frequency of its class label, either "
+      + "inverse frequency or the inverse of the effective number of samples "
+      + "((1-beta^n)/(1-beta)). The weights are scaled to sum up to the number "
+      + "of rows with a class label. Rows with a missing class keep their weight.\n"
+      + "The frequencies are determined in a single counting pass, optionally "
+      + "only on the first batch and re-used for subsequent ones; rows with a "
+      + "class label that did not occur in the first batch keep their weight.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe weighting scheme to use.\n"
+	  + "\t(default: inverse-frequency)",
+	"scheme", 1, "-scheme <inverse-frequency|effective-number>"));
+
+    result.addElement(
+      new Option(
+	"\tThe beta for the effective number of samples (0-1, excl).\n"
+	  + "\t(default: 0.999)",
+	"beta", 1, "-beta <num>"));
+
+    result.addElement(
+      new Option(
+	"\tIf set, the class frequencies of the first batch are re-used\n"
+	  + "\tfor subsequent batches.",
+	"use-first-batch", 0, "-use-first-batch"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("scheme", options);
+    if (tmpStr.length() != 0)
+      setScheme(new SelectedTag(tmpStr, TAGS_SCHEME));
+    else
+      setScheme(new SelectedTag(SCHEME_INVERSE_FREQUENCY, TAGS_SCHEME));
+
+    tmpStr = Utils.getOption("beta", options);
+    if (tmpStr.length() != 0)
+      setBeta(Double.parseDouble(tmpStr));
+    else
+      setBeta(0.999);
+
+    setUseFirstBatch(Utils.getFlag("use-first-batch", options));
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-scheme");
+    result.add(getScheme().getSelectedTag().getIDStr());
+
+    result.add("-beta");
+    result.add("" + getBeta());
+
+    if (getUseFirstBatch())
+      result.add("-use-first-batch");
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the weighting scheme.
+   *
+   * @param value the scheme
+   */
+  public void setScheme(SelectedTag value) {
+    if (value.getTags() == TAGS_SCHEME)
+      m_Scheme = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the weighting scheme.
+   *
+   * @return the scheme
+   */
+  public SelectedTag getScheme() {
+    return new SelectedTag(m_Scheme, TAGS_SCHEME);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String schemeTipText() {
+    return "The weighting scheme: inverse frequency or inverse of the effective number of samples.";
+  }
+
+  /**
+   * Sets the beta for the effective number of samples.
+   *
+   * @param value the beta (0-1, excl)
+   */
+  public void setBeta(double value) {
+    if ((value <= 0) || (value >= 1))
+      throw new IllegalArgumentException("Beta must be between 0 and 1 (both excl): " + value);
+    m_Beta = value;
+  }
+
+  /**
+   * Gets the beta for the effective number of samples.
+   *
+   * @return the beta
+   */
+  public double getBeta() {
+    return m_Beta;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String betaTipText() {
+    return "The beta for the effective number of samples (0-1, excl); the closer to 1, "
+      + "the closer to inverse frequency.";
+  }
+
+  /**
+   * Sets whether to re-use the class frequencies of the first batch.
+   *
+   * @param value true if to re-use
+   */
+  public void setUseFirstBatch(boolean value) {
+    m_UseFirstBatch     = value;
+    m_FirstBatchWeights = null;
+  }
+
+  /**
+   * Gets whether to re-use the class frequencies of the first batch.
+   *
+   * @return true if to re-use
+   */
+  public boolean getUseFirstBatch() {
+    return m_UseFirstBatch;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String useFirstBatchTipText() {
+    return "If enabled, the class frequencies determined on the first batch are "
+      + "re-used for subsequent batches; rows with a class label that did not "
+      + "occur in the first batch keep their weight.";
+  }
+
+  /**
+   * Returns the Capabilities of this modifier.
+   *
+   * @return the capabilities of this object
+   */
+  @Override
+  public Capabilities getCapabilities() {
+    Capabilities result;
+
+    result = super.getCapabilities();
+    result.disableAllClasses();
+    result.disableAllClassDependencies();
+    result.enable(Capability.NOMINAL_CLASS);
+    result.enable(Capability.MISSING_CLASS_VALUES);
+
+    return result;
+  }
+
+  /**
+   * Returns the new output format. Starts a new "first batch".
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    m_FirstBatchWeights = null;
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if no nominal class attribute
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    if (data.classIndex() == -1)
+      throw new IllegalArgumentException("No class attribute set!");
+    if (!data.classAttribute().isNominal())
+      throw new IllegalArgumentException("Class attribute is not nominal: " + data.classAttribute().name());
+
+    return new Plan(data.classIndex(), data.numClasses(), m_Scheme, m_Beta, m_NumThreads);
+  }
+
+  /**
+   * Performs the actual modification of the instance weights, re-using the
+   * class weights of the first batch if requested.
+   *
+   * @param data        the data to process
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  @Override
+  protected Instances doModify(Instances data) throws Exception {
+    Plan	plan;
+    double[]	weights;
+
+    plan = (Plan) getPlan(data);
+    if (!m_UseFirstBatch)
+      return plan.apply(data);
+
+    weights = m_FirstBatchWeights;
+    if ((weights == null) || (weights.length != plan.getNumClasses())) {
+      weights             = plan.classWeights(plan.countClasses(data));
+      m_FirstBatchWeights = weights;
+    }
+
+    return plan.apply(data, weights);
+  }
+
+  /**
+   * Counts the class labels and assigns the class weights.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the class index. */
+    protected final int m_ClassIndex;
+
+    /** the number of class labels. */
+    protected final int m_NumClasses;
+
+    /** the weighting scheme. */
+    protected final int m_Scheme;
+
+    /** the beta for the effective number of samples. */
+    protected final double m_Beta;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param classIndex	the class index
+     * @param numClasses	the number of class labels
+     * @param scheme		the weighting scheme
+     * @param beta		the beta for the effective number of samples
+     * @param numThreads	the number of threads
+     */
+    public Plan(int classIndex, int numClasses, int scheme, double beta, int numThreads) {
+      m_ClassIndex = classIndex;
+      m_NumClasses = numClasses;
+      m_Scheme     = scheme;
+      m_Beta       = beta;
+      m_NumThreads = numThreads;
+    }
+
+    /**
+     * Returns the number of class labels.
+     *
+     * @return		the number of labels
+     */
+    public int getNumClasses() {
+      return m_NumClasses;
+    }
+
+    /**
+     * Counts the class labels, in parallel.
+     *
+     * @param data	the data to count
+     * @return		the counts per label
+     * @throws Exception	if counting fails
+     */
+    public long[] countClasses(final Instances data) throws Exception {
+      long[]		result;
+      List<long[]>	partial;
+
+      partial = Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<long[]>() {
+	public long[] process(int chunk, int from, int to) {
+	  long[] counts = new long[m_NumClasses];
+	  for (int i = from; i < to; i++) {
+	    double value = SparseAccess.value(data.instance(i), m_ClassIndex);
+	    if (!Utils.isMissingValue(value))
+	      counts[(int) value]++;
+	  }
+	  return counts;
+	}
+      });
+
+      result = new long[m_NumClasses];
+      for (long[] counts: partial) {
+	for (int i = 0; i < m_NumClasses; i++)
+	  result[i] += counts[i];
+      }
+
+      return result;
+    }
+
+    /**
+     * Turns the class counts into class weights, scaled to sum up to the
+     * number of rows with a class label. Labels without rows get a missing
+     * weight, i.e., rows with such a label keep their weight.
+     *
+     * @param counts	the counts per label
+     * @return		the weight per label, missing for labels without rows
+     */
+    public double[] classWeights(long[] counts) {
+      double[]	result;
+      double	total;
+      double	sum;
+      int	i;
+
+      result = new double[counts.length];
+      total  = 0;
+      sum    = 0;
+      for (i = 0; i < counts.length; i++) {
+	if (counts[i] == 0) {
+	  result[i] = Utils.missingValue();
+	  continue;
+	}
+	if (m_Scheme == SCHEME_EFFECTIVE_NUMBER)
+	  result[i] = (1.0 - m_Beta) / (1.0 - Math.pow(m_Beta, counts[i]));
+	else
+	  result[i] = 1.0 / counts[i];
+	total += counts[i];
+	sum   += counts[i] * result[i];
+      }
+      if (sum > 0) {
+	for (i = 0; i < result.length; i++)
+	  result[i] *= total / sum;
+      }
+
+      return result;
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(Instances data) throws Exception {
+      return apply(data, classWeights(countClasses(data)));
+    }
+
+    /**
+     * Applies the class weights to the data, determining the row weights in
+     * parallel. Rows with a missing class or a label with a missing class
+     * weight keep their weight.
+     *
+     * @param data		the data to process
+     * @param classWeights	the weight per class label
+     * @return			the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data, final double[] classWeights) throws Exception {
+      final double[]	weights;
+
+      weights = new double[data.numInstances()];
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++) {
+	    double value = SparseAccess.value(data.instance(i), m_ClassIndex);
+	    if (Utils.isMissingValue(value) || ((int) value >= classWeights.length) || Utils.isMissingValue(classWeights[(int) value]))
+	      weights[i] = data.instance(i).weight();
+	    else
+	      weights[i] = classWeights[(int) value];
+	  }
+	  return null;
+	}
+      });
+
+      return applyWeights(data, weights);
+    }
+  }
+}
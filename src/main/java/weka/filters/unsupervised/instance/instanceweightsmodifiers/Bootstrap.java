@@ -0,0 +1,363 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Bootstrap.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.weights.CounterRandom;
+import weka.core.weights.Parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ <!-- globalinfo-start -->
+ * Expresses bootstrap resampling as instance weights rather than duplicated rows: the weight of each row gets multiplied with a Poisson(1) distributed count or, for the Bayesian bootstrap, an Exp(1) distributed value (scaled so that these values sum up to the number of rows).<br>
+ * The random value of a row only depends on the seed and the row index (counter-based generator), i.e., the weights are identical regardless of the number of threads. The row index keeps counting across batches, so subsequent batches get fresh draws; it gets reset when the output format gets determined.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -scheme &lt;poisson|bayesian&gt;
+ *  The resampling scheme.
+ *  (default: poisson)</pre>
+ *
+ * <pre> -seed &lt;num&gt;
+ *  The seed for the random numbers.
+ *  (default: 1)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Bootstrap
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = -1737018633329553620L;
+
+  /** Poisson(1) counts. */
+  public static final int SCHEME_POISSON = 0;
+
+  /** Bayesian bootstrap. */
+  public static final int SCHEME_BAYESIAN = 1;
+
+  /** the resampling schemes. */
+  public static final Tag[] TAGS_SCHEME = {
+    new Tag(SCHEME_POISSON, "poisson", "Poisson(1) counts", false),
+    new Tag(SCHEME_BAYESIAN, "bayesian", "Bayesian bootstrap (Exp(1))", false),
+  };
+
+  /** the resampling scheme. */
+  protected int m_Scheme = SCHEME_POISSON;
+
+  /** the seed. */
+  protected long m_Seed = 1;
+
+  /** the number of rows processed since the output format got determined (state of the current filter run). */
+  protected AtomicLong m_RowOffset = new AtomicLong();
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Expresses bootstrap resampling as instance weights rather than "
+      + "duplicated rows: the weight of each row gets multiplied with a "
+      + "Poisson(1) distributed count or, for the Bayesian bootstrap, an "
+      + "Exp(1) distributed value (scaled so that these values sum up to the "
+      + "number of rows).\n"
+      + "The random value of a row only depends on the seed and the row index "
+      + "(counter-based generator), i.e., the weights are identical regardless "
+      + "of the number of threads. The row index keeps counting across batches, "
+      + "so subsequent batches get fresh draws; it gets reset when the output "
+      + "format gets determined.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe resampling scheme.\n"
+	  + "\t(default: poisson)",
+	"scheme", 1, "-scheme <poisson|bayesian>"));
+
+    result.addElement(
+      new Option(
+	"\tThe seed for the random numbers.\n"
+	  + "\t(default: 1)",
+	"seed", 1, "-seed <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("scheme", options);
+    if (tmpStr.length() != 0)
+      setScheme(new SelectedTag(tmpStr, TAGS_SCHEME));
+    else
+      setScheme(new SelectedTag(SCHEME_POISSON, TAGS_SCHEME));
+
+    tmpStr = Utils.getOption("seed", options);
+    if (tmpStr.length() != 0)
+      setSeed(Long.parseLong(tmpStr));
+    else
+      setSeed(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-scheme");
+    result.add(getScheme().getSelectedTag().getIDStr());
+
+    result.add("-seed");
+    result.add("" + getSeed());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the resampling scheme.
+   *
+   * @param value the scheme
+   */
+  public void setScheme(SelectedTag value) {
+    if (value.getTags() == TAGS_SCHEME)
+      m_Scheme = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the resampling scheme.
+   *
+   * @return the scheme
+   */
+  public SelectedTag getScheme() {
+    return new SelectedTag(m_Scheme, TAGS_SCHEME);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String schemeTipText() {
+    return "The resampling scheme: Poisson(1) counts or Bayesian bootstrap (Exp(1)).";
+  }
+
+  /**
+   * Sets the seed for the random numbers.
+   *
+   * @param value the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Gets the seed for the random numbers.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for the random numbers.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    m_RowOffset.set(0);
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	never
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(m_Scheme, m_Seed, m_NumThreads);
+  }
+
+  /**
+   * Applies the plan, continuing the row index of the previous batches.
+   *
+   * @param data        the data to process
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  @Override
+  protected Instances doModify(Instances data) throws Exception {
+    return ((Plan) getPlan(data)).apply(data, m_RowOffset.getAndAdd(data.numInstances()));
+  }
+
+  /**
+   * Multiplies the weights with the random draws.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the resampling scheme. */
+    protected final int m_Scheme;
+
+    /** the generator. */
+    protected final CounterRandom m_Random;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param scheme		the resampling scheme
+     * @param seed		the seed
+     * @param numThreads	the number of threads
+     */
+    public Plan(int scheme, long seed, int numThreads) {
+      m_Scheme     = scheme;
+      m_Random     = new CounterRandom(seed);
+      m_NumThreads = numThreads;
+    }
+
+    /**
+     * Applies the plan to the data, starting with row index 0.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(Instances data) throws Exception {
+      return apply(data, 0);
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @param offset	the index of the first row (rows of previous batches)
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data, final long offset) throws Exception {
+      final double[]	weights;
+      final double	scale;
+      double		sum;
+      int		i;
+
+      weights = new double[data.numInstances()];
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++) {
+	    if (m_Scheme == SCHEME_BAYESIAN)
+	      weights[i] = m_Random.nextExponential(offset + i);
+	    else
+	      weights[i] = data.instance(i).weight() * m_Random.nextPoisson(offset + i);
+	  }
+	  return null;
+	}
+      });
+
+      if (m_Scheme == SCHEME_BAYESIAN) {
+	// summing in row order, independent of the chunks
+	sum = 0;
+	for (i = 0; i < weights.length; i++)
+	  sum += weights[i];
+	scale = (sum > 0) ? weights.length / sum : 0;
+	Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	  public Object process(int chunk, int from, int to) {
+	    for (int i = from; i < to; i++)
+	      weights[i] = data.instance(i).weight() * weights[i] * scale;
+	    return null;
+	  }
+	});
+      }
+
+      return applyWeights(data, weights);
+    }
+  }
+}
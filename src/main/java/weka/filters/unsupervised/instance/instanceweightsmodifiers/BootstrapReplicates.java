@@ -0,0 +1,585 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BootstrapReplicates.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+import weka.core.weights.CounterRandom;
+import weka.core.weights.Parallel;
+import weka.core.weights.SparseAccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ <!-- globalinfo-start -->
+ * Generates R bootstrap replicate weights per row in a single pass and appends them as R numeric attributes (eg for variance estimation). The instance weights themselves are left untouched. Each replicate is the instance weight multiplied with a Poisson(1) count or, for the Bayesian bootstrap, an Exp(1) draw (scaled so that the draws of a replicate sum up to the number of rows).<br>
+ * Each replicate uses its own counter-based random stream, i.e., the values only depend on seed, replicate and row index and are identical regardless of the number of threads.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -num-replicates &lt;num&gt;
+ *  The number of replicates to generate.
+ *  (default: 10)</pre>
+ *
+ * <pre> -prefix &lt;string&gt;
+ *  The prefix for the names of the replicate attributes.
+ *  (default: replicate-)</pre>
+ *
+ * <pre> -scheme &lt;poisson|bayesian&gt;
+ *  The resampling scheme.
+ *  (default: poisson)</pre>
+ *
+ * <pre> -seed &lt;num&gt;
+ *  The seed for the random numbers.
+ *  (default: 1)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ * @see Bootstrap
+ */
+public class BootstrapReplicates
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 3956606185727713264L;
+
+  /** the number of replicates. */
+  protected int m_NumReplicates = 10;
+
+  /** the prefix for the attribute names. */
+  protected String m_Prefix = "replicate-";
+
+  /** the resampling scheme. */
+  protected int m_Scheme = Bootstrap.SCHEME_POISSON;
+
+  /** the seed. */
+  protected long m_Seed = 1;
+
+  /** the number of rows processed since the output format got determined (state of the current filter run). */
+  protected AtomicLong m_RowOffset = new AtomicLong();
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Generates R bootstrap replicate weights per row in a single pass "
+      + "and appends them as R numeric attributes (eg for variance estimation). "
+      + "The instance weights themselves are left untouched. Each replicate is "
+      + "the instance weight multiplied with a Poisson(1) count or, for the "
+      + "Bayesian bootstrap, an Exp(1) draw (scaled so that the draws of a "
+      + "replicate sum up to the number of rows).\n"
+      + "Each replicate uses its own counter-based random stream, i.e., the "
+      + "values only depend on seed, replicate and row index and are identical "
+      + "regardless of the number of threads. The row index keeps counting "
+      + "across batches, so subsequent batches get fresh draws; it gets reset "
+      + "when the output format gets determined.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe number of replicates to generate.\n"
+	  + "\t(default: 10)",
+	"num-replicates", 1, "-num-replicates <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe prefix for the names of the replicate attributes.\n"
+	  + "\t(default: replicate-)",
+	"prefix", 1, "-prefix <string>"));
+
+    result.addElement(
+      new Option(
+	"\tThe resampling scheme.\n"
+	  + "\t(default: poisson)",
+	"scheme", 1, "-scheme <poisson|bayesian>"));
+
+    result.addElement(
+      new Option(
+	"\tThe seed for the random numbers.\n"
+	  + "\t(default: 1)",
+	"seed", 1, "-seed <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("num-replicates", options);
+    if (tmpStr.length() != 0)
+      setNumReplicates(Integer.parseInt(tmpStr));
+    else
+      setNumReplicates(10);
+
+    tmpStr = Utils.getOption("prefix", options);
+    if (tmpStr.length() != 0)
+      setPrefix(tmpStr);
+    else
+      setPrefix("replicate-");
+
+    tmpStr = Utils.getOption("scheme", options);
+    if (tmpStr.length() != 0)
+      setScheme(new SelectedTag(tmpStr, Bootstrap.TAGS_SCHEME));
+    else
+      setScheme(new SelectedTag(Bootstrap.SCHEME_POISSON, Bootstrap.TAGS_SCHEME));
+
+    tmpStr = Utils.getOption("seed", options);
+    if (tmpStr.length() != 0)
+      setSeed(Long.parseLong(tmpStr));
+    else
+      setSeed(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-num-replicates");
+    result.add("" + getNumReplicates());
+
+    result.add("-prefix");
+    result.add(getPrefix());
+
+    result.add("-scheme");
+    result.add(getScheme().getSelectedTag().getIDStr());
+
+    result.add("-seed");
+    result.add("" + getSeed());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the number of replicates.
+   *
+   * @param value the number of replicates (at least 1)
+   */
+  public void setNumReplicates(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Number of replicates must be at least 1: " + value);
+    m_NumReplicates = value;
+  }
+
+  /**
+   * Gets the number of replicates.
+   *
+   * @return the number of replicates
+   */
+  public int getNumReplicates() {
+    return m_NumReplicates;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numReplicatesTipText() {
+    return "The number of replicate weights (attributes) to generate.";
+  }
+
+  /**
+   * Sets the prefix for the attribute names.
+   *
+   * @param value the prefix
+   */
+  public void setPrefix(String value) {
+    m_Prefix = value;
+  }
+
+  /**
+   * Gets the prefix for the attribute names.
+   *
+   * @return the prefix
+   */
+  public String getPrefix() {
+    return m_Prefix;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String prefixTipText() {
+    return "The prefix for the names of the replicate attributes, followed by the 1-based replicate.";
+  }
+
+  /**
+   * Sets the resampling scheme.
+   *
+   * @param value the scheme
+   */
+  public void setScheme(SelectedTag value) {
+    if (value.getTags() == Bootstrap.TAGS_SCHEME)
+      m_Scheme = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the resampling scheme.
+   *
+   * @return the scheme
+   */
+  public SelectedTag getScheme() {
+    return new SelectedTag(m_Scheme, Bootstrap.TAGS_SCHEME);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String schemeTipText() {
+    return "The resampling scheme: Poisson(1) counts or Bayesian bootstrap (Exp(1)).";
+  }
+
+  /**
+   * Sets the seed for the random numbers.
+   *
+   * @param value the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Gets the seed for the random numbers.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for the random numbers.";
+  }
+
+  /**
+   * Returns the new output format: the input format with the replicate
+   * attributes appended. Resets the row index.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    m_RowOffset.set(0);
+    return outputFormat(inputFormat, m_NumReplicates, m_Prefix);
+  }
+
+  /**
+   * Appends the replicate attributes to the format.
+   *
+   * @param inputFormat	the input format
+   * @param numReplicates	the number of replicates
+   * @param prefix	the prefix for the attribute names
+   * @return		the output format, without rows
+   */
+  protected static Instances outputFormat(Instances inputFormat, int numReplicates, String prefix) {
+    Instances	result;
+    int		i;
+
+    result = new Instances(inputFormat, 0);
+    for (i = 1; i <= numReplicates; i++) {
+      if (inputFormat.attribute(prefix + i) != null)
+	throw new IllegalArgumentException("Attribute already present: " + prefix + i);
+      result.insertAttributeAt(new Attribute(prefix + i), result.numAttributes());
+    }
+
+    return result;
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	never
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(m_NumReplicates, m_Prefix, m_Scheme, m_Seed, m_NumThreads);
+  }
+
+  /**
+   * Applies the plan, continuing the row index of the previous batches.
+   *
+   * @param data        the data to process
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  @Override
+  protected Instances doModify(Instances data) throws Exception {
+    return ((Plan) getPlan(data)).apply(data, m_RowOffset.getAndAdd(data.numInstances()));
+  }
+
+  /**
+   * Appends the replicate weights to the rows.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the number of rows per block for the Bayesian sums. */
+    public static final int BLOCK_SIZE = 4096;
+
+    /** the number of replicates. */
+    protected final int m_NumReplicates;
+
+    /** the prefix for the attribute names. */
+    protected final String m_Prefix;
+
+    /** the resampling scheme. */
+    protected final int m_Scheme;
+
+    /** the keys of the random streams, one per replicate. */
+    protected final long[] m_Keys;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param numReplicates	the number of replicates
+     * @param prefix		the prefix for the attribute names
+     * @param scheme		the resampling scheme
+     * @param seed		the seed
+     * @param numThreads	the number of threads
+     */
+    public Plan(int numReplicates, String prefix, int scheme, long seed, int numThreads) {
+      CounterRandom	random;
+      int		i;
+
+      m_NumReplicates = numReplicates;
+      m_Prefix        = prefix;
+      m_Scheme        = scheme;
+      m_NumThreads    = numThreads;
+      m_Keys          = new long[numReplicates];
+      random          = new CounterRandom(seed);
+      for (i = 0; i < numReplicates; i++)
+	m_Keys[i] = random.split(i).getKey();
+    }
+
+    /**
+     * Draws the replicate values for the row: uniform numbers first (tight
+     * loop over the keys), then transformed.
+     *
+     * @param row	the row index (incl rows of previous batches)
+     * @param weight	the instance weight (Poisson only)
+     * @param values	the array to store the values in
+     * @param offset	the offset in the array
+     */
+    protected void draw(long row, double weight, double[] values, int offset) {
+      int	r;
+
+      for (r = 0; r < m_NumReplicates; r++)
+	values[offset + r] = CounterRandom.nextDouble(m_Keys[r], row);
+      if (m_Scheme == Bootstrap.SCHEME_BAYESIAN) {
+	for (r = 0; r < m_NumReplicates; r++)
+	  values[offset + r] = CounterRandom.exponential(values[offset + r]);
+      }
+      else {
+	for (r = 0; r < m_NumReplicates; r++)
+	  values[offset + r] = weight * CounterRandom.poisson(values[offset + r]);
+      }
+    }
+
+    /**
+     * Applies the plan to the data, starting with row index 0.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(Instances data) throws Exception {
+      return apply(data, 0);
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @param rowOffset	the index of the first row (rows of previous batches)
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data, final long rowOffset) throws Exception {
+      Instances		result;
+      final int		numRows;
+      final int		numAtts;
+      final double[][]	values;
+      final int[][]	indices;
+      final double[][]	blockSums;
+      final double[]	scales;
+      int		numBlocks;
+      int		i;
+      int		r;
+
+      numRows   = data.numInstances();
+      numAtts   = data.numAttributes();
+      numBlocks = (numRows + BLOCK_SIZE - 1) / BLOCK_SIZE;
+      values    = new double[numRows][];
+      indices   = new int[numRows][];
+      blockSums = (m_Scheme == Bootstrap.SCHEME_BAYESIAN) ? new double[numBlocks][] : null;
+
+      // values of the rows, with the replicates appended
+      Parallel.forEachChunk(numBlocks, m_NumThreads, 1, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int b = from; b < to; b++) {
+	    int end = Math.min(numRows, (b + 1) * BLOCK_SIZE);
+	    for (int i = b * BLOCK_SIZE; i < end; i++) {
+	      Instance inst = data.instance(i);
+	      int offset;
+	      if (SparseAccess.isSparse(inst)) {
+		offset     = inst.numValues();
+		values[i]  = new double[offset + m_NumReplicates];
+		indices[i] = new int[offset + m_NumReplicates];
+		for (int n = 0; n < offset; n++) {
+		  values[i][n]  = inst.valueSparse(n);
+		  indices[i][n] = inst.index(n);
+		}
+		for (int r = 0; r < m_NumReplicates; r++)
+		  indices[i][offset + r] = numAtts + r;
+	      }
+	      else {
+		offset    = numAtts;
+		values[i] = new double[numAtts + m_NumReplicates];
+		for (int n = 0; n < numAtts; n++)
+		  values[i][n] = inst.value(n);
+	      }
+	      draw(rowOffset + i, inst.weight(), values[i], offset);
+	    }
+	    // sums per block, combined in block order below
+	    if (blockSums != null) {
+	      blockSums[b] = new double[m_NumReplicates];
+	      for (int i = b * BLOCK_SIZE; i < end; i++) {
+		int offset = values[i].length - m_NumReplicates;
+		for (int r = 0; r < m_NumReplicates; r++)
+		  blockSums[b][r] += values[i][offset + r];
+	      }
+	    }
+	  }
+	  return null;
+	}
+      });
+
+      // Bayesian: scale the draws of each replicate to sum up to the number of rows
+      if (blockSums != null) {
+	scales = new double[m_NumReplicates];
+	for (i = 0; i < numBlocks; i++) {
+	  for (r = 0; r < m_NumReplicates; r++)
+	    scales[r] += blockSums[i][r];
+	}
+	for (r = 0; r < m_NumReplicates; r++)
+	  scales[r] = (scales[r] > 0) ? numRows / scales[r] : 0;
+	Parallel.forEachChunk(numRows, m_NumThreads, new Parallel.ChunkTask<Object>() {
+	  public Object process(int chunk, int from, int to) {
+	    for (int i = from; i < to; i++) {
+	      double weight = data.instance(i).weight();
+	      int offset = values[i].length - m_NumReplicates;
+	      for (int r = 0; r < m_NumReplicates; r++)
+		values[i][offset + r] *= weight * scales[r];
+	    }
+	    return null;
+	  }
+	});
+      }
+
+      // Instances.add() is not thread-safe
+      result = outputFormat(data, m_NumReplicates, m_Prefix);
+      result = new Instances(result, numRows);
+      for (i = 0; i < numRows; i++) {
+	if (indices[i] == null)
+	  result.add(new DenseInstance(data.instance(i).weight(), values[i]));
+	else
+	  result.add(new SparseInstance(data.instance(i).weight(), values[i], indices[i], numAtts + m_NumReplicates));
+	values[i]  = null;
+	indices[i] = null;
+      }
+
+      return result;
+    }
+  }
+}
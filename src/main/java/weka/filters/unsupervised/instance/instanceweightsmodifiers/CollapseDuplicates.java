@@ -0,0 +1,233 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CollapseDuplicates.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.weights.Parallel;
+import weka.core.weights.RowHash;
+
+import java.util.Arrays;
+
+/**
+ <!-- globalinfo-start -->
+ * Collapses exact duplicate rows (all attribute values, including the class, dense or sparse) into a single row, which weight is the sum of the weights of the duplicates. The rows are output in order of their first occurrence.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CollapseDuplicates
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 4209263361598201442L;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Collapses exact duplicate rows (all attribute values, including the "
+      + "class, dense or sparse) into a single row, which weight is the sum of "
+      + "the weights of the duplicates. The rows are output in order of their "
+      + "first occurrence.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	never
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(m_NumThreads);
+  }
+
+  /**
+   * Groups the rows by their values and sums up the weights.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param numThreads	the number of threads
+     */
+    public Plan(int numThreads) {
+      m_NumThreads = numThreads;
+    }
+
+    /**
+     * Computes the hashes of all rows, in parallel.
+     *
+     * @param data	the data to hash
+     * @return		the hashes
+     * @throws Exception	if hashing fails
+     */
+    protected long[] hashes(final Instances data) throws Exception {
+      final long[]	result;
+
+      result = new long[data.numInstances()];
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++)
+	    result[i] = RowHash.hash(data.instance(i));
+	  return null;
+	}
+      });
+
+      return result;
+    }
+
+    /**
+     * Inserts the groups into the (empty) table.
+     *
+     * @param slots	the group per slot, -1 for empty
+     * @param slotHashes	the hash of the group per slot
+     * @param groupRows	the first row of each group
+     * @param numGroups	the number of groups
+     * @param hashes	the hashes of the rows
+     */
+    protected void insert(int[] slots, long[] slotHashes, int[] groupRows, int numGroups, long[] hashes) {
+      int	mask;
+      int	slot;
+      int	g;
+
+      Arrays.fill(slots, -1);
+      mask = slots.length - 1;
+      for (g = 0; g < numGroups; g++) {
+	slot = (int) hashes[groupRows[g]] & mask;
+	while (slots[slot] != -1)
+	  slot = (slot + 1) & mask;
+	slots[slot]      = g;
+	slotHashes[slot] = hashes[groupRows[g]];
+      }
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(Instances data) throws Exception {
+      Instances	result;
+      long[]	hashes;
+      int[]	slots;
+      long[]	slotHashes;
+      int[]	groupRows;
+      double[]	groupWeights;
+      int	numGroups;
+      int	mask;
+      int	slot;
+      int	group;
+      int	i;
+      Instance	inst;
+
+      hashes       = hashes(data);
+      slots        = new int[16];
+      slotHashes   = new long[16];
+      groupRows    = new int[16];
+      groupWeights = new double[16];
+      numGroups    = 0;
+      insert(slots, slotHashes, groupRows, numGroups, hashes);
+
+      // open addressing, the hashes are kept in the table to rule out most
+      // collisions without touching the rows; the values get compared for the rest
+      for (i = 0; i < data.numInstances(); i++) {
+	inst  = data.instance(i);
+	mask  = slots.length - 1;
+	slot  = (int) hashes[i] & mask;
+	group = -1;
+	while (slots[slot] != -1) {
+	  if ((slotHashes[slot] == hashes[i]) && RowHash.equal(data.instance(groupRows[slots[slot]]), inst)) {
+	    group = slots[slot];
+	    break;
+	  }
+	  slot = (slot + 1) & mask;
+	}
+	if (group != -1) {
+	  groupWeights[group] += inst.weight();
+	  continue;
+	}
+
+	if (numGroups == groupRows.length) {
+	  groupRows    = Arrays.copyOf(groupRows, numGroups * 2);
+	  groupWeights = Arrays.copyOf(groupWeights, numGroups * 2);
+	}
+	groupRows[numGroups]    = i;
+	groupWeights[numGroups] = inst.weight();
+	slots[slot]             = numGroups;
+	slotHashes[slot]        = hashes[i];
+	numGroups++;
+	if (numGroups * 2 > slots.length) {
+	  slots      = new int[slots.length * 2];
+	  slotHashes = new long[slots.length];
+	  insert(slots, slotHashes, groupRows, numGroups, hashes);
+	}
+      }
+
+      // shallow copies, sparse rows stay sparse
+      result = new Instances(data, numGroups);
+      for (i = 0; i < numGroups; i++) {
+	result.add(data.instance(groupRows[i]));
+	result.instance(i).setWeight(groupWeights[i]);
+      }
+
+      return result;
+    }
+  }
+}
@@ -0,0 +1,612 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DownweightDenseRegions.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Range;
+import weka.core.Utils;
+import weka.core.weights.CompensatedSum;
+import weka.core.weights.Parallel;
+import weka.core.weights.PointMatrix;
+import weka.core.weights.RandomProjectionForest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Reduces the dominance of dense regions: weights become proportional to (d_k / mean d_k)^exponent, with d_k the distance of a row to its k-th nearest neighbour, a measure of inverse local density (exponent 1 for a mild correction; the number of attributes corresponds to the inverse of a kNN density estimate).<br>
+ * Distances are Euclidean on the standardized numeric attributes in the range (missing values get replaced by the mean). The neighbours are approximate, using a forest of random projection trees built with multiple threads; queries are processed in batches of rows with multiple threads as well. Results are identical for any number of threads. Exact duplicates get the smallest non-zero distance, rows without neighbour candidates keep their weight.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -R &lt;range&gt;
+ *  The attributes to compute the distances on (only numeric ones, the class is always excluded).
+ *  This is a comma separated list of attribute indices, with "first" and "last" valid values.
+ *  Specify an inclusive range with "-".
+ *  E.g: "first-3,5,6-10,last".
+ *  (default: first-last)</pre>
+ *
+ * <pre> -num-neighbors &lt;num&gt;
+ *  The number of nearest neighbours (k).
+ *  (default: 10)</pre>
+ *
+ * <pre> -exponent &lt;num&gt;
+ *  The exponent to apply to the relative k-th neighbour distance.
+ *  (default: 1.0)</pre>
+ *
+ * <pre> -num-trees &lt;num&gt;
+ *  The number of random projection trees (more trees are more accurate, but slower).
+ *  (default: 8)</pre>
+ *
+ * <pre> -leaf-size &lt;num&gt;
+ *  The maximum number of rows per leaf.
+ *  (default: 32)</pre>
+ *
+ * <pre> -seed &lt;num&gt;
+ *  The seed for the random projections.
+ *  (default: 1)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DownweightDenseRegions
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = -2260463916387946310L;
+
+  /** the attributes to compute the distances on. */
+  protected Range m_AttributeIndices = new Range("first-last");
+
+  /** the number of neighbours. */
+  protected int m_NumNeighbors = 10;
+
+  /** the exponent. */
+  protected double m_Exponent = 1.0;
+
+  /** the number of trees. */
+  protected int m_NumTrees = 8;
+
+  /** the leaf size. */
+  protected int m_LeafSize = 32;
+
+  /** the seed. */
+  protected long m_Seed = 1;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Reduces the dominance of dense regions: weights become proportional "
+      + "to (d_k / mean d_k)^exponent, with d_k the distance of a row to its k-th "
+      + "nearest neighbour, a measure of inverse local density (exponent 1 for a "
+      + "mild correction; the number of attributes corresponds to the inverse of "
+      + "a kNN density estimate).\n"
+      + "Distances are Euclidean on the standardized numeric attributes in the "
+      + "range (missing values get replaced by the mean). The neighbours are "
+      + "approximate, using a forest of random projection trees built with "
+      + "multiple threads; queries are processed in batches of rows with "
+      + "multiple threads as well. Results are identical for any number of "
+      + "threads. Exact duplicates get the smallest non-zero distance, rows "
+      + "without neighbour candidates keep their weight.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(new Option("\tThe attributes to compute the distances on (only numeric ones, the class is always excluded).\n"
+      + "\tThis is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values.\n"
+      + "\tSpecify an inclusive range with \"-\".\n"
+      + "\tE.g: \"first-3,5,6-10,last\".\n" + "\t(default: first-last)", "R",
+      1, "-R <range>"));
+
+    result.addElement(
+      new Option(
+	"\tThe number of nearest neighbours (k).\n"
+	  + "\t(default: 10)",
+	"num-neighbors", 1, "-num-neighbors <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe exponent to apply to the relative k-th neighbour distance.\n"
+	  + "\t(default: 1.0)",
+	"exponent", 1, "-exponent <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe number of random projection trees (more trees are more accurate, but slower).\n"
+	  + "\t(default: 8)",
+	"num-trees", 1, "-num-trees <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe maximum number of rows per leaf.\n"
+	  + "\t(default: 32)",
+	"leaf-size", 1, "-leaf-size <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe seed for the random projections.\n"
+	  + "\t(default: 1)",
+	"seed", 1, "-seed <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("R", options);
+    if (tmpStr.length() != 0)
+      setAttributeIndices(tmpStr);
+    else
+      setAttributeIndices("first-last");
+
+    tmpStr = Utils.getOption("num-neighbors", options);
+    if (tmpStr.length() != 0)
+      setNumNeighbors(Integer.parseInt(tmpStr));
+    else
+      setNumNeighbors(10);
+
+    tmpStr = Utils.getOption("exponent", options);
+    if (tmpStr.length() != 0)
+      setExponent(Double.parseDouble(tmpStr));
+    else
+      setExponent(1.0);
+
+    tmpStr = Utils.getOption("num-trees", options);
+    if (tmpStr.length() != 0)
+      setNumTrees(Integer.parseInt(tmpStr));
+    else
+      setNumTrees(8);
+
+    tmpStr = Utils.getOption("leaf-size", options);
+    if (tmpStr.length() != 0)
+      setLeafSize(Integer.parseInt(tmpStr));
+    else
+      setLeafSize(32);
+
+    tmpStr = Utils.getOption("seed", options);
+    if (tmpStr.length() != 0)
+      setSeed(Long.parseLong(tmpStr));
+    else
+      setSeed(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-R");
+    result.add(getAttributeIndices());
+
+    result.add("-num-neighbors");
+    result.add("" + getNumNeighbors());
+
+    result.add("-exponent");
+    result.add("" + getExponent());
+
+    result.add("-num-trees");
+    result.add("" + getNumTrees());
+
+    result.add("-leaf-size");
+    result.add("" + getLeafSize());
+
+    result.add("-seed");
+    result.add("" + getSeed());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the attributes to compute the distances on.
+   *
+   * @param value the range of attributes, eg: first-3,5,6-last
+   */
+  public void setAttributeIndices(String value) {
+    m_AttributeIndices.setRanges(value);
+  }
+
+  /**
+   * Gets the attributes to compute the distances on.
+   *
+   * @return the range of attributes
+   */
+  public String getAttributeIndices() {
+    return m_AttributeIndices.getRanges();
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String attributeIndicesTipText() {
+    return "The attributes to compute the distances on, only numeric ones are used "
+      + "and the class is always excluded; "
+      + "this is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values; specify an inclusive "
+      + "range with \"-\"; eg: \"first-3,5,6-10,last\".";
+  }
+
+  /**
+   * Sets the number of nearest neighbours.
+   *
+   * @param value the number (at least 1)
+   */
+  public void setNumNeighbors(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Number of neighbours must be at least 1: " + value);
+    m_NumNeighbors = value;
+  }
+
+  /**
+   * Gets the number of nearest neighbours.
+   *
+   * @return the number
+   */
+  public int getNumNeighbors() {
+    return m_NumNeighbors;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numNeighborsTipText() {
+    return "The number of nearest neighbours (k), the distance to the k-th one measures the local density.";
+  }
+
+  /**
+   * Sets the exponent.
+   *
+   * @param value the exponent (at least 0)
+   */
+  public void setExponent(double value) {
+    if (!(value >= 0))
+      throw new IllegalArgumentException("Exponent must be at least 0: " + value);
+    m_Exponent = value;
+  }
+
+  /**
+   * Gets the exponent.
+   *
+   * @return the exponent
+   */
+  public double getExponent() {
+    return m_Exponent;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String exponentTipText() {
+    return "The exponent to apply to the relative k-th neighbour distance; the "
+      + "number of attributes corresponds to the inverse of a kNN density estimate.";
+  }
+
+  /**
+   * Sets the number of random projection trees.
+   *
+   * @param value the number (at least 1)
+   */
+  public void setNumTrees(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Number of trees must be at least 1: " + value);
+    m_NumTrees = value;
+  }
+
+  /**
+   * Gets the number of random projection trees.
+   *
+   * @return the number
+   */
+  public int getNumTrees() {
+    return m_NumTrees;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numTreesTipText() {
+    return "The number of random projection trees; more trees are more accurate, but slower.";
+  }
+
+  /**
+   * Sets the maximum number of rows per leaf.
+   *
+   * @param value the size (at least 2)
+   */
+  public void setLeafSize(int value) {
+    if (value < 2)
+      throw new IllegalArgumentException("Leaf size must be at least 2: " + value);
+    m_LeafSize = value;
+  }
+
+  /**
+   * Gets the maximum number of rows per leaf.
+   *
+   * @return the size
+   */
+  public int getLeafSize() {
+    return m_LeafSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String leafSizeTipText() {
+    return "The maximum number of rows per leaf, should be larger than the number of neighbours.";
+  }
+
+  /**
+   * Sets the seed for the random projections.
+   *
+   * @param value the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Gets the seed for the random projections.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for the random projections.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if no numeric attributes selected
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    Range	range;
+    int[]	indices;
+    int		count;
+    int		i;
+
+    range = new Range(getAttributeIndices());
+    range.setUpper(data.numAttributes() - 1);
+    indices = new int[data.numAttributes()];
+    count   = 0;
+    for (i = 0; i < data.numAttributes(); i++) {
+      if (range.isInRange(i) && (i != data.classIndex()) && data.attribute(i).isNumeric())
+	indices[count++] = i;
+    }
+    if (count == 0)
+      throw new IllegalArgumentException("No numeric attributes selected: " + getAttributeIndices());
+    if (m_NumNeighbors >= m_LeafSize)
+      System.err.println("Number of neighbours (" + m_NumNeighbors + ") should be smaller than leaf size (" + m_LeafSize + ")!");
+
+    return new Plan(Arrays.copyOf(indices, count), m_NumNeighbors, m_Exponent, m_NumTrees, m_LeafSize, m_Seed, m_NumThreads);
+  }
+
+  /**
+   * Standardizes the numeric attributes, determines the approximate k-th
+   * neighbour distances and derives the weights.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the numeric attributes. */
+    protected final int[] m_Indices;
+
+    /** the number of neighbours. */
+    protected final int m_NumNeighbors;
+
+    /** the exponent. */
+    protected final double m_Exponent;
+
+    /** the number of trees. */
+    protected final int m_NumTrees;
+
+    /** the leaf size. */
+    protected final int m_LeafSize;
+
+    /** the seed. */
+    protected final long m_Seed;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param indices		the numeric attributes
+     * @param numNeighbors	the number of neighbours
+     * @param exponent		the exponent
+     * @param numTrees		the number of trees
+     * @param leafSize		the leaf size
+     * @param seed		the seed
+     * @param numThreads	the number of threads
+     */
+    public Plan(int[] indices, int numNeighbors, double exponent, int numTrees, int leafSize, long seed, int numThreads) {
+      m_Indices      = indices.clone();
+      m_NumNeighbors = numNeighbors;
+      m_Exponent     = exponent;
+      m_NumTrees     = numTrees;
+      m_LeafSize     = leafSize;
+      m_Seed         = seed;
+      m_NumThreads   = numThreads;
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data) throws Exception {
+      final double[]			weights;
+      final double[]			distances;
+      final RandomProjectionForest	forest;
+      final double			minDist;
+      final double			meanDist;
+      CompensatedSum			sum;
+      double				min;
+      int				count;
+      int				i;
+
+      weights = new double[data.numInstances()];
+      for (i = 0; i < weights.length; i++)
+	weights[i] = data.instance(i).weight();
+      if (data.numInstances() < 2)
+	return applyWeights(data, weights);
+
+      forest    = new RandomProjectionForest(PointMatrix.standardized(data, m_Indices, m_NumThreads), m_Indices.length, m_NumTrees, m_LeafSize, m_Seed, m_NumThreads);
+      distances = new double[data.numInstances()];
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  int[] buffer = new int[forest.getMaxCandidates()];
+	  double[] dists = new double[forest.getMaxCandidates()];
+	  for (int i = from; i < to; i++)
+	    distances[i] = forest.kthNeighborDistance(i, m_NumNeighbors, buffer, dists);
+	  return null;
+	}
+      });
+
+      // smallest non-zero and mean distance
+      min = Double.POSITIVE_INFINITY;
+      for (i = 0; i < distances.length; i++) {
+	if ((distances[i] > 0) && (distances[i] < min))
+	  min = distances[i];
+      }
+      if (Double.isInfinite(min)) {
+	System.err.println("All rows are identical on the selected attributes, weights left unchanged!");
+	return applyWeights(data, weights);
+      }
+      sum   = new CompensatedSum();
+      count = 0;
+      for (i = 0; i < distances.length; i++) {
+	if (!Double.isNaN(distances[i])) {
+	  sum.add(Math.max(min, distances[i]));
+	  count++;
+	}
+      }
+      minDist  = min;
+      meanDist = sum.value() / count;
+
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++) {
+	    // no candidates: keep weight
+	    if (Double.isNaN(distances[i]))
+	      continue;
+	    double factor = Math.max(minDist, distances[i]) / meanDist;
+	    if (m_Exponent != 1.0)
+	      factor = StrictMath.pow(factor, m_Exponent);
+	    weights[i] *= factor;
+	  }
+	  return null;
+	}
+      });
+
+      return applyWeights(data, weights);
+    }
+  }
+}
@@ -0,0 +1,453 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DownweightMissingValues.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Range;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.weights.Parallel;
+import weka.core.weights.SparseAccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Down-weights rows according to the fraction of missing values among the attributes in the range: factor = (1 - fraction)^exponent. The factor either scales the current weight or replaces it. Sparse rows only inspect their stored values (zeros are never missing).
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -R &lt;range&gt;
+ *  The attributes to inspect for missing values (the class is always excluded).
+ *  This is a comma separated list of attribute indices, with "first" and "last" valid values.
+ *  Specify an inclusive range with "-".
+ *  E.g: "first-3,5,6-10,last".
+ *  (default: first-last)</pre>
+ *
+ * <pre> -mode &lt;scale|set&gt;
+ *  Whether to scale the current weight with the factor or to replace it.
+ *  (default: scale)</pre>
+ *
+ * <pre> -exponent &lt;num&gt;
+ *  The exponent to apply to the fraction of non-missing values.
+ *  (default: 1.0)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DownweightMissingValues
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 3327401829470958183L;
+
+  /** the factor scales the current weight. */
+  public static final int MODE_SCALE = 0;
+
+  /** the factor replaces the current weight. */
+  public static final int MODE_SET = 1;
+
+  /** the modes. */
+  public static final Tag[] TAGS_MODE = {
+    new Tag(MODE_SCALE, "scale", "Scale", false),
+    new Tag(MODE_SET, "set", "Set", false),
+  };
+
+  /** the attributes to inspect. */
+  protected Range m_AttributeIndices = new Range("first-last");
+
+  /** the mode. */
+  protected int m_Mode = MODE_SCALE;
+
+  /** the exponent. */
+  protected double m_Exponent = 1.0;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Down-weights rows according to the fraction of missing values among "
+      + "the attributes in the range: factor = (1 - fraction)^exponent. The "
+      + "factor either scales the current weight or replaces it. Sparse rows "
+      + "only inspect their stored values (zeros are never missing).";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(new Option("\tThe attributes to inspect for missing values (the class is always excluded).\n"
+      + "\tThis is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values.\n"
+      + "\tSpecify an inclusive range with \"-\".\n"
+      + "\tE.g: \"first-3,5,6-10,last\".\n" + "\t(default: first-last)", "R",
+      1, "-R <range>"));
+
+    result.addElement(
+      new Option(
+	"\tWhether to scale the current weight with the factor or to replace it.\n"
+	  + "\t(default: scale)",
+	"mode", 1, "-mode <scale|set>"));
+
+    result.addElement(
+      new Option(
+	"\tThe exponent to apply to the fraction of non-missing values.\n"
+	  + "\t(default: 1.0)",
+	"exponent", 1, "-exponent <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("R", options);
+    if (tmpStr.length() != 0)
+      setAttributeIndices(tmpStr);
+    else
+      setAttributeIndices("first-last");
+
+    tmpStr = Utils.getOption("mode", options);
+    if (tmpStr.length() != 0)
+      setMode(new SelectedTag(tmpStr, TAGS_MODE));
+    else
+      setMode(new SelectedTag(MODE_SCALE, TAGS_MODE));
+
+    tmpStr = Utils.getOption("exponent", options);
+    if (tmpStr.length() != 0)
+      setExponent(Double.parseDouble(tmpStr));
+    else
+      setExponent(1.0);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-R");
+    result.add(getAttributeIndices());
+
+    result.add("-mode");
+    result.add(getMode().getSelectedTag().getIDStr());
+
+    result.add("-exponent");
+    result.add("" + getExponent());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the attributes to inspect.
+   *
+   * @param value the range of attributes, eg: first-3,5,6-last
+   */
+  public void setAttributeIndices(String value) {
+    m_AttributeIndices.setRanges(value);
+  }
+
+  /**
+   * Gets the attributes to inspect.
+   *
+   * @return the range of attributes
+   */
+  public String getAttributeIndices() {
+    return m_AttributeIndices.getRanges();
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String attributeIndicesTipText() {
+    return "The attributes to inspect for missing values, the class is always excluded; "
+      + "this is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values; specify an inclusive "
+      + "range with \"-\"; eg: \"first-3,5,6-10,last\".";
+  }
+
+  /**
+   * Sets the mode.
+   *
+   * @param value the mode
+   */
+  public void setMode(SelectedTag value) {
+    if (value.getTags() == TAGS_MODE)
+      m_Mode = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the mode.
+   *
+   * @return the mode
+   */
+  public SelectedTag getMode() {
+    return new SelectedTag(m_Mode, TAGS_MODE);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String modeTipText() {
+    return "Whether to scale the current weight with the factor or to replace it.";
+  }
+
+  /**
+   * Sets the exponent.
+   *
+   * @param value the exponent (at least 0)
+   */
+  public void setExponent(double value) {
+    if (!(value >= 0))
+      throw new IllegalArgumentException("Exponent must be at least 0: " + value);
+    m_Exponent = value;
+  }
+
+  /**
+   * Gets the exponent.
+   *
+   * @return the exponent
+   */
+  public double getExponent() {
+    return m_Exponent;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String exponentTipText() {
+    return "The exponent to apply to the fraction of non-missing values; "
+      + "larger values penalize missing values more.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if no attributes selected
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    Range	range;
+    boolean[]	selected;
+    int		count;
+    int		i;
+
+    range = new Range(getAttributeIndices());
+    range.setUpper(data.numAttributes() - 1);
+    selected = new boolean[data.numAttributes()];
+    count    = 0;
+    for (i = 0; i < data.numAttributes(); i++) {
+      selected[i] = range.isInRange(i) && (i != data.classIndex());
+      if (selected[i])
+	count++;
+    }
+    if (count == 0)
+      throw new IllegalArgumentException("No attributes selected: " + getAttributeIndices());
+
+    return new Plan(selected, m_Mode, m_Exponent, m_NumThreads);
+  }
+
+  /**
+   * Counts the missing values per row and derives the weights.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the attributes to inspect (mask). */
+    protected final boolean[] m_Selected;
+
+    /** the attributes to inspect (indices). */
+    protected final int[] m_Indices;
+
+    /** the mode. */
+    protected final int m_Mode;
+
+    /** the exponent. */
+    protected final double m_Exponent;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param selected		the attributes to inspect
+     * @param mode		the mode
+     * @param exponent		the exponent
+     * @param numThreads	the number of threads
+     */
+    public Plan(boolean[] selected, int mode, double exponent, int numThreads) {
+      int	count;
+      int	i;
+
+      m_Selected   = selected.clone();
+      m_Mode       = mode;
+      m_Exponent   = exponent;
+      m_NumThreads = numThreads;
+
+      count = 0;
+      for (i = 0; i < selected.length; i++) {
+	if (selected[i])
+	  count++;
+      }
+      m_Indices = new int[count];
+      count     = 0;
+      for (i = 0; i < selected.length; i++) {
+	if (selected[i])
+	  m_Indices[count++] = i;
+      }
+    }
+
+    /**
+     * Counts the missing values among the selected attributes.
+     *
+     * @param inst	the row to inspect
+     * @return		the number of missing values
+     */
+    public int countMissing(Instance inst) {
+      int	result;
+      int	i;
+      int	n;
+
+      result = 0;
+      if (SparseAccess.isSparse(inst)) {
+	n = inst.numValues();
+	for (i = 0; i < n; i++) {
+	  if (m_Selected[inst.index(i)] && Double.isNaN(inst.valueSparse(i)))
+	    result++;
+	}
+      }
+      else {
+	for (i = 0; i < m_Indices.length; i++) {
+	  if (Double.isNaN(inst.value(m_Indices[i])))
+	    result++;
+	}
+      }
+
+      return result;
+    }
+
+    /**
+     * Returns the new weight for the row.
+     *
+     * @param inst	the row
+     * @return		the weight
+     */
+    public double weight(Instance inst) {
+      double	factor;
+
+      factor = 1.0 - (double) countMissing(inst) / m_Indices.length;
+      if (m_Exponent != 1.0)
+	factor = StrictMath.pow(factor, m_Exponent);
+      if (m_Mode == MODE_SET)
+	return factor;
+      return inst.weight() * factor;
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data) throws Exception {
+      final double[]	weights;
+
+      weights = new double[data.numInstances()];
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++)
+	    weights[i] = weight(data.instance(i));
+	  return null;
+	}
+      });
+
+      return applyWeights(data, weights);
+    }
+  }
+}
@@ -0,0 +1,555 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DownweightNearDuplicates.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Range;
+import weka.core.Utils;
+import weka.core.weights.CounterRandom;
+import weka.core.weights.LongIntHashMap;
+import weka.core.weights.Parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Down-weights near-duplicate rows, eg templated messages turned into sparse word vectors (StringToWordVector). Each row is represented by the set of attributes in the range with a non-zero, non-missing value. MinHash signatures of these sets get bucketed with LSH banding (rows with a Jaccard similarity around (1/bands)^(1/rows-per-band) or higher are likely to share a bucket) and each row's weight is divided by the size of the largest bucket it falls in, an estimate of its cluster size. Rows without values in the range keep their weight.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -R &lt;range&gt;
+ *  The attributes that make up the sets (the class is always excluded).
+ *  This is a comma separated list of attribute indices, with "first" and "last" valid values.
+ *  Specify an inclusive range with "-".
+ *  E.g: "first-3,5,6-10,last".
+ *  (default: first-last)</pre>
+ *
+ * <pre> -num-bands &lt;num&gt;
+ *  The number of LSH bands.
+ *  (default: 16)</pre>
+ *
+ * <pre> -rows-per-band &lt;num&gt;
+ *  The number of MinHash values per band.
+ *  (default: 4)</pre>
+ *
+ * <pre> -seed &lt;num&gt;
+ *  The seed for the hash functions.
+ *  (default: 1)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DownweightNearDuplicates
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = -8514950378401926271L;
+
+  /** the attributes making up the sets. */
+  protected Range m_AttributeIndices = new Range("first-last");
+
+  /** the number of bands. */
+  protected int m_NumBands = 16;
+
+  /** the number of MinHash values per band. */
+  protected int m_RowsPerBand = 4;
+
+  /** the seed. */
+  protected long m_Seed = 1;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Down-weights near-duplicate rows, eg templated messages turned into "
+      + "sparse word vectors (StringToWordVector). Each row is represented by "
+      + "the set of attributes in the range with a non-zero, non-missing value. "
+      + "MinHash signatures of these sets get bucketed with LSH banding (rows "
+      + "with a Jaccard similarity around (1/bands)^(1/rows-per-band) or higher "
+      + "are likely to share a bucket) and each row's weight is divided by the "
+      + "size of the largest bucket it falls in, an estimate of its cluster size. "
+      + "Rows without values in the range keep their weight.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(new Option("\tThe attributes that make up the sets (the class is always excluded).\n"
+      + "\tThis is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values.\n"
+      + "\tSpecify an inclusive range with \"-\".\n"
+      + "\tE.g: \"first-3,5,6-10,last\".\n" + "\t(default: first-last)", "R",
+      1, "-R <range>"));
+
+    result.addElement(
+      new Option(
+	"\tThe number of LSH bands.\n"
+	  + "\t(default: 16)",
+	"num-bands", 1, "-num-bands <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe number of MinHash values per band.\n"
+	  + "\t(default: 4)",
+	"rows-per-band", 1, "-rows-per-band <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe seed for the hash functions.\n"
+	  + "\t(default: 1)",
+	"seed", 1, "-seed <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("R", options);
+    if (tmpStr.length() != 0)
+      setAttributeIndices(tmpStr);
+    else
+      setAttributeIndices("first-last");
+
+    tmpStr = Utils.getOption("num-bands", options);
+    if (tmpStr.length() != 0)
+      setNumBands(Integer.parseInt(tmpStr));
+    else
+      setNumBands(16);
+
+    tmpStr = Utils.getOption("rows-per-band", options);
+    if (tmpStr.length() != 0)
+      setRowsPerBand(Integer.parseInt(tmpStr));
+    else
+      setRowsPerBand(4);
+
+    tmpStr = Utils.getOption("seed", options);
+    if (tmpStr.length() != 0)
+      setSeed(Long.parseLong(tmpStr));
+    else
+      setSeed(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-R");
+    result.add(getAttributeIndices());
+
+    result.add("-num-bands");
+    result.add("" + getNumBands());
+
+    result.add("-rows-per-band");
+    result.add("" + getRowsPerBand());
+
+    result.add("-seed");
+    result.add("" + getSeed());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the attributes that make up the sets.
+   *
+   * @param value the range of attributes, eg: first-3,5,6-last
+   */
+  public void setAttributeIndices(String value) {
+    m_AttributeIndices.setRanges(value);
+  }
+
+  /**
+   * Gets the attributes that make up the sets.
+   *
+   * @return the range of attributes
+   */
+  public String getAttributeIndices() {
+    return m_AttributeIndices.getRanges();
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String attributeIndicesTipText() {
+    return "The attributes that make up the sets, the class is always excluded; "
+      + "this is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values; specify an inclusive "
+      + "range with \"-\"; eg: \"first-3,5,6-10,last\".";
+  }
+
+  /**
+   * Sets the number of LSH bands.
+   *
+   * @param value the number of bands (at least 1)
+   */
+  public void setNumBands(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Number of bands must be at least 1: " + value);
+    m_NumBands = value;
+  }
+
+  /**
+   * Gets the number of LSH bands.
+   *
+   * @return the number of bands
+   */
+  public int getNumBands() {
+    return m_NumBands;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numBandsTipText() {
+    return "The number of LSH bands; more bands lower the similarity threshold.";
+  }
+
+  /**
+   * Sets the number of MinHash values per band.
+   *
+   * @param value the number of values (at least 1)
+   */
+  public void setRowsPerBand(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Rows per band must be at least 1: " + value);
+    m_RowsPerBand = value;
+  }
+
+  /**
+   * Gets the number of MinHash values per band.
+   *
+   * @return the number of values
+   */
+  public int getRowsPerBand() {
+    return m_RowsPerBand;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String rowsPerBandTipText() {
+    return "The number of MinHash values per band; more values raise the similarity threshold.";
+  }
+
+  /**
+   * Sets the seed for the hash functions.
+   *
+   * @param value the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Gets the seed for the hash functions.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for the MinHash functions.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if no attributes selected
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    Range	range;
+    boolean[]	selected;
+    int		count;
+    int		i;
+
+    range = new Range(getAttributeIndices());
+    range.setUpper(data.numAttributes() - 1);
+    selected = new boolean[data.numAttributes()];
+    count    = 0;
+    for (i = 0; i < data.numAttributes(); i++) {
+      selected[i] = range.isInRange(i) && (i != data.classIndex());
+      if (selected[i])
+	count++;
+    }
+    if (count == 0)
+      throw new IllegalArgumentException("No attributes selected: " + getAttributeIndices());
+
+    return new Plan(selected, m_NumBands, m_RowsPerBand, m_Seed, m_NumThreads);
+  }
+
+  /**
+   * Computes MinHash signatures, buckets them per band and divides the
+   * weights by the largest bucket size.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the attributes making up the sets. */
+    protected final boolean[] m_Selected;
+
+    /** the number of bands. */
+    protected final int m_NumBands;
+
+    /** the number of MinHash values per band. */
+    protected final int m_RowsPerBand;
+
+    /** the key for hashing the attribute indices. */
+    protected final long m_Key;
+
+    /** the multipliers of the hash functions (odd). */
+    protected final long[] m_Multipliers;
+
+    /** the increments of the hash functions. */
+    protected final long[] m_Increments;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param selected		the attributes making up the sets
+     * @param numBands		the number of bands
+     * @param rowsPerBand	the number of MinHash values per band
+     * @param seed		the seed
+     * @param numThreads	the number of threads
+     */
+    public Plan(boolean[] selected, int numBands, int rowsPerBand, long seed, int numThreads) {
+      CounterRandom	random;
+      int		i;
+
+      m_Selected    = selected.clone();
+      m_NumBands    = numBands;
+      m_RowsPerBand = rowsPerBand;
+      m_NumThreads  = numThreads;
+      random        = new CounterRandom(seed);
+      m_Key         = random.nextLong(0);
+      m_Multipliers = new long[numBands * rowsPerBand];
+      m_Increments  = new long[numBands * rowsPerBand];
+      for (i = 0; i < m_Multipliers.length; i++) {
+	m_Multipliers[i] = random.nextLong(2 * i + 1) | 1L;
+	m_Increments[i]  = random.nextLong(2 * i + 2);
+      }
+    }
+
+    /**
+     * Computes the MinHash values of the row for the band. The index of each
+     * attribute in the set is hashed once, the hash functions of the band are
+     * multiply-shift ones on top of that (tight loop over the functions).
+     *
+     * @param inst	the row
+     * @param band	the band
+     * @param signature	the array for the MinHash values of the band
+     * @return		false if the set is empty
+     */
+    protected boolean signature(Instance inst, int band, long[] signature) {
+      boolean	result;
+      double	value;
+      long	x;
+      long	h;
+      int	offset;
+      int	index;
+      int	i;
+      int	k;
+
+      result = false;
+      offset = band * m_RowsPerBand;
+      Arrays.fill(signature, Long.MAX_VALUE);
+      for (i = 0; i < inst.numValues(); i++) {
+	index = inst.index(i);
+	value = inst.valueSparse(i);
+	if (!m_Selected[index] || (value == 0) || Double.isNaN(value))
+	  continue;
+	result = true;
+	x      = CounterRandom.mix(m_Key + index);
+	for (k = 0; k < signature.length; k++) {
+	  h = (m_Multipliers[offset + k] * x + m_Increments[offset + k]) >>> 32;
+	  if (h < signature[k])
+	    signature[k] = h;
+	}
+      }
+
+      return result;
+    }
+
+    /**
+     * Computes the bucket key of the row for the band.
+     *
+     * @param signature	the MinHash values of the row for the band
+     * @param band	the band
+     * @return		the key of the bucket (not negative)
+     */
+    protected long bucket(long[] signature, int band) {
+      long	result;
+      int	i;
+
+      result = band;
+      for (i = 0; i < m_RowsPerBand; i++)
+	result = CounterRandom.mix(result ^ signature[i]) + band * m_RowsPerBand + i;
+
+      return result & Long.MAX_VALUE;
+    }
+
+    /**
+     * Applies the plan to the data. The bands get processed one at a time,
+     * i.e., only the bucket keys of the current band and its bucket sizes are
+     * held in memory, rather than the keys of all bands.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data) throws Exception {
+      final int			numRows;
+      final long[]		buckets;
+      final int[]		sizes;
+      final double[]		weights;
+      LongIntHashMap		counts;
+      int			band;
+      int			i;
+
+      numRows = data.numInstances();
+      buckets = new long[numRows];
+      sizes   = new int[numRows];
+      Arrays.fill(sizes, 1);
+
+      for (band = 0; band < m_NumBands; band++) {
+	// buckets of the band (-1 for empty sets)
+	final int b = band;
+	Parallel.forEachChunk(numRows, m_NumThreads, new Parallel.ChunkTask<Object>() {
+	  public Object process(int chunk, int from, int to) {
+	    long[] signature = new long[m_RowsPerBand];
+	    for (int i = from; i < to; i++) {
+	      if (signature(data.instance(i), b, signature))
+		buckets[i] = bucket(signature, b);
+	      else
+		buckets[i] = -1;
+	    }
+	    return null;
+	  }
+	});
+
+	// bucket sizes
+	counts = new LongIntHashMap();
+	for (i = 0; i < numRows; i++) {
+	  if (buckets[i] != -1)
+	    counts.add(buckets[i], 1);
+	}
+
+	// largest bucket so far as cluster size
+	final LongIntHashMap c = counts;
+	Parallel.forEachChunk(numRows, m_NumThreads, new Parallel.ChunkTask<Object>() {
+	  public Object process(int chunk, int from, int to) {
+	    for (int i = from; i < to; i++) {
+	      if (buckets[i] != -1)
+		sizes[i] = Math.max(sizes[i], c.get(buckets[i]));
+	    }
+	    return null;
+	  }
+	});
+      }
+
+      weights = new double[numRows];
+      for (i = 0; i < numRows; i++)
+	weights[i] = data.instance(i).weight() / sizes[i];
+
+      return applyWeights(data, weights);
+    }
+  }
+}
@@ -0,0 +1,611 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DownweightOutliers.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.SingleIndex;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.weights.Parallel;
+import weka.core.weights.QuantileSketch;
+import weka.core.weights.SparseAccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Down-weights rows which value of a numeric attribute lies outside robust bounds. With the center being the median and the scale derived from the median absolute deviation (MAD * 1.4826) or the inter-quartile range (IQR / 1.349), the standardized distance r = |x - center| / (tuning * scale) gives the weight factor: Huber: min(1, 1/r), Tukey (biweight): (1 - r^2)^2 for r &lt; 1, otherwise 0.<br>
+ * Median and quantiles are estimated with a mergeable streaming quantile sketch (KLL), built over fixed blocks of rows with multiple threads and merged in order, i.e., no sorting of the data and identical results for any number of threads. The MAD requires a second read-only sweep. Rows with a missing value keep their weight.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -C &lt;index&gt;
+ *  Specify the index of the numeric attribute. First and last
+ *  are valid indexes.(default: first)</pre>
+ *
+ * <pre> -function &lt;huber|tukey&gt;
+ *  The weight function.
+ *  (default: huber)</pre>
+ *
+ * <pre> -scale &lt;mad|iqr&gt;
+ *  The robust estimate of the scale.
+ *  (default: mad)</pre>
+ *
+ * <pre> -tuning &lt;num&gt;
+ *  The tuning constant, in multiples of the scale; use 0 for the
+ *  standard constant of the function (Huber: 1.345, Tukey: 4.685).
+ *  (default: 0)</pre>
+ *
+ * <pre> -sketch-size &lt;num&gt;
+ *  The size parameter of the quantile sketch (larger is more accurate).
+ *  (default: 200)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DownweightOutliers
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 5066294530120962475L;
+
+  /** Huber weights. */
+  public static final int FUNCTION_HUBER = 0;
+
+  /** Tukey's biweight. */
+  public static final int FUNCTION_TUKEY = 1;
+
+  /** the weight functions. */
+  public static final Tag[] TAGS_FUNCTION = {
+    new Tag(FUNCTION_HUBER, "huber", "Huber", false),
+    new Tag(FUNCTION_TUKEY, "tukey", "Tukey (biweight)", false),
+  };
+
+  /** median absolute deviation. */
+  public static final int SCALE_MAD = 0;
+
+  /** inter-quartile range. */
+  public static final int SCALE_IQR = 1;
+
+  /** the scale estimates. */
+  public static final Tag[] TAGS_SCALE = {
+    new Tag(SCALE_MAD, "mad", "Median absolute deviation", false),
+    new Tag(SCALE_IQR, "iqr", "Inter-quartile range", false),
+  };
+
+  /** the index of the numeric attribute. */
+  protected SingleIndex m_AttributeIndex = new SingleIndex("first");
+
+  /** the weight function. */
+  protected int m_Function = FUNCTION_HUBER;
+
+  /** the scale estimate. */
+  protected int m_Scale = SCALE_MAD;
+
+  /** the tuning constant. */
+  protected double m_Tuning = 0.0;
+
+  /** the sketch size. */
+  protected int m_SketchSize = QuantileSketch.DEFAULT_K;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Down-weights rows which value of a numeric attribute lies outside "
+      + "robust bounds. With the center being the median and the scale derived "
+      + "from the median absolute deviation (MAD * 1.4826) or the inter-quartile "
+      + "range (IQR / 1.349), the standardized distance "
+      + "r = |x - center| / (tuning * scale) gives the weight factor: "
+      + "Huber: min(1, 1/r), Tukey (biweight): (1 - r^2)^2 for r < 1, otherwise 0.\n"
+      + "Median and quantiles are estimated with a mergeable streaming quantile "
+      + "sketch (KLL), built over fixed blocks of rows with multiple threads and "
+      + "merged in order, i.e., no sorting of the data and identical results for "
+      + "any number of threads. The MAD requires a second read-only sweep. "
+      + "Rows with a missing value keep their weight.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tSpecify the index of the numeric attribute. First and last\n"
+	  + "\tare valid indexes.(default: first)",
+	"C", 1, "-C <index>"));
+
+    result.addElement(
+      new Option(
+	"\tThe weight function.\n"
+	  + "\t(default: huber)",
+	"function", 1, "-function <huber|tukey>"));
+
+    result.addElement(
+      new Option(
+	"\tThe robust estimate of the scale.\n"
+	  + "\t(default: mad)",
+	"scale", 1, "-scale <mad|iqr>"));
+
+    result.addElement(
+      new Option(
+	"\tThe tuning constant, in multiples of the scale; use 0 for the\n"
+	  + "\tstandard constant of the function (Huber: 1.345, Tukey: 4.685).\n"
+	  + "\t(default: 0)",
+	"tuning", 1, "-tuning <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe size parameter of the quantile sketch (larger is more accurate).\n"
+	  + "\t(default: " + QuantileSketch.DEFAULT_K + ")",
+	"sketch-size", 1, "-sketch-size <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption('C', options);
+    if (tmpStr.isEmpty())
+      tmpStr = "first";
+    setAttributeIndex(tmpStr);
+
+    tmpStr = Utils.getOption("function", options);
+    if (tmpStr.length() != 0)
+      setFunction(new SelectedTag(tmpStr, TAGS_FUNCTION));
+    else
+      setFunction(new SelectedTag(FUNCTION_HUBER, TAGS_FUNCTION));
+
+    tmpStr = Utils.getOption("scale", options);
+    if (tmpStr.length() != 0)
+      setScale(new SelectedTag(tmpStr, TAGS_SCALE));
+    else
+      setScale(new SelectedTag(SCALE_MAD, TAGS_SCALE));
+
+    tmpStr = Utils.getOption("tuning", options);
+    if (tmpStr.length() != 0)
+      setTuning(Double.parseDouble(tmpStr));
+    else
+      setTuning(0.0);
+
+    tmpStr = Utils.getOption("sketch-size", options);
+    if (tmpStr.length() != 0)
+      setSketchSize(Integer.parseInt(tmpStr));
+    else
+      setSketchSize(QuantileSketch.DEFAULT_K);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-C");
+    result.add(getAttributeIndex());
+
+    result.add("-function");
+    result.add(getFunction().getSelectedTag().getIDStr());
+
+    result.add("-scale");
+    result.add(getScale().getSelectedTag().getIDStr());
+
+    result.add("-tuning");
+    result.add("" + getTuning());
+
+    result.add("-sketch-size");
+    result.add("" + getSketchSize());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets index of the numeric attribute.
+   *
+   * @param value the index of the attribute
+   */
+  public void setAttributeIndex(String value) {
+    m_AttributeIndex.setSingleIndex(value);
+  }
+
+  /**
+   * Get the index of the numeric attribute.
+   *
+   * @return the index of the attribute
+   */
+  public String getAttributeIndex() {
+    return m_AttributeIndex.getSingleIndex();
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String attributeIndexTipText() {
+    return "The position (starting from 1) of the numeric attribute "
+      + "(first and last are valid indices).";
+  }
+
+  /**
+   * Sets the weight function.
+   *
+   * @param value the function
+   */
+  public void setFunction(SelectedTag value) {
+    if (value.getTags() == TAGS_FUNCTION)
+      m_Function = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the weight function.
+   *
+   * @return the function
+   */
+  public SelectedTag getFunction() {
+    return new SelectedTag(m_Function, TAGS_FUNCTION);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String functionTipText() {
+    return "The weight function: Huber (outliers get 1/r) or Tukey's biweight (outliers get 0).";
+  }
+
+  /**
+   * Sets the scale estimate.
+   *
+   * @param value the scale estimate
+   */
+  public void setScale(SelectedTag value) {
+    if (value.getTags() == TAGS_SCALE)
+      m_Scale = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the scale estimate.
+   *
+   * @return the scale estimate
+   */
+  public SelectedTag getScale() {
+    return new SelectedTag(m_Scale, TAGS_SCALE);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String scaleTipText() {
+    return "The robust estimate of the scale: median absolute deviation or inter-quartile range.";
+  }
+
+  /**
+   * Sets the tuning constant.
+   *
+   * @param value the constant, 0 for the standard constant of the function
+   */
+  public void setTuning(double value) {
+    if (!(value >= 0))
+      throw new IllegalArgumentException("Tuning constant must be at least 0: " + value);
+    m_Tuning = value;
+  }
+
+  /**
+   * Gets the tuning constant.
+   *
+   * @return the constant, 0 for the standard constant of the function
+   */
+  public double getTuning() {
+    return m_Tuning;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String tuningTipText() {
+    return "The tuning constant, in multiples of the scale; 0 uses the standard "
+      + "constant of the function (Huber: 1.345, Tukey: 4.685).";
+  }
+
+  /**
+   * Sets the size parameter of the quantile sketch.
+   *
+   * @param value the size
+   */
+  public void setSketchSize(int value) {
+    if (value < QuantileSketch.MIN_CAPACITY)
+      throw new IllegalArgumentException("Sketch size must be at least " + QuantileSketch.MIN_CAPACITY + ": " + value);
+    m_SketchSize = value;
+  }
+
+  /**
+   * Gets the size parameter of the quantile sketch.
+   *
+   * @return the size
+   */
+  public int getSketchSize() {
+    return m_SketchSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String sketchSizeTipText() {
+    return "The size parameter of the quantile sketch; larger is more accurate, "
+      + "but uses more memory.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if index invalid or attribute not numeric
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    SingleIndex		index;
+    double		tuning;
+
+    index = new SingleIndex(getAttributeIndex());
+    index.setUpper(data.numAttributes() - 1);
+    if (index.getIndex() == -1)
+      throw new IllegalArgumentException("Attribute index not valid: " + index.getSingleIndex());
+    if (!data.attribute(index.getIndex()).isNumeric())
+      throw new IllegalArgumentException("Attribute is not numeric: " + index.getSingleIndex());
+
+    tuning = m_Tuning;
+    if (tuning == 0)
+      tuning = (m_Function == FUNCTION_TUKEY) ? 4.685 : 1.345;
+
+    return new Plan(index.getIndex(), m_Function, m_Scale, tuning, m_SketchSize, m_NumThreads);
+  }
+
+  /**
+   * Estimates center and scale from quantile sketches and applies the
+   * robust weight function.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the number of rows per sketch, before merging. */
+    public static final int BLOCK_SIZE = 65536;
+
+    /** the 0-based index of the numeric attribute. */
+    protected final int m_Index;
+
+    /** the weight function. */
+    protected final int m_Function;
+
+    /** the scale estimate. */
+    protected final int m_Scale;
+
+    /** the tuning constant. */
+    protected final double m_Tuning;
+
+    /** the sketch size. */
+    protected final int m_SketchSize;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param index		the 0-based index of the numeric attribute
+     * @param function		the weight function
+     * @param scale		the scale estimate
+     * @param tuning		the tuning constant
+     * @param sketchSize	the sketch size
+     * @param numThreads	the number of threads
+     */
+    public Plan(int index, int function, int scale, double tuning, int sketchSize, int numThreads) {
+      m_Index      = index;
+      m_Function   = function;
+      m_Scale      = scale;
+      m_Tuning     = tuning;
+      m_SketchSize = sketchSize;
+      m_NumThreads = numThreads;
+    }
+
+    /**
+     * Sketches the values (or their absolute deviations from the center) of
+     * the attribute. Every block of rows gets its own sketch, the sketches
+     * are merged in block order.
+     *
+     * @param data	the data to sketch
+     * @param center	the center to compute the absolute deviations from,
+     * 			NaN for the raw values
+     * @return		the sketch
+     * @throws Exception	if sketching fails
+     */
+    public QuantileSketch sketch(final Instances data, final double center) throws Exception {
+      final QuantileSketch[]	blocks;
+      final int			numRows;
+      QuantileSketch		result;
+
+      numRows = data.numInstances();
+      blocks  = new QuantileSketch[(numRows + BLOCK_SIZE - 1) / BLOCK_SIZE];
+      Parallel.forEachChunk(blocks.length, m_NumThreads, 1, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int b = from; b < to; b++) {
+	    blocks[b] = new QuantileSketch(m_SketchSize);
+	    int end = Math.min(numRows, (b + 1) * BLOCK_SIZE);
+	    for (int i = b * BLOCK_SIZE; i < end; i++) {
+	      double value = SparseAccess.value(data.instance(i), m_Index);
+	      if (Double.isNaN(center))
+		blocks[b].add(value);
+	      else
+		blocks[b].add(Math.abs(value - center));
+	    }
+	  }
+	  return null;
+	}
+      });
+
+      result = new QuantileSketch(m_SketchSize);
+      for (QuantileSketch block: blocks)
+	result.merge(block);
+
+      return result;
+    }
+
+    /**
+     * Returns the weight factor for the value.
+     *
+     * @param value	the value
+     * @param center	the center
+     * @param scale	the scale (including tuning constant)
+     * @return		the factor
+     */
+    public double factor(double value, double center, double scale) {
+      double	r;
+
+      if (Double.isNaN(value))
+	return 1.0;
+
+      r = Math.abs(value - center) / scale;
+      if (m_Function == FUNCTION_TUKEY) {
+	if (r >= 1)
+	  return 0.0;
+	r = 1 - r * r;
+	return r * r;
+      }
+      else {
+	return (r <= 1) ? 1.0 : 1.0 / r;
+      }
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data) throws Exception {
+      final double[]	weights;
+      final double	center;
+      final double	scale;
+      QuantileSketch	sketch;
+      double		spread;
+      int		i;
+
+      weights = new double[data.numInstances()];
+      sketch  = sketch(data, Double.NaN);
+      center  = sketch.quantile(0.5);
+      if (m_Scale == SCALE_IQR)
+	spread = (sketch.quantile(0.75) - sketch.quantile(0.25)) / 1.349;
+      else
+	spread = sketch(data, center).quantile(0.5) * 1.4826;
+      scale = spread * m_Tuning;
+
+      if (!(scale > 0)) {
+	if (!sketch.isEmpty())
+	  System.err.println("Robust scale is zero, weights left unchanged: center=" + center);
+	for (i = 0; i < weights.length; i++)
+	  weights[i] = data.instance(i).weight();
+      }
+      else {
+	Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	  public Object process(int chunk, int from, int to) {
+	    for (int i = from; i < to; i++) {
+	      Instance inst = data.instance(i);
+	      weights[i] = inst.weight() * factor(SparseAccess.value(inst, m_Index), center, scale);
+	    }
+	    return null;
+	  }
+	});
+      }
+
+      return applyWeights(data, weights);
+    }
+  }
+}
@@ -0,0 +1,518 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EqualizeClusters.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Range;
+import weka.core.Utils;
+import weka.core.weights.MiniBatchKMeans;
+import weka.core.weights.Parallel;
+import weka.core.weights.PointMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Clusters the rows with mini-batch k-means on the standardized numeric attributes in the range (missing values get replaced by the mean) and gives every cluster the same total weight: each row receives the average cluster size divided by the size of its cluster.<br>
+ * Centroids get initialized with k-means++ on a sample of the rows; assignments use multiple threads. Results are identical for any number of threads.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -R &lt;range&gt;
+ *  The attributes to cluster on (only numeric ones, the class is always excluded).
+ *  This is a comma separated list of attribute indices, with "first" and "last" valid values.
+ *  Specify an inclusive range with "-".
+ *  E.g: "first-3,5,6-10,last".
+ *  (default: first-last)</pre>
+ *
+ * <pre> -num-clusters &lt;num&gt;
+ *  The number of clusters.
+ *  (default: 10)</pre>
+ *
+ * <pre> -batch-size &lt;num&gt;
+ *  The number of rows per mini-batch.
+ *  (default: 1024)</pre>
+ *
+ * <pre> -num-iterations &lt;num&gt;
+ *  The number of mini-batch iterations.
+ *  (default: 100)</pre>
+ *
+ * <pre> -seed &lt;num&gt;
+ *  The seed for initialization and batch sampling.
+ *  (default: 1)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class EqualizeClusters
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 4480293127718095633L;
+
+  /** the attributes to cluster on. */
+  protected Range m_AttributeIndices = new Range("first-last");
+
+  /** the number of clusters. */
+  protected int m_NumClusters = 10;
+
+  /** the batch size. */
+  protected int m_BatchSize = 1024;
+
+  /** the number of iterations. */
+  protected int m_NumIterations = 100;
+
+  /** the seed. */
+  protected long m_Seed = 1;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Clusters the rows with mini-batch k-means on the standardized numeric "
+      + "attributes in the range (missing values get replaced by the mean) and "
+      + "gives every cluster the same total weight: each row receives the "
+      + "average cluster size divided by the size of its cluster.\n"
+      + "Centroids get initialized with k-means++ on a sample of the rows; "
+      + "assignments use multiple threads. Results are identical for any "
+      + "number of threads.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(new Option("\tThe attributes to cluster on (only numeric ones, the class is always excluded).\n"
+      + "\tThis is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values.\n"
+      + "\tSpecify an inclusive range with \"-\".\n"
+      + "\tE.g: \"first-3,5,6-10,last\".\n" + "\t(default: first-last)", "R",
+      1, "-R <range>"));
+
+    result.addElement(
+      new Option(
+	"\tThe number of clusters.\n"
+	  + "\t(default: 10)",
+	"num-clusters", 1, "-num-clusters <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe number of rows per mini-batch.\n"
+	  + "\t(default: 1024)",
+	"batch-size", 1, "-batch-size <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe number of mini-batch iterations.\n"
+	  + "\t(default: 100)",
+	"num-iterations", 1, "-num-iterations <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe seed for initialization and batch sampling.\n"
+	  + "\t(default: 1)",
+	"seed", 1, "-seed <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("R", options);
+    if (tmpStr.length() != 0)
+      setAttributeIndices(tmpStr);
+    else
+      setAttributeIndices("first-last");
+
+    tmpStr = Utils.getOption("num-clusters", options);
+    if (tmpStr.length() != 0)
+      setNumClusters(Integer.parseInt(tmpStr));
+    else
+      setNumClusters(10);
+
+    tmpStr = Utils.getOption("batch-size", options);
+    if (tmpStr.length() != 0)
+      setBatchSize(Integer.parseInt(tmpStr));
+    else
+      setBatchSize(1024);
+
+    tmpStr = Utils.getOption("num-iterations", options);
+    if (tmpStr.length() != 0)
+      setNumIterations(Integer.parseInt(tmpStr));
+    else
+      setNumIterations(100);
+
+    tmpStr = Utils.getOption("seed", options);
+    if (tmpStr.length() != 0)
+      setSeed(Long.parseLong(tmpStr));
+    else
+      setSeed(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-R");
+    result.add(getAttributeIndices());
+
+    result.add("-num-clusters");
+    result.add("" + getNumClusters());
+
+    result.add("-batch-size");
+    result.add("" + getBatchSize());
+
+    result.add("-num-iterations");
+    result.add("" + getNumIterations());
+
+    result.add("-seed");
+    result.add("" + getSeed());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the attributes to cluster on.
+   *
+   * @param value the range of attributes, eg: first-3,5,6-last
+   */
+  public void setAttributeIndices(String value) {
+    m_AttributeIndices.setRanges(value);
+  }
+
+  /**
+   * Gets the attributes to cluster on.
+   *
+   * @return the range of attributes
+   */
+  public String getAttributeIndices() {
+    return m_AttributeIndices.getRanges();
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String attributeIndicesTipText() {
+    return "The attributes to cluster on, only numeric ones are used "
+      + "and the class is always excluded; "
+      + "this is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values; specify an inclusive "
+      + "range with \"-\"; eg: \"first-3,5,6-10,last\".";
+  }
+
+  /**
+   * Sets the number of clusters.
+   *
+   * @param value the number (at least 1)
+   */
+  public void setNumClusters(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Number of clusters must be at least 1: " + value);
+    m_NumClusters = value;
+  }
+
+  /**
+   * Gets the number of clusters.
+   *
+   * @return the number
+   */
+  public int getNumClusters() {
+    return m_NumClusters;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numClustersTipText() {
+    return "The number of clusters (k).";
+  }
+
+  /**
+   * Sets the number of rows per mini-batch.
+   *
+   * @param value the size (at least 1)
+   */
+  public void setBatchSize(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Batch size must be at least 1: " + value);
+    m_BatchSize = value;
+  }
+
+  /**
+   * Gets the number of rows per mini-batch.
+   *
+   * @return the size
+   */
+  public int getBatchSize() {
+    return m_BatchSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String batchSizeTipText() {
+    return "The number of rows sampled per mini-batch.";
+  }
+
+  /**
+   * Sets the number of mini-batch iterations.
+   *
+   * @param value the number (at least 0)
+   */
+  public void setNumIterations(int value) {
+    if (value < 0)
+      throw new IllegalArgumentException("Number of iterations must be at least 0: " + value);
+    m_NumIterations = value;
+  }
+
+  /**
+   * Gets the number of mini-batch iterations.
+   *
+   * @return the number
+   */
+  public int getNumIterations() {
+    return m_NumIterations;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String numIterationsTipText() {
+    return "The number of mini-batch iterations.";
+  }
+
+  /**
+   * Sets the seed for initialization and batch sampling.
+   *
+   * @param value the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Gets the seed for initialization and batch sampling.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for the k-means++ initialization and the batch sampling.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if no numeric attributes selected
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    Range	range;
+    int[]	indices;
+    int		count;
+    int		i;
+
+    range = new Range(getAttributeIndices());
+    range.setUpper(data.numAttributes() - 1);
+    indices = new int[data.numAttributes()];
+    count   = 0;
+    for (i = 0; i < data.numAttributes(); i++) {
+      if (range.isInRange(i) && (i != data.classIndex()) && data.attribute(i).isNumeric())
+	indices[count++] = i;
+    }
+    if (count == 0)
+      throw new IllegalArgumentException("No numeric attributes selected: " + getAttributeIndices());
+
+    return new Plan(Arrays.copyOf(indices, count), m_NumClusters, m_BatchSize, m_NumIterations, m_Seed, m_NumThreads);
+  }
+
+  /**
+   * Clusters the standardized numeric attributes and equalizes the total
+   * weight per cluster.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the numeric attributes. */
+    protected final int[] m_Indices;
+
+    /** the number of clusters. */
+    protected final int m_NumClusters;
+
+    /** the batch size. */
+    protected final int m_BatchSize;
+
+    /** the number of iterations. */
+    protected final int m_NumIterations;
+
+    /** the seed. */
+    protected final long m_Seed;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param indices		the numeric attributes
+     * @param numClusters	the number of clusters
+     * @param batchSize		the batch size
+     * @param numIterations	the number of iterations
+     * @param seed		the seed
+     * @param numThreads	the number of threads
+     */
+    public Plan(int[] indices, int numClusters, int batchSize, int numIterations, long seed, int numThreads) {
+      m_Indices       = indices.clone();
+      m_NumClusters   = numClusters;
+      m_BatchSize     = batchSize;
+      m_NumIterations = numIterations;
+      m_Seed          = seed;
+      m_NumThreads    = numThreads;
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data) throws Exception {
+      final int[]	assignments;
+      final int[]	sizes;
+      final double	target;
+      final double[]	weights;
+      MiniBatchKMeans	kmeans;
+      float[]		points;
+      int		nonEmpty;
+      int		i;
+
+      if (data.numInstances() == 0)
+	return new Instances(data, 0);
+
+      points = PointMatrix.standardized(data, m_Indices, m_NumThreads);
+      kmeans = new MiniBatchKMeans(m_NumClusters, m_BatchSize, m_NumIterations, m_Seed, m_NumThreads);
+      kmeans.build(points, m_Indices.length);
+      assignments = kmeans.assign(points);
+
+      sizes = new int[m_NumClusters];
+      for (i = 0; i < assignments.length; i++)
+	sizes[assignments[i]]++;
+      nonEmpty = 0;
+      for (i = 0; i < sizes.length; i++) {
+	if (sizes[i] > 0)
+	  nonEmpty++;
+      }
+      target = (double) data.numInstances() / nonEmpty;
+
+      weights = new double[data.numInstances()];
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++)
+	    weights[i] = target / sizes[assignments[i]];
+	  return null;
+	}
+      });
+
+      return applyWeights(data, weights);
+    }
+  }
+}
@@ -0,0 +1,411 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EqualizeGroups.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Range;
+import weka.core.Utils;
+import weka.core.weights.LongIntHashMap;
+import weka.core.weights.Parallel;
+import weka.core.weights.SparseAccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Gives every group the same total weight, regardless of its number of rows. A group is defined by the combination of the values of the key attributes (nominal or string; missing is a value of its own). Each row receives the target total divided by the number of rows in its group.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -R &lt;range&gt;
+ *  The key attributes (nominal or string).
+ *  This is a comma separated list of attribute indices, with "first" and "last" valid values.
+ *  Specify an inclusive range with "-".
+ *  E.g: "first-3,5,6-10,last".
+ *  (default: first)</pre>
+ *
+ * <pre> -target-total &lt;num&gt;
+ *  The total weight of each group; 0 or less to use the average
+ *  number of rows per group (sum of weights equals number of rows).
+ *  (default: 0.0)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class EqualizeGroups
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = -5306164783962474311L;
+
+  /** the key attributes. */
+  protected Range m_KeyAttributes = new Range("first");
+
+  /** the total weight per group. */
+  protected double m_TargetTotal = 0.0;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Gives every group the same total weight, regardless of its number "
+      + "of rows. A group is defined by the combination of the values of the "
+      + "key attributes (nominal or string; missing is a value of its own). "
+      + "Each row receives the target total divided by the number of rows "
+      + "in its group.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(new Option("\tThe key attributes (nominal or string).\n"
+      + "\tThis is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values.\n"
+      + "\tSpecify an inclusive range with \"-\".\n"
+      + "\tE.g: \"first-3,5,6-10,last\".\n" + "\t(default: first)", "R",
+      1, "-R <range>"));
+
+    result.addElement(
+      new Option(
+	"\tThe total weight of each group; 0 or less to use the average\n"
+	  + "\tnumber of rows per group (sum of weights equals number of rows).\n"
+	  + "\t(default: 0.0)",
+	"target-total", 1, "-target-total <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("R", options);
+    if (tmpStr.length() != 0)
+      setKeyAttributes(tmpStr);
+    else
+      setKeyAttributes("first");
+
+    tmpStr = Utils.getOption("target-total", options);
+    if (tmpStr.length() != 0)
+      setTargetTotal(Double.parseDouble(tmpStr));
+    else
+      setTargetTotal(0.0);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-R");
+    result.add(getKeyAttributes());
+
+    result.add("-target-total");
+    result.add("" + getTargetTotal());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the key attributes.
+   *
+   * @param value the range of attributes, eg: first-3,5,6-last
+   */
+  public void setKeyAttributes(String value) {
+    m_KeyAttributes.setRanges(value);
+  }
+
+  /**
+   * Gets the key attributes.
+   *
+   * @return the range of attributes
+   */
+  public String getKeyAttributes() {
+    return m_KeyAttributes.getRanges();
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String keyAttributesTipText() {
+    return "The nominal or string attributes that make up the group key; "
+      + "this is a comma separated list of attribute indices, with "
+      + "\"first\" and \"last\" valid values; specify an inclusive "
+      + "range with \"-\"; eg: \"first-3,5,6-10,last\".";
+  }
+
+  /**
+   * Sets the total weight of each group.
+   *
+   * @param value the total, 0 or less for average group size
+   */
+  public void setTargetTotal(double value) {
+    m_TargetTotal = value;
+  }
+
+  /**
+   * Gets the total weight of each group.
+   *
+   * @return the total, 0 or less for average group size
+   */
+  public double getTargetTotal() {
+    return m_TargetTotal;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String targetTotalTipText() {
+    return "The total weight of each group; 0 or less to use the average number "
+      + "of rows per group, which keeps the sum of weights at the number of rows.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if key attributes invalid
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    Range	range;
+    int[]	indices;
+    Attribute	att;
+
+    range = new Range(getKeyAttributes());
+    range.setUpper(data.numAttributes() - 1);
+    indices = range.getSelection();
+    if (indices.length == 0)
+      throw new IllegalArgumentException("No key attributes selected: " + getKeyAttributes());
+    for (int index: indices) {
+      att = data.attribute(index);
+      if (!att.isNominal() && !att.isString())
+	throw new IllegalArgumentException("Key attribute is neither nominal nor string: " + att.name());
+    }
+
+    return new Plan(indices, m_TargetTotal, m_NumThreads);
+  }
+
+  /**
+   * Counts the rows per group and assigns the weights.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the key attributes. */
+    protected final int[] m_Indices;
+
+    /** the total weight per group. */
+    protected final double m_TargetTotal;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param indices		the indices of the key attributes
+     * @param targetTotal	the total weight per group, 0 or less for average group size
+     * @param numThreads	the number of threads
+     */
+    public Plan(int[] indices, double targetTotal, int numThreads) {
+      m_Indices     = indices.clone();
+      m_TargetTotal = targetTotal;
+      m_NumThreads  = numThreads;
+    }
+
+    /**
+     * Determines the radix of each key attribute: the number of values plus
+     * one for missing. The number of string values varies from batch to
+     * batch, hence this cannot be done when compiling.
+     *
+     * @param data	the data to determine the radices for
+     * @return		the radices
+     */
+    protected long[] radices(Instances data) {
+      long[]	result;
+      long	combinations;
+      int	i;
+
+      result       = new long[m_Indices.length];
+      combinations = 1;
+      for (i = 0; i < m_Indices.length; i++) {
+	result[i] = data.attribute(m_Indices[i]).numValues() + 1;
+	if (combinations > Long.MAX_VALUE / result[i])
+	  throw new IllegalArgumentException("Too many combinations of key values to encode as long!");
+	combinations *= result[i];
+      }
+
+      return result;
+    }
+
+    /**
+     * Encodes the values of the key attributes as a single number.
+     *
+     * @param inst	the row to encode
+     * @param radices	the radices of the key attributes
+     * @return		the key
+     */
+    protected long key(Instance inst, long[] radices) {
+      long	result;
+      double	value;
+      int	i;
+
+      result = 0;
+      for (i = 0; i < m_Indices.length; i++) {
+	value  = SparseAccess.value(inst, m_Indices[i]);
+	result = result * radices[i] + (Utils.isMissingValue(value) ? 0 : (long) value + 1);
+      }
+
+      return result;
+    }
+
+    /**
+     * Counts the rows per group, using one map per chunk which get merged
+     * at the end.
+     *
+     * @param data	the data to count
+     * @param radices	the radices of the key attributes
+     * @return		the counts per key
+     * @throws Exception	if counting fails
+     */
+    public LongIntHashMap countGroups(final Instances data, final long[] radices) throws Exception {
+      LongIntHashMap		result;
+      List<LongIntHashMap>	partial;
+      int			i;
+
+      partial = Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<LongIntHashMap>() {
+	public LongIntHashMap process(int chunk, int from, int to) {
+	  LongIntHashMap counts = new LongIntHashMap();
+	  for (int i = from; i < to; i++)
+	    counts.add(key(data.instance(i), radices), 1);
+	  return counts;
+	}
+      });
+
+      result = partial.get(0);
+      for (i = 1; i < partial.size(); i++) {
+	result.addAll(partial.get(i));
+	partial.set(i, null);
+      }
+
+      return result;
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data) throws Exception {
+      final long[]		radices;
+      final LongIntHashMap	counts;
+      final double		target;
+      final double[]		weights;
+
+      if (data.numInstances() == 0)
+	return new Instances(data, 0);
+
+      radices = radices(data);
+      counts  = countGroups(data, radices);
+      if (m_TargetTotal > 0)
+	target = m_TargetTotal;
+      else
+	target = (double) data.numInstances() / counts.size();
+
+      weights = new double[data.numInstances()];
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++)
+	    weights[i] = target / counts.get(key(data.instance(i), radices));
+	  return null;
+	}
+      });
+
+      return applyWeights(data, weights);
+    }
+  }
+}
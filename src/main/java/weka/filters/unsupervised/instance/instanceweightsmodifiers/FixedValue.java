@@ -20,10 +20,10 @@
 
 package weka.filters.unsupervised.instance.instanceweightsmodifiers;
 
-import weka.core.Instance;
 import weka.core.Instances;
 import weka.core.Option;
 import weka.core.Utils;
+import weka.core.weights.Intervals;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -176,26 +176,60 @@ public class FixedValue
   }
 
   /**
-   * Performs the actual modification of the instance weights.
+   * Compiles the plan for the data.
    *
-   * @param data        the data to process
-   * @return		the modified data
-   * @throws Exception	if modifying fails
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if compilation fails
    */
   @Override
-  protected Instances doModify(Instances data) throws Exception {
-    Instances	result;
-    Instance	inst;
-    int		i;
-
-    result = new Instances(determineOutputFormat(data), data.numInstances());
-    for (i = 0; i < data.numInstances(); i++) {
-      inst = (Instance) data.instance(i).copy();
-      if (m_RowIndices.isInRange(i))
-	inst.setWeight(m_Weight);
-      result.add(inst);
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(resolveRowIndices(data), m_Weight);
+  }
+
+  /**
+   * Applies the weight to the resolved intervals of rows.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the rows to modify. */
+    protected final Intervals m_Rows;
+
+    /** the weight to apply. */
+    protected final double m_Weight;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param rows	the rows to modify
+     * @param weight	the weight to apply
+     */
+    public Plan(Intervals rows, double weight) {
+      m_Rows   = rows;
+      m_Weight = weight;
     }
 
-    return result;
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     */
+    public Instances apply(Instances data) {
+      Instances	result;
+      int	i;
+      int	n;
+
+      result = new Instances(data, data.numInstances());
+      for (i = 0; i < data.numInstances(); i++)
+	result.add(data.instance(i));
+      for (n = 0; n < m_Rows.size(); n++) {
+	for (i = m_Rows.start(n); (i <= m_Rows.end(n)) && (i < result.numInstances()); i++)
+	  result.instance(i).setWeight(m_Weight);
+      }
+
+      return result;
+    }
   }
 }
@@ -0,0 +1,331 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FixedValueByBitmap.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+import weka.core.weights.CompressedBitmap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Uses a user-supplied instance weight on all the instances which 0-based row indices are set in the compressed bitmap file (portable Roaring format).
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -weight &lt;number&gt;
+ *  The instance weight to use.
+ *  (default: 1.0)</pre>
+ *
+ * <pre> -bitmap &lt;file&gt;
+ *  The compressed bitmap file with the 0-based row indices (portable Roaring format)
+ *  (default: .)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FixedValueByBitmap
+  extends AbstractInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 6170925934474398573L;
+
+  /** the fixed weight to use. */
+  protected double m_Weight = 1.0;
+
+  /** the file with the row selection. */
+  protected File m_BitmapFile = new File(".");
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Uses a user-supplied instance weight on all the instances which "
+      + "0-based row indices are set in the compressed bitmap file "
+      + "(portable Roaring format).";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe instance weight to use.\n"
+	  + "\t(default: 1.0)",
+	"weight", 1, "-weight <number>"));
+
+    result.addElement(
+      new Option(
+	"\tThe compressed bitmap file with the 0-based row indices (portable Roaring format)\n"
+	  + "\t(default: .)",
+	"bitmap", 1, "-bitmap <file>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("weight", options);
+    if (tmpStr.length() != 0) {
+      setWeight(Double.parseDouble(tmpStr));
+    }
+    else {
+      setWeight(1.0);
+    }
+
+    tmpStr = Utils.getOption("bitmap", options);
+    if (tmpStr.isEmpty())
+      tmpStr = ".";
+    setBitmapFile(new File(tmpStr));
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-weight");
+    result.add("" + getWeight());
+
+    result.add("-bitmap");
+    result.add("" + getBitmapFile());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the weight to use.
+   *
+   * @param value the weight
+   */
+  public void setWeight(double value) {
+    m_Weight = value;
+  }
+
+  /**
+   * Gets the current weight.
+   *
+   * @return the weight
+   */
+  public double getWeight() {
+    return m_Weight;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String weightTipText() {
+    return "The weight to use.";
+  }
+
+  /**
+   * Sets the file with the row selection.
+   *
+   * @param value the file
+   */
+  public void setBitmapFile(File value) {
+    m_BitmapFile = value;
+  }
+
+  /**
+   * Get the file with the row selection.
+   *
+   * @return the file
+   */
+  public File getBitmapFile() {
+    return m_BitmapFile;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String bitmapFileTipText() {
+    return "The compressed bitmap file with the 0-based indices of the rows "
+      + "to apply the weight to (portable Roaring format).";
+  }
+
+  /**
+   * Hook method for performing checks before modifying the weights.
+   *
+   * @param data	the data to check
+   * @throws Exception	if check fails
+   */
+  @Override
+  protected void check(Instances data) throws Exception {
+    super.check(data);
+
+    if (!m_BitmapFile.exists())
+      throw new IllegalArgumentException("Bitmap file does not exist: " + m_BitmapFile);
+    if (m_BitmapFile.isDirectory())
+      throw new IllegalArgumentException("Bitmap file points to a directory: " + m_BitmapFile);
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Loads the row selection from disk.
+   *
+   * @return		the bitmap
+   * @throws Exception	if reading of bitmap fails
+   */
+  protected CompressedBitmap loadBitmap() throws Exception {
+    return CompressedBitmap.read(m_BitmapFile);
+  }
+
+  /**
+   * Returns the key that identifies the plan, in addition to the structure of
+   * the data. Adds size and timestamp of the bitmap file.
+   *
+   * @param data	the data to generate the key for
+   * @return		the key
+   */
+  @Override
+  protected String getPlanKey(Instances data) {
+    return super.getPlanKey(data) + " #file=" + m_BitmapFile.length() + "/" + m_BitmapFile.lastModified();
+  }
+
+  /**
+   * Returns the size in bytes of the bitmap file.
+   *
+   * @return		the size
+   */
+  @Override
+  protected long getSourceSize() {
+    return m_BitmapFile.length();
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if loading of the bitmap fails
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(loadBitmap(), m_Weight);
+  }
+
+  /**
+   * Applies the weight to the rows set in the bitmap.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the row selection. */
+    protected final CompressedBitmap m_Bitmap;
+
+    /** the weight to apply. */
+    protected final double m_Weight;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param bitmap	the row selection
+     * @param weight	the weight to apply
+     */
+    public Plan(CompressedBitmap bitmap, double weight) {
+      m_Bitmap = bitmap;
+      m_Weight = weight;
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     */
+    public Instances apply(Instances data) {
+      Instances			result;
+      int			i;
+      CompressedBitmap.Cursor	cursor;
+
+      if (m_Bitmap.last() >= data.numInstances())
+	System.err.println("Bitmap selects rows beyond the data: " + m_Bitmap.last() + " >= " + data.numInstances());
+
+      result = new Instances(data, data.numInstances());
+      for (i = 0; i < data.numInstances(); i++)
+	result.add(data.instance(i));
+      cursor = m_Bitmap.cursor();
+      while (((i = cursor.next()) != -1) && (i < result.numInstances()))
+	result.instance(i).setWeight(m_Weight);
+
+      return result;
+    }
+  }
+}
@@ -182,26 +182,52 @@ public class FixedValueByRegExp
   }
 
   /**
-   * Performs the actual modification of the instance weights.
+   * Compiles the plan for the data.
    *
-   * @param data        the data to process
-   * @return		the modified data
-   * @throws Exception	if modifying fails
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if compilation fails
    */
   @Override
-  protected Instances doModify(Instances data) throws Exception {
-    Instances	result;
-    Instance	inst;
-    int		i;
-
-    result = new Instances(determineOutputFormat(data), data.numInstances());
-    for (i = 0; i < data.numInstances(); i++) {
-      inst = (Instance) data.instance(i).copy();
-      if (isMatch(inst.stringValue(m_AttributeIndex.getIndex())))
-	inst.setWeight(m_Weight);
-      result.add(inst);
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(compileMatcher(data), m_Weight);
+  }
+
+  /**
+   * Applies the weight to the rows which attribute value matches.
+   */
+  public static class Plan
+    extends AbstractInstanceWeightsPlan {
+
+    /** the matcher to use. */
+    protected final ValueMatcher m_Matcher;
+
+    /** the weight to apply. */
+    protected final double m_Weight;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param matcher	the matcher to use
+     * @param weight	the weight to apply
+     */
+    public Plan(ValueMatcher matcher, double weight) {
+      m_Matcher = matcher;
+      m_Weight  = weight;
     }
 
-    return result;
+    /**
+     * Returns the new weight for the row.
+     *
+     * @param inst	the row
+     * @param index	the 0-based index of the row
+     * @return		the new weight
+     */
+    @Override
+    protected double weight(Instance inst, int index) {
+      if (m_Matcher.isMatch(inst))
+	return m_Weight;
+      return inst.weight();
+    }
   }
 }
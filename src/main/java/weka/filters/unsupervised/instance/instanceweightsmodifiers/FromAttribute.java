@@ -25,6 +25,7 @@ import weka.core.Instances;
 import weka.core.Option;
 import weka.core.SingleIndex;
 import weka.core.Utils;
+import weka.core.weights.SparseAccess;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -161,20 +162,24 @@ public class FromAttribute
   }
 
   /**
-   * Hook method for performing checks before modifying the weights.
+   * Resolves the attribute index against the data and checks the type of
+   * the attribute.
    *
-   * @param data	the data to check
-   * @throws Exception	if check fails
+   * @param data	the data to resolve the index for
+   * @return		the 0-based index
+   * @throws Exception	if index invalid or attribute not numeric
    */
-  @Override
-  protected void check(Instances data) throws Exception {
-    super.check(data);
-
-    m_AttributeIndex.setUpper(data.numAttributes() - 1);
-    if (m_AttributeIndex.getIndex() == -1)
-      throw new IllegalArgumentException("Attribute index not valid: " + m_AttributeIndex.getSingleIndex());
-    if (!data.attribute(m_AttributeIndex.getIndex()).isNumeric())
-      throw new IllegalArgumentException("Attribute is not numeric: " + m_AttributeIndex.getSingleIndex());
+  protected int resolveAttributeIndex(Instances data) throws Exception {
+    SingleIndex		index;
+
+    index = new SingleIndex(getAttributeIndex());
+    index.setUpper(data.numAttributes() - 1);
+    if (index.getIndex() == -1)
+      throw new IllegalArgumentException("Attribute index not valid: " + index.getSingleIndex());
+    if (!data.attribute(index.getIndex()).isNumeric())
+      throw new IllegalArgumentException("Attribute is not numeric: " + index.getSingleIndex());
+
+    return index.getIndex();
   }
 
   /**
@@ -189,28 +194,45 @@ public class FromAttribute
   }
 
   /**
-   * Performs the actual modification of the instance weights.
+   * Compiles the plan for the data.
    *
-   * @param data        the data to process
-   * @return		the modified data
-   * @throws Exception	if modifying fails
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if compilation fails
    */
   @Override
-  protected Instances doModify(Instances data) throws Exception {
-    Instances	result;
-    Instance	inst;
-    int		i;
-    int		index;
-
-    result = new Instances(determineOutputFormat(data), data.numInstances());
-
-    index = m_AttributeIndex.getIndex();
-    for (i = 0; i < data.numInstances(); i++) {
-      inst = (Instance) data.instance(i).copy();
-      inst.setWeight(inst.value(index));
-      result.add(inst);
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(resolveAttributeIndex(data));
+  }
+
+  /**
+   * Uses the value of the resolved attribute as weight.
+   */
+  public static class Plan
+    extends AbstractInstanceWeightsPlan {
+
+    /** the 0-based index of the attribute with the weights. */
+    protected final int m_Index;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param index	the 0-based index of the attribute with the weights
+     */
+    public Plan(int index) {
+      m_Index = index;
     }
 
-    return result;
+    /**
+     * Returns the new weight for the row.
+     *
+     * @param inst	the row
+     * @param index	the 0-based index of the row
+     * @return		the new weight
+     */
+    @Override
+    protected double weight(Instance inst, int index) {
+      return SparseAccess.value(inst, m_Index);
+    }
   }
 }
@@ -0,0 +1,253 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromExpression.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+import weka.core.weights.Parallel;
+import weka.core.weights.WeightExpression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Computes the instance weights with a mathematical expression over the attribute values and the current weight, eg 'log1p(ATT3) * (ATT7 &gt; 0 ? 2 : 1)'.<br>
+ * Variables: attribute names (use single quotes for names that are not plain identifiers), ATTn for the n-th attribute (1-based), WEIGHT for the current weight.<br>
+ * Operators: ?:, ||, &amp;&amp;, !, &lt;, &lt;=, &gt;, &gt;=, ==, !=, +, -, *, /, %, ^<br>
+ * Functions: abs, sqrt, log, log1p, exp, floor, ceil, round, ismissing, min, max, pow<br>
+ * Nominal attributes evaluate to the label index, missing values to NaN. Rows for which the expression is missing or infinite keep their weight, negative results are set to 0. The expression gets compiled once per dataset structure.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -expression &lt;expr&gt;
+ *  The expression for computing the weights.
+ *  (default: WEIGHT)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromExpression
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = -1817370925316539093L;
+
+  /** the expression. */
+  protected String m_Expression = "WEIGHT";
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Computes the instance weights with a mathematical expression over "
+      + "the attribute values and the current weight, eg "
+      + "'log1p(ATT3) * (ATT7 > 0 ? 2 : 1)'.\n"
+      + "Variables: attribute names (use single quotes for names that are not "
+      + "plain identifiers), ATTn for the n-th attribute (1-based), WEIGHT for "
+      + "the current weight.\n"
+      + "Operators: ?:, ||, &&, !, <, <=, >, >=, ==, !=, +, -, *, /, %, ^\n"
+      + "Functions: abs, sqrt, log, log1p, exp, floor, ceil, round, ismissing, "
+      + "min, max, pow\n"
+      + "Nominal attributes evaluate to the label index, missing values to NaN. "
+      + "Rows for which the expression is missing or infinite keep their "
+      + "weight, negative results are set to 0. The expression gets compiled "
+      + "once per dataset structure.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe expression for computing the weights.\n"
+	  + "\t(default: WEIGHT)",
+	"expression", 1, "-expression <expr>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("expression", options);
+    if (tmpStr.length() != 0)
+      setExpression(tmpStr);
+    else
+      setExpression("WEIGHT");
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-expression");
+    result.add(getExpression());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the expression.
+   *
+   * @param value the expression
+   */
+  public void setExpression(String value) {
+    m_Expression = value;
+  }
+
+  /**
+   * Gets the expression.
+   *
+   * @return the expression
+   */
+  public String getExpression() {
+    return m_Expression;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String expressionTipText() {
+    return "The expression for computing the weights, eg 'log1p(ATT3) * (ATT7 > 0 ? 2 : 1)'.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if the expression is invalid
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(WeightExpression.compile(m_Expression, data), m_NumThreads);
+  }
+
+  /**
+   * Evaluates the compiled expression for each row.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the compiled expression. */
+    protected final WeightExpression m_Expression;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param expression	the compiled expression
+     * @param numThreads	the number of threads
+     */
+    public Plan(WeightExpression expression, int numThreads) {
+      m_Expression = expression;
+      m_NumThreads = numThreads;
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(final Instances data) throws Exception {
+      final double[]	weights;
+
+      weights = new double[data.numInstances()];
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++) {
+	    double weight = m_Expression.evaluate(data.instance(i));
+	    if (Double.isNaN(weight) || Double.isInfinite(weight))
+	      weights[i] = data.instance(i).weight();
+	    else
+	      weights[i] = Math.max(0.0, weight);
+	  }
+	  return null;
+	}
+      });
+
+      return applyWeights(data, weights);
+    }
+  }
+}
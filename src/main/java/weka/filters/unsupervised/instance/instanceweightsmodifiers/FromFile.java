@@ -29,6 +29,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
@@ -194,17 +195,22 @@ public class FromFile
    * @return		the weights
    * @throws Exception	if reading of weights fails
    */
-  protected List<Double> loadWeights() throws Exception {
-    List<Double>	result;
+  protected double[] loadWeights() throws Exception {
+    double[]		result;
+    int			count;
     BufferedReader	reader;
     String		line;
 
-    result = new ArrayList<Double>();
+    result = new double[1024];
+    count  = 0;
     reader = null;
     try {
       reader = new BufferedReader(new FileReader(m_WeightsFile));
-      while ((line = reader.readLine()) != null)
-	result.add(Double.parseDouble(line));
+      while ((line = reader.readLine()) != null) {
+	if (count == result.length)
+	  result = Arrays.copyOf(result, result.length * 2);
+	result[count++] = Double.parseDouble(line);
+      }
     }
     catch (Exception e) {
       throw e;
@@ -220,36 +226,88 @@ public class FromFile
       }
     }
 
-    return result;
+    return Arrays.copyOf(result, count);
+  }
+
+  /**
+   * Returns the key that identifies the plan, in addition to the structure of
+   * the data. Adds size and timestamp of the weights file.
+   *
+   * @param data	the data to generate the key for
+   * @return		the key
+   */
+  @Override
+  protected String getPlanKey(Instances data) {
+    return super.getPlanKey(data) + " #file=" + m_WeightsFile.length() + "/" + m_WeightsFile.lastModified();
+  }
+
+  /**
+   * Returns the size in bytes of the weights file.
+   *
+   * @return		the size
+   */
+  @Override
+  protected long getSourceSize() {
+    return m_WeightsFile.length();
   }
 
   /**
-   * Performs the actual modification of the instance weights.
+   * Compiles the plan for the data.
    *
-   * @param data        the data to process
-   * @return		the modified data
-   * @throws Exception	if modifying fails
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if loading of the weights fails
    */
   @Override
-  protected Instances doModify(Instances data) throws Exception {
-    Instances		result;
-    Instance		inst;
-    int			i;
-    List<Double>	weights;
-
-    weights = loadWeights();
-    if (weights.size() < data.numInstances())
-      throw new IllegalStateException("Not enough weights: " + weights.size() + " < " + data.numInstances());
-    if (weights.size() > data.numInstances())
-      System.err.println("More weights than rows: " + weights.size() + " > " + data.numInstances());
-
-    result = new Instances(determineOutputFormat(data), data.numInstances());
-    for (i = 0; i < data.numInstances(); i++) {
-      inst = (Instance) data.instance(i).copy();
-      inst.setWeight(weights.get(i));
-      result.add(inst);
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(loadWeights());
+  }
+
+  /**
+   * Applies the loaded weights.
+   */
+  public static class Plan
+    extends AbstractInstanceWeightsPlan {
+
+    /** the weights. */
+    protected final double[] m_Weights;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param weights	the weights to apply
+     */
+    public Plan(double[] weights) {
+      m_Weights = weights;
     }
 
-    return result;
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    @Override
+    public Instances apply(Instances data) throws Exception {
+      if (m_Weights.length < data.numInstances())
+	throw new IllegalStateException("Not enough weights: " + m_Weights.length + " < " + data.numInstances());
+      if (m_Weights.length > data.numInstances())
+	System.err.println("More weights than rows: " + m_Weights.length + " > " + data.numInstances());
+
+      return super.apply(data);
+    }
+
+    /**
+     * Returns the new weight for the row.
+     *
+     * @param inst	the row
+     * @param index	the 0-based index of the row
+     * @return		the new weight
+     */
+    @Override
+    protected double weight(Instance inst, int index) {
+      return m_Weights[index];
+    }
   }
 }
@@ -0,0 +1,41 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceWeightsPlan.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, New Zealand
+ */
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instances;
+
+/**
+ * Interface for the compiled form of an instance weights modifier, i.e.,
+ * its configuration resolved against a specific dataset structure. Plans
+ * are immutable and can be applied by multiple threads concurrently.
+ *
+ * @author fracpete (fracpete at waikato dot ac dot nz)
+ */
+public interface InstanceWeightsPlan {
+
+  /**
+   * Applies the plan to the data.
+   *
+   * @param data        the data to process
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  public Instances apply(Instances data) throws Exception;
+}
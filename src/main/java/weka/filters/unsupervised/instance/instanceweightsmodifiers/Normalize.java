@@ -0,0 +1,469 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * Normalize.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.weights.CompensatedSum;
+import weka.core.weights.Parallel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Rescales the instance weights, as output by the base modifier, to either average or sum up to the specified value (eg average 1, i.e., sum up to the number of rows). The total weight is determined with compensated summation (bounded error on any number of rows, independent of the number of threads) in a read-only sweep; the base modifier's output is rescaled in place, i.e., no additional copy of the data gets created.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -modifier &lt;classname + options&gt;
+ *  The base modifier which weights to normalize.
+ *  (default: weka.filters.unsupervised.instance.instanceweightsmodifiers.PassThrough)</pre>
+ *
+ * <pre> -mode &lt;mean|sum&gt;
+ *  Whether the weights should average or sum up to the value.
+ *  (default: mean)</pre>
+ *
+ * <pre> -value &lt;num&gt;
+ *  The value for the average/sum of the weights.
+ *  (default: 1.0)</pre>
+ *
+ * <pre> -num-threads &lt;num&gt;
+ *  The number of threads to use.
+ *  (default: 1 - i.e. no parallelism)
+ *  (use 0 to auto-detect number of cores)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class Normalize
+  extends AbstractParallelInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 7702766802785393290L;
+
+  /** the weights average up to the value. */
+  public static final int MODE_MEAN = 0;
+
+  /** the weights sum up to the value. */
+  public static final int MODE_SUM = 1;
+
+  /** the modes. */
+  public static final Tag[] TAGS_MODE = {
+    new Tag(MODE_MEAN, "mean", "Mean", false),
+    new Tag(MODE_SUM, "sum", "Sum", false),
+  };
+
+  /** the base modifier. */
+  protected InstanceWeightsModifier m_Modifier = new PassThrough();
+
+  /** the mode. */
+  protected int m_Mode = MODE_MEAN;
+
+  /** the value. */
+  protected double m_Value = 1.0;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Rescales the instance weights, as output by the base modifier, to "
+      + "either average or sum up to the specified value (eg average 1, i.e., "
+      + "sum up to the number of rows). The total weight is determined with "
+      + "compensated summation (bounded error on any number of rows, independent "
+      + "of the number of threads) in a read-only sweep; the base modifier's "
+      + "output is rescaled in place, i.e., no additional copy of the data gets "
+      + "created.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe base modifier which weights to normalize.\n"
+	  + "\t(default: " + PassThrough.class.getName() + ")",
+	"modifier", 1, "-modifier <classname + options>"));
+
+    result.addElement(
+      new Option(
+	"\tWhether the weights should average or sum up to the value.\n"
+	  + "\t(default: mean)",
+	"mode", 1, "-mode <mean|sum>"));
+
+    result.addElement(
+      new Option(
+	"\tThe value for the average/sum of the weights.\n"
+	  + "\t(default: 1.0)",
+	"value", 1, "-value <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+    String 	className;
+    String[] 	classOptions;
+
+    tmpStr = Utils.getOption("modifier", options);
+    if (tmpStr.length() != 0) {
+      classOptions    = Utils.splitOptions(tmpStr);
+      className       = classOptions[0];
+      classOptions[0] = "";
+      setModifier((InstanceWeightsModifier) Utils.forName(InstanceWeightsModifier.class, className, classOptions));
+    }
+    else {
+      setModifier(new PassThrough());
+    }
+
+    tmpStr = Utils.getOption("mode", options);
+    if (tmpStr.length() != 0)
+      setMode(new SelectedTag(tmpStr, TAGS_MODE));
+    else
+      setMode(new SelectedTag(MODE_MEAN, TAGS_MODE));
+
+    tmpStr = Utils.getOption("value", options);
+    if (tmpStr.length() != 0)
+      setValue(Double.parseDouble(tmpStr));
+    else
+      setValue(1.0);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-modifier");
+    result.add(Utils.toCommandLine(getModifier()));
+
+    result.add("-mode");
+    result.add(getMode().getSelectedTag().getIDStr());
+
+    result.add("-value");
+    result.add("" + getValue());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the base modifier.
+   *
+   * @param value the modifier
+   */
+  public void setModifier(InstanceWeightsModifier value) {
+    m_Modifier = value;
+  }
+
+  /**
+   * Gets the base modifier.
+   *
+   * @return the modifier
+   */
+  public InstanceWeightsModifier getModifier() {
+    return m_Modifier;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String modifierTipText() {
+    return "The base modifier which weights to normalize.";
+  }
+
+  /**
+   * Sets the mode.
+   *
+   * @param value the mode
+   */
+  public void setMode(SelectedTag value) {
+    if (value.getTags() == TAGS_MODE)
+      m_Mode = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the mode.
+   *
+   * @return the mode
+   */
+  public SelectedTag getMode() {
+    return new SelectedTag(m_Mode, TAGS_MODE);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String modeTipText() {
+    return "Whether the weights should average or sum up to the value.";
+  }
+
+  /**
+   * Sets the value for the average/sum.
+   *
+   * @param value the value (greater than 0)
+   */
+  public void setValue(double value) {
+    if (!(value > 0))
+      throw new IllegalArgumentException("Value must be greater than 0: " + value);
+    m_Value = value;
+  }
+
+  /**
+   * Gets the value for the average/sum.
+   *
+   * @return the value
+   */
+  public double getValue() {
+    return m_Value;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String valueTipText() {
+    return "The value for the average/sum of the weights, eg an average of 1.";
+  }
+
+  /**
+   * Returns the new output format, as determined by the base modifier.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return m_Modifier.determineOutputFormat(inputFormat);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	never
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(m_Mode, m_Value, m_NumThreads);
+  }
+
+  /**
+   * Applies the base modifier and rescales its output in place. If the base
+   * modifier returned the input data (eg PassThrough), the data gets copied
+   * with the rescaled weights in one pass.
+   *
+   * @param data        the data to process
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  @Override
+  protected Instances doModify(Instances data) throws Exception {
+    Plan	plan;
+    Instances	result;
+
+    plan   = (Plan) getPlan(data);
+    result = m_Modifier.modifyInstanceWeights(data);
+    if (result == data)
+      return plan.apply(data);
+
+    plan.rescale(result);
+    return result;
+  }
+
+  /**
+   * Determines the total weight and rescales the weights.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the number of rows per block to sum up. */
+    public static final int BLOCK_SIZE = 4096;
+
+    /** the mode. */
+    protected final int m_Mode;
+
+    /** the value. */
+    protected final double m_Value;
+
+    /** the number of threads. */
+    protected final int m_NumThreads;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param mode		the mode
+     * @param value		the value for the average/sum
+     * @param numThreads	the number of threads
+     */
+    public Plan(int mode, double value, int numThreads) {
+      m_Mode       = mode;
+      m_Value      = value;
+      m_NumThreads = numThreads;
+    }
+
+    /**
+     * Computes the total weight with compensated summation. The rows are
+     * summed up in fixed blocks, which get combined in order, i.e., the
+     * result does not depend on the number of threads.
+     *
+     * @param data	the data to sum up
+     * @return		the total weight
+     * @throws Exception	if summing fails
+     */
+    public double total(final Instances data) throws Exception {
+      final CompensatedSum[]	blocks;
+      final int			numRows;
+      CompensatedSum		result;
+
+      numRows = data.numInstances();
+      blocks  = new CompensatedSum[(numRows + BLOCK_SIZE - 1) / BLOCK_SIZE];
+      Parallel.forEachChunk(blocks.length, m_NumThreads, 1, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int b = from; b < to; b++) {
+	    blocks[b] = new CompensatedSum();
+	    int end = Math.min(numRows, (b + 1) * BLOCK_SIZE);
+	    for (int i = b * BLOCK_SIZE; i < end; i++)
+	      blocks[b].add(data.instance(i).weight());
+	  }
+	  return null;
+	}
+      });
+
+      result = new CompensatedSum();
+      for (CompensatedSum block: blocks)
+	result.add(block);
+
+      return result.value();
+    }
+
+    /**
+     * Returns the factor to rescale the weights with.
+     *
+     * @param data	the data to determine the factor for
+     * @return		the factor, 1 if the total weight is not positive
+     * @throws Exception	if summing fails
+     */
+    public double scale(Instances data) throws Exception {
+      double	total;
+
+      total = total(data);
+      if (!(total > 0)) {
+	System.err.println("Total weight is not positive, cannot normalize: " + total);
+	return 1.0;
+      }
+      if (m_Mode == MODE_SUM)
+	return m_Value / total;
+      return m_Value * data.numInstances() / total;
+    }
+
+    /**
+     * Rescales the weights of the data in place.
+     *
+     * @param data	the data to rescale
+     * @throws Exception	if rescaling fails
+     */
+    public void rescale(final Instances data) throws Exception {
+      final double	scale;
+
+      scale = scale(data);
+      Parallel.forEachChunk(data.numInstances(), m_NumThreads, new Parallel.ChunkTask<Object>() {
+	public Object process(int chunk, int from, int to) {
+	  for (int i = from; i < to; i++)
+	    data.instance(i).setWeight(data.instance(i).weight() * scale);
+	  return null;
+	}
+      });
+    }
+
+    /**
+     * Applies the plan to the data, copying the rows with the rescaled
+     * weights.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     * @throws Exception	if modifying fails
+     */
+    public Instances apply(Instances data) throws Exception {
+      Instances	result;
+      double	scale;
+      int	i;
+
+      scale  = scale(data);
+      result = new Instances(data, data.numInstances());
+      for (i = 0; i < data.numInstances(); i++) {
+	// shallow copies, sparse rows stay sparse
+	result.add(data.instance(i));
+	result.instance(i).setWeight(data.instance(i).weight() * scale);
+      }
+
+      return result;
+    }
+  }
+}
@@ -67,14 +67,30 @@ public class PassThrough
   }
 
   /**
-   * Performs the actual modification of the instance weights.
+   * Compiles the plan for the data.
    *
-   * @param data        the data to process
-   * @return		the modified data
-   * @throws Exception	if modifying fails
+   * @param data	the data to compile the plan for
+   * @return		the plan
    */
   @Override
-  protected Instances doModify(Instances data) throws Exception {
-    return data;
+  protected InstanceWeightsPlan compilePlan(Instances data) {
+    return new Plan();
+  }
+
+  /**
+   * Returns the data as is.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /**
+     * Returns the data as is.
+     *
+     * @param data        the data to process
+     * @return		the data
+     */
+    public Instances apply(Instances data) {
+      return data;
+    }
   }
 }
@@ -0,0 +1,323 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ReservoirSample.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.Utils;
+import weka.core.weights.WeightedReservoir;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Down-samples the data to at most the specified number of rows, keeping rows with probability proportional to their weight (weighted reservoir sampling without replacement, A-ExpJ; single pass, memory proportional to the sample size). The kept rows each represent total weight / sample size, i.e., the total weight is preserved. If no more rows than the sample size have a positive weight, these rows are kept unchanged. Rows with a weight of zero or less are dropped. The rows are output in their original order.
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -sample-size &lt;num&gt;
+ *  The maximum number of rows to keep.
+ *  (default: 1000)</pre>
+ *
+ * <pre> -seed &lt;num&gt;
+ *  The seed for the random numbers.
+ *  (default: 1)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ * @see WeightedReservoir
+ */
+public class ReservoirSample
+  extends AbstractInstanceWeightsModifier {
+
+  private static final long serialVersionUID = 5617032916434508841L;
+
+  /** the sample size. */
+  protected int m_SampleSize = 1000;
+
+  /** the seed. */
+  protected long m_Seed = 1;
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Down-samples the data to at most the specified number of rows, "
+      + "keeping rows with probability proportional to their weight (weighted "
+      + "reservoir sampling without replacement, A-ExpJ; single pass, memory "
+      + "proportional to the sample size). The kept rows each represent total "
+      + "weight / sample size, i.e., the total weight is preserved. If no more "
+      + "rows than the sample size have a positive weight, these rows are kept "
+      + "unchanged. Rows with a weight of zero or less are dropped. The rows "
+      + "are output in their original order.";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tThe maximum number of rows to keep.\n"
+	  + "\t(default: 1000)",
+	"sample-size", 1, "-sample-size <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe seed for the random numbers.\n"
+	  + "\t(default: 1)",
+	"seed", 1, "-seed <num>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption("sample-size", options);
+    if (tmpStr.length() != 0)
+      setSampleSize(Integer.parseInt(tmpStr));
+    else
+      setSampleSize(1000);
+
+    tmpStr = Utils.getOption("seed", options);
+    if (tmpStr.length() != 0)
+      setSeed(Long.parseLong(tmpStr));
+    else
+      setSeed(1);
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-sample-size");
+    result.add("" + getSampleSize());
+
+    result.add("-seed");
+    result.add("" + getSeed());
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets the maximum number of rows to keep.
+   *
+   * @param value the sample size (at least 1)
+   */
+  public void setSampleSize(int value) {
+    if (value < 1)
+      throw new IllegalArgumentException("Sample size must be at least 1: " + value);
+    m_SampleSize = value;
+  }
+
+  /**
+   * Gets the maximum number of rows to keep.
+   *
+   * @return the sample size
+   */
+  public int getSampleSize() {
+    return m_SampleSize;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String sampleSizeTipText() {
+    return "The maximum number of rows to keep.";
+  }
+
+  /**
+   * Sets the seed for the random numbers.
+   *
+   * @param value the seed
+   */
+  public void setSeed(long value) {
+    m_Seed = value;
+  }
+
+  /**
+   * Gets the seed for the random numbers.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return m_Seed;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String seedTipText() {
+    return "The seed for the random numbers.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	never
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    return new Plan(m_SampleSize, m_Seed);
+  }
+
+  /**
+   * Samples the rows with a weighted reservoir.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the sample size. */
+    protected final int m_SampleSize;
+
+    /** the seed. */
+    protected final long m_Seed;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param sampleSize	the sample size
+     * @param seed		the seed
+     */
+    public Plan(int sampleSize, long seed) {
+      m_SampleSize = sampleSize;
+      m_Seed       = seed;
+    }
+
+    /**
+     * Returns a new, empty reservoir, eg for sampling a stream of rows.
+     *
+     * @return		the reservoir
+     */
+    public WeightedReservoir<Instance> newReservoir() {
+      return new WeightedReservoir<Instance>(m_SampleSize, m_Seed);
+    }
+
+    /**
+     * Turns the content of the reservoir into a dataset.
+     *
+     * @param header	the header of the data
+     * @param reservoir	the reservoir
+     * @return		the sampled rows, with adjusted weights
+     */
+    public Instances toInstances(Instances header, WeightedReservoir<Instance> reservoir) {
+      Instances		result;
+      List<Instance>	rows;
+      double		weight;
+      boolean		adjust;
+      int		i;
+
+      rows   = reservoir.getItems();
+      adjust = (reservoir.getCandidates() > rows.size());
+      weight = reservoir.getTotalWeight() / rows.size();
+
+      // shallow copies, sparse rows stay sparse
+      result = new Instances(header, rows.size());
+      for (i = 0; i < rows.size(); i++) {
+	result.add(rows.get(i));
+	if (adjust)
+	  result.instance(i).setWeight(weight);
+      }
+
+      return result;
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     */
+    public Instances apply(Instances data) {
+      WeightedReservoir<Instance>	reservoir;
+      Instance				inst;
+      int				i;
+
+      reservoir = newReservoir();
+      for (i = 0; i < data.numInstances(); i++) {
+	inst = data.instance(i);
+	reservoir.offer(inst, inst.weight());
+      }
+
+      return toInstances(data, reservoir);
+    }
+  }
+}
@@ -0,0 +1,631 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TimeDecay.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Option;
+import weka.core.SelectedTag;
+import weka.core.SingleIndex;
+import weka.core.Tag;
+import weka.core.Utils;
+import weka.core.weights.SparseAccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Vector;
+
+/**
+ <!-- globalinfo-start -->
+ * Weights recent rows more heavily: multiplies the weight of each row with a decay that depends on the age of the row, i.e., the time between the value of a date attribute and a reference time (fixed, the latest date in the batch or the current time).<br>
+ * exponential: factor^(age/period)<br>
+ * step: factor^floor(age/period)<br>
+ * Rows dated after the reference time are not decayed, rows with a missing date keep their weight. Only a per-row computation is required (apart from determining the latest date, if used as reference).<br>
+ * The latest date is determined per batch, i.e., every batch passed through the filter has its own reference time, and rows that the filter processes one at a time (after the first batch) are their own reference and keep their weight. For streaming, use a fixed reference time or the current time: the weight of a row then only depends on the row itself (see Plan.weight(Instance, double)).
+ * <br><br>
+ <!-- globalinfo-end -->
+ *
+ <!-- options-start -->
+ * Valid options are: <p>
+ *
+ * <pre> -C &lt;index&gt;
+ *  Specify the index of the date attribute. First and last
+ *  are valid indexes.(default: first)</pre>
+ *
+ * <pre> -decay &lt;exponential|step&gt;
+ *  The type of decay.
+ *  (default: exponential)</pre>
+ *
+ * <pre> -period &lt;days&gt;
+ *  The period in days after which the weight is multiplied with the factor.
+ *  (default: 30.0)</pre>
+ *
+ * <pre> -factor &lt;num&gt;
+ *  The factor per period (0-1], eg 0.5 for a half-life of one period.
+ *  (default: 0.5)</pre>
+ *
+ * <pre> -reference &lt;fixed|max|now&gt;
+ *  The reference time to compute the age against.
+ *  max uses the latest date of each batch (single rows are not decayed),
+ *  use fixed or now when processing a stream.
+ *  (default: max)</pre>
+ *
+ * <pre> -reference-time &lt;date&gt;
+ *  The fixed reference time, in the format of the date attribute.
+ *  (default: none)</pre>
+ *
+ * <pre> -do-not-check-capabilities
+ *  If set, modifier capabilities are not checked
+ *  (use with caution).</pre>
+ *
+ <!-- options-end -->
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class TimeDecay
+  extends AbstractInstanceWeightsModifier {
+
+  private static final long serialVersionUID = -3021476013567302296L;
+
+  /** the milli-seconds per day. */
+  public static final double MILLIS_PER_DAY = 24.0 * 60.0 * 60.0 * 1000.0;
+
+  /** exponential decay. */
+  public static final int DECAY_EXPONENTIAL = 0;
+
+  /** step decay. */
+  public static final int DECAY_STEP = 1;
+
+  /** the types of decay. */
+  public static final Tag[] TAGS_DECAY = {
+    new Tag(DECAY_EXPONENTIAL, "exponential", "Exponential", false),
+    new Tag(DECAY_STEP, "step", "Step", false),
+  };
+
+  /** fixed reference time. */
+  public static final int REFERENCE_FIXED = 0;
+
+  /** latest date in batch as reference time. */
+  public static final int REFERENCE_MAX = 1;
+
+  /** current time as reference time. */
+  public static final int REFERENCE_NOW = 2;
+
+  /** the types of reference times. */
+  public static final Tag[] TAGS_REFERENCE = {
+    new Tag(REFERENCE_FIXED, "fixed", "Fixed", false),
+    new Tag(REFERENCE_MAX, "max", "Latest date in batch", false),
+    new Tag(REFERENCE_NOW, "now", "Current time", false),
+  };
+
+  /** the index of the date attribute. */
+  protected SingleIndex m_AttributeIndex = new SingleIndex("first");
+
+  /** the type of decay. */
+  protected int m_Decay = DECAY_EXPONENTIAL;
+
+  /** the period in days. */
+  protected double m_Period = 30.0;
+
+  /** the factor per period. */
+  protected double m_Factor = 0.5;
+
+  /** the type of reference time. */
+  protected int m_Reference = REFERENCE_MAX;
+
+  /** the fixed reference time. */
+  protected String m_ReferenceTime = "";
+
+  /**
+   * Returns a string describing this scheme.
+   *
+   * @return a description of the filter suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  @Override
+  public String globalInfo() {
+    return "Weights recent rows more heavily: multiplies the weight of each row "
+      + "with a decay that depends on the age of the row, i.e., the time between "
+      + "the value of a date attribute and a reference time (fixed, the latest "
+      + "date in the batch or the current time).\n"
+      + "exponential: factor^(age/period)\n"
+      + "step: factor^floor(age/period)\n"
+      + "Rows dated after the reference time are not decayed, rows with a "
+      + "missing date keep their weight. Only a per-row computation is required "
+      + "(apart from determining the latest date, if used as reference).\n"
+      + "The latest date is determined per batch, i.e., every batch passed "
+      + "through the filter has its own reference time, and rows that the filter "
+      + "processes one at a time (after the first batch) are their own reference "
+      + "and keep their weight. For streaming, use a fixed reference time or the "
+      + "current time: the weight of a row then only depends on the row itself "
+      + "(see Plan.weight(Instance, double)).";
+  }
+
+  /**
+   * Returns an enumeration describing the available options.
+   *
+   * @return an enumeration of all the available options.
+   */
+  @Override
+  public Enumeration<Option> listOptions() {
+    Vector<Option> result = new Vector<Option>();
+
+    result.addElement(
+      new Option(
+	"\tSpecify the index of the date attribute. First and last\n"
+	  + "\tare valid indexes.(default: first)",
+	"C", 1, "-C <index>"));
+
+    result.addElement(
+      new Option(
+	"\tThe type of decay.\n"
+	  + "\t(default: exponential)",
+	"decay", 1, "-decay <exponential|step>"));
+
+    result.addElement(
+      new Option(
+	"\tThe period in days after which the weight is multiplied with the factor.\n"
+	  + "\t(default: 30.0)",
+	"period", 1, "-period <days>"));
+
+    result.addElement(
+      new Option(
+	"\tThe factor per period (0-1], eg 0.5 for a half-life of one period.\n"
+	  + "\t(default: 0.5)",
+	"factor", 1, "-factor <num>"));
+
+    result.addElement(
+      new Option(
+	"\tThe reference time to compute the age against.\n"
+	  + "\tmax uses the latest date of each batch (single rows are not decayed),\n"
+	  + "\tuse fixed or now when processing a stream.\n"
+	  + "\t(default: max)",
+	"reference", 1, "-reference <fixed|max|now>"));
+
+    result.addElement(
+      new Option(
+	"\tThe fixed reference time, in the format of the date attribute.\n"
+	  + "\t(default: none)",
+	"reference-time", 1, "-reference-time <date>"));
+
+    result.addAll(Collections.list(super.listOptions()));
+
+    return result.elements();
+  }
+
+  /**
+   * Parses a given list of options.
+   *
+   * @param options the list of options as an array of strings
+   * @throws Exception if an option is not supported
+   */
+  @Override
+  public void setOptions(String[] options) throws Exception {
+    String 	tmpStr;
+
+    tmpStr = Utils.getOption('C', options);
+    if (tmpStr.isEmpty())
+      tmpStr = "first";
+    setAttributeIndex(tmpStr);
+
+    tmpStr = Utils.getOption("decay", options);
+    if (tmpStr.length() != 0)
+      setDecay(new SelectedTag(tmpStr, TAGS_DECAY));
+    else
+      setDecay(new SelectedTag(DECAY_EXPONENTIAL, TAGS_DECAY));
+
+    tmpStr = Utils.getOption("period", options);
+    if (tmpStr.length() != 0)
+      setPeriod(Double.parseDouble(tmpStr));
+    else
+      setPeriod(30.0);
+
+    tmpStr = Utils.getOption("factor", options);
+    if (tmpStr.length() != 0)
+      setFactor(Double.parseDouble(tmpStr));
+    else
+      setFactor(0.5);
+
+    tmpStr = Utils.getOption("reference", options);
+    if (tmpStr.length() != 0)
+      setReference(new SelectedTag(tmpStr, TAGS_REFERENCE));
+    else
+      setReference(new SelectedTag(REFERENCE_MAX, TAGS_REFERENCE));
+
+    setReferenceTime(Utils.getOption("reference-time", options));
+
+    super.setOptions(options);
+  }
+
+  /**
+   * Gets the current settings of the filter.
+   *
+   * @return an array of strings suitable for passing to setOptions
+   */
+  @Override
+  public String[] getOptions() {
+    List<String> result = new ArrayList<String>();
+
+    result.add("-C");
+    result.add("" + getAttributeIndex());
+
+    result.add("-decay");
+    result.add(getDecay().getSelectedTag().getIDStr());
+
+    result.add("-period");
+    result.add("" + getPeriod());
+
+    result.add("-factor");
+    result.add("" + getFactor());
+
+    result.add("-reference");
+    result.add(getReference().getSelectedTag().getIDStr());
+
+    if (!getReferenceTime().isEmpty()) {
+      result.add("-reference-time");
+      result.add(getReferenceTime());
+    }
+
+    Collections.addAll(result, super.getOptions());
+
+    return result.toArray(new String[0]);
+  }
+
+  /**
+   * Sets index of the date attribute.
+   *
+   * @param value the index of the attribute
+   */
+  public void setAttributeIndex(String value) {
+    m_AttributeIndex.setSingleIndex(value);
+  }
+
+  /**
+   * Get the index of the date attribute.
+   *
+   * @return the index of the attribute
+   */
+  public String getAttributeIndex() {
+    return m_AttributeIndex.getSingleIndex();
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String attributeIndexTipText() {
+    return "The position (starting from 1) of the date attribute "
+      + "(first and last are valid indices).";
+  }
+
+  /**
+   * Sets the type of decay.
+   *
+   * @param value the decay
+   */
+  public void setDecay(SelectedTag value) {
+    if (value.getTags() == TAGS_DECAY)
+      m_Decay = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the type of decay.
+   *
+   * @return the decay
+   */
+  public SelectedTag getDecay() {
+    return new SelectedTag(m_Decay, TAGS_DECAY);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String decayTipText() {
+    return "The type of decay: exponential (factor^(age/period)) or step (factor^floor(age/period)).";
+  }
+
+  /**
+   * Sets the period in days.
+   *
+   * @param value the period (greater than 0)
+   */
+  public void setPeriod(double value) {
+    if (!(value > 0))
+      throw new IllegalArgumentException("Period must be greater than 0: " + value);
+    m_Period = value;
+  }
+
+  /**
+   * Gets the period in days.
+   *
+   * @return the period
+   */
+  public double getPeriod() {
+    return m_Period;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String periodTipText() {
+    return "The period in days after which the weight is multiplied with the factor.";
+  }
+
+  /**
+   * Sets the factor per period.
+   *
+   * @param value the factor (0-1]
+   */
+  public void setFactor(double value) {
+    if (!(value > 0) || (value > 1))
+      throw new IllegalArgumentException("Factor must be in (0-1]: " + value);
+    m_Factor = value;
+  }
+
+  /**
+   * Gets the factor per period.
+   *
+   * @return the factor
+   */
+  public double getFactor() {
+    return m_Factor;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String factorTipText() {
+    return "The factor per period (0-1], eg 0.5 for a half-life of one period.";
+  }
+
+  /**
+   * Sets the type of reference time.
+   *
+   * @param value the reference
+   */
+  public void setReference(SelectedTag value) {
+    if (value.getTags() == TAGS_REFERENCE)
+      m_Reference = value.getSelectedTag().getID();
+  }
+
+  /**
+   * Gets the type of reference time.
+   *
+   * @return the reference
+   */
+  public SelectedTag getReference() {
+    return new SelectedTag(m_Reference, TAGS_REFERENCE);
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String referenceTipText() {
+    return "The reference time to compute the age against: fixed, the latest date in the batch or the current time; "
+      + "the latest date gets determined per batch (single rows are their own reference), use fixed or the current time for streams.";
+  }
+
+  /**
+   * Sets the fixed reference time.
+   *
+   * @param value the time, in the format of the date attribute
+   */
+  public void setReferenceTime(String value) {
+    m_ReferenceTime = value;
+  }
+
+  /**
+   * Gets the fixed reference time.
+   *
+   * @return the time, in the format of the date attribute
+   */
+  public String getReferenceTime() {
+    return m_ReferenceTime;
+  }
+
+  /**
+   * Returns the tip text for this property.
+   *
+   * @return tip text for this property suitable for displaying in the
+   *         explorer/experimenter gui
+   */
+  public String referenceTimeTipText() {
+    return "The fixed reference time, in the format of the date attribute.";
+  }
+
+  /**
+   * Returns the new output format.
+   *
+   * @param inputFormat the input format, before applying the weights
+   * @return		the output format, after applying the weights
+   * @throws Exception	if determination fails
+   */
+  public Instances determineOutputFormat(Instances inputFormat) throws Exception {
+    return new Instances(inputFormat, 0);
+  }
+
+  /**
+   * Compiles the plan for the data.
+   *
+   * @param data	the data to compile the plan for
+   * @return		the plan
+   * @throws Exception	if index invalid, attribute not a date or reference time invalid
+   */
+  @Override
+  protected InstanceWeightsPlan compilePlan(Instances data) throws Exception {
+    SingleIndex		index;
+    Attribute		att;
+    double		reference;
+
+    index = new SingleIndex(getAttributeIndex());
+    index.setUpper(data.numAttributes() - 1);
+    if (index.getIndex() == -1)
+      throw new IllegalArgumentException("Attribute index not valid: " + index.getSingleIndex());
+    att = data.attribute(index.getIndex());
+    if (!att.isDate())
+      throw new IllegalArgumentException("Attribute is not a date: " + index.getSingleIndex());
+
+    reference = Double.NaN;
+    if (m_Reference == REFERENCE_FIXED) {
+      if (m_ReferenceTime.isEmpty())
+	throw new IllegalArgumentException("No fixed reference time provided!");
+      reference = att.parseDate(m_ReferenceTime);
+    }
+
+    return new Plan(index.getIndex(), m_Decay, m_Period, m_Factor, m_Reference, reference);
+  }
+
+  /**
+   * Multiplies the weights with the decay.
+   */
+  public static class Plan
+    implements InstanceWeightsPlan {
+
+    /** the 0-based index of the date attribute. */
+    protected final int m_Index;
+
+    /** the type of decay. */
+    protected final int m_Decay;
+
+    /** the period in milli-seconds. */
+    protected final double m_PeriodMillis;
+
+    /** the factor per period. */
+    protected final double m_Factor;
+
+    /** the log of the factor per milli-second. */
+    protected final double m_LogFactorPerMilli;
+
+    /** the type of reference time. */
+    protected final int m_Reference;
+
+    /** the fixed reference time. */
+    protected final double m_ReferenceTime;
+
+    /**
+     * Initializes the plan.
+     *
+     * @param index		the 0-based index of the date attribute
+     * @param decay		the type of decay
+     * @param period		the period in days
+     * @param factor		the factor per period
+     * @param reference		the type of reference time
+     * @param referenceTime	the fixed reference time (msec), if applicable
+     */
+    public Plan(int index, int decay, double period, double factor, int reference, double referenceTime) {
+      m_Index             = index;
+      m_Decay             = decay;
+      m_PeriodMillis      = period * MILLIS_PER_DAY;
+      m_Factor            = factor;
+      m_LogFactorPerMilli = Math.log(factor) / m_PeriodMillis;
+      m_Reference         = reference;
+      m_ReferenceTime     = referenceTime;
+    }
+
+    /**
+     * Determines the reference time for the batch.
+     *
+     * @param data	the batch
+     * @return		the reference time (msec), NaN if none available
+     */
+    public double reference(Instances data) {
+      double	result;
+      double	value;
+      int	i;
+
+      if (m_Reference == REFERENCE_FIXED)
+	return m_ReferenceTime;
+      if (m_Reference == REFERENCE_NOW)
+	return System.currentTimeMillis();
+
+      result = Double.NaN;
+      for (i = 0; i < data.numInstances(); i++) {
+	value = SparseAccess.value(data.instance(i), m_Index);
+	if (!Double.isNaN(value) && (Double.isNaN(result) || (value > result)))
+	  result = value;
+      }
+
+      return result;
+    }
+
+    /**
+     * Returns the new weight of the row, eg for processing rows one at a
+     * time with a fixed or current reference time.
+     *
+     * @param inst	the row
+     * @param reference	the reference time (msec)
+     * @return		the new weight
+     */
+    public double weight(Instance inst, double reference) {
+      double	date;
+      double	age;
+
+      date = SparseAccess.value(inst, m_Index);
+      if (Double.isNaN(date) || Double.isNaN(reference))
+	return inst.weight();
+      age = reference - date;
+      if (age <= 0)
+	return inst.weight();
+      if (m_Decay == DECAY_STEP)
+	return inst.weight() * Math.pow(m_Factor, Math.floor(age / m_PeriodMillis));
+      return inst.weight() * Math.exp(age * m_LogFactorPerMilli);
+    }
+
+    /**
+     * Applies the plan to the data.
+     *
+     * @param data        the data to process
+     * @return		the modified data
+     */
+    public Instances apply(Instances data) {
+      Instances	result;
+      double	reference;
+      int	i;
+
+      reference = reference(data);
+      result    = new Instances(data, data.numInstances());
+      for (i = 0; i < data.numInstances(); i++) {
+	// shallow copies, sparse rows stay sparse
+	result.add(data.instance(i));
+	result.instance(i).setWeight(weight(data.instance(i), reference));
+      }
+
+      return result;
+    }
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractAllocationTestCase.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import junit.framework.TestCase;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Ancestor for tests that enforce allocation budgets, using the
+ * allocated-bytes counter of the current thread (ThreadMXBean). If the JVM
+ * does not support the counter, the budgets are not enforced.
+ * <br><br>
+ * Every measurement is repeated and the minimum is used, after some warm-up
+ * runs, to reduce noise from class loading and the like.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractAllocationTestCase
+  extends TestCase {
+
+  /** the number of warm-up runs. */
+  public static final int WARMUP = 5;
+
+  /** the number of measured runs. */
+  public static final int REPEATS = 5;
+
+  /** the number of rows for the small datasets. */
+  public static final int SMALL = 10000;
+
+  /** the number of rows for the large datasets. */
+  public static final int LARGE = 100000;
+
+  /** the budget in bytes per row for operations that (shallow) copy the rows. */
+  public static final double ROW_COPY_BUDGET = 64;
+
+  /** the budget in bytes per call for constant-time operations (independent of rows). */
+  public static final long CONSTANT_BUDGET = 1024;
+
+  /**
+   * Operation to measure.
+   */
+  public interface Operation {
+
+    /**
+     * Executes the operation.
+     *
+     * @throws Exception	if execution fails
+     */
+    public void execute() throws Exception;
+  }
+
+  /** the thread bean, null if not supported. */
+  protected com.sun.management.ThreadMXBean m_ThreadBean;
+
+  /** the temp files to delete. */
+  protected List<File> m_TempFiles;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public AbstractAllocationTestCase(String name) {
+    super(name);
+  }
+
+  /**
+   * Sets up the thread bean.
+   *
+   * @throws Exception	if setup fails
+   */
+  @Override
+  protected void setUp() throws Exception {
+    ThreadMXBean	bean;
+
+    super.setUp();
+
+    m_TempFiles = new ArrayList<File>();
+    m_ThreadBean = null;
+    bean = ManagementFactory.getThreadMXBean();
+    if ((bean instanceof com.sun.management.ThreadMXBean) && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+      m_ThreadBean = (com.sun.management.ThreadMXBean) bean;
+      m_ThreadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+    else {
+      System.err.println("Allocated bytes per thread not supported, budgets not enforced!");
+    }
+  }
+
+  /**
+   * Removes the temp files.
+   *
+   * @throws Exception	if tear down fails
+   */
+  @Override
+  protected void tearDown() throws Exception {
+    for (File file: m_TempFiles)
+      file.delete();
+    m_TempFiles = null;
+
+    super.tearDown();
+  }
+
+  /**
+   * Returns the bytes allocated by the current thread so far.
+   *
+   * @return		the bytes
+   */
+  protected long allocatedBytes() {
+    return m_ThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Measures the bytes allocated by the operation, minus the overhead of the
+   * measurement itself.
+   *
+   * @param op		the operation to measure
+   * @return		the minimum number of bytes over the repeats, -1 if not supported
+   * @throws Exception	if operation fails
+   */
+  protected long measure(Operation op) throws Exception {
+    long	result;
+    long	overhead;
+    long	before;
+    long	after;
+    int		i;
+
+    if (m_ThreadBean == null)
+      return -1;
+
+    for (i = 0; i < WARMUP; i++)
+      op.execute();
+
+    overhead = Long.MAX_VALUE;
+    result   = Long.MAX_VALUE;
+    for (i = 0; i < REPEATS; i++) {
+      before   = allocatedBytes();
+      after    = allocatedBytes();
+      overhead = Math.min(overhead, after - before);
+      before   = allocatedBytes();
+      op.execute();
+      after    = allocatedBytes();
+      result   = Math.min(result, after - before);
+    }
+
+    return Math.max(0, result - overhead);
+  }
+
+  /**
+   * Asserts that the operation allocates at most the specified number of
+   * bytes per row.
+   *
+   * @param msg		the message for failures
+   * @param op		the operation to measure
+   * @param rows	the number of rows the operation processes
+   * @param budget	the budget in bytes per row
+   * @throws Exception	if operation fails
+   */
+  protected void assertBytesPerRow(String msg, Operation op, int rows, double budget) throws Exception {
+    long	bytes;
+    double	perRow;
+
+    bytes = measure(op);
+    if (bytes == -1)
+      return;
+    perRow = (double) bytes / rows;
+    assertTrue(msg + ": " + perRow + " bytes/row exceeds budget of " + budget + " bytes/row", perRow <= budget);
+  }
+
+  /**
+   * Asserts that the operation allocates at most the specified number of
+   * bytes, regardless of the number of rows.
+   *
+   * @param msg		the message for failures
+   * @param op		the operation to measure
+   * @param budget	the budget in bytes
+   * @throws Exception	if operation fails
+   */
+  protected void assertBytes(String msg, Operation op, long budget) throws Exception {
+    long	bytes;
+
+    bytes = measure(op);
+    if (bytes == -1)
+      return;
+    assertTrue(msg + ": " + bytes + " bytes exceeds budget of " + budget + " bytes", bytes <= budget);
+  }
+
+  /**
+   * Generates a dataset: nominal class attribute with three labels, numeric
+   * attributes and a positive numeric "weight" attribute as last attribute.
+   *
+   * @param rows	the number of rows
+   * @param atts	the total number of attributes (at least 2)
+   * @param sparse	whether to generate sparse rows
+   * @return		the data
+   */
+  protected Instances createData(int rows, int atts, boolean sparse) {
+    ArrayList<Attribute>	attributes;
+    List<String>		labels;
+    Instances			result;
+    Random			rnd;
+    double[]			values;
+    int				i;
+    int				n;
+
+    attributes = new ArrayList<Attribute>();
+    labels     = new ArrayList<String>();
+    labels.add("a");
+    labels.add("b");
+    labels.add("c");
+    attributes.add(new Attribute("class", labels));
+    for (i = 1; i < atts - 1; i++)
+      attributes.add(new Attribute("num" + i));
+    attributes.add(new Attribute("weight"));
+    result = new Instances("allocation", attributes, rows);
+    result.setClassIndex(0);
+
+    rnd = new Random(1);
+    for (i = 0; i < rows; i++) {
+      values = new double[atts];
+      values[0] = rnd.nextInt(labels.size());
+      for (n = 1; n < atts - 1; n++)
+	values[n] = (rnd.nextInt(10) == 0) ? rnd.nextGaussian() : 0.0;
+      values[atts - 1] = 0.01 + rnd.nextDouble();
+      if (sparse)
+	result.add(new SparseInstance(1.0, values));
+      else
+	result.add(new DenseInstance(1.0, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Writes the specified number of weights to a temp file, one per line.
+   *
+   * @param count	the number of weights
+   * @return		the file
+   * @throws Exception	if writing fails
+   */
+  protected File createWeightsFile(int count) throws Exception {
+    File		result;
+    BufferedWriter	writer;
+    Random		rnd;
+    int			i;
+
+    result = File.createTempFile("weights", ".txt");
+    m_TempFiles.add(result);
+    rnd    = new Random(2);
+    writer = new BufferedWriter(new FileWriter(result));
+    try {
+      for (i = 0; i < count; i++) {
+	writer.write(Double.toString(0.01 + rnd.nextDouble()));
+	writer.newLine();
+      }
+    }
+    finally {
+      writer.close();
+    }
+
+    return result;
+  }
+}
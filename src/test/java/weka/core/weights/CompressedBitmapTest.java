@@ -0,0 +1,373 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CompressedBitmapTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.core.weights;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Tests the CompressedBitmap codec: choice of container types, round-trips
+ * through the portable Roaring format, lookups, cursor iteration and
+ * reading fixed byte fixtures.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CompressedBitmapTest
+  extends TestCase {
+
+  /**
+   * Portable format without run containers: {0, 1, 65538}, i.e., two array
+   * containers (cookie, number of containers, keys and cardinalities - 1,
+   * offsets, values; all little endian).
+   */
+  public static final byte[] FIXTURE_NO_RUNS = {
+    0x3A, 0x30, 0x00, 0x00,  0x02, 0x00, 0x00, 0x00,
+    0x00, 0x00, 0x01, 0x00,  0x01, 0x00, 0x00, 0x00,
+    0x18, 0x00, 0x00, 0x00,  0x1C, 0x00, 0x00, 0x00,
+    0x00, 0x00, 0x01, 0x00,
+    0x02, 0x00,
+  };
+
+  /**
+   * Portable format with run containers: {10, ..., 19, 196615}, i.e., a
+   * run container and an array container (cookie with number of containers
+   * - 1, run markers, keys and cardinalities - 1, no offsets for fewer than
+   * 4 containers, number of runs and pairs of start and length - 1, values).
+   */
+  public static final byte[] FIXTURE_RUNS = {
+    0x3B, 0x30, 0x01, 0x00,  0x01,
+    0x00, 0x00, 0x09, 0x00,  0x03, 0x00, 0x00, 0x00,
+    0x01, 0x00, 0x0A, 0x00, 0x09, 0x00,
+    0x07, 0x00,
+  };
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public CompressedBitmapTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Builds a bitmap from the ascending values.
+   *
+   * @param values	the values
+   * @return		the bitmap
+   */
+  protected CompressedBitmap build(List<Integer> values) {
+    CompressedBitmap.Builder	builder;
+
+    builder = new CompressedBitmap.Builder();
+    for (int value: values)
+      builder.add(value);
+
+    return builder.build();
+  }
+
+  /**
+   * Writes the bitmap to a byte array and reads it again.
+   *
+   * @param bitmap	the bitmap to write
+   * @return		the bitmap read back in
+   * @throws Exception	if writing or reading fails
+   */
+  protected CompressedBitmap roundTrip(CompressedBitmap bitmap) throws Exception {
+    ByteArrayOutputStream	out;
+
+    out = new ByteArrayOutputStream();
+    bitmap.write(out);
+    return CompressedBitmap.read(ByteBuffer.wrap(out.toByteArray()));
+  }
+
+  /**
+   * Returns the bits set in the bitmap, as returned by the cursor.
+   *
+   * @param bitmap	the bitmap to iterate
+   * @return		the bits
+   */
+  protected List<Integer> toList(CompressedBitmap bitmap) {
+    List<Integer>		result;
+    CompressedBitmap.Cursor	cursor;
+    int				value;
+
+    result = new ArrayList<Integer>();
+    cursor = bitmap.cursor();
+    while ((value = cursor.next()) != -1)
+      result.add(value);
+    assertEquals("cursor exhausted", -1, cursor.next());
+
+    return result;
+  }
+
+  /**
+   * Asserts that the bitmap contains exactly the values, before and after
+   * a round-trip through the portable format.
+   *
+   * @param msg		the message for failures
+   * @param values	the expected ascending values
+   * @param types	the expected container types
+   * @throws Exception	if writing or reading fails
+   */
+  protected void check(String msg, List<Integer> values, byte[] types) throws Exception {
+    CompressedBitmap	bitmap;
+    Set<Integer>	set;
+    int			i;
+
+    bitmap = build(values);
+    set    = new HashSet<Integer>(values);
+    for (CompressedBitmap current: new CompressedBitmap[]{bitmap, roundTrip(bitmap)}) {
+      assertEquals(msg + ": containers", types.length, current.numContainers());
+      for (i = 0; i < types.length; i++)
+	assertEquals(msg + ": type of container #" + (i+1), types[i], current.m_Types[i]);
+      assertEquals(msg + ": cardinality", values.size(), current.cardinality());
+      assertEquals(msg + ": empty", values.isEmpty(), current.isEmpty());
+      assertEquals(msg + ": last", values.isEmpty() ? -1 : (long) values.get(values.size() - 1), current.last());
+      assertEquals(msg + ": cursor", values, toList(current));
+      for (int value: values) {
+	assertTrue(msg + ": contains " + value, current.contains(value));
+	if (!set.contains(value + 1))
+	  assertFalse(msg + ": contains " + (value + 1), current.contains(value + 1));
+      }
+    }
+  }
+
+  /**
+   * Array containers hold up to 4096 values, bitmap containers more.
+   *
+   * @throws Exception	if writing or reading fails
+   */
+  public void testArrayBitmapBoundary() throws Exception {
+    List<Integer>	values;
+    int			i;
+
+    // every other value: no runs
+    values = new ArrayList<Integer>();
+    for (i = 0; i < CompressedBitmap.MAX_ARRAY_CARDINALITY; i++)
+      values.add(2 * i);
+    check("4096 values", values, new byte[]{CompressedBitmap.TYPE_ARRAY});
+
+    values.add(2 * CompressedBitmap.MAX_ARRAY_CARDINALITY);
+    check("4097 values", values, new byte[]{CompressedBitmap.TYPE_BITMAP});
+
+    // full container and the first value of the next one
+    values = new ArrayList<Integer>();
+    for (i = 0; i < 65536; i += 3)
+      values.add(i);
+    values.add(65536);
+    check("bitmap, array", values, new byte[]{CompressedBitmap.TYPE_BITMAP, CompressedBitmap.TYPE_ARRAY});
+  }
+
+  /**
+   * Consecutive values get stored as runs, also across container
+   * boundaries.
+   *
+   * @throws Exception	if writing or reading fails
+   */
+  public void testRuns() throws Exception {
+    List<Integer>	values;
+    int			i;
+    int			n;
+
+    values = new ArrayList<Integer>();
+    for (i = 100; i < 200; i++)
+      values.add(i);
+    for (i = 1000; i < 1010; i++)
+      values.add(i);
+    check("two runs", values, new byte[]{CompressedBitmap.TYPE_RUN});
+
+    // all values of the first container, run of the next one and a single value
+    values = new ArrayList<Integer>();
+    for (i = 0; i < 65536 + 5000; i++)
+      values.add(i);
+    values.add(3 * 65536 + 7);
+    check(
+      "full container", values,
+      new byte[]{CompressedBitmap.TYPE_RUN, CompressedBitmap.TYPE_RUN, CompressedBitmap.TYPE_ARRAY});
+
+    // 4 containers and more: run files contain offsets
+    values = new ArrayList<Integer>();
+    for (i = 0; i < 5; i++)
+      for (n = 1; n <= 5; n++)
+	values.add(i * 65536 + n);
+    check(
+      "5 containers", values,
+      new byte[]{CompressedBitmap.TYPE_RUN, CompressedBitmap.TYPE_RUN, CompressedBitmap.TYPE_RUN, CompressedBitmap.TYPE_RUN, CompressedBitmap.TYPE_RUN});
+  }
+
+  /**
+   * Empty bitmaps and single values.
+   *
+   * @throws Exception	if writing or reading fails
+   */
+  public void testSmall() throws Exception {
+    List<Integer>	values;
+
+    values = new ArrayList<Integer>();
+    check("empty", values, new byte[0]);
+    assertFalse("empty contains 0", build(values).contains(0));
+
+    values.add(Integer.MAX_VALUE);
+    check("max value", values, new byte[]{CompressedBitmap.TYPE_ARRAY});
+  }
+
+  /**
+   * Reading the fixture without run containers.
+   *
+   * @throws Exception	if reading fails
+   */
+  public void testFixtureNoRuns() throws Exception {
+    CompressedBitmap		bitmap;
+    ByteArrayOutputStream	out;
+    List<Integer>		expected;
+
+    bitmap = CompressedBitmap.read(ByteBuffer.wrap(FIXTURE_NO_RUNS));
+    expected = new ArrayList<Integer>();
+    expected.add(0);
+    expected.add(1);
+    expected.add(65538);
+    assertEquals("values", expected, toList(bitmap));
+    assertEquals("last", 65538, bitmap.last());
+
+    out = new ByteArrayOutputStream();
+    bitmap.write(out);
+    assertEquals("written", toString(FIXTURE_NO_RUNS), toString(out.toByteArray()));
+  }
+
+  /**
+   * Reading the fixture with run containers.
+   *
+   * @throws Exception	if reading fails
+   */
+  public void testFixtureRuns() throws Exception {
+    CompressedBitmap		bitmap;
+    ByteArrayOutputStream	out;
+    List<Integer>		expected;
+    int				i;
+
+    bitmap = CompressedBitmap.read(ByteBuffer.wrap(FIXTURE_RUNS));
+    expected = new ArrayList<Integer>();
+    for (i = 10; i < 20; i++)
+      expected.add(i);
+    expected.add(3 * 65536 + 7);
+    assertEquals("values", expected, toList(bitmap));
+    assertEquals("cardinality", 11, bitmap.cardinality());
+    assertTrue("contains 19", bitmap.contains(19));
+    assertFalse("contains 20", bitmap.contains(20));
+    assertFalse("contains 65536 + 10", bitmap.contains(65536 + 10));
+
+    out = new ByteArrayOutputStream();
+    bitmap.write(out);
+    assertEquals("written", toString(FIXTURE_RUNS), toString(out.toByteArray()));
+  }
+
+  /**
+   * Unknown cookies and keys out of order get rejected.
+   */
+  public void testInvalid() {
+    byte[]	bytes;
+
+    bytes    = FIXTURE_NO_RUNS.clone();
+    bytes[0] = 0x00;
+    try {
+      CompressedBitmap.read(ByteBuffer.wrap(bytes));
+      fail("unknown cookie accepted");
+    }
+    catch (Exception e) {
+      // expected
+    }
+
+    bytes     = FIXTURE_NO_RUNS.clone();
+    bytes[12] = 0x00;
+    try {
+      CompressedBitmap.read(ByteBuffer.wrap(bytes));
+      fail("duplicate key accepted");
+    }
+    catch (Exception e) {
+      // expected
+    }
+  }
+
+  /**
+   * Values must be added in ascending order and be non-negative.
+   */
+  public void testBuilder() {
+    try {
+      new CompressedBitmap.Builder().add(5).add(5);
+      fail("duplicate value accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+    try {
+      new CompressedBitmap.Builder().add(-1);
+      fail("negative value accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Returns the bytes as hex string, for comparing.
+   *
+   * @param bytes	the bytes
+   * @return		the hex string
+   */
+  protected String toString(byte[] bytes) {
+    StringBuilder	result;
+
+    result = new StringBuilder();
+    for (byte b: bytes)
+      result.append(String.format("%02x ", b & 0xFF));
+
+    return result.toString();
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(CompressedBitmapTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * LatencyHistogramTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Tests the buckets and percentiles of the latency histogram.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class LatencyHistogramTest
+  extends TestCase {
+
+  /** nano seconds per milli second. */
+  public static final long MILLIS = 1000000L;
+
+  /** the percentiles to check. */
+  public static final double[] PERCENTILES = {0.0, 0.01, 0.25, 0.5, 0.9, 0.99, 1.0};
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public LatencyHistogramTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Latencies on and around the bucket boundaries.
+   */
+  public void testBuckets() {
+    assertEquals("0ns", 0, LatencyHistogram.bucket(0));
+    assertEquals("<1ms", 0, LatencyHistogram.bucket(MILLIS - 1));
+    assertEquals("1ms", 1, LatencyHistogram.bucket(MILLIS));
+    assertEquals("<2ms", 1, LatencyHistogram.bucket(2 * MILLIS - 1));
+    assertEquals("2ms", 2, LatencyHistogram.bucket(2 * MILLIS));
+    assertEquals("3ms", 2, LatencyHistogram.bucket(3 * MILLIS));
+    assertEquals("4ms", 3, LatencyHistogram.bucket(4 * MILLIS));
+    assertEquals("last", LatencyHistogram.NUM_BUCKETS - 1, LatencyHistogram.bucket(Long.MAX_VALUE));
+    for (int i = 0; i < LatencyHistogram.NUM_BUCKETS - 1; i++) {
+      assertEquals("upper bound of " + i + " excluded", i + 1, LatencyHistogram.bucket(LatencyHistogram.upperBound(i) * MILLIS));
+      assertEquals("below upper bound of " + i, i, LatencyHistogram.bucket(LatencyHistogram.upperBound(i) * MILLIS - 1));
+    }
+    assertEquals("upper bound of last", Long.MAX_VALUE, LatencyHistogram.upperBound(LatencyHistogram.NUM_BUCKETS - 1));
+  }
+
+  /**
+   * Without latencies all percentiles are 0.
+   */
+  public void testEmpty() {
+    LatencyHistogram	histogram;
+
+    histogram = new LatencyHistogram();
+    for (double percentile: PERCENTILES)
+      assertEquals("percentile " + percentile, 0, histogram.getPercentile(percentile));
+    assertEquals("string", "", histogram.toString());
+  }
+
+  /**
+   * The percentiles of random latencies (1ms-10s) lie above the actual
+   * percentile but below twice its value.
+   */
+  public void testPercentileBounds() {
+    LatencyHistogram	histogram;
+    Random		rnd;
+    long[]		nanos;
+    long		actual;
+    long		bound;
+    int			i;
+
+    histogram = new LatencyHistogram();
+    rnd       = new Random(1);
+    nanos     = new long[10000];
+    for (i = 0; i < nanos.length; i++) {
+      nanos[i] = (long) (MILLIS * Math.exp(rnd.nextDouble() * Math.log(10000)));
+      histogram.record(nanos[i]);
+    }
+    Arrays.sort(nanos);
+
+    for (double percentile: PERCENTILES) {
+      actual = nanos[Math.max(0, (int) Math.ceil(percentile * nanos.length) - 1)];
+      bound  = histogram.getPercentile(percentile);
+      assertTrue("percentile " + percentile + ": " + bound + "ms > " + actual + "ns", bound * MILLIS > actual);
+      assertTrue("percentile " + percentile + ": " + bound + "ms <= 2 * " + actual + "ns", bound * MILLIS <= 2 * actual);
+    }
+  }
+
+  /**
+   * Counts, the last bucket, the string representation and resetting.
+   */
+  public void testCounts() {
+    LatencyHistogram	histogram;
+    long[]		counts;
+
+    histogram = new LatencyHistogram();
+    histogram.record(MILLIS / 2);
+    histogram.record(MILLIS / 2);
+    histogram.record(3 * MILLIS);
+    histogram.record(Long.MAX_VALUE);
+    counts = histogram.getCounts();
+    assertEquals("<1ms", 2, counts[0]);
+    assertEquals("<4ms", 1, counts[2]);
+    assertEquals("last", 1, counts[LatencyHistogram.NUM_BUCKETS - 1]);
+    assertEquals("median", 1, histogram.getPercentile(0.5));
+    assertEquals("max", Long.MAX_VALUE, histogram.getPercentile(1.0));
+    assertEquals("string", "<1ms: 2, <4ms: 1, >=" + (1L << (LatencyHistogram.NUM_BUCKETS - 2)) + "ms: 1", histogram.toString());
+    histogram.reset();
+    assertEquals("reset", 0, histogram.getPercentile(1.0));
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(LatencyHistogramTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * PlanCacheTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests the lookup by structure and key, the eviction and the concurrent use
+ * of the plan cache.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class PlanCacheTest
+  extends TestCase {
+
+  /** the number of threads for the concurrency test. */
+  public static final int NUM_THREADS = 8;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public PlanCacheTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a dataset with a nominal class (first attribute), a numeric
+   * and a string attribute.
+   *
+   * @param labels	the labels of the class attribute
+   * @param numeric	the name of the numeric attribute
+   * @param text	the value of the string attribute in the single row
+   * @return		the data
+   */
+  protected Instances createData(String[] labels, String numeric, String text) {
+    ArrayList<Attribute>	attributes;
+    List<String>		values;
+    Instances			result;
+    double[]			row;
+
+    values = new ArrayList<String>();
+    for (String label: labels)
+      values.add(label);
+    attributes = new ArrayList<Attribute>();
+    attributes.add(new Attribute("class", values));
+    attributes.add(new Attribute(numeric));
+    attributes.add(new Attribute("text", (List<String>) null));
+    result = new Instances("cache", attributes, 1);
+    result.setClassIndex(0);
+    row    = new double[]{0, 1, result.attribute(2).addStringValue(text)};
+    result.add(new DenseInstance(1.0, row));
+
+    return result;
+  }
+
+  /**
+   * Generates a dataset with labels a and b, numeric attribute "x".
+   *
+   * @param text	the value of the string attribute
+   * @return		the data
+   */
+  protected Instances createData(String text) {
+    return createData(new String[]{"a", "b"}, "x", text);
+  }
+
+  /**
+   * Same structure and key return the cached plan, the values of string
+   * attributes are ignored.
+   */
+  public void testHit() {
+    PlanCache<Object>	cache;
+    Object		plan;
+
+    cache = new PlanCache<Object>();
+    plan  = new Object();
+    assertNull("empty cache", cache.get(createData("first"), "-key"));
+    cache.put(createData("first"), "-key", plan);
+    assertSame("same data", plan, cache.get(createData("first"), "-key"));
+    assertSame("other string values", plan, cache.get(createData("second"), "-key"));
+    assertEquals("size", 1, cache.size());
+    cache.clear();
+    assertNull("cleared", cache.get(createData("first"), "-key"));
+  }
+
+  /**
+   * A different key or structure misses.
+   */
+  public void testMiss() {
+    PlanCache<Object>	cache;
+    Instances		other;
+
+    cache = new PlanCache<Object>();
+    cache.put(createData("first"), "-key", new Object());
+    assertNull("other key", cache.get(createData("first"), "-other"));
+    assertNull("other labels", cache.get(createData(new String[]{"a", "c"}, "x", "first"), "-key"));
+    assertNull("more labels", cache.get(createData(new String[]{"a", "b", "c"}, "x", "first"), "-key"));
+    assertNull("other name", cache.get(createData(new String[]{"a", "b"}, "y", "first"), "-key"));
+    other = createData("first");
+    other.setClassIndex(1);
+    assertNull("other class", cache.get(other, "-key"));
+    other.setClassIndex(-1);
+    assertNull("no class", cache.get(other, "-key"));
+  }
+
+  /**
+   * The oldest plan gets evicted once the maximum size is exceeded.
+   */
+  public void testEviction() {
+    PlanCache<Object>	cache;
+    Object[]		plans;
+    Instances		data;
+    int			i;
+
+    cache = new PlanCache<Object>(3);
+    data  = createData("first");
+    plans = new Object[4];
+    for (i = 0; i < plans.length; i++) {
+      plans[i] = new Object();
+      cache.put(data, "-key " + i, plans[i]);
+    }
+    assertEquals("size", 3, cache.size());
+    assertNull("evicted", cache.get(data, "-key 0"));
+    for (i = 1; i < plans.length; i++)
+      assertSame("plan " + i, plans[i], cache.get(data, "-key " + i));
+  }
+
+  /**
+   * Threads looking up and adding plans at the same time (frequently used
+   * keys and ones that only force evictions) always get the plan stored for
+   * their key and the cache never exceeds its maximum size.
+   *
+   * @throws Exception	if a thread fails
+   */
+  public void testConcurrent() throws Exception {
+    final PlanCache<String>	cache;
+    final CountDownLatch	start;
+    ExecutorService		executor;
+    List<Future<Integer>>	results;
+    int				i;
+
+    cache    = new PlanCache<String>(4);
+    start    = new CountDownLatch(1);
+    executor = Executors.newFixedThreadPool(NUM_THREADS);
+    results  = new ArrayList<Future<Integer>>();
+    try {
+      for (i = 0; i < NUM_THREADS; i++) {
+	final int thread = i;
+	results.add(executor.submit(new Callable<Integer>() {
+	  public Integer call() throws Exception {
+	    Instances	data;
+	    String	key;
+	    String	plan;
+	    int		hits;
+	    int		n;
+
+	    data = createData("thread " + thread);
+	    hits = 0;
+	    start.await();
+	    for (n = 0; n < 2000; n++) {
+	      if (n % 10 == 0)
+		key = "-thread " + thread + " " + n;
+	      else
+		key = "-key " + (n % 3);
+	      plan = cache.get(data, key);
+	      if (plan == null) {
+		cache.put(data, key, "plan" + key);
+	      }
+	      else {
+		assertEquals("plan for " + key, "plan" + key, plan);
+		hits++;
+	      }
+	    }
+	    return hits;
+	  }
+	}));
+      }
+      start.countDown();
+      for (Future<Integer> result: results)
+	assertTrue("hits", result.get() > 0);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    assertTrue("size", cache.size() <= 4);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(PlanCacheTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * SparseAccessTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.core.weights;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.SparseInstance;
+
+/**
+ * Tests the index-aware value access of SparseAccess against the generic
+ * lookups of dense rows.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class SparseAccessTest
+  extends TestCase {
+
+  /** the values of the rows (zeros at the start, middle and end, missing values). */
+  public static final double[][] VALUES = {
+    {0, 1, 0, 2, Double.NaN, 0, 3, 0},
+    {4, 0, 5, 0, 0, 6, 0, 7},
+    {0, 0, 0, 0, 0, 0, 0, 0},
+    {0, 0, 0, 8, 0, 0, 0, 0},
+    {1, 2, 3, 4, 5, 6, 7, 8},
+  };
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public SparseAccessTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Sparse and dense rows must return the same values for every attribute.
+   */
+  public void testValue() {
+    Instance	dense;
+    Instance	sparse;
+    int		i;
+    int		n;
+
+    for (i = 0; i < VALUES.length; i++) {
+      dense  = new DenseInstance(1.0, VALUES[i]);
+      sparse = new SparseInstance(1.0, VALUES[i]);
+      assertFalse("row #" + (i+1) + " dense", SparseAccess.isSparse(dense));
+      assertTrue("row #" + (i+1) + " sparse", SparseAccess.isSparse(sparse));
+      for (n = 0; n < VALUES[i].length; n++) {
+	assertEquals(
+	  "row #" + (i+1) + ", attribute #" + (n+1) + " (dense)",
+	  Double.doubleToLongBits(dense.value(n)), Double.doubleToLongBits(SparseAccess.value(dense, n)));
+	assertEquals(
+	  "row #" + (i+1) + ", attribute #" + (n+1) + " (sparse)",
+	  Double.doubleToLongBits(dense.value(n)), Double.doubleToLongBits(SparseAccess.value(sparse, n)));
+      }
+    }
+  }
+
+  /**
+   * The position must be the one among the stored (non-zero) values, -1 if
+   * not stored.
+   */
+  public void testLocate() {
+    Instance	sparse;
+    int		stored;
+    int		i;
+    int		n;
+
+    for (i = 0; i < VALUES.length; i++) {
+      sparse = new SparseInstance(1.0, VALUES[i]);
+      stored = 0;
+      for (n = 0; n < VALUES[i].length; n++) {
+	if (VALUES[i][n] == 0) {
+	  assertEquals("row #" + (i+1) + ", attribute #" + (n+1), -1, SparseAccess.locate(sparse, n));
+	}
+	else {
+	  assertEquals("row #" + (i+1) + ", attribute #" + (n+1), stored, SparseAccess.locate(sparse, n));
+	  stored++;
+	}
+      }
+    }
+    assertEquals("dense", 3, SparseAccess.locate(new DenseInstance(1.0, VALUES[0]), 3));
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(SparseAccessTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
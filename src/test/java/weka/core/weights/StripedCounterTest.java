@@ -0,0 +1,132 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * StripedCounterTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tests the striped counter, single-threaded and under concurrent updates.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class StripedCounterTest
+  extends TestCase {
+
+  /** the number of threads updating the counter. */
+  public static final int NUM_THREADS = 8;
+
+  /** the number of updates per thread. */
+  public static final int NUM_UPDATES = 100000;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public StripedCounterTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Increments, additions (incl negative ones) and resetting.
+   */
+  public void testSingleThread() {
+    StripedCounter	counter;
+
+    counter = new StripedCounter();
+    assertEquals("initial", 0, counter.sum());
+    counter.increment();
+    counter.increment();
+    counter.add(40);
+    assertEquals("sum", 42, counter.sum());
+    counter.add(-50);
+    assertEquals("negative", -8, counter.sum());
+    assertEquals("string", "-8", counter.toString());
+    counter.reset();
+    assertEquals("reset", 0, counter.sum());
+  }
+
+  /**
+   * No updates get lost when threads increment and add concurrently.
+   *
+   * @throws Exception	if interrupted
+   */
+  public void testConcurrent() throws Exception {
+    final StripedCounter	counter;
+    final CountDownLatch	start;
+    Thread[]			threads;
+    int				i;
+
+    counter = new StripedCounter();
+    start   = new CountDownLatch(1);
+    threads = new Thread[NUM_THREADS];
+    for (i = 0; i < threads.length; i++) {
+      final int thread = i;
+      threads[i] = new Thread(new Runnable() {
+	public void run() {
+	  int	n;
+
+	  try {
+	    start.await();
+	  }
+	  catch (InterruptedException e) {
+	    return;
+	  }
+	  for (n = 0; n < NUM_UPDATES; n++) {
+	    if (thread % 2 == 0)
+	      counter.increment();
+	    else
+	      counter.add(3);
+	  }
+	}
+      });
+      threads[i].start();
+    }
+    start.countDown();
+    for (Thread thread: threads)
+      thread.join();
+
+    assertEquals("sum", (long) NUM_THREADS / 2 * NUM_UPDATES * (1 + 3), counter.sum());
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(StripedCounterTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * WeightsEventsTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights;
+
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.weights.WeightsMetrics.Phase;
+
+/**
+ * Tests the reflective instantiation of the events implementation and the
+ * no-op fallback.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class WeightsEventsTest
+  extends TestCase {
+
+  /**
+   * Implementation for testing the instantiation.
+   */
+  public static class CustomEvents
+    extends WeightsEvents {
+  }
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public WeightsEventsTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Checks whether the JFR API is available.
+   *
+   * @param classname	the class to check
+   * @return		true if available
+   */
+  protected boolean isPresent(String classname) {
+    try {
+      Class.forName(classname);
+      return true;
+    }
+    catch (Throwable t) {
+      return false;
+    }
+  }
+
+  /**
+   * Missing or incompatible implementations fall back to the no-op one.
+   */
+  public void testFallback() {
+    assertEquals("missing", WeightsEvents.class, WeightsEvents.newInstance("weka.core.weights.jfr.Missing").getClass());
+    assertEquals("not an implementation", WeightsEvents.class, WeightsEvents.newInstance(String.class.getName()).getClass());
+    assertEquals("abstract", WeightsEvents.class, WeightsEvents.newInstance(Number.class.getName()).getClass());
+  }
+
+  /**
+   * Implementations get instantiated if the JFR API is available.
+   */
+  public void testInstantiation() {
+    if (isPresent("jdk.jfr.Event"))
+      assertEquals("custom", CustomEvents.class, WeightsEvents.newInstance(CustomEvents.class.getName()).getClass());
+    else
+      assertEquals("no API", WeightsEvents.class, WeightsEvents.newInstance(CustomEvents.class.getName()).getClass());
+  }
+
+  /**
+   * Events are available if the JFR API and implementation are present.
+   */
+  public void testAvailable() {
+    assertEquals(
+      "available",
+      isPresent("jdk.jfr.Event") && isPresent(WeightsEvents.JFR_IMPLEMENTATION),
+      WeightsEvents.isAvailable());
+  }
+
+  /**
+   * The no-op implementation records nothing and ending a null event does
+   * nothing.
+   */
+  public void testNoOp() {
+    WeightsEvents	events;
+
+    events = new WeightsEvents();
+    for (Phase phase: Phase.values())
+      assertNull("begin " + phase, events.doBegin(phase));
+    WeightsEvents.end(null, this, null, 0);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(WeightsEventsTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * JfrWeightsEventsTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.core.weights.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import junit.framework.Test;
+import junit.framework.TestCase;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.weights.WeightsEvents;
+import weka.core.weights.WeightsMetrics.Phase;
+import weka.filters.Filter;
+import weka.filters.unsupervised.instance.ModifyInstanceWeights;
+import weka.filters.unsupervised.instance.instanceweightsmodifiers.FromExpression;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests the emission of the JDK Flight Recorder events.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class JfrWeightsEventsTest
+  extends TestCase {
+
+  /** the names of the events. */
+  public static final String[] EVENTS = {
+    "weka.weights.Check",
+    "weka.weights.Load",
+    "weka.weights.Format",
+    "weka.weights.Modify",
+  };
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public JfrWeightsEventsTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a dataset with a numeric attribute and a numeric class (last
+   * attribute) with the specified number of rows.
+   *
+   * @param rows	the number of rows
+   * @return		the data
+   */
+  protected Instances createData(int rows) {
+    ArrayList<Attribute>	attributes;
+    Instances			result;
+    int				i;
+
+    attributes = new ArrayList<Attribute>();
+    attributes.add(new Attribute("x"));
+    attributes.add(new Attribute("y"));
+    result = new Instances("jfr", attributes, rows);
+    result.setClassIndex(1);
+    for (i = 0; i < rows; i++)
+      result.add(new DenseInstance(1.0, new double[]{i, 1}));
+
+    return result;
+  }
+
+  /**
+   * Records filtering the data.
+   *
+   * @param data	the data to modify
+   * @return		the recorded events, by name
+   * @throws Exception	if recording or modifying fails
+   */
+  protected Map<String,RecordedEvent> record(Instances data) throws Exception {
+    Map<String,RecordedEvent>	result;
+    FromExpression		modifier;
+    ModifyInstanceWeights	filter;
+    Recording			recording;
+    File			file;
+
+    modifier = new FromExpression();
+    modifier.setExpression("WEIGHT + x");
+    filter   = new ModifyInstanceWeights();
+    filter.setModifier(modifier);
+    result    = new HashMap<String,RecordedEvent>();
+    file      = File.createTempFile("weights", ".jfr");
+    recording = new Recording();
+    try {
+      for (String event: EVENTS)
+	recording.enable(event);
+      recording.start();
+      filter.setInputFormat(data);
+      Filter.useFilter(data, filter);
+      recording.stop();
+      recording.dump(file.toPath());
+      for (RecordedEvent event: RecordingFile.readAllEvents(file.toPath()))
+	result.put(event.getEventType().getName(), event);
+    }
+    finally {
+      recording.close();
+      file.delete();
+    }
+
+    return result;
+  }
+
+  /**
+   * The JFR implementation is used.
+   */
+  public void testAvailable() {
+    assertTrue("available", WeightsEvents.isAvailable());
+  }
+
+  /**
+   * Events of all phases get recorded, with the modifier and the dimensions
+   * of the data.
+   *
+   * @throws Exception	if recording fails
+   */
+  public void testEmission() throws Exception {
+    Map<String,RecordedEvent>	events;
+    RecordedEvent		event;
+
+    events = record(createData(10));
+    for (String name: EVENTS) {
+      event = events.get(name);
+      assertNotNull("missing event " + name, event);
+      assertEquals(name + ": modifier", FromExpression.class.getName(), event.getString("modifier"));
+      assertEquals(name + ": attributes", 2, event.getInt("attributes"));
+      assertEquals(name + ": bytes read", 0L, event.getLong("bytesRead"));
+    }
+    assertEquals("rows", 10, events.get("weka.weights.Modify").getInt("rows"));
+  }
+
+  /**
+   * Without an active recording no events get started.
+   */
+  public void testNotRecording() {
+    List<Object>	events;
+
+    events = new ArrayList<Object>();
+    for (Phase phase: Phase.values())
+      events.add(WeightsEvents.begin(phase));
+    for (Object event: events)
+      assertNull("event started", event);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(JfrWeightsEventsTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
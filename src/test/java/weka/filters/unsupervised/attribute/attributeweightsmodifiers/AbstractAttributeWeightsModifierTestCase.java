@@ -0,0 +1,274 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractAttributeWeightsModifierTestCase.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import junit.framework.TestCase;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Ancestor for regression tests of attribute weights modifiers: weights on a
+ * small dataset with known values, independence of the number of threads
+ * and sparse rows staying sparse.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractAttributeWeightsModifierTestCase
+  extends TestCase {
+
+  /** the tolerance for comparing weights. */
+  public static final double TOLERANCE = 1e-9;
+
+  /** the number of threads to compare against a single thread. */
+  public static final int NUM_THREADS = 4;
+
+  /** the number of rows for the random datasets. */
+  public static final int ROWS = 2000;
+
+  /** the number of attributes for the random datasets (several chunks per thread). */
+  public static final int ATTRIBUTES = 200;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public AbstractAttributeWeightsModifierTestCase(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates the small dataset with known values: nominal class attribute
+   * "class" (labels a, b) as first attribute, followed by numeric attributes
+   * "class01" (the class as 0/1), "constant", "sparse" (single non-zero value)
+   * and "missing" (mostly missing).
+   * <pre>
+   * class  class01  constant  sparse  missing
+   * a      0        5         0       ?
+   * a      0        5         0       ?
+   * a      0        5         0       ?
+   * a      0        5         0       ?
+   * b      1        5         0       ?
+   * b      1        5         0       ?
+   * b      1        5         0       1
+   * b      1        5         2       3
+   * </pre>
+   *
+   * @return		the data
+   */
+  protected Instances createData() {
+    ArrayList<Attribute>	attributes;
+    List<String>		labels;
+    Instances			result;
+    double[][]			values;
+    double			nan;
+    int				i;
+
+    labels = new ArrayList<String>();
+    labels.add("a");
+    labels.add("b");
+    attributes = new ArrayList<Attribute>();
+    attributes.add(new Attribute("class", labels));
+    attributes.add(new Attribute("class01"));
+    attributes.add(new Attribute("constant"));
+    attributes.add(new Attribute("sparse"));
+    attributes.add(new Attribute("missing"));
+    result = new Instances("known", attributes, 8);
+    result.setClassIndex(0);
+
+    nan    = Double.NaN;
+    values = new double[][]{
+      {0, 0, 5, 0, nan},
+      {0, 0, 5, 0, nan},
+      {0, 0, 5, 0, nan},
+      {0, 0, 5, 0, nan},
+      {1, 1, 5, 0, nan},
+      {1, 1, 5, 0, nan},
+      {1, 1, 5, 0, 1},
+      {1, 1, 5, 2, 3},
+    };
+    for (i = 0; i < values.length; i++)
+      result.add(new DenseInstance(1.0, values[i]));
+
+    return result;
+  }
+
+  /**
+   * Generates a random dataset: nominal class attribute with three labels
+   * and numeric attributes, mostly zeros and some missing values. Every
+   * other attribute depends on the class, with varying amounts of noise.
+   *
+   * @param rows	the number of rows
+   * @param atts	the total number of attributes (at least 2)
+   * @param sparse	whether to generate sparse rows
+   * @return		the data
+   */
+  protected Instances createData(int rows, int atts, boolean sparse) {
+    ArrayList<Attribute>	attributes;
+    List<String>		labels;
+    Instances			result;
+    Random			rnd;
+    double[]			values;
+    int				i;
+    int				n;
+
+    attributes = new ArrayList<Attribute>();
+    labels     = new ArrayList<String>();
+    labels.add("a");
+    labels.add("b");
+    labels.add("c");
+    attributes.add(new Attribute("class", labels));
+    for (i = 1; i < atts; i++)
+      attributes.add(new Attribute("num" + i));
+    result = new Instances("random", attributes, rows);
+    result.setClassIndex(0);
+
+    rnd = new Random(1);
+    for (i = 0; i < rows; i++) {
+      values = new double[atts];
+      values[0] = rnd.nextInt(labels.size());
+      for (n = 1; n < atts; n++) {
+	if (rnd.nextInt(50) == 0)
+	  values[n] = Double.NaN;
+	else if (rnd.nextInt(1 + n % 7) == 0)
+	  values[n] = Math.round(((n % 2 == 0) ? values[0] * n % 5 : 0) + rnd.nextGaussian() * (n % 3));
+      }
+      if (sparse)
+	result.add(new SparseInstance(1.0, values));
+      else
+	result.add(new DenseInstance(1.0, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Modifies the attribute weights of the data.
+   *
+   * @param modifier	the modifier to use
+   * @param data	the data to modify
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  protected Instances modify(AbstractAttributeWeightsModifier modifier, Instances data) throws Exception {
+    return modifier.modifyAttributeWeights(data);
+  }
+
+  /**
+   * Returns the weights of the attributes.
+   *
+   * @param data	the data to get the weights from
+   * @return		the weights
+   */
+  protected double[] getWeights(Instances data) {
+    double[]	result;
+    int		i;
+
+    result = new double[data.numAttributes()];
+    for (i = 0; i < result.length; i++)
+      result[i] = data.attribute(i).weight();
+
+    return result;
+  }
+
+  /**
+   * Asserts that the weights of the attributes match the expected ones.
+   *
+   * @param msg		the message for failures
+   * @param expected	the expected weights
+   * @param data	the data to check
+   * @param tolerance	the tolerance
+   */
+  protected void assertWeights(String msg, double[] expected, Instances data, double tolerance) {
+    int		i;
+
+    assertEquals(msg + ": number of attributes", expected.length, data.numAttributes());
+    for (i = 0; i < expected.length; i++)
+      assertEquals(msg + ": weight of " + data.attribute(i).name(), expected[i], data.attribute(i).weight(), tolerance);
+  }
+
+  /**
+   * Asserts that the weights of the attributes match the expected ones,
+   * using {@link #TOLERANCE}.
+   *
+   * @param msg		the message for failures
+   * @param expected	the expected weights
+   * @param data	the data to check
+   */
+  protected void assertWeights(String msg, double[] expected, Instances data) {
+    assertWeights(msg, expected, data, TOLERANCE);
+  }
+
+  /**
+   * Asserts that the modifier generates the same weights with a single and
+   * with multiple threads, on dense and sparse data.
+   *
+   * @param modifier	the modifier to check
+   * @param tolerance	the relative tolerance, 0 for identical weights (bit for bit)
+   * @throws Exception	if modifying fails
+   */
+  protected void checkThreads(AbstractDataBasedAttributeWeightsModifier modifier, double tolerance) throws Exception {
+    Instances	data;
+    double[]	single;
+    double[]	multi;
+    String	msg;
+    int		i;
+
+    for (boolean sparse: new boolean[]{false, true}) {
+      data = createData(ROWS, ATTRIBUTES, sparse);
+      modifier.setNumThreads(1);
+      single = getWeights(modify(modifier, data));
+      modifier.setNumThreads(NUM_THREADS);
+      multi = getWeights(modify(modifier, data));
+      msg = modifier.getClass().getSimpleName() + (sparse ? " (sparse)" : " (dense)") + ", 1 vs " + NUM_THREADS + " threads";
+      for (i = 0; i < single.length; i++) {
+	if (tolerance == 0)
+	  assertEquals(msg + ": weight of #" + (i+1), Double.doubleToLongBits(single[i]), Double.doubleToLongBits(multi[i]));
+	else
+	  assertEquals(msg + ": weight of #" + (i+1), single[i], multi[i], Math.abs(single[i]) * tolerance);
+      }
+    }
+  }
+
+  /**
+   * Asserts that the sparse rows are still sparse.
+   *
+   * @param modifier	the modifier to check
+   * @throws Exception	if modifying fails
+   */
+  protected void checkSparse(AbstractAttributeWeightsModifier modifier) throws Exception {
+    Instances	result;
+    int		i;
+
+    result = modify(modifier, createData(ROWS / 10, ATTRIBUTES / 10, true));
+    for (i = 0; i < result.numInstances(); i++)
+      assertTrue(
+	modifier.getClass().getSimpleName() + ": row #" + (i+1) + " not sparse",
+	result.instance(i) instanceof SparseInstance);
+  }
+}
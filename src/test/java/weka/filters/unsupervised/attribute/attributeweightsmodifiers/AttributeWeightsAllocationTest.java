@@ -0,0 +1,283 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AttributeWeightsAllocationTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.weights.AbstractAllocationTestCase;
+
+/**
+ * Enforces the allocation budgets of the attribute weights modifiers.
+ * Determining the output format only touches the header and must therefore
+ * allocate O(attributes), not O(rows).
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class AttributeWeightsAllocationTest
+  extends AbstractAllocationTestCase {
+
+  /** the number of attributes. */
+  public static final int ATTRIBUTES = 100;
+
+  /** the budget in bytes per attribute for the header (copying attributes). */
+  public static final double HEADER_BUDGET = 2048;
+
+  /** the budget in bytes per attribute for loading weights from a text file (line strings, number parsing). */
+  public static final double LOADER_BUDGET = 512;
+
+  /** the budget in bytes per value for building attribute evaluators (projected copy of the data, evaluator statistics). */
+  public static final double EVALUATOR_BUDGET = 64;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public AttributeWeightsAllocationTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Checks the budgets of the modifier: header is O(attributes) for small
+   * and large datasets alike, doModify within the row budget on dense and
+   * sparse data.
+   *
+   * @param modifier	the modifier to check
+   * @param rowBudget	the budget in bytes per row
+   * @throws Exception	if modifying fails
+   */
+  protected void checkBudgets(final AbstractAttributeWeightsModifier modifier, double rowBudget) throws Exception {
+    String	name;
+
+    name = modifier.getClass().getSimpleName();
+    for (int rows: new int[]{SMALL, LARGE}) {
+      final Instances data = createData(rows, ATTRIBUTES, false);
+      assertBytesPerRow(
+	name + " header with " + rows + " rows",
+	new Operation() {
+	  public void execute() throws Exception {
+	    modifier.determineOutputFormat(data);
+	  }
+	},
+	ATTRIBUTES, HEADER_BUDGET);
+    }
+
+    for (boolean sparse: new boolean[]{false, true}) {
+      final Instances data = createData(SMALL, ATTRIBUTES, sparse);
+      assertBytesPerRow(
+	name + (sparse ? " (sparse)" : " (dense)"),
+	new Operation() {
+	  public void execute() throws Exception {
+	    modifier.doModify(data);
+	  }
+	},
+	data.numInstances(), rowBudget);
+    }
+  }
+
+  /**
+   * Checks that compiling the plan of a modifier that derives the weights
+   * from the data is O(attributes), i.e., allocates nothing per row, for
+   * small and large datasets, dense and sparse.
+   *
+   * @param modifier	the modifier to check
+   * @param budget	the budget in bytes per attribute
+   * @throws Exception	if compiling fails
+   */
+  protected void checkCompileBudget(final AbstractAttributeWeightsModifier modifier, double budget) throws Exception {
+    String	name;
+
+    name = modifier.getClass().getSimpleName();
+    for (boolean sparse: new boolean[]{false, true}) {
+      for (int rows: new int[]{SMALL, LARGE}) {
+	final Instances data = createData(rows, ATTRIBUTES, sparse);
+	assertBytesPerRow(
+	  name + " compile with " + rows + " rows" + (sparse ? " (sparse)" : " (dense)"),
+	  new Operation() {
+	    public void execute() throws Exception {
+	      modifier.compilePlan(data);
+	    }
+	  },
+	  ATTRIBUTES, budget);
+      }
+    }
+  }
+
+  /**
+   * PassThrough must not allocate anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testPassThrough() throws Exception {
+    final PassThrough	modifier;
+
+    modifier = new PassThrough();
+    for (int rows: new int[]{SMALL, LARGE}) {
+      final Instances data = createData(rows, ATTRIBUTES, false);
+      assertBytes(
+	"PassThrough with " + rows + " rows",
+	new Operation() {
+	  public void execute() throws Exception {
+	    modifier.doModify(data);
+	  }
+	},
+	CONSTANT_BUDGET);
+    }
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFixedValue() throws Exception {
+    FixedValue	modifier;
+
+    modifier = new FixedValue();
+    modifier.setAttributeIndices("first-" + (ATTRIBUTES / 2));
+    modifier.setWeight(2.0);
+    checkBudgets(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFixedValueByName() throws Exception {
+    FixedValueByName	modifier;
+
+    modifier = new FixedValueByName();
+    modifier.setRegExp("num1.*");
+    modifier.setWeight(2.0);
+    checkBudgets(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFromFile() throws Exception {
+    FromFile	modifier;
+
+    modifier = new FromFile();
+    modifier.setWeightsFile(createWeightsFile(ATTRIBUTES));
+    checkBudgets(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Loading the weights must stay within the loader budget.
+   *
+   * @throws Exception	if loading fails
+   */
+  public void testFromFileLoader() throws Exception {
+    final FromFile	modifier;
+
+    modifier = new FromFile();
+    modifier.setWeightsFile(createWeightsFile(LARGE));
+    assertBytesPerRow(
+      "FromFile loader",
+      new Operation() {
+	public void execute() throws Exception {
+	  modifier.loadWeights();
+	}
+      },
+      LARGE, LOADER_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, counting the rates must not
+   * allocate anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFromSparsityProfile() throws Exception {
+    FromSparsityProfile	modifier;
+
+    modifier = new FromSparsityProfile();
+    checkBudgets(modifier, ROW_COPY_BUDGET);
+    checkCompileBudget(modifier, HEADER_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, the column statistics must
+   * not allocate anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFromColumnStatistics() throws Exception {
+    FromColumnStatistics	modifier;
+
+    modifier = new FromColumnStatistics();
+    checkBudgets(modifier, ROW_COPY_BUDGET);
+    checkCompileBudget(modifier, HEADER_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows. The evaluators need the data
+   * projected onto their chunk of attributes, but building them per chunk
+   * must stay within a constant number of bytes per value, i.e., not copy
+   * the data per chunk.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFromAttributeEvaluator() throws Exception {
+    final FromAttributeEvaluator	modifier;
+
+    modifier = new FromAttributeEvaluator();
+    checkBudgets(modifier, ROW_COPY_BUDGET);
+    for (int threads: new int[]{1, 4}) {
+      modifier.setNumThreads(threads);
+      for (boolean sparse: new boolean[]{false, true}) {
+	final Instances data = createData(SMALL, ATTRIBUTES, sparse);
+	assertBytesPerRow(
+	  "FromAttributeEvaluator compile with " + threads + " thread(s)" + (sparse ? " (sparse)" : " (dense)"),
+	  new Operation() {
+	    public void execute() throws Exception {
+	      modifier.compilePlan(data);
+	    }
+	  },
+	  SMALL * ATTRIBUTES, EVALUATOR_BUDGET);
+      }
+    }
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(AttributeWeightsAllocationTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromAttributeEvaluatorTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.attributeSelection.CfsSubsetEval;
+import weka.attributeSelection.CorrelationAttributeEval;
+import weka.attributeSelection.GainRatioAttributeEval;
+import weka.attributeSelection.InfoGainAttributeEval;
+import weka.attributeSelection.OneRAttributeEval;
+import weka.attributeSelection.ReliefFAttributeEval;
+import weka.attributeSelection.SymmetricalUncertAttributeEval;
+
+/**
+ * Tests the FromAttributeEvaluator modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromAttributeEvaluatorTest
+  extends AbstractAttributeWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public FromAttributeEvaluatorTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Scores of InfoGain and Correlation on the small dataset; the class keeps
+   * its weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    FromAttributeEvaluator	modifier;
+
+    modifier = new FromAttributeEvaluator();
+    modifier.setEvaluator(new InfoGainAttributeEval());
+    assertWeights("InfoGain", new double[]{1, 1, 0, 0, 0}, modify(modifier, createData()));
+
+    modifier.setEvaluator(new CorrelationAttributeEval());
+    assertWeights("Correlation", new double[]{1, 1, 0, Math.sqrt(1.0 / 7.0), 0}, modify(modifier, createData()));
+
+    modifier.setNormalize(true);
+    assertWeights("Correlation, normalized", new double[]{1, 4 / (1 + Math.sqrt(1.0 / 7.0)), 0, 4 * Math.sqrt(1.0 / 7.0) / (1 + Math.sqrt(1.0 / 7.0)), 0}, modify(modifier, createData()));
+  }
+
+  /**
+   * Attributes outside the range keep their weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testRange() throws Exception {
+    FromAttributeEvaluator	modifier;
+
+    modifier = new FromAttributeEvaluator();
+    modifier.setAttributeIndices("3-last");
+    assertWeights("InfoGain, 3-last", new double[]{1, 1, 0, 0, 0}, modify(modifier, createData()));
+    modifier.setAttributeIndices("first-2");
+    assertWeights("InfoGain, first-2", new double[]{1, 1, 1, 1, 1}, modify(modifier, createData()));
+  }
+
+  /**
+   * Only single-attribute evaluators are accepted.
+   */
+  public void testSubsetEvaluator() {
+    try {
+      new FromAttributeEvaluator().setEvaluator(new CfsSubsetEval());
+      fail("subset evaluator accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Evaluators that are separable per attribute get built per chunk of
+   * attributes, the weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    FromAttributeEvaluator	modifier;
+
+    modifier = new FromAttributeEvaluator();
+    modifier.setEvaluator(new InfoGainAttributeEval());
+    checkThreads(modifier, 0);
+    modifier.setEvaluator(new GainRatioAttributeEval());
+    checkThreads(modifier, 0);
+    modifier.setEvaluator(new SymmetricalUncertAttributeEval());
+    checkThreads(modifier, 0);
+    modifier.setEvaluator(new CorrelationAttributeEval());
+    checkThreads(modifier, 0);
+    modifier.setEvaluator(new OneRAttributeEval());
+    checkThreads(modifier, 0);
+  }
+
+  /**
+   * Evaluators that are not separable get built once, regardless of the
+   * number of threads.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreadsNotSeparable() throws Exception {
+    FromAttributeEvaluator	modifier;
+    ReliefFAttributeEval	relief;
+
+    relief = new ReliefFAttributeEval();
+    relief.setSampleSize(50);
+    modifier = new FromAttributeEvaluator();
+    modifier.setEvaluator(relief);
+    assertFalse("ReliefF separable", modifier.isSeparable(relief));
+    checkThreads(modifier, 0);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(new FromAttributeEvaluator());
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(FromAttributeEvaluatorTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromColumnStatisticsTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+
+import java.util.Arrays;
+
+/**
+ * Tests the FromColumnStatistics modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromColumnStatisticsTest
+  extends AbstractAttributeWeightsModifierTestCase {
+
+  /** the relative tolerance for comparing weights across threads (sums get merged per chunk). */
+  public static final double THREADS_TOLERANCE = 1e-12;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public FromColumnStatisticsTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns a modifier using the specified statistic.
+   *
+   * @param statistic	the statistic
+   * @return		the modifier
+   */
+  protected FromColumnStatistics newModifier(int statistic) {
+    FromColumnStatistics	result;
+
+    result = new FromColumnStatistics();
+    result.setStatistic(new SelectedTag(statistic, FromColumnStatistics.TAGS_STATISTIC));
+
+    return result;
+  }
+
+  /**
+   * Sample variances on the small dataset: class01 2/7, constant 0,
+   * sparse 1/2, missing 2 (two values); the class keeps its weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    FromColumnStatistics	modifier;
+    double			factor;
+
+    modifier = newModifier(FromColumnStatistics.STATISTIC_INVERSE_VARIANCE);
+    assertWeights("inverse variance", new double[]{1, 3.5, 0, 2, 0.5}, modify(modifier, createData()));
+
+    modifier.setNormalize(true);
+    factor = 4.0 / 6.0;
+    assertWeights("inverse variance, normalized", new double[]{1, 3.5 * factor, 0, 2 * factor, 0.5 * factor}, modify(modifier, createData()));
+
+    modifier = newModifier(FromColumnStatistics.STATISTIC_COEFFICIENT_OF_VARIATION);
+    assertWeights(
+      "coefficient of variation",
+      new double[]{1, Math.sqrt(2.0 / 7.0) / 0.5, 0, Math.sqrt(0.5) / 0.25, Math.sqrt(2.0) / 2.0},
+      modify(modifier, createData()));
+  }
+
+  /**
+   * Entropy (in bits) of the label distribution for nominal attributes (the
+   * class is unset, first row relabeled to get 3x a, 5x b), numeric ones
+   * keep their weight. Without a class the capabilities check has to be
+   * skipped.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testEntropy() throws Exception {
+    FromColumnStatistics	modifier;
+    Instances			data;
+    double			entropy;
+
+    data = createData();
+    data.setClassIndex(-1);
+    data.instance(0).setValue(0, 1);
+    entropy = -(3.0 / 8 * Math.log(3.0 / 8) + 5.0 / 8 * Math.log(5.0 / 8)) / Math.log(2);
+    modifier = newModifier(FromColumnStatistics.STATISTIC_ENTROPY);
+    modifier.setDoNotCheckCapabilities(true);
+    assertWeights("entropy", new double[]{entropy, 1, 1, 1, 1}, modify(modifier, data));
+  }
+
+  /**
+   * The sample depends only on the seed.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSeed() throws Exception {
+    FromColumnStatistics	modifier;
+    FromColumnStatistics	other;
+    Instances			data;
+    double[]			first;
+    double[]			all;
+
+    data     = createData(ROWS, ATTRIBUTES / 10, false);
+    modifier = newModifier(FromColumnStatistics.STATISTIC_INVERSE_VARIANCE);
+    all      = getWeights(modify(modifier, data));
+    modifier.setSampleSize(ROWS / 10);
+    modifier.setSeed(42);
+    first = getWeights(modify(modifier, data));
+    other = newModifier(FromColumnStatistics.STATISTIC_INVERSE_VARIANCE);
+    other.setSampleSize(ROWS / 10);
+    other.setSeed(42);
+    assertWeights("same seed", first, modify(other, data), 0);
+    assertFalse("sample", Arrays.equals(all, first));
+    modifier.setSeed(43);
+    assertFalse("different seed", Arrays.equals(first, getWeights(modify(modifier, data))));
+  }
+
+  /**
+   * The cached plan must not be re-used when a value or the weight of any
+   * row changes.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testPlanKey() throws Exception {
+    FromColumnStatistics	modifier;
+    Instances			data;
+    String			key;
+
+    modifier = newModifier(FromColumnStatistics.STATISTIC_INVERSE_VARIANCE);
+    data     = createData();
+    key      = modifier.getPlanKey(data);
+    assertEquals("same data", key, modifier.getPlanKey(createData()));
+    data.instance(5).setWeight(2.0);
+    assertFalse("weight changed", key.equals(modifier.getPlanKey(data)));
+
+    data = createData();
+    modify(modifier, data);
+    data.instance(6).setValue(4, 4.0);
+    assertFalse("value changed", key.equals(modifier.getPlanKey(data)));
+    assertWeights("value changed", new double[]{1, 3.5, 0, 2, 2}, modify(modifier, data));
+  }
+
+  /**
+   * The weights must be the same as with a single thread, apart from
+   * rounding when merging the sums of the chunks.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    checkThreads(newModifier(FromColumnStatistics.STATISTIC_INVERSE_VARIANCE), THREADS_TOLERANCE);
+    checkThreads(newModifier(FromColumnStatistics.STATISTIC_COEFFICIENT_OF_VARIATION), THREADS_TOLERANCE);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(newModifier(FromColumnStatistics.STATISTIC_INVERSE_VARIANCE));
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(FromColumnStatisticsTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
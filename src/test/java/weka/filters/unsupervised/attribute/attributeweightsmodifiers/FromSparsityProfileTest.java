@@ -0,0 +1,106 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromSparsityProfileTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.attribute.attributeweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.SelectedTag;
+
+/**
+ * Tests the FromSparsityProfile modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromSparsityProfileTest
+  extends AbstractAttributeWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public FromSparsityProfileTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Rates of present and non-missing values on the small dataset, mapped
+   * with the power and log curves; the class keeps its weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    FromSparsityProfile	modifier;
+    double		log;
+
+    modifier = new FromSparsityProfile();
+    assertWeights("present, power", new double[]{1, Math.sqrt(0.5), 1, Math.sqrt(0.125), 0.5}, modify(modifier, createData()));
+
+    modifier.setRate(new SelectedTag(FromSparsityProfile.RATE_NON_MISSING, FromSparsityProfile.TAGS_RATE));
+    assertWeights("non-missing, power", new double[]{1, 1, 1, 1, 0.5}, modify(modifier, createData()));
+
+    modifier.setRate(new SelectedTag(FromSparsityProfile.RATE_PRESENT, FromSparsityProfile.TAGS_RATE));
+    modifier.setCurve(new SelectedTag(FromSparsityProfile.CURVE_LOG, FromSparsityProfile.TAGS_CURVE));
+    log = Math.log1p(100);
+    assertWeights("present, log", new double[]{1, Math.log1p(50) / log, 1, Math.log1p(12.5) / log, Math.log1p(25) / log}, modify(modifier, createData()));
+
+    modifier.setMinRate(0.2);
+    assertWeights("present, log, min rate", new double[]{1, Math.log1p(50) / log, 1, 0, Math.log1p(25) / log}, modify(modifier, createData()));
+  }
+
+  /**
+   * The counts are exact, the weights must be identical for any number of
+   * threads.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    checkThreads(new FromSparsityProfile(), 0);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(new FromSparsityProfile());
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(FromSparsityProfileTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractInstanceWeightsModifierTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Tests the plan handling of the instance weights modifiers: cache hits,
+ * invalidation when the options or the header change, and one modifier
+ * being used by several threads at the same time.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class AbstractInstanceWeightsModifierTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /** the number of threads sharing the modifier. */
+  public static final int NUM_SHARING = 8;
+
+  /** the number of times each thread modifies the data. */
+  public static final int NUM_RUNS = 10;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public AbstractInstanceWeightsModifierTest(String name) {
+    super(name);
+  }
+
+  /**
+   * The plan gets compiled once and re-used for data with the same
+   * structure.
+   *
+   * @throws Exception	if compiling fails
+   */
+  public void testCacheHit() throws Exception {
+    FromExpression		modifier;
+    InstanceWeightsPlan		plan;
+
+    modifier = new FromExpression();
+    modifier.setExpression("WEIGHT * x");
+    plan = modifier.getPlan(createData());
+    assertSame("same data", plan, modifier.getPlan(createData()));
+    assertSame("same structure", plan, modifier.getPlan(new Instances(createData(), 0)));
+    assertWeights("cached plan", new double[]{1, 1, 2, 3, 1, 2, 8, 9}, modify(modifier, createData()));
+  }
+
+  /**
+   * Changing an option compiles a new plan.
+   *
+   * @throws Exception	if compiling fails
+   */
+  public void testOptionsChanged() throws Exception {
+    FromExpression		modifier;
+    InstanceWeightsPlan		plan;
+
+    modifier = new FromExpression();
+    modifier.setExpression("WEIGHT * x");
+    plan = modifier.getPlan(createData());
+    modifier.setExpression("WEIGHT + x");
+    assertNotSame("expression changed", plan, modifier.getPlan(createData()));
+    assertWeights("new plan", new double[]{2, 2, 3, 4, 2, 3, 9, 10}, modify(modifier, createData()));
+  }
+
+  /**
+   * Changing the header compiles a new plan.
+   *
+   * @throws Exception	if compiling fails
+   */
+  public void testHeaderChanged() throws Exception {
+    FromExpression		modifier;
+    InstanceWeightsPlan		plan;
+    Instances			data;
+
+    modifier = new FromExpression();
+    modifier.setExpression("WEIGHT * ATT2");
+    plan = modifier.getPlan(createData());
+
+    data = createData();
+    data.renameAttribute(1, "z");
+    assertNotSame("attribute renamed", plan, modifier.getPlan(data));
+
+    data = createData();
+    data.setClassIndex(-1);
+    assertNotSame("class unset", plan, modifier.getPlan(data));
+
+    data = createData();
+    data.renameAttributeValue(0, 1, "c");
+    assertNotSame("label renamed", plan, modifier.getPlan(data));
+
+    assertSame("original header", plan, modifier.getPlan(createData()));
+  }
+
+  /**
+   * Asserts that threads sharing the modifier generate the same weights as
+   * a single thread using it.
+   *
+   * @param modifier	the modifier to share
+   * @param data	the data to modify
+   * @throws Exception	if modifying fails
+   */
+  protected void checkShared(final AbstractInstanceWeightsModifier modifier, final Instances data) throws Exception {
+    final CountDownLatch	start;
+    Instances			expected;
+    ExecutorService		executor;
+    List<Future<List<Instances>>>	results;
+    String			name;
+    int				i;
+
+    name = modifier.getClass().getSimpleName();
+    modifier.setDoNotCheckCapabilities(true);
+    expected = modifier.modifyInstanceWeights(new Instances(data));
+    start    = new CountDownLatch(1);
+    executor = Executors.newFixedThreadPool(NUM_SHARING);
+    results  = new ArrayList<Future<List<Instances>>>();
+    try {
+      for (i = 0; i < NUM_SHARING; i++) {
+	results.add(executor.submit(new Callable<List<Instances>>() {
+	  public List<Instances> call() throws Exception {
+	    List<Instances>	result;
+	    int			n;
+
+	    result = new ArrayList<Instances>();
+	    start.await();
+	    for (n = 0; n < NUM_RUNS; n++)
+	      result.add(modifier.modifyInstanceWeights(new Instances(data)));
+	    return result;
+	  }
+	}));
+      }
+      start.countDown();
+      for (i = 0; i < results.size(); i++) {
+	for (Instances actual: results.get(i).get())
+	  assertSameWeights(name + ", thread #" + (i+1), expected, actual);
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * A modifier that only compiles its plan from the header can be shared.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSharedHeaderPlan() throws Exception {
+    FromExpression	modifier;
+
+    modifier = new FromExpression();
+    modifier.setExpression("WEIGHT * ATT10");
+    checkShared(modifier, createData(ROWS, 10, false));
+    checkShared(modifier, createData(ROWS, 10, true));
+  }
+
+  /**
+   * A modifier that derives the weights from the rows can be shared.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSharedDataPlan() throws Exception {
+    DownweightOutliers	modifier;
+
+    modifier = new DownweightOutliers();
+    modifier.setAttributeIndex("last");
+    modifier.setNumThreads(2);
+    checkShared(modifier, createData(ROWS, 10, false));
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(AbstractInstanceWeightsModifierTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * AbstractInstanceWeightsModifierTestCase.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.TestCase;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Ancestor for regression tests of instance weights modifiers: weights on a
+ * small dataset with known values, independence of the number of threads
+ * and sparse rows staying sparse.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public abstract class AbstractInstanceWeightsModifierTestCase
+  extends TestCase {
+
+  /** the tolerance for comparing weights. */
+  public static final double TOLERANCE = 1e-9;
+
+  /** the number of threads to compare against a single thread. */
+  public static final int NUM_THREADS = 4;
+
+  /** the number of rows for the random datasets (several chunks per thread). */
+  public static final int ROWS = 5000;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public AbstractInstanceWeightsModifierTestCase(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates the small dataset with known values: nominal class attribute
+   * "class" (labels a, b) as first attribute, numeric attributes "x" and "y"
+   * and all weights 1.
+   * <pre>
+   * class  x  y
+   * a      1  0
+   * a      1  0
+   * a      2  1
+   * a      3  ?
+   * a      1  0
+   * a      2  2
+   * b      8  1
+   * b      9  ?
+   * </pre>
+   *
+   * @return		the data
+   */
+  protected Instances createData() {
+    ArrayList<Attribute>	attributes;
+    List<String>		labels;
+    Instances			result;
+    double[][]			values;
+    int				i;
+
+    labels = new ArrayList<String>();
+    labels.add("a");
+    labels.add("b");
+    attributes = new ArrayList<Attribute>();
+    attributes.add(new Attribute("class", labels));
+    attributes.add(new Attribute("x"));
+    attributes.add(new Attribute("y"));
+    result = new Instances("known", attributes, 8);
+    result.setClassIndex(0);
+
+    values = new double[][]{
+      {0, 1, 0},
+      {0, 1, 0},
+      {0, 2, 1},
+      {0, 3, Double.NaN},
+      {0, 1, 0},
+      {0, 2, 2},
+      {1, 8, 1},
+      {1, 9, Double.NaN},
+    };
+    for (i = 0; i < values.length; i++)
+      result.add(new DenseInstance(1.0, values[i]));
+
+    return result;
+  }
+
+  /**
+   * Generates a random dataset: nominal class attribute with three labels,
+   * numeric attributes (mostly zeros, some missing values) and a positive
+   * numeric "weight" attribute as last attribute. The rows have random
+   * positive weights.
+   *
+   * @param rows	the number of rows
+   * @param atts	the total number of attributes (at least 2)
+   * @param sparse	whether to generate sparse rows
+   * @return		the data
+   */
+  protected Instances createData(int rows, int atts, boolean sparse) {
+    ArrayList<Attribute>	attributes;
+    List<String>		labels;
+    Instances			result;
+    Random			rnd;
+    double[]			values;
+    double			weight;
+    int				i;
+    int				n;
+
+    attributes = new ArrayList<Attribute>();
+    labels     = new ArrayList<String>();
+    labels.add("a");
+    labels.add("b");
+    labels.add("c");
+    attributes.add(new Attribute("class", labels));
+    for (i = 1; i < atts - 1; i++)
+      attributes.add(new Attribute("num" + i));
+    attributes.add(new Attribute("weight"));
+    result = new Instances("random", attributes, rows);
+    result.setClassIndex(0);
+
+    rnd = new Random(1);
+    for (i = 0; i < rows; i++) {
+      values = new double[atts];
+      values[0] = rnd.nextInt(labels.size());
+      for (n = 1; n < atts - 1; n++) {
+	if (rnd.nextInt(50) == 0)
+	  values[n] = Double.NaN;
+	else
+	  values[n] = (rnd.nextInt(5) == 0) ? Math.round(rnd.nextGaussian() * 4) : 0.0;
+      }
+      values[atts - 1] = 0.01 + rnd.nextDouble();
+      weight = 0.5 + rnd.nextDouble();
+      if (sparse)
+	result.add(new SparseInstance(weight, values));
+      else
+	result.add(new DenseInstance(weight, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Modifies the weights of the data, skipping the capabilities check (the
+   * random data has weighted rows).
+   *
+   * @param modifier	the modifier to use
+   * @param data	the data to modify
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  protected Instances modify(AbstractInstanceWeightsModifier modifier, Instances data) throws Exception {
+    modifier.setDoNotCheckCapabilities(true);
+    return modifier.modifyInstanceWeights(data);
+  }
+
+  /**
+   * Returns the weights of the rows.
+   *
+   * @param data	the data to get the weights from
+   * @return		the weights
+   */
+  protected double[] getWeights(Instances data) {
+    double[]	result;
+    int		i;
+
+    result = new double[data.numInstances()];
+    for (i = 0; i < result.length; i++)
+      result[i] = data.instance(i).weight();
+
+    return result;
+  }
+
+  /**
+   * Asserts that the weights of the rows match the expected ones.
+   *
+   * @param msg		the message for failures
+   * @param expected	the expected weights
+   * @param data	the data to check
+   * @param tolerance	the tolerance
+   */
+  protected void assertWeights(String msg, double[] expected, Instances data, double tolerance) {
+    int		i;
+
+    assertEquals(msg + ": number of rows", expected.length, data.numInstances());
+    for (i = 0; i < expected.length; i++)
+      assertEquals(msg + ": weight of row #" + (i+1), expected[i], data.instance(i).weight(), tolerance);
+  }
+
+  /**
+   * Asserts that the weights of the rows match the expected ones, using
+   * {@link #TOLERANCE}.
+   *
+   * @param msg		the message for failures
+   * @param expected	the expected weights
+   * @param data	the data to check
+   */
+  protected void assertWeights(String msg, double[] expected, Instances data) {
+    assertWeights(msg, expected, data, TOLERANCE);
+  }
+
+  /**
+   * Asserts that the weights of two datasets are identical (bit for bit).
+   *
+   * @param msg		the message for failures
+   * @param expected	the expected data
+   * @param actual	the actual data
+   */
+  protected void assertSameWeights(String msg, Instances expected, Instances actual) {
+    int		i;
+
+    assertEquals(msg + ": number of rows", expected.numInstances(), actual.numInstances());
+    for (i = 0; i < expected.numInstances(); i++)
+      assertEquals(
+	msg + ": weight of row #" + (i+1),
+	Double.doubleToLongBits(expected.instance(i).weight()),
+	Double.doubleToLongBits(actual.instance(i).weight()));
+  }
+
+  /**
+   * Asserts that the modifier generates the same weights with a single and
+   * with multiple threads, on dense and sparse data.
+   *
+   * @param modifier	the modifier to check
+   * @param atts	the number of attributes of the random data
+   * @throws Exception	if modifying fails
+   */
+  protected void checkThreads(AbstractParallelInstanceWeightsModifier modifier, int atts) throws Exception {
+    Instances	data;
+    Instances	single;
+    Instances	multi;
+    String	name;
+
+    name = modifier.getClass().getSimpleName();
+    for (boolean sparse: new boolean[]{false, true}) {
+      data = createData(ROWS, atts, sparse);
+      modifier.setNumThreads(1);
+      single = modify(modifier, new Instances(data));
+      modifier.setNumThreads(NUM_THREADS);
+      multi = modify(modifier, new Instances(data));
+      assertSameWeights(name + (sparse ? " (sparse)" : " (dense)") + ", 1 vs " + NUM_THREADS + " threads", single, multi);
+    }
+  }
+
+  /**
+   * Asserts that the modified sparse rows are still sparse.
+   *
+   * @param modifier	the modifier to check
+   * @param atts	the number of attributes of the random data
+   * @throws Exception	if modifying fails
+   */
+  protected void checkSparse(AbstractInstanceWeightsModifier modifier, int atts) throws Exception {
+    Instances	result;
+    int		i;
+
+    result = modify(modifier, createData(ROWS / 10, atts, true));
+    for (i = 0; i < result.numInstances(); i++)
+      assertTrue(
+	modifier.getClass().getSimpleName() + ": row #" + (i+1) + " not sparse",
+	result.instance(i) instanceof SparseInstance);
+  }
+}
@@ -0,0 +1,182 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BalanceClassesTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+
+/**
+ * Tests the BalanceClasses modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BalanceClassesTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public BalanceClassesTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Inverse frequency on the small dataset: 6x a, 2x b, scaled to sum up
+   * to 8.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownDataInverseFrequency() throws Exception {
+    BalanceClasses	modifier;
+    double		a;
+    double		b;
+
+    modifier = new BalanceClasses();
+    a = 2.0 / 3.0;
+    b = 2.0;
+    assertWeights("inverse frequency", new double[]{a, a, a, a, a, a, b, b}, modify(modifier, createData()));
+  }
+
+  /**
+   * Effective number of samples with beta 0.5 on the small dataset.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownDataEffectiveNumber() throws Exception {
+    BalanceClasses	modifier;
+    double		a;
+    double		b;
+
+    modifier = new BalanceClasses();
+    modifier.setScheme(new SelectedTag(BalanceClasses.SCHEME_EFFECTIVE_NUMBER, BalanceClasses.TAGS_SCHEME));
+    modifier.setBeta(0.5);
+    a = 64.0 / 69.0;
+    b = 28.0 / 23.0;
+    assertWeights("effective number", new double[]{a, a, a, a, a, a, b, b}, modify(modifier, createData()));
+  }
+
+  /**
+   * Rows with a missing class keep their weight and are not counted.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testMissingClass() throws Exception {
+    BalanceClasses	modifier;
+    Instances		data;
+
+    data = createData();
+    data.instance(0).setClassMissing();
+    data.instance(0).setWeight(3.0);
+    modifier = new BalanceClasses();
+    assertWeights("missing class", new double[]{3, 0.7, 0.7, 0.7, 0.7, 0.7, 1.75, 1.75}, modify(modifier, data));
+  }
+
+  /**
+   * The class weights of the first batch get re-used for subsequent ones.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testUseFirstBatch() throws Exception {
+    BalanceClasses	modifier;
+    Instances		second;
+    double		a;
+
+    modifier = new BalanceClasses();
+    modifier.setUseFirstBatch(true);
+    modifier.determineOutputFormat(createData());
+    modify(modifier, createData());
+    second = new Instances(createData(), 0, 6);
+    a      = 2.0 / 3.0;
+    assertWeights("second batch", new double[]{a, a, a, a, a, a}, modify(modifier, second));
+
+    modifier.setUseFirstBatch(false);
+    assertWeights("own batch", new double[]{1, 1, 1, 1, 1, 1}, modify(modifier, second));
+  }
+
+  /**
+   * Rows with a class label that did not occur in the first batch keep
+   * their weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testUseFirstBatchUnseenClass() throws Exception {
+    BalanceClasses	modifier;
+    Instances		first;
+    Instances		second;
+
+    modifier = new BalanceClasses();
+    modifier.setUseFirstBatch(true);
+    modifier.determineOutputFormat(createData());
+    first = new Instances(createData(), 0, 6);
+    assertWeights("first batch", new double[]{1, 1, 1, 1, 1, 1}, modify(modifier, first));
+    second = createData();
+    second.instance(6).setWeight(2.5);
+    second.instance(7).setWeight(0.5);
+    assertWeights("unseen class", new double[]{1, 1, 1, 1, 1, 1, 2.5, 0.5}, modify(modifier, second));
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    BalanceClasses	modifier;
+
+    modifier = new BalanceClasses();
+    checkThreads(modifier, 10);
+    modifier.setScheme(new SelectedTag(BalanceClasses.SCHEME_EFFECTIVE_NUMBER, BalanceClasses.TAGS_SCHEME));
+    checkThreads(modifier, 10);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(new BalanceClasses(), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(BalanceClassesTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
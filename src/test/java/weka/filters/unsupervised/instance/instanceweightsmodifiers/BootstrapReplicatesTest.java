@@ -0,0 +1,316 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BootstrapReplicatesTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.weights.CounterRandom;
+
+import java.util.Arrays;
+
+/**
+ * Tests the BootstrapReplicates modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BootstrapReplicatesTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public BootstrapReplicatesTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Modifies the weights of the data as a new stream, i.e., starting with
+   * row index 0 like the filter does after setting the input format.
+   *
+   * @param modifier	the modifier to use
+   * @param data	the data to modify
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  @Override
+  protected Instances modify(AbstractInstanceWeightsModifier modifier, Instances data) throws Exception {
+    modifier.determineOutputFormat(data);
+    return super.modify(modifier, data);
+  }
+
+  /**
+   * Returns a modifier using the specified scheme and number of replicates.
+   *
+   * @param scheme	the resampling scheme
+   * @param replicates	the number of replicates
+   * @return		the modifier
+   */
+  protected BootstrapReplicates newModifier(int scheme, int replicates) {
+    BootstrapReplicates	result;
+
+    result = new BootstrapReplicates();
+    result.setScheme(new SelectedTag(scheme, Bootstrap.TAGS_SCHEME));
+    result.setNumReplicates(replicates);
+
+    return result;
+  }
+
+  /**
+   * Returns the values of the replicate attributes.
+   *
+   * @param data	the modified data
+   * @param replicates	the number of replicates
+   * @return		the values (rows x replicates)
+   */
+  protected double[][] getReplicates(Instances data, int replicates) {
+    double[][]	result;
+    int		offset;
+    int		i;
+    int		r;
+
+    result = new double[data.numInstances()][replicates];
+    offset = data.numAttributes() - replicates;
+    for (i = 0; i < data.numInstances(); i++) {
+      for (r = 0; r < replicates; r++)
+	result[i][r] = data.instance(i).value(offset + r);
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the values of a single replicate.
+   *
+   * @param replicates	the values (rows x replicates)
+   * @param index	the replicate to get
+   * @return		the values
+   */
+  protected double[] column(double[][] replicates, int index) {
+    double[]	result;
+    int		i;
+
+    result = new double[replicates.length];
+    for (i = 0; i < replicates.length; i++)
+      result[i] = replicates[i][index];
+
+    return result;
+  }
+
+  /**
+   * Asserts that the replicate values are identical (bit for bit).
+   *
+   * @param msg		the message for failures
+   * @param expected	the expected values
+   * @param actual	the actual values
+   */
+  protected void assertSameReplicates(String msg, double[][] expected, double[][] actual) {
+    int		i;
+    int		r;
+
+    assertEquals(msg + ": number of rows", expected.length, actual.length);
+    for (i = 0; i < expected.length; i++) {
+      for (r = 0; r < expected[i].length; r++)
+	assertEquals(
+	  msg + ": row #" + (i+1) + ", replicate #" + (r+1),
+	  Double.doubleToLongBits(expected[i][r]),
+	  Double.doubleToLongBits(actual[i][r]));
+    }
+  }
+
+  /**
+   * Poisson: the replicates are the weights times the counts drawn from the
+   * stream of each replicate, the weights and values are left untouched.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownDataPoisson() throws Exception {
+    CounterRandom	random;
+    Instances		data;
+    Instances		result;
+    double[][]		actual;
+    long		key;
+    int			i;
+    int			r;
+
+    random = new CounterRandom(1);
+    data   = createData();
+    data.instance(3).setWeight(2.5);
+    result = modify(newModifier(Bootstrap.SCHEME_POISSON, 3), data);
+    assertEquals("attributes", data.numAttributes() + 3, result.numAttributes());
+    for (r = 0; r < 3; r++)
+      assertEquals("name", "replicate-" + (r+1), result.attribute(data.numAttributes() + r).name());
+    assertWeights("weights", new double[]{1, 1, 1, 2.5, 1, 1, 1, 1}, result);
+    actual = getReplicates(result, 3);
+    for (r = 0; r < 3; r++) {
+      key = random.split(r).getKey();
+      for (i = 0; i < data.numInstances(); i++)
+	assertEquals(
+	  "row #" + (i+1) + ", replicate #" + (r+1),
+	  data.instance(i).weight() * CounterRandom.poisson(CounterRandom.nextDouble(key, i)),
+	  actual[i][r], TOLERANCE);
+    }
+    for (i = 0; i < data.numInstances(); i++)
+      assertEquals("value of x, row #" + (i+1), data.instance(i).value(1), result.instance(i).value(1));
+  }
+
+  /**
+   * Bayesian: the draws of each replicate sum up to the number of rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownDataBayesian() throws Exception {
+    double[][]	actual;
+    double	sum;
+    int		i;
+    int		r;
+
+    actual = getReplicates(modify(newModifier(Bootstrap.SCHEME_BAYESIAN, 3), createData()), 3);
+    for (r = 0; r < 3; r++) {
+      sum = 0;
+      for (i = 0; i < actual.length; i++) {
+	assertTrue("positive", actual[i][r] > 0);
+	sum += actual[i][r];
+      }
+      assertEquals("sum of replicate #" + (r+1), 8.0, sum, TOLERANCE);
+    }
+  }
+
+  /**
+   * The replicates depend only on the seed and differ from each other.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSeed() throws Exception {
+    Instances			data;
+    BootstrapReplicates		modifier;
+    BootstrapReplicates		other;
+    double[][]			first;
+
+    data = createData(ROWS, 10, false);
+    for (int scheme: new int[]{Bootstrap.SCHEME_POISSON, Bootstrap.SCHEME_BAYESIAN}) {
+      modifier = newModifier(scheme, 5);
+      modifier.setSeed(42);
+      first = getReplicates(modify(modifier, data), 5);
+      other = newModifier(scheme, 5);
+      other.setSeed(42);
+      assertSameReplicates("same seed", first, getReplicates(modify(other, data), 5));
+      modifier.setSeed(43);
+      assertFalse("different seed", Arrays.deepEquals(first, getReplicates(modify(modifier, data), 5)));
+      assertFalse("different replicates", Arrays.equals(column(first, 0), column(first, 1)));
+    }
+  }
+
+  /**
+   * The row index continues across batches: Poisson replicates of two
+   * batches are the same as the ones of the complete data, the replicates
+   * of a subsequent batch differ from the ones of the first batch (for both
+   * schemes). Determining the output format starts again at row 0.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testBatches() throws Exception {
+    BootstrapReplicates	modifier;
+    Instances		data;
+    Instances		first;
+    Instances		second;
+    double[][]		expected;
+    double[][]		actual;
+    double[][]		batch;
+    int			half;
+
+    data   = createData(ROWS, 10, false);
+    half   = data.numInstances() / 2;
+    first  = new Instances(data, 0, half);
+    second = new Instances(data, half, data.numInstances() - half);
+
+    modifier = newModifier(Bootstrap.SCHEME_POISSON, 3);
+    expected = getReplicates(modify(modifier, new Instances(data)), 3);
+    modifier.determineOutputFormat(data);
+    actual = new double[data.numInstances()][];
+    System.arraycopy(getReplicates(super.modify(modifier, first), 3), 0, actual, 0, half);
+    System.arraycopy(getReplicates(super.modify(modifier, second), 3), 0, actual, half, data.numInstances() - half);
+    assertSameReplicates("two batches", expected, actual);
+    batch = getReplicates(super.modify(modifier, first), 3);
+    assertFalse("third batch", Arrays.deepEquals(Arrays.copyOf(expected, half), batch));
+    assertSameReplicates("reset", Arrays.copyOf(expected, half), getReplicates(modify(modifier, first), 3));
+
+    modifier = newModifier(Bootstrap.SCHEME_BAYESIAN, 3);
+    batch    = getReplicates(modify(modifier, first), 3);
+    assertFalse("Bayesian, second batch", Arrays.deepEquals(batch, getReplicates(super.modify(modifier, first), 3)));
+  }
+
+  /**
+   * The replicates must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    BootstrapReplicates	modifier;
+    Instances		data;
+    double[][]		single;
+
+    for (int scheme: new int[]{Bootstrap.SCHEME_POISSON, Bootstrap.SCHEME_BAYESIAN}) {
+      for (boolean sparse: new boolean[]{false, true}) {
+	data     = createData(ROWS, 10, sparse);
+	modifier = newModifier(scheme, 5);
+	modifier.setNumThreads(1);
+	single = getReplicates(modify(modifier, data), 5);
+	modifier.setNumThreads(NUM_THREADS);
+	assertSameReplicates(
+	  (sparse ? "sparse" : "dense") + ", 1 vs " + NUM_THREADS + " threads",
+	  single, getReplicates(modify(modifier, data), 5));
+      }
+    }
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(newModifier(Bootstrap.SCHEME_POISSON, 5), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(BootstrapReplicatesTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * BootstrapTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.weights.CounterRandom;
+
+import java.util.Arrays;
+
+/**
+ * Tests the Bootstrap modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class BootstrapTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public BootstrapTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Modifies the weights of the data as a new stream, i.e., starting with
+   * row index 0 like the filter does after setting the input format.
+   *
+   * @param modifier	the modifier to use
+   * @param data	the data to modify
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  @Override
+  protected Instances modify(AbstractInstanceWeightsModifier modifier, Instances data) throws Exception {
+    modifier.determineOutputFormat(data);
+    return super.modify(modifier, data);
+  }
+
+  /**
+   * Returns a Bootstrap modifier using the specified scheme.
+   *
+   * @param scheme	the resampling scheme
+   * @return		the modifier
+   */
+  protected Bootstrap newModifier(int scheme) {
+    Bootstrap	result;
+
+    result = new Bootstrap();
+    result.setScheme(new SelectedTag(scheme, Bootstrap.TAGS_SCHEME));
+
+    return result;
+  }
+
+  /**
+   * Poisson: the weights are the original weights times the counts drawn
+   * for the row indices.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownDataPoisson() throws Exception {
+    CounterRandom	random;
+    Instances		data;
+    double[]		expected;
+    int			i;
+
+    random = new CounterRandom(1);
+    data   = createData();
+    data.instance(3).setWeight(2.5);
+    expected = new double[data.numInstances()];
+    for (i = 0; i < expected.length; i++)
+      expected[i] = data.instance(i).weight() * random.nextPoisson(i);
+    assertWeights("poisson", expected, modify(newModifier(Bootstrap.SCHEME_POISSON), data));
+  }
+
+  /**
+   * Bayesian: the draws for the row indices, scaled to sum up to the
+   * number of rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownDataBayesian() throws Exception {
+    CounterRandom	random;
+    Instances		result;
+    double[]		expected;
+    double		sum;
+    int			i;
+
+    random   = new CounterRandom(1);
+    expected = new double[8];
+    sum      = 0;
+    for (i = 0; i < expected.length; i++) {
+      expected[i] = random.nextExponential(i);
+      sum        += expected[i];
+    }
+    for (i = 0; i < expected.length; i++)
+      expected[i] *= expected.length / sum;
+    result = modify(newModifier(Bootstrap.SCHEME_BAYESIAN), createData());
+    assertWeights("bayesian", expected, result);
+
+    sum = 0;
+    for (i = 0; i < result.numInstances(); i++)
+      sum += result.instance(i).weight();
+    assertEquals("sum of weights", 8.0, sum, TOLERANCE);
+  }
+
+  /**
+   * The weights depend only on the seed.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSeed() throws Exception {
+    Instances	data;
+    Bootstrap	modifier;
+    Bootstrap	other;
+    Instances	first;
+
+    data = createData(ROWS, 10, false);
+    for (int scheme: new int[]{Bootstrap.SCHEME_POISSON, Bootstrap.SCHEME_BAYESIAN}) {
+      modifier = newModifier(scheme);
+      modifier.setSeed(42);
+      first = modify(modifier, new Instances(data));
+      other = newModifier(scheme);
+      other.setSeed(42);
+      assertSameWeights("same seed", first, modify(other, new Instances(data)));
+      modifier.setSeed(43);
+      assertFalse("different seed", Arrays.equals(getWeights(first), getWeights(modify(modifier, new Instances(data)))));
+    }
+  }
+
+  /**
+   * Subsequent batches continue the row index: the Poisson weights of two
+   * batches are the same as for the complete data and another batch gets
+   * fresh draws.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testBatches() throws Exception {
+    Bootstrap	modifier;
+    Instances	data;
+    Instances	first;
+    Instances	second;
+    double[]	expected;
+    double[]	actual;
+    int		half;
+
+    data     = createData(ROWS, 10, false);
+    half     = data.numInstances() / 2;
+    first    = new Instances(data, 0, half);
+    second   = new Instances(data, half, data.numInstances() - half);
+    modifier = newModifier(Bootstrap.SCHEME_POISSON);
+    expected = getWeights(modify(modifier, new Instances(data)));
+
+    modifier.determineOutputFormat(data);
+    actual = new double[data.numInstances()];
+    System.arraycopy(getWeights(super.modify(modifier, first)), 0, actual, 0, half);
+    System.arraycopy(getWeights(super.modify(modifier, second)), 0, actual, half, data.numInstances() - half);
+    assertTrue("two batches", Arrays.equals(expected, actual));
+    assertFalse("third batch", Arrays.equals(Arrays.copyOf(expected, half), getWeights(super.modify(modifier, first))));
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    checkThreads(newModifier(Bootstrap.SCHEME_POISSON), 10);
+    checkThreads(newModifier(Bootstrap.SCHEME_BAYESIAN), 10);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(newModifier(Bootstrap.SCHEME_POISSON), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(BootstrapTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * CollapseDuplicatesTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+
+import java.util.Arrays;
+
+/**
+ * Tests the CollapseDuplicates modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class CollapseDuplicatesTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public CollapseDuplicatesTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates a random dataset in which each row occurs several times,
+   * interleaved.
+   *
+   * @param sparse	whether to generate sparse rows
+   * @return		the data
+   */
+  protected Instances createDuplicates(boolean sparse) {
+    Instances	unique;
+    Instances	result;
+    int		i;
+    int		n;
+
+    unique = createData(ROWS / 10, 10, sparse);
+    result = new Instances(unique, ROWS);
+    for (n = 0; n < 10; n++) {
+      for (i = 0; i < unique.numInstances(); i++)
+	result.add(unique.instance((i * 7 + n) % unique.numInstances()));
+    }
+
+    return result;
+  }
+
+  /**
+   * Rows 1, 2 and 5 of the small dataset are identical; the collapsed rows
+   * are in order of their first occurrence.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    Instances	data;
+    Instances	result;
+
+    data = createData();
+    data.instance(4).setWeight(2.0);
+    result = modify(new CollapseDuplicates(), data);
+    assertWeights("collapsed", new double[]{4, 1, 1, 1, 1, 1}, result);
+    assertTrue("first row", Arrays.equals(data.instance(0).toDoubleArray(), result.instance(0).toDoubleArray()));
+    assertTrue("last row", Arrays.equals(data.instance(7).toDoubleArray(), result.instance(5).toDoubleArray()));
+  }
+
+  /**
+   * Missing values are equal to each other, dense and sparse rows with the
+   * same values are duplicates.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testMissingAndSparse() throws Exception {
+    Instances	data;
+
+    data = createData();
+    data.add(new DenseInstance(data.instance(7)));
+    data.add(new SparseInstance(data.instance(2)));
+    assertWeights("collapsed", new double[]{3, 2, 1, 1, 1, 2}, modify(new CollapseDuplicates(), data));
+  }
+
+  /**
+   * The collapsed rows and their weights must be the same as with a single
+   * thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    CollapseDuplicates	modifier;
+    Instances		data;
+    Instances		single;
+    Instances		multi;
+
+    modifier = new CollapseDuplicates();
+    for (boolean sparse: new boolean[]{false, true}) {
+      data = createDuplicates(sparse);
+      modifier.setNumThreads(1);
+      single = modify(modifier, data);
+      assertEquals("number of rows", ROWS / 10, single.numInstances());
+      modifier.setNumThreads(NUM_THREADS);
+      multi = modify(modifier, data);
+      assertSameWeights((sparse ? "sparse" : "dense") + ", 1 vs " + NUM_THREADS + " threads", single, multi);
+    }
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(new CollapseDuplicates(), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(CollapseDuplicatesTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DownweightDenseRegionsTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+/**
+ * Tests the DownweightDenseRegions modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DownweightDenseRegionsTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public DownweightDenseRegionsTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Attribute x of the small dataset (1, 1, 2, 3, 1, 2, 8, 9), fewer rows
+   * than the leaf size, i.e., exact neighbours: the distances to the second
+   * nearest neighbour are 0, 0, 1, 1, 0, 1, 5 and 6 (zero replaced by the
+   * smallest non-zero distance, mean 17/8).
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    DownweightDenseRegions	modifier;
+    Instances			data;
+    double			f;
+
+    modifier = new DownweightDenseRegions();
+    modifier.setAttributeIndices("2");
+    modifier.setNumNeighbors(2);
+    f = 8.0 / 17.0;
+    assertWeights("exponent 1", new double[]{f, f, f, f, f, f, 5 * f, 6 * f}, modify(modifier, createData()), 1e-6);
+
+    modifier.setExponent(2.0);
+    data = createData();
+    data.instance(7).setWeight(2.0);
+    assertWeights("exponent 2", new double[]{f * f, f * f, f * f, f * f, f * f, f * f, 25 * f * f, 72 * f * f}, modify(modifier, data), 1e-6);
+  }
+
+  /**
+   * Rows that are identical on the selected attributes keep their weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testIdentical() throws Exception {
+    DownweightDenseRegions	modifier;
+    Instances			data;
+    int				i;
+
+    data = createData();
+    for (i = 0; i < data.numInstances(); i++)
+      data.instance(i).setValue(1, 4.0);
+    modifier = new DownweightDenseRegions();
+    modifier.setAttributeIndices("2");
+    assertWeights("identical", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, modify(modifier, data));
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    DownweightDenseRegions	modifier;
+
+    modifier = new DownweightDenseRegions();
+    modifier.setAttributeIndices("2-last");
+    checkThreads(modifier, 10);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(new DownweightDenseRegions(), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(DownweightDenseRegionsTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
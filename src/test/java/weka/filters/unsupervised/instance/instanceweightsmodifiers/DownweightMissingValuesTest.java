@@ -0,0 +1,121 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DownweightMissingValuesTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.SparseInstance;
+
+/**
+ * Tests the DownweightMissingValues modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DownweightMissingValuesTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public DownweightMissingValuesTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Rows 4 and 8 of the small dataset miss one of the two non-class
+   * attributes; the class is never counted.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    DownweightMissingValues	modifier;
+    Instances			data;
+
+    modifier = new DownweightMissingValues();
+    assertWeights("exponent 1", new double[]{1, 1, 1, 0.5, 1, 1, 1, 0.5}, modify(modifier, createData()));
+
+    modifier.setExponent(2.0);
+    data = createData();
+    data.instance(0).setClassMissing();
+    data.instance(3).setWeight(2.0);
+    assertWeights("exponent 2, scaled", new double[]{1, 1, 1, 0.5, 1, 1, 1, 0.25}, modify(modifier, data));
+
+    modifier.setMode(new SelectedTag(DownweightMissingValues.MODE_SET, DownweightMissingValues.TAGS_MODE));
+    assertWeights("exponent 2, set", new double[]{1, 1, 1, 0.25, 1, 1, 1, 0.25}, modify(modifier, data));
+
+    modifier.setAttributeIndices("2");
+    assertWeights("x only", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, modify(modifier, data));
+  }
+
+  /**
+   * Sparse rows stay sparse and get the same weights as dense ones.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    DownweightMissingValues	modifier;
+    Instances			dense;
+    Instances			sparse;
+    int				i;
+
+    modifier = new DownweightMissingValues();
+    checkSparse(modifier, 10);
+
+    dense  = createData();
+    sparse = new Instances(dense, dense.numInstances());
+    for (i = 0; i < dense.numInstances(); i++)
+      sparse.add(new SparseInstance(dense.instance(i)));
+    assertSameWeights("dense vs sparse", modify(modifier, dense), modify(modifier, sparse));
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    checkThreads(new DownweightMissingValues(), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(DownweightMissingValuesTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
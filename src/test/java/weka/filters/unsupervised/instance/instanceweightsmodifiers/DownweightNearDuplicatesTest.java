@@ -0,0 +1,107 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DownweightNearDuplicatesTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+/**
+ * Tests the DownweightNearDuplicates modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DownweightNearDuplicatesTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public DownweightNearDuplicatesTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Rows with identical sets of non-zero attributes share all buckets, rows
+   * without values in the range keep their weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    DownweightNearDuplicates	modifier;
+    Instances			data;
+    double			third;
+
+    modifier = new DownweightNearDuplicates();
+    modifier.setAttributeIndices("2");
+    assertWeights("all rows identical", new double[]{0.125, 0.125, 0.125, 0.125, 0.125, 0.125, 0.125, 0.125}, modify(modifier, createData()));
+
+    modifier.setAttributeIndices("3");
+    data = createData();
+    data.instance(2).setWeight(3.0);
+    third = 1.0 / 3.0;
+    assertWeights("y only", new double[]{1, 1, 1, 1, 1, third, third, 1}, modify(modifier, data));
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    DownweightNearDuplicates	modifier;
+
+    modifier = new DownweightNearDuplicates();
+    modifier.setAttributeIndices("2-last");
+    checkThreads(modifier, 10);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(new DownweightNearDuplicates(), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(DownweightNearDuplicatesTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
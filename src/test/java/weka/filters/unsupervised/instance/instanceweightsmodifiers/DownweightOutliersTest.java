@@ -0,0 +1,192 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * DownweightOutliersTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+
+/**
+ * Tests the DownweightOutliers modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class DownweightOutliersTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /** the MAD scale factor. */
+  public static final double MAD = 1.4826;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public DownweightOutliersTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns a modifier for the specified attribute and function.
+   *
+   * @param index	the attribute index
+   * @param function	the weight function
+   * @param tuning	the tuning constant
+   * @return		the modifier
+   */
+  protected DownweightOutliers newModifier(String index, int function, double tuning) {
+    DownweightOutliers	result;
+
+    result = new DownweightOutliers();
+    result.setAttributeIndex(index);
+    result.setFunction(new SelectedTag(function, DownweightOutliers.TAGS_FUNCTION));
+    result.setTuning(tuning);
+
+    return result;
+  }
+
+  /**
+   * Attribute x of the small dataset (1, 1, 2, 3, 1, 2, 8, 9): median 2,
+   * MAD 1.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    double[]	x;
+    double[]	expected;
+    double	scale;
+    double	r;
+    int		i;
+
+    x = new double[]{1, 1, 2, 3, 1, 2, 8, 9};
+    assertWeights(
+      "huber", new double[]{1, 1, 1, 1, 1, 1, MAD / 6, MAD / 7},
+      modify(newModifier("2", DownweightOutliers.FUNCTION_HUBER, 1.0), createData()));
+
+    scale    = MAD * 5.0;
+    expected = new double[x.length];
+    for (i = 0; i < x.length; i++) {
+      r           = Math.abs(x[i] - 2) / scale;
+      expected[i] = (1 - r * r) * (1 - r * r);
+    }
+    assertWeights("tukey", expected, modify(newModifier("2", DownweightOutliers.FUNCTION_TUKEY, 5.0), createData()));
+    assertWeights(
+      "tukey, outliers", new double[]{64.0 / 81.0, 64.0 / 81.0, 1, 64.0 / 81.0, 64.0 / 81.0, 1, 0, 0},
+      modify(newModifier("2", DownweightOutliers.FUNCTION_TUKEY, 3.0 / MAD), createData()), 1e-6);
+  }
+
+  /**
+   * Rows with a missing value keep their weight and are not part of the
+   * statistics.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testMissing() throws Exception {
+    Instances	data;
+
+    data = createData();
+    data.instance(0).setMissing(1);
+    data.instance(0).setWeight(3.0);
+    data.instance(6).setWeight(2.0);
+    assertWeights(
+      "huber", new double[]{3, 1, 1, 1, 1, 1, 2 * MAD / 6, MAD / 7},
+      modify(newModifier("2", DownweightOutliers.FUNCTION_HUBER, 1.0), data));
+  }
+
+  /**
+   * A zero scale (eg constant values) leaves the weights unchanged, only
+   * numeric attributes are accepted.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testInvalid() throws Exception {
+    Instances	data;
+    int		i;
+
+    data = createData();
+    for (i = 0; i < data.numInstances(); i++)
+      data.instance(i).setValue(1, 4.0);
+    assertWeights("constant", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, modify(newModifier("2", DownweightOutliers.FUNCTION_HUBER, 1.0), data));
+
+    try {
+      modify(newModifier("1", DownweightOutliers.FUNCTION_HUBER, 1.0), createData());
+      fail("nominal attribute accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * The weights must be the same as with a single thread, also with more
+   * than one block of rows for the sketches.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    DownweightOutliers	modifier;
+    Instances		data;
+    Instances		single;
+
+    for (int function: new int[]{DownweightOutliers.FUNCTION_HUBER, DownweightOutliers.FUNCTION_TUKEY}) {
+      modifier = newModifier("last", function, 0.0);
+      checkThreads(modifier, 10);
+      modifier.setScale(new SelectedTag(DownweightOutliers.SCALE_IQR, DownweightOutliers.TAGS_SCALE));
+      checkThreads(modifier, 10);
+
+      data = createData(2 * DownweightOutliers.Plan.BLOCK_SIZE + 1000, 3, false);
+      modifier.setNumThreads(1);
+      single = modify(modifier, data);
+      modifier.setNumThreads(NUM_THREADS);
+      assertSameWeights("multiple blocks, 1 vs " + NUM_THREADS + " threads", single, modify(modifier, data));
+    }
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(newModifier("last", DownweightOutliers.FUNCTION_HUBER, 0.0), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(DownweightOutliersTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EqualizeClustersTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+import java.util.Arrays;
+
+/**
+ * Tests the EqualizeClusters modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class EqualizeClustersTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public EqualizeClustersTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns a modifier using the specified number of clusters.
+   *
+   * @param clusters	the number of clusters
+   * @return		the modifier
+   */
+  protected EqualizeClusters newModifier(int clusters) {
+    EqualizeClusters	result;
+
+    result = new EqualizeClusters();
+    result.setAttributeIndices("2-last");
+    result.setNumClusters(clusters);
+
+    return result;
+  }
+
+  /**
+   * Attribute x of the small dataset forms two well separated clusters
+   * (1, 1, 2, 3, 1, 2 and 8, 9), which get the same total weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    EqualizeClusters	modifier;
+    double		a;
+
+    modifier = newModifier(2);
+    modifier.setAttributeIndices("2");
+    a = 2.0 / 3.0;
+    assertWeights("two clusters", new double[]{a, a, a, a, a, a, 2, 2}, modify(modifier, createData()));
+
+    modifier.setNumClusters(1);
+    assertWeights("single cluster", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, modify(modifier, createData()));
+  }
+
+  /**
+   * The clusters depend only on the seed.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSeed() throws Exception {
+    Instances		data;
+    EqualizeClusters	modifier;
+    EqualizeClusters	other;
+    Instances		first;
+
+    data     = createData(ROWS, 10, false);
+    modifier = newModifier(8);
+    modifier.setSeed(42);
+    first = modify(modifier, data);
+    other = newModifier(8);
+    other.setSeed(42);
+    assertSameWeights("same seed", first, modify(other, data));
+    modifier.setSeed(43);
+    assertFalse("different seed", Arrays.equals(getWeights(first), getWeights(modify(modifier, data))));
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    checkThreads(newModifier(8), 10);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(newModifier(4), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(EqualizeClustersTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * EqualizeGroupsTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+/**
+ * Tests the EqualizeGroups modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class EqualizeGroupsTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public EqualizeGroupsTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Grouping the small dataset by class: 6x a, 2x b, with the average group
+   * size and a fixed total as target.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    EqualizeGroups	modifier;
+    double		a;
+
+    modifier = new EqualizeGroups();
+    a = 2.0 / 3.0;
+    assertWeights("average group size", new double[]{a, a, a, a, a, a, 2, 2}, modify(modifier, createData()));
+
+    modifier.setTargetTotal(10);
+    a = 10.0 / 6.0;
+    assertWeights("target total 10", new double[]{a, a, a, a, a, a, 5, 5}, modify(modifier, createData()));
+  }
+
+  /**
+   * Missing is a key value of its own.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testMissingKey() throws Exception {
+    EqualizeGroups	modifier;
+    Instances		data;
+    double		a;
+
+    data = createData();
+    data.instance(0).setClassMissing();
+    modifier = new EqualizeGroups();
+    a = 8.0 / 15.0;
+    assertWeights("missing key", new double[]{8.0 / 3.0, a, a, a, a, a, 4.0 / 3.0, 4.0 / 3.0}, modify(modifier, data));
+  }
+
+  /**
+   * Numeric key attributes are rejected.
+   *
+   * @throws Exception	if modifying fails for other reasons
+   */
+  public void testNumericKey() throws Exception {
+    EqualizeGroups	modifier;
+
+    modifier = new EqualizeGroups();
+    modifier.setKeyAttributes("2");
+    try {
+      modify(modifier, createData());
+      fail("numeric key accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    checkThreads(new EqualizeGroups(), 10);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(new EqualizeGroups(), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(EqualizeGroupsTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FixedValueByBitmapTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.weights.CompressedBitmap;
+
+import java.io.File;
+
+/**
+ * Tests the FixedValueByBitmap modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FixedValueByBitmapTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /** the bitmap file. */
+  protected File m_File;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public FixedValueByBitmapTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Sets up the test, creates the bitmap file.
+   *
+   * @throws Exception	if setup fails
+   */
+  @Override
+  protected void setUp() throws Exception {
+    super.setUp();
+    m_File = File.createTempFile("rows", ".roaring");
+  }
+
+  /**
+   * Removes the bitmap file.
+   *
+   * @throws Exception	if tear down fails
+   */
+  @Override
+  protected void tearDown() throws Exception {
+    m_File.delete();
+    super.tearDown();
+  }
+
+  /**
+   * Writes the 0-based row indices to the bitmap file.
+   *
+   * @param rows	the ascending row indices
+   * @throws Exception	if writing fails
+   */
+  protected void writeBitmap(int... rows) throws Exception {
+    CompressedBitmap.Builder	builder;
+
+    builder = new CompressedBitmap.Builder();
+    for (int row: rows)
+      builder.add(row);
+    builder.build().write(m_File);
+  }
+
+  /**
+   * Returns a modifier using the bitmap file.
+   *
+   * @return		the modifier
+   */
+  protected FixedValueByBitmap newModifier() {
+    FixedValueByBitmap	result;
+
+    result = new FixedValueByBitmap();
+    result.setBitmapFile(m_File);
+    result.setWeight(3.0);
+
+    return result;
+  }
+
+  /**
+   * The selected rows get the weight, the others keep theirs.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    writeBitmap(1, 6, 7);
+    assertWeights("rows 1, 6, 7", new double[]{1, 3, 1, 1, 1, 1, 3, 3}, modify(newModifier(), createData()));
+
+    writeBitmap();
+    assertWeights("no rows", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, modify(newModifier(), createData()));
+  }
+
+  /**
+   * Rows beyond the data get ignored.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testBeyondData() throws Exception {
+    writeBitmap(2, 8, 100000);
+    assertWeights("rows 2, 8, 100000", new double[]{1, 1, 3, 1, 1, 1, 1, 1}, modify(newModifier(), createData()));
+  }
+
+  /**
+   * The input rows remain unchanged.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testInputUnchanged() throws Exception {
+    Instances	data;
+
+    writeBitmap(0, 1, 2, 3, 4, 5, 6, 7);
+    data = createData();
+    assertWeights("all rows", new double[]{3, 3, 3, 3, 3, 3, 3, 3}, modify(newModifier(), data));
+    assertWeights("input", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, data);
+  }
+
+  /**
+   * A modified bitmap file gets loaded again by the same modifier.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFileChanged() throws Exception {
+    FixedValueByBitmap	modifier;
+
+    modifier = newModifier();
+    writeBitmap(0);
+    assertWeights("row 0", new double[]{3, 1, 1, 1, 1, 1, 1, 1}, modify(modifier, createData()));
+    writeBitmap(1, 2);
+    m_File.setLastModified(m_File.lastModified() + 2000);
+    assertWeights("rows 1, 2", new double[]{1, 3, 3, 1, 1, 1, 1, 1}, modify(modifier, createData()));
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    writeBitmap(0, 10, 11, 12, 13, 99);
+    checkSparse(newModifier(), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(FixedValueByBitmapTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
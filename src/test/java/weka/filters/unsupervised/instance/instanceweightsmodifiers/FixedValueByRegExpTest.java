@@ -0,0 +1,123 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FixedValueByRegExpTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+/**
+ * Tests the FixedValueByRegExp modifier, including the index-aware access
+ * of sparse rows.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FixedValueByRegExpTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /** the number of attributes of the random data. */
+  public static final int ATTRIBUTES = 20;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public FixedValueByRegExpTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns a modifier matching the labels of the class attribute.
+   *
+   * @param regExp	the regular expression
+   * @return		the modifier
+   */
+  protected FixedValueByRegExp newModifier(String regExp) {
+    FixedValueByRegExp	result;
+
+    result = new FixedValueByRegExp();
+    result.setAttributeIndex("first");
+    result.setRegExp(regExp);
+    result.setWeight(3.0);
+
+    return result;
+  }
+
+  /**
+   * Rows with matching labels get the weight, the others keep theirs.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    FixedValueByRegExp	modifier;
+
+    modifier = newModifier("b");
+    assertWeights("b", new double[]{1, 1, 1, 1, 1, 1, 3, 3}, modify(modifier, createData()));
+    modifier.setInvert(true);
+    assertWeights("not b", new double[]{3, 3, 3, 3, 3, 3, 1, 1}, modify(modifier, createData()));
+  }
+
+  /**
+   * Sparse rows must get the same weights as dense ones, also for the first
+   * label which is not stored in sparse rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparseSameAsDense() throws Exception {
+    Instances	dense;
+    Instances	sparse;
+
+    dense  = createData(ROWS / 10, ATTRIBUTES, false);
+    sparse = createData(ROWS / 10, ATTRIBUTES, true);
+    for (String regExp: new String[]{"a", "b|c"})
+      assertSameWeights("regexp " + regExp, modify(newModifier(regExp), dense), modify(newModifier(regExp), sparse));
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(newModifier("a"), ATTRIBUTES);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(FixedValueByRegExpTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromAttributeTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+/**
+ * Tests the FromAttribute modifier, including the index-aware access of
+ * sparse rows.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromAttributeTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /** the number of attributes of the random data. */
+  public static final int ATTRIBUTES = 20;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public FromAttributeTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns a modifier using the specified attribute.
+   *
+   * @param index	the attribute index
+   * @return		the modifier
+   */
+  protected FromAttribute newModifier(String index) {
+    FromAttribute	result;
+
+    result = new FromAttribute();
+    result.setAttributeIndex(index);
+
+    return result;
+  }
+
+  /**
+   * The values of x become the weights.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    assertWeights("x", new double[]{1, 1, 2, 3, 1, 2, 8, 9}, modify(newModifier("2"), createData()));
+  }
+
+  /**
+   * Sparse rows must get the same weights as dense ones, for attributes at
+   * the start, in the middle and at the end of the stored values.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparseSameAsDense() throws Exception {
+    Instances	dense;
+    Instances	sparse;
+
+    dense  = createData(ROWS / 10, ATTRIBUTES, false);
+    sparse = createData(ROWS / 10, ATTRIBUTES, true);
+    for (String index: new String[]{"2", "10", "last"})
+      assertSameWeights("attribute " + index, modify(newModifier(index), dense), modify(newModifier(index), sparse));
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(newModifier("last"), ATTRIBUTES);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(FromAttributeTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * FromExpressionTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+
+/**
+ * Tests the FromExpression modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class FromExpressionTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public FromExpressionTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Modifies the small dataset with the expression.
+   *
+   * @param expression	the expression to use
+   * @return		the modified data
+   * @throws Exception	if modifying fails
+   */
+  protected Instances modify(String expression) throws Exception {
+    FromExpression	modifier;
+
+    modifier = new FromExpression();
+    modifier.setExpression(expression);
+
+    return modify(modifier, createData());
+  }
+
+  /**
+   * Attribute names, indices, the weight and the class label index as
+   * variables.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    assertWeights("WEIGHT + x", new double[]{2, 2, 3, 4, 2, 3, 9, 10}, modify("WEIGHT + x"));
+    assertWeights("ismissing", new double[]{1, 1, 1, 0, 1, 0, 7, 0}, modify("ismissing(ATT3) ? 0 : ATT2 - y"));
+    assertWeights("class", new double[]{1, 1, 1, 1, 1, 1, 5, 5}, modify("class == 1 ? 5 : WEIGHT"));
+  }
+
+  /**
+   * Negative results are set to 0, missing and infinite ones keep the
+   * weight.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testInvalidResults() throws Exception {
+    assertWeights("negative/missing", new double[]{0, 0, 0, 1, 0, 0, 0, 1}, modify("y - x"));
+    assertWeights("infinite", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, modify("x / 0"));
+  }
+
+  /**
+   * Invalid expressions get rejected.
+   *
+   * @throws Exception	if modifying fails for other reasons
+   */
+  public void testInvalidExpression() throws Exception {
+    try {
+      modify("x + unknown");
+      fail("unknown variable accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    FromExpression	modifier;
+
+    modifier = new FromExpression();
+    modifier.setExpression("log1p(abs(ATT2)) * WEIGHT + (ATT3 > 0 ? 2 : 1)");
+    checkThreads(modifier, 10);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    FromExpression	modifier;
+
+    modifier = new FromExpression();
+    modifier.setExpression("WEIGHT * 2");
+    checkSparse(modifier, 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(FromExpressionTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
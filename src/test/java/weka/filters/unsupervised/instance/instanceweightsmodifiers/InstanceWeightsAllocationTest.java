@@ -0,0 +1,420 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * InstanceWeightsAllocationTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.weights.AbstractAllocationTestCase;
+import weka.core.weights.CompressedBitmap;
+
+import java.io.File;
+
+/**
+ * Enforces the allocation budgets of the instance weights modifiers.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class InstanceWeightsAllocationTest
+  extends AbstractAllocationTestCase {
+
+  /** the budget in bytes per row for loading weights from a text file (line strings, number parsing). */
+  public static final double LOADER_BUDGET = 512;
+
+  /** the budget in bytes per row for creating new rows with 10 additional values (10 attributes, 8 bytes value and
+   * index each, twice since SparseInstance copies the arrays). */
+  public static final double NEW_ROW_BUDGET = ROW_COPY_BUDGET + 2 * 20 * 16;
+
+  /** the budget in bytes per row for growing the levels of a quantile sketch (O(k log n) in total, amortized over
+   * the rows of the small dataset). */
+  public static final double SKETCH_BUDGET = 16;
+
+  /** the budget in bytes per row for standardizing 10 attributes into a point matrix (4 bytes per value, plus
+   * assignments or distances). */
+  public static final double POINTS_BUDGET = ROW_COPY_BUDGET + 64;
+
+  /** the budget in bytes per row for a random projection forest of 8 trees on 10 attributes (8 bytes per tree for
+   * order and positions; buffers shared by the trees, points and distances; the random directions of the splits,
+   * as StrictMath.cos allocates per call on Java 21+). Measured: 214 (Java 8, 17), 331 (Java 21). */
+  public static final double FOREST_BUDGET = ROW_COPY_BUDGET + 8 * 8 + 128 + 128;
+
+  /** the budget in bytes per row for hashing the rows into a table that doubles in size when growing. */
+  public static final double HASH_TABLE_BUDGET = 256;
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public InstanceWeightsAllocationTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Checks the budget of doModify for the modifier, on dense and sparse data.
+   *
+   * @param modifier	the modifier to check
+   * @param budget	the budget in bytes per row
+   * @throws Exception	if modifying fails
+   */
+  protected void checkRowBudget(final AbstractInstanceWeightsModifier modifier, double budget) throws Exception {
+    for (boolean sparse: new boolean[]{false, true}) {
+      final Instances data = createData(SMALL, 10, sparse);
+      assertBytesPerRow(
+	modifier.getClass().getSimpleName() + (sparse ? " (sparse)" : " (dense)"),
+	new Operation() {
+	  public void execute() throws Exception {
+	    modifier.doModify(data);
+	  }
+	},
+	data.numInstances(), budget);
+    }
+  }
+
+  /**
+   * PassThrough must not allocate anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testPassThrough() throws Exception {
+    final PassThrough	modifier;
+
+    modifier = new PassThrough();
+    for (int rows: new int[]{SMALL, LARGE}) {
+      final Instances data = createData(rows, 10, false);
+      assertBytes(
+	"PassThrough with " + rows + " rows",
+	new Operation() {
+	  public void execute() throws Exception {
+	    modifier.doModify(data);
+	  }
+	},
+	CONSTANT_BUDGET);
+    }
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFixedValue() throws Exception {
+    FixedValue	modifier;
+
+    modifier = new FixedValue();
+    modifier.setRowIndices("first-" + (SMALL / 2));
+    modifier.setWeight(2.0);
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFixedValueByRegExp() throws Exception {
+    FixedValueByRegExp	modifier;
+
+    modifier = new FixedValueByRegExp();
+    modifier.setAttributeIndex("first");
+    modifier.setRegExp("a|b");
+    modifier.setWeight(2.0);
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFixedValueByBitmap() throws Exception {
+    FixedValueByBitmap		modifier;
+    CompressedBitmap.Builder	builder;
+    File			file;
+    int				i;
+
+    builder = new CompressedBitmap.Builder();
+    for (i = 0; i < SMALL; i += 3)
+      builder.add(i);
+    file = File.createTempFile("rows", ".bitmap");
+    m_TempFiles.add(file);
+    builder.build().write(file);
+
+    modifier = new FixedValueByBitmap();
+    modifier.setBitmapFile(file);
+    modifier.setWeight(2.0);
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFromAttribute() throws Exception {
+    FromAttribute	modifier;
+
+    modifier = new FromAttribute();
+    modifier.setAttributeIndex("last");
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFromFile() throws Exception {
+    FromFile	modifier;
+
+    modifier = new FromFile();
+    modifier.setWeightsFile(createWeightsFile(SMALL));
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Loading the weights must stay within the loader budget.
+   *
+   * @throws Exception	if loading fails
+   */
+  public void testFromFileLoader() throws Exception {
+    final FromFile	modifier;
+
+    modifier = new FromFile();
+    modifier.setWeightsFile(createWeightsFile(LARGE));
+    assertBytesPerRow(
+      "FromFile loader",
+      new Operation() {
+	public void execute() throws Exception {
+	  modifier.loadWeights();
+	}
+      },
+      LARGE, LOADER_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, counting the classes must not
+   * allocate anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testBalanceClasses() throws Exception {
+    checkRowBudget(new BalanceClasses(), ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, the group counts depend on
+   * the number of groups, not rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testEqualizeGroups() throws Exception {
+    checkRowBudget(new EqualizeGroups(), ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, the draws must not allocate
+   * anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testBootstrap() throws Exception {
+    Bootstrap	modifier;
+
+    modifier = new Bootstrap();
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+    modifier.setScheme(new SelectedTag(Bootstrap.SCHEME_BAYESIAN, Bootstrap.TAGS_SCHEME));
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Appending the replicates requires new rows, but nothing beyond their
+   * values.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testBootstrapReplicates() throws Exception {
+    BootstrapReplicates	modifier;
+
+    modifier = new BootstrapReplicates();
+    checkRowBudget(modifier, NEW_ROW_BUDGET);
+    modifier.setScheme(new SelectedTag(Bootstrap.SCHEME_BAYESIAN, Bootstrap.TAGS_SCHEME));
+    checkRowBudget(modifier, NEW_ROW_BUDGET);
+  }
+
+  /**
+   * Grouping the rows requires their hashes and a hash table that grows
+   * with the number of groups (all rows are unique in the worst case).
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testCollapseDuplicates() throws Exception {
+    checkRowBudget(new CollapseDuplicates(), HASH_TABLE_BUDGET);
+  }
+
+  /**
+   * The buckets get counted one band at a time, i.e., the table does not
+   * grow with the number of bands.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testDownweightNearDuplicates() throws Exception {
+    checkRowBudget(new DownweightNearDuplicates(), HASH_TABLE_BUDGET);
+  }
+
+  /**
+   * The reservoir depends on the sample size, not the number of rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testReservoirSample() throws Exception {
+    ReservoirSample	modifier;
+
+    modifier = new ReservoirSample();
+    modifier.setSampleSize(SMALL / 10);
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows. The last attribute gets
+   * turned into a date attribute.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testTimeDecay() throws Exception {
+    final TimeDecay	modifier;
+    int			last;
+    int			i;
+
+    modifier = new TimeDecay();
+    modifier.setAttributeIndex("last");
+    for (boolean sparse: new boolean[]{false, true}) {
+      final Instances data = createData(SMALL, 10, sparse);
+      last = data.numAttributes() - 1;
+      data.deleteAttributeAt(last);
+      data.insertAttributeAt(new Attribute("date", "yyyy-MM-dd"), last);
+      for (i = 0; i < data.numInstances(); i++)
+	data.instance(i).setValue(last, i * TimeDecay.MILLIS_PER_DAY);
+      assertBytesPerRow(
+	"TimeDecay" + (sparse ? " (sparse)" : " (dense)"),
+	new Operation() {
+	  public void execute() throws Exception {
+	    modifier.doModify(data);
+	  }
+	},
+	data.numInstances(), ROW_COPY_BUDGET);
+    }
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, the base modifier's output
+   * gets rescaled in place.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testNormalize() throws Exception {
+    Normalize	modifier;
+
+    modifier = new Normalize();
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+    modifier.setModifier(new BalanceClasses());
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, evaluating the compiled
+   * expression must not allocate anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFromExpression() throws Exception {
+    FromExpression	modifier;
+
+    modifier = new FromExpression();
+    modifier.setExpression("log1p(abs(num1)) * WEIGHT + (ATT3 > 0 ? 2 : 1)");
+    checkRowBudget(modifier, ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, counting the missing values
+   * must not allocate anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testDownweightMissingValues() throws Exception {
+    checkRowBudget(new DownweightMissingValues(), ROW_COPY_BUDGET);
+  }
+
+  /**
+   * Modifiers may only shallow copy the rows, the sketches depend on the
+   * sketch size, not the number of rows.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testDownweightOutliers() throws Exception {
+    DownweightOutliers	modifier;
+
+    modifier = new DownweightOutliers();
+    modifier.setAttributeIndex("last");
+    checkRowBudget(modifier, ROW_COPY_BUDGET + 2 * SKETCH_BUDGET);
+  }
+
+  /**
+   * The forest requires the standardized points and a few arrays per tree
+   * and row, the splits must not allocate anything per row and level.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testDownweightDenseRegions() throws Exception {
+    checkRowBudget(new DownweightDenseRegions(), FOREST_BUDGET);
+  }
+
+  /**
+   * Clustering requires the standardized points and the assignments, the
+   * mini-batches must not allocate anything per row.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testEqualizeClusters() throws Exception {
+    checkRowBudget(new EqualizeClusters(), POINTS_BUDGET);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(InstanceWeightsAllocationTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * NormalizeTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+
+/**
+ * Tests the Normalize modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class NormalizeTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public NormalizeTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns a Normalize modifier with the specified base modifier, which
+   * skips the capabilities check as well (weighted rows).
+   *
+   * @param base	the base modifier
+   * @return		the modifier
+   */
+  protected Normalize newModifier(AbstractInstanceWeightsModifier base) {
+    Normalize	result;
+
+    base.setDoNotCheckCapabilities(true);
+    result = new Normalize();
+    result.setModifier(base);
+
+    return result;
+  }
+
+  /**
+   * Returns the small dataset with weights 1 to 8.
+   *
+   * @return		the data
+   */
+  protected Instances createWeighted() {
+    Instances	result;
+    int		i;
+
+    result = createData();
+    for (i = 0; i < result.numInstances(); i++)
+      result.instance(i).setWeight(i + 1);
+
+    return result;
+  }
+
+  /**
+   * Mean and sum of the weights 1 to 8 (total 36).
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    Normalize	modifier;
+    double[]	expected;
+    int		i;
+
+    modifier = newModifier(new PassThrough());
+    expected = new double[8];
+    for (i = 0; i < expected.length; i++)
+      expected[i] = (i + 1) * 8.0 / 36.0;
+    assertWeights("mean 1", expected, modify(modifier, createWeighted()));
+
+    modifier.setMode(new SelectedTag(Normalize.MODE_SUM, Normalize.TAGS_MODE));
+    modifier.setValue(2.0);
+    for (i = 0; i < expected.length; i++)
+      expected[i] = (i + 1) * 2.0 / 36.0;
+    assertWeights("sum 2", expected, modify(modifier, createWeighted()));
+  }
+
+  /**
+   * The output of the base modifier gets rescaled, the input data is left
+   * untouched.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testBaseModifier() throws Exception {
+    Normalize	modifier;
+    Instances	data;
+    double	a;
+    double	b;
+
+    modifier = newModifier(new BalanceClasses());
+    modifier.setMode(new SelectedTag(Normalize.MODE_SUM, Normalize.TAGS_MODE));
+    data = createData();
+    a    = 1.0 / 12.0;
+    b    = 1.0 / 4.0;
+    assertWeights("balanced, sum 1", new double[]{a, a, a, a, a, a, b, b}, modify(modifier, data));
+    assertWeights("input", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, data);
+  }
+
+  /**
+   * Weights that do not sum up to a positive value are left untouched.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testZeroTotal() throws Exception {
+    Instances	data;
+    int		i;
+
+    data = createData();
+    for (i = 0; i < data.numInstances(); i++)
+      data.instance(i).setWeight(0.0);
+    assertWeights("zero", new double[8], modify(newModifier(new PassThrough()), data));
+  }
+
+  /**
+   * The weights must be the same as with a single thread.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testThreads() throws Exception {
+    Normalize	modifier;
+
+    modifier = newModifier(new PassThrough());
+    checkThreads(modifier, 10);
+    modifier = newModifier(new BalanceClasses());
+    checkThreads(modifier, 10);
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    checkSparse(newModifier(new PassThrough()), 10);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(NormalizeTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
@@ -0,0 +1,192 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * ReservoirSampleTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.weights.WeightedReservoir;
+
+/**
+ * Tests the ReservoirSample modifier, including the streaming API of its plan.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class ReservoirSampleTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public ReservoirSampleTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Returns the row values as string, for comparing the sampled rows.
+   *
+   * @param data	the data
+   * @return		the rows
+   */
+  protected String toString(Instances data) {
+    StringBuilder	result;
+    int			i;
+
+    result = new StringBuilder();
+    for (i = 0; i < data.numInstances(); i++)
+      result.append(data.instance(i).toString()).append("\n");
+
+    return result.toString();
+  }
+
+  /**
+   * Small data, no more rows than the sample size: unchanged, rows with
+   * zero weight get dropped.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownDataUnchanged() throws Exception {
+    ReservoirSample	modifier;
+    Instances		data;
+
+    modifier = new ReservoirSample();
+    modifier.setSampleSize(10);
+    assertWeights("sample size 10", new double[]{1, 1, 1, 1, 1, 1, 1, 1}, modify(modifier, createData()));
+
+    data = createData();
+    data.instance(0).setWeight(0.0);
+    data.instance(6).setWeight(2.0);
+    assertWeights("zero weight dropped", new double[]{1, 1, 1, 1, 1, 2, 1}, modify(modifier, data));
+  }
+
+  /**
+   * Small data, more rows than the sample size: the kept rows represent
+   * the total weight and are in their original order.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownDataSampled() throws Exception {
+    ReservoirSample	modifier;
+    Instances		result;
+    int			i;
+
+    modifier = new ReservoirSample();
+    modifier.setSampleSize(3);
+    result = modify(modifier, createData());
+    assertWeights("sample size 3", new double[]{8.0 / 3, 8.0 / 3, 8.0 / 3}, result);
+    for (i = 1; i < result.numInstances(); i++)
+      assertTrue("original order", result.instance(i - 1).value(1) <= result.instance(i).value(1));
+  }
+
+  /**
+   * The sample depends only on the seed.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSeed() throws Exception {
+    ReservoirSample	modifier;
+    ReservoirSample	other;
+    Instances		data;
+    String		first;
+
+    data     = createData(ROWS, 10, false);
+    modifier = new ReservoirSample();
+    modifier.setSampleSize(100);
+    modifier.setSeed(42);
+    first = toString(modify(modifier, data));
+    other = new ReservoirSample();
+    other.setSampleSize(100);
+    other.setSeed(42);
+    assertEquals("same seed", first, toString(modify(other, data)));
+    modifier.setSeed(43);
+    assertFalse("different seed", first.equals(toString(modify(modifier, data))));
+  }
+
+  /**
+   * Sparse rows stay sparse.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    ReservoirSample	modifier;
+
+    modifier = new ReservoirSample();
+    modifier.setSampleSize(50);
+    checkSparse(modifier, 10);
+  }
+
+  /**
+   * Feeding the rows of several batches into the plan's reservoir gives the
+   * same sample as modifying the complete data.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testStreaming() throws Exception {
+    ReservoirSample		modifier;
+    ReservoirSample.Plan	plan;
+    WeightedReservoir<Instance>	reservoir;
+    Instances			data;
+    Instances			batch;
+    Instances			expected;
+    Instances			actual;
+    int				i;
+
+    data     = createData(ROWS, 10, false);
+    modifier = new ReservoirSample();
+    modifier.setSampleSize(100);
+    expected = modify(modifier, data);
+
+    plan      = (ReservoirSample.Plan) modifier.getPlan(data);
+    reservoir = plan.newReservoir();
+    for (i = 0; i < data.numInstances(); i += 1000) {
+      batch = new Instances(data, i, Math.min(1000, data.numInstances() - i));
+      for (Instance inst: batch)
+	reservoir.offer(inst, inst.weight());
+    }
+    assertEquals("offered", data.numInstances(), reservoir.getOffered());
+    actual = plan.toInstances(new Instances(data, 0), reservoir);
+
+    assertEquals("rows", toString(expected), toString(actual));
+    assertSameWeights("weights", expected, actual);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(ReservoirSampleTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}
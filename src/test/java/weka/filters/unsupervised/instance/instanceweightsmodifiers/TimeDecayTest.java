@@ -0,0 +1,205 @@
+/*
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License as published by
+ *   the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU General Public License for more details.
+ *
+ *   You should have received a copy of the GNU General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+/*
+ * TimeDecayTest.java
+ * Copyright (C) 2019 University of Waikato, Hamilton, NZ
+ */
+
+
+
+package weka.filters.unsupervised.instance.instanceweightsmodifiers;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SelectedTag;
+import weka.core.SparseInstance;
+
+import java.util.ArrayList;
+
+/**
+ * Tests the TimeDecay modifier.
+ *
+ * @author FracPete (fracpete at waikato dot ac dot nz)
+ */
+public class TimeDecayTest
+  extends AbstractInstanceWeightsModifierTestCase {
+
+  /** the dates of the small dataset (0, 30, 60 and 15 days before the latest one, missing). */
+  public static final String[] DATES = {"2019-01-31", "2019-01-01", "2018-12-02", "2019-01-16", null};
+
+  /**
+   * Constructs the test case.
+   *
+   * @param name	the name of the test
+   */
+  public TimeDecayTest(String name) {
+    super(name);
+  }
+
+  /**
+   * Generates the small dataset with dates: numeric attribute "x" and date
+   * attribute "date" (yyyy-MM-dd), see {@link #DATES}.
+   *
+   * @param sparse	whether to generate sparse rows
+   * @return		the data
+   * @throws Exception	if parsing of dates fails
+   */
+  protected Instances createDates(boolean sparse) throws Exception {
+    ArrayList<Attribute>	attributes;
+    Instances			result;
+    double[]			values;
+    int				i;
+
+    attributes = new ArrayList<Attribute>();
+    attributes.add(new Attribute("x"));
+    attributes.add(new Attribute("date", "yyyy-MM-dd"));
+    result = new Instances("dates", attributes, DATES.length);
+
+    for (i = 0; i < DATES.length; i++) {
+      values = new double[]{i, (DATES[i] == null) ? Double.NaN : result.attribute(1).parseDate(DATES[i])};
+      if (sparse)
+	result.add(new SparseInstance(1.0, values));
+      else
+	result.add(new DenseInstance(1.0, values));
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns a modifier for the date attribute.
+   *
+   * @param decay	the type of decay
+   * @return		the modifier
+   */
+  protected TimeDecay newModifier(int decay) {
+    TimeDecay	result;
+
+    result = new TimeDecay();
+    result.setAttributeIndex("2");
+    result.setDecay(new SelectedTag(decay, TimeDecay.TAGS_DECAY));
+    result.setPeriod(30);
+    result.setFactor(0.5);
+
+    return result;
+  }
+
+  /**
+   * Exponential and step decay relative to the latest date, multiplied with
+   * the original weights.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testKnownData() throws Exception {
+    Instances	data;
+
+    assertWeights("exponential", new double[]{1, 0.5, 0.25, Math.sqrt(0.5), 1}, modify(newModifier(TimeDecay.DECAY_EXPONENTIAL), createDates(false)));
+    assertWeights("step", new double[]{1, 0.5, 0.25, 1, 1}, modify(newModifier(TimeDecay.DECAY_STEP), createDates(false)));
+
+    data = createDates(false);
+    data.instance(1).setWeight(4.0);
+    data.instance(4).setWeight(3.0);
+    assertWeights("weighted", new double[]{1, 2, 0.25, Math.sqrt(0.5), 3}, modify(newModifier(TimeDecay.DECAY_EXPONENTIAL), data));
+  }
+
+  /**
+   * A fixed reference time; rows dated after it are not decayed.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testFixedReference() throws Exception {
+    TimeDecay	modifier;
+
+    modifier = newModifier(TimeDecay.DECAY_EXPONENTIAL);
+    modifier.setReference(new SelectedTag(TimeDecay.REFERENCE_FIXED, TimeDecay.TAGS_REFERENCE));
+    modifier.setReferenceTime("2019-03-02");
+    assertWeights("60 days later", new double[]{0.5, 0.25, 0.125, 0.5 * Math.sqrt(0.5), 1}, modify(modifier, createDates(false)));
+    modifier.setReferenceTime("2019-01-16");
+    assertWeights("15 days earlier", new double[]{1, Math.sqrt(0.5), 0.5 * Math.sqrt(0.5), 1, 1}, modify(modifier, createDates(false)));
+  }
+
+  /**
+   * Every batch has its own latest date.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testBatches() throws Exception {
+    TimeDecay	modifier;
+    Instances	data;
+
+    modifier = newModifier(TimeDecay.DECAY_EXPONENTIAL);
+    data     = createDates(false);
+    assertWeights("first batch", new double[]{1, 0.5}, modify(modifier, new Instances(data, 0, 2)));
+    assertWeights("second batch", new double[]{0.5 * Math.sqrt(0.5), 1, 1}, modify(modifier, new Instances(data, 2, 3)));
+  }
+
+  /**
+   * Only date attributes are accepted.
+   *
+   * @throws Exception	if modifying fails for other reasons
+   */
+  public void testNotDate() throws Exception {
+    TimeDecay	modifier;
+
+    modifier = newModifier(TimeDecay.DECAY_EXPONENTIAL);
+    modifier.setAttributeIndex("1");
+    try {
+      modify(modifier, createDates(false));
+      fail("numeric attribute accepted");
+    }
+    catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Sparse rows stay sparse and get the same weights as dense ones.
+   *
+   * @throws Exception	if modifying fails
+   */
+  public void testSparse() throws Exception {
+    Instances	dense;
+    Instances	sparse;
+    int		i;
+
+    dense  = modify(newModifier(TimeDecay.DECAY_EXPONENTIAL), createDates(false));
+    sparse = modify(newModifier(TimeDecay.DECAY_EXPONENTIAL), createDates(true));
+    assertSameWeights("dense vs sparse", dense, sparse);
+    for (i = 0; i < sparse.numInstances(); i++)
+      assertTrue("row #" + (i+1) + " not sparse", sparse.instance(i) instanceof SparseInstance);
+  }
+
+  /**
+   * Returns a test suite.
+   *
+   * @return		the test suite
+   */
+  public static Test suite() {
+    return new TestSuite(TimeDecayTest.class);
+  }
+
+  /**
+   * Runs the test from commandline.
+   *
+   * @param args	ignored
+   */
+  public static void main(String[] args) {
+    junit.textui.TestRunner.run(suite());
+  }
+}